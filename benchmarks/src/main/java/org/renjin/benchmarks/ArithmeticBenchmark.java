@@ -0,0 +1,99 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.renjin.sexp.SEXP;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures element-wise arithmetic and comparison operators.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArithmeticBenchmark extends RBenchmark {
+
+  @Param({"10", "100000"})
+  public int size;
+
+  private SEXP doublePlus;
+  private SEXP integerPlus;
+  private SEXP scalarTimes;
+  private SEXP recycled;
+  private SEXP negate;
+  private SEXP modulo;
+  private SEXP comparison;
+
+  @Setup
+  public void setup() {
+    startSession();
+    eval("x <- as.double(seq_len(" + size + "))");
+    eval("y <- rev(x)");
+    eval("xi <- seq_len(" + size + ")");
+    eval("yi <- rev(xi)");
+
+    doublePlus = parse("x + y");
+    integerPlus = parse("xi + yi");
+    scalarTimes = parse("x * 2");
+    recycled = parse("x / c(1, 2)");
+    negate = parse("-x");
+    modulo = parse("xi %% 7L");
+    comparison = parse("x > y");
+  }
+
+  @Benchmark
+  public SEXP doublePlus() {
+    return evaluate(doublePlus);
+  }
+
+  @Benchmark
+  public SEXP integerPlus() {
+    return evaluate(integerPlus);
+  }
+
+  @Benchmark
+  public SEXP scalarTimes() {
+    return evaluate(scalarTimes);
+  }
+
+  @Benchmark
+  public SEXP recycled() {
+    return evaluate(recycled);
+  }
+
+  @Benchmark
+  public SEXP negate() {
+    return evaluate(negate);
+  }
+
+  @Benchmark
+  public SEXP modulo() {
+    return evaluate(modulo);
+  }
+
+  @Benchmark
+  public SEXP comparison() {
+    return evaluate(comparison);
+  }
+}
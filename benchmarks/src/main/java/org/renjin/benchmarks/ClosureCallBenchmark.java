@@ -0,0 +1,82 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.renjin.sexp.SEXP;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of calling closures: matching arguments, creating promises and
+ * the function environment.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClosureCallBenchmark extends RBenchmark {
+
+  private SEXP positional;
+  private SEXP named;
+  private SEXP defaults;
+  private SEXP ellipses;
+  private SEXP recursive;
+
+  @Setup
+  public void setup() {
+    startSession();
+    eval("f <- function(x, y = 2, z = 3) x");
+    eval("g <- function(...) f(...)");
+    eval("fib <- function(n) if(n < 2) n else fib(n - 1) + fib(n - 2)");
+
+    positional = parse("f(1, 2, 3)");
+    named = parse("f(z = 3, y = 2, x = 1)");
+    defaults = parse("f(1)");
+    ellipses = parse("g(1, z = 3)");
+    recursive = parse("fib(15)");
+  }
+
+  @Benchmark
+  public SEXP positionalArguments() {
+    return evaluate(positional);
+  }
+
+  @Benchmark
+  public SEXP namedArguments() {
+    return evaluate(named);
+  }
+
+  @Benchmark
+  public SEXP defaultArguments() {
+    return evaluate(defaults);
+  }
+
+  @Benchmark
+  public SEXP forwardedEllipses() {
+    return evaluate(ellipses);
+  }
+
+  @Benchmark
+  public SEXP recursiveCalls() {
+    return evaluate(recursive);
+  }
+}
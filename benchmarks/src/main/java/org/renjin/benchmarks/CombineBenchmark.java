@@ -0,0 +1,85 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.renjin.sexp.SEXP;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures combining vectors and lists with {@code c()} and {@code unlist()}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CombineBenchmark extends RBenchmark {
+
+  @Param({"1000", "100000"})
+  public int size;
+
+  private SEXP doubles;
+  private SEXP mixed;
+  private SEXP named;
+  private SEXP lists;
+  private SEXP unlist;
+
+  @Setup
+  public void setup() {
+    startSession();
+    eval("x <- as.double(seq_len(" + size + "))");
+    eval("y <- seq_len(" + size + ")");
+    eval("nx <- structure(x, names = paste0('n', seq_along(x)))");
+    eval("l <- lapply(1:100, function(i) x[1:10])");
+
+    doubles = parse("c(x, x)");
+    mixed = parse("c(x, y, TRUE)");
+    named = parse("c(a = 1, nx)");
+    lists = parse("c(l, l)");
+    unlist = parse("unlist(l)");
+  }
+
+  @Benchmark
+  public SEXP doubles() {
+    return evaluate(doubles);
+  }
+
+  @Benchmark
+  public SEXP mixedTypes() {
+    return evaluate(mixed);
+  }
+
+  @Benchmark
+  public SEXP namedElements() {
+    return evaluate(named);
+  }
+
+  @Benchmark
+  public SEXP lists() {
+    return evaluate(lists);
+  }
+
+  @Benchmark
+  public SEXP unlist() {
+    return evaluate(unlist);
+  }
+}
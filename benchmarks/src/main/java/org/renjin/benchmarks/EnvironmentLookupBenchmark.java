@@ -0,0 +1,77 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.renjin.sexp.Environment;
+import org.renjin.sexp.Function;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.Symbol;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures variable and function lookups through the chain of enclosing environments.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnvironmentLookupBenchmark extends RBenchmark {
+
+  private Environment global;
+  private Symbol paste;
+  private Symbol pi;
+  private Symbol missing;
+  private SEXP nested;
+
+  @Setup
+  public void setup() {
+    startSession();
+    eval("nested <- function() { a <- 1; (function() { b <- 2; (function() a + b + pi)() })() }");
+
+    global = session.getGlobalEnvironment();
+    paste = Symbol.get("paste");
+    pi = Symbol.get("pi");
+    missing = Symbol.get("no.such.variable");
+    nested = parse("nested()");
+  }
+
+  @Benchmark
+  public Function functionFromGlobal() {
+    return global.findFunction(context, paste);
+  }
+
+  @Benchmark
+  public SEXP variableFromGlobal() {
+    return global.findVariable(context, pi);
+  }
+
+  @Benchmark
+  public SEXP unboundVariable() {
+    return global.findVariable(context, missing);
+  }
+
+  @Benchmark
+  public SEXP nestedFunctionEnvironments() {
+    return evaluate(nested);
+  }
+}
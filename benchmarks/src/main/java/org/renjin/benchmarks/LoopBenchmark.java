@@ -0,0 +1,80 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.renjin.primitives.special.ForFunction;
+import org.renjin.sexp.SEXP;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code for} loops, both interpreted and compiled to bytecode as enabled by
+ * the {@code renjin.compile.loops} system property.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoopBenchmark extends RBenchmark {
+
+  @Param({"false", "true"})
+  public boolean compileLoops;
+
+  private boolean previous;
+
+  private SEXP sum;
+  private SEXP fill;
+  private SEXP nested;
+
+  @Setup
+  public void setup() {
+    previous = ForFunction.COMPILE_LOOPS;
+    ForFunction.COMPILE_LOOPS = compileLoops;
+
+    startSession();
+    eval("x <- as.double(1:10000)");
+
+    sum = parse("{ s <- 0; for(i in seq_along(x)) s <- s + x[i] * 2; s }");
+    fill = parse("{ y <- numeric(length(x)); for(i in seq_along(x)) y[i] <- x[i] %% 7; y }");
+    nested = parse("{ s <- 0L; for(i in 1:100) for(j in 1:300) if((i + j) %% 3L == 0L) s <- s + 1L; s }");
+  }
+
+  @TearDown
+  public void tearDown() {
+    ForFunction.COMPILE_LOOPS = previous;
+  }
+
+  @Benchmark
+  public SEXP sum() {
+    return evaluate(sum);
+  }
+
+  @Benchmark
+  public SEXP fill() {
+    return evaluate(fill);
+  }
+
+  @Benchmark
+  public SEXP nested() {
+    return evaluate(nested);
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.renjin.sexp.SEXP;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the hash and sort based primitives {@code match}, {@code unique}, {@code duplicated} and
+ * {@code order} on vectors with about ten copies of each value.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchUniqueOrderBenchmark extends RBenchmark {
+
+  @Param({"1000", "100000"})
+  public int size;
+
+  @Param({"integer", "double", "character"})
+  public String type;
+
+  private SEXP match;
+  private SEXP unique;
+  private SEXP duplicated;
+  private SEXP order;
+  private SEXP sort;
+
+  @Setup
+  public void setup() {
+    startSession();
+    eval("set.seed(42)");
+    eval("x <- sample.int(" + size + " %/% 10 + 1, " + size + ", replace = TRUE)");
+    eval("table <- seq_len(" + size + " %/% 10 + 1)");
+    if(type.equals("double")) {
+      eval("x <- x + 0.5; table <- table + 0.5");
+    } else if(type.equals("character")) {
+      eval("x <- paste0('key', x); table <- paste0('key', table)");
+    }
+
+    match = parse("match(x, table)");
+    unique = parse("unique(x)");
+    duplicated = parse("duplicated(x)");
+    order = parse("order(x)");
+    sort = parse("sort(x)");
+  }
+
+  @Benchmark
+  public SEXP match() {
+    return evaluate(match);
+  }
+
+  @Benchmark
+  public SEXP unique() {
+    return evaluate(unique);
+  }
+
+  @Benchmark
+  public SEXP duplicated() {
+    return evaluate(duplicated);
+  }
+
+  @Benchmark
+  public SEXP order() {
+    return evaluate(order);
+  }
+
+  @Benchmark
+  public SEXP sort() {
+    return evaluate(sort);
+  }
+}
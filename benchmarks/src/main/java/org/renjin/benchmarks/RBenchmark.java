@@ -0,0 +1,74 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.benchmarks;
+
+import org.renjin.eval.Context;
+import org.renjin.eval.Session;
+import org.renjin.eval.SessionBuilder;
+import org.renjin.parser.RParser;
+import org.renjin.sexp.ExpressionVector;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.Vector;
+
+/**
+ * Base class for benchmarks which evaluate R code in their own {@link Session}.
+ *
+ * <p>Each benchmark prepares its data and parses its expressions once, in a {@code @Setup} method, so that
+ * only evaluation is measured.</p>
+ */
+public abstract class RBenchmark {
+
+  protected Session session;
+  protected Context context;
+
+  protected void startSession() {
+    session = new SessionBuilder().build();
+    context = session.getTopLevelContext();
+  }
+
+  /**
+   * Parses and evaluates {@code source} in the global environment.
+   */
+  protected SEXP eval(String source) {
+    return context.evaluate(RParser.parseSource(source + "\n"));
+  }
+
+  /**
+   * @return the single expression in {@code source}
+   */
+  protected SEXP parse(String source) {
+    ExpressionVector expressions = RParser.parseSource(source + "\n");
+    if(expressions.length() != 1) {
+      throw new IllegalArgumentException("Expected a single expression: " + source);
+    }
+    return expressions.getElementAsSEXP(0);
+  }
+
+  /**
+   * Evaluates a parsed {@code expression} in the global environment, and copies any deferred result or view into
+   * a new vector so that the whole computation is measured.
+   */
+  protected SEXP evaluate(SEXP expression) {
+    SEXP result = context.materialize(context.evaluate(expression, session.getGlobalEnvironment()));
+    if(result instanceof Vector && ((Vector) result).isDeferred()) {
+      return ((Vector) result).newCopyBuilder().build();
+    }
+    return result;
+  }
+}
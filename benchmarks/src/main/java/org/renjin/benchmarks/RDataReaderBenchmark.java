@@ -0,0 +1,89 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.renjin.serialization.RDataReader;
+import org.renjin.serialization.RDataWriter;
+import org.renjin.sexp.SEXP;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading a serialized data frame with numeric, integer, character and factor columns.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RDataReaderBenchmark extends RBenchmark {
+
+  @Param({"1000", "100000"})
+  public int rows;
+
+  private byte[] serialized;
+  private Path file;
+
+  @Setup
+  public void setup() throws IOException {
+    startSession();
+    SEXP dataFrame = eval("data.frame(" +
+        "x = seq_len(" + rows + ") / 3, " +
+        "i = seq_len(" + rows + "), " +
+        "s = paste0('row', seq_len(" + rows + ")), " +
+        "f = factor(rep_len(c('a', 'b', 'c'), " + rows + ")), " +
+        "stringsAsFactors = FALSE)");
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try(RDataWriter writer = new RDataWriter(context, bytes)) {
+      writer.serialize(dataFrame);
+    }
+    serialized = bytes.toByteArray();
+
+    file = Files.createTempFile("renjin-benchmark", ".rds");
+    try(OutputStream out = Files.newOutputStream(file)) {
+      out.write(serialized);
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  @Benchmark
+  public SEXP stream() throws IOException {
+    RDataReader reader = new RDataReader(context, new ByteArrayInputStream(serialized));
+    return reader.readFile();
+  }
+
+  @Benchmark
+  public SEXP mapped() throws IOException {
+    RDataReader reader = RDataReader.map(context, file);
+    return reader.readFile();
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.renjin.sexp.SEXP;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the regular expression builtins on a vector of short strings, with both
+ * extended and Perl-compatible patterns.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegexBenchmark extends RBenchmark {
+
+  @Param({"FALSE", "TRUE"})
+  public String perl;
+
+  private SEXP grepl;
+  private SEXP sub;
+  private SEXP gsub;
+  private SEXP regexpr;
+  private SEXP strsplit;
+  private SEXP fixed;
+
+  @Setup
+  public void setup() {
+    startSession();
+    eval("x <- paste0('id-', 1:10000, '_', c('alpha', 'beta', 'gamma', 'delta'), '@example.org')");
+
+    grepl = parse("grepl('[0-9]+_(beta|delta)', x, perl = " + perl + ")");
+    sub = parse("sub('^id-([0-9]+).*$', '\\\\1', x, perl = " + perl + ")");
+    gsub = parse("gsub('[aeiou]', '', x, perl = " + perl + ")");
+    regexpr = parse("regexpr('@[a-z]+', x, perl = " + perl + ")");
+    strsplit = parse("strsplit(x, '[-_@]', perl = " + perl + ")");
+    fixed = parse("gsub('.', '/', x, fixed = TRUE)");
+  }
+
+  @Benchmark
+  public SEXP grepl() {
+    return evaluate(grepl);
+  }
+
+  @Benchmark
+  public SEXP sub() {
+    return evaluate(sub);
+  }
+
+  @Benchmark
+  public SEXP gsub() {
+    return evaluate(gsub);
+  }
+
+  @Benchmark
+  public SEXP regexpr() {
+    return evaluate(regexpr);
+  }
+
+  @Benchmark
+  public SEXP strsplit() {
+    return evaluate(strsplit);
+  }
+
+  @Benchmark
+  public SEXP fixed() {
+    return evaluate(fixed);
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.renjin.sexp.SEXP;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the subsetting and subassignment of vectors, lists and data frames.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubsettingBenchmark extends RBenchmark {
+
+  @Param({"1000", "100000"})
+  public int size;
+
+  private SEXP positiveIndexes;
+  private SEXP negativeIndex;
+  private SEXP logicalMask;
+  private SEXP element;
+  private SEXP namedElement;
+  private SEXP matrixColumn;
+  private SEXP dataFrameRows;
+  private SEXP subassignment;
+
+  @Setup
+  public void setup() {
+    startSession();
+    eval("set.seed(42)");
+    eval("x <- as.double(seq_len(" + size + "))");
+    eval("i <- sample.int(length(x), length(x) %/% 10)");
+    eval("mask <- x %% 2 == 0");
+    eval("l <- structure(as.list(x[1:100]), names = paste0('e', 1:100))");
+    eval("m <- matrix(x, ncol = 10)");
+    eval("df <- data.frame(a = x, b = as.character(x), stringsAsFactors = FALSE)");
+
+    positiveIndexes = parse("x[i]");
+    negativeIndex = parse("x[-1]");
+    logicalMask = parse("x[mask]");
+    element = parse("x[[10L]]");
+    namedElement = parse("l[['e50']]");
+    matrixColumn = parse("m[, 5]");
+    dataFrameRows = parse("df[i, ]");
+    subassignment = parse("{ y <- x; y[i] <- 0; y }");
+  }
+
+  @Benchmark
+  public SEXP positiveIndexes() {
+    return evaluate(positiveIndexes);
+  }
+
+  @Benchmark
+  public SEXP negativeIndex() {
+    return evaluate(negativeIndex);
+  }
+
+  @Benchmark
+  public SEXP logicalMask() {
+    return evaluate(logicalMask);
+  }
+
+  @Benchmark
+  public SEXP element() {
+    return evaluate(element);
+  }
+
+  @Benchmark
+  public SEXP namedElement() {
+    return evaluate(namedElement);
+  }
+
+  @Benchmark
+  public SEXP matrixColumn() {
+    return evaluate(matrixColumn);
+  }
+
+  @Benchmark
+  public SEXP dataFrameRows() {
+    return evaluate(dataFrameRows);
+  }
+
+  @Benchmark
+  public SEXP subassignment() {
+    return evaluate(subassignment);
+  }
+}
@@ -113,7 +113,10 @@ public class Base {
    * @return
    */
   @Internal
-  public static IntVector tabulate(IntVector bin, int nbins) {
+  public static IntVector tabulate(@Current Context context, IntVector bin, int nbins) {
+    if(context.getSession().getVectorEngine().isEnabled() && (bin.isDeferred() || bin.length() > 100000)) {
+      return new DeferredTabulate(bin, nbins);
+    }
     int counts[] = new int[nbins];
     for(int i=0;i!=bin.length();++i) {
       if(!bin.isElementNA(i)) {
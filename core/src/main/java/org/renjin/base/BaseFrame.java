@@ -134,6 +134,11 @@ public class BaseFrame implements Frame {
     loaded.remove(name);
   }
 
+  @Override
+  public boolean isLookupCacheable() {
+    return true;
+  }
+
   /**
    * Adds the .Machine list to the base frame,
    * a variable holding information on the numerical characteristics of the machine R is
@@ -207,7 +212,9 @@ public class BaseFrame implements Frame {
     addPrimitiveAlias("as.double", "as.numeric");
     addPrimitiveAlias("as.double", "as.real");
     addPrimitiveAlias("is.symbol", "is.name");
-    
+
+    // The bindings above were added directly, rather than through setVariable()
+    Environment.invalidateLookupCaches();
   }
 
   private void addPrimitiveAlias(String primitiveName, String alias) {
@@ -0,0 +1,65 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.base;
+
+import org.renjin.primitives.vector.MemoizedIntVector;
+import org.renjin.sexp.*;
+
+/**
+ * The deferred counts of each of the integers {@code 1...nbins} in {@code bin}.
+ */
+public class DeferredTabulate extends MemoizedIntVector {
+
+  private final Vector bin;
+  private final int nbins;
+
+  public DeferredTabulate(Vector bin, int nbins) {
+    this(bin, nbins, AttributeMap.EMPTY);
+  }
+
+  private DeferredTabulate(Vector bin, int nbins, AttributeMap attributes) {
+    super(new Vector[] { bin, new IntArrayVector(nbins) }, nbins, attributes);
+    this.bin = bin;
+    this.nbins = nbins;
+  }
+
+  @Override
+  public Vector computeResult() {
+    int[] counts = new int[nbins];
+    for (int i = 0; i < bin.length(); i++) {
+      if(!bin.isElementNA(i)) {
+        int value = bin.getElementAsInt(i);
+        if(value >= 1 && value <= nbins) {
+          counts[value - 1]++;
+        }
+      }
+    }
+    return IntArrayVector.unsafe(counts, getAttributes());
+  }
+
+  @Override
+  public String getComputationName() {
+    return "tabulate";
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return new DeferredTabulate(bin, nbins, attributes);
+  }
+}
@@ -41,12 +41,19 @@ public class CachedBody {
    * Returns true if the assumptions used to compile the loop body are still met.
    */
   public boolean assumptionsStillMet(Context context, Environment rho) {
+    return findViolatedAssumption(context, rho) == null;
+  }
+
+  /**
+   * Returns the first assumption about the environment {@code rho} which no longer holds, or {@code null} if
+   * all assumptions are met.
+   */
+  public RuntimeAssumption findViolatedAssumption(Context context, Environment rho) {
     for (int i = 0; i < assumptions.length; i++) {
       if(!assumptions[i].test(context, rho)) {
-        System.err.println("Assumption " + assumptions[i] + " violated");
-        return false;
+        return assumptions[i];
       }
     }
-    return true;
+    return null;
   }
 }
@@ -24,6 +24,7 @@ import org.renjin.eval.Context;
 import org.renjin.sexp.Environment;
 import org.renjin.sexp.Vector;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -34,30 +35,94 @@ public class CachedLoopBody {
   private final ValueBounds sequenceBounds;
   private final RuntimeAssumption[] assumptions;
   private final CompiledLoopBody compiledBody;
+  private final boolean dynamicCalls;
 
-  public CachedLoopBody(CompiledLoopBody compiledBody, ValueBounds sequenceBounds, List<RuntimeAssumption> assumptions) {
+  public CachedLoopBody(CompiledLoopBody compiledBody, ValueBounds sequenceBounds, List<RuntimeAssumption> assumptions,
+                        boolean dynamicCalls) {
     this.sequenceBounds = sequenceBounds;
     this.assumptions = assumptions.toArray(new RuntimeAssumption[assumptions.size()]);
     this.compiledBody = compiledBody;
+    this.dynamicCalls = dynamicCalls;
   }
 
   public CompiledLoopBody getCompiledBody() {
     return compiledBody;
   }
 
+  public ValueBounds getSequenceBounds() {
+    return sequenceBounds;
+  }
+
+  public List<RuntimeAssumption> getAssumptions() {
+    return Arrays.asList(assumptions);
+  }
+
+  /**
+   * Returns true if the loop body calls closures which are not inlined. These may change any variable
+   * in the environment, so the assumptions must be checked again after each iteration.
+   */
+  public boolean hasDynamicCalls() {
+    return dynamicCalls;
+  }
+
   /**
    * Returns true if the assumptions used to compile the loop body are still met.
    */
   public boolean assumptionsStillMet(Context context, Environment rho, Vector sequence) {
+    return findViolatedAssumption(context, rho, sequence) == null;
+  }
+
+  /**
+   * Returns the first assumption about the loop's {@code sequence} or the environment {@code rho} which no
+   * longer holds, or {@code null} if all assumptions are met.
+   */
+  public RuntimeAssumption findViolatedAssumption(Context context, Environment rho, Vector sequence) {
     if(!sequenceBounds.test(sequence)) {
-      return false;
+      return new AssumeSequenceBounds(sequenceBounds, sequence);
     }
+    return findViolatedAssumption(context, rho);
+  }
+
+  /**
+   * Returns the first assumption about the environment {@code rho} which no longer holds, or {@code null} if
+   * all assumptions are met.
+   */
+  public RuntimeAssumption findViolatedAssumption(Context context, Environment rho) {
     for (int i = 0; i < assumptions.length; i++) {
       if(!assumptions[i].test(context, rho)) {
-        System.err.println("Assumption " + assumptions[i] + " violated");
-        return false;
+        return assumptions[i];
       }
     }
-    return true;
+    return null;
+  }
+
+  /**
+   * The assumption that the sequence of a loop matches the bounds with which its body was compiled.
+   *
+   * <p>The sequence is evaluated once when the loop starts, and is not bound in the environment, so
+   * this assumption is tested against the sequence for which it was created.</p>
+   */
+  public static class AssumeSequenceBounds implements RuntimeAssumption {
+    private final ValueBounds bounds;
+    private final Vector sequence;
+
+    public AssumeSequenceBounds(ValueBounds bounds, Vector sequence) {
+      this.bounds = bounds;
+      this.sequence = sequence;
+    }
+
+    public ValueBounds getBounds() {
+      return bounds;
+    }
+
+    @Override
+    public boolean test(Context context, Environment rho) {
+      return bounds.test(sequence);
+    }
+
+    @Override
+    public String toString() {
+      return "Sequence{" + bounds + "}";
+    }
   }
 }
@@ -0,0 +1,76 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.compiler;
+
+import org.renjin.compiler.ir.tac.RuntimeAssumption;
+import org.renjin.sexp.FunctionCall;
+import org.renjin.sexp.SEXP;
+
+/**
+ * Receives notifications of the decisions made by the just-in-time compiler, so that they can be
+ * exported as metrics or logged, rather than printed.
+ *
+ * <p>Listeners are called on the evaluating thread, often from within hot loops, so implementations
+ * should return quickly. All methods do nothing by default.</p>
+ *
+ * @see SexpCompiler#setCompilationListener(CompilationListener)
+ */
+public interface CompilationListener {
+
+  CompilationListener NONE = new CompilationListener() { };
+
+  /**
+   * Called when {@code expression}, a loop or closure body, has been compiled.
+   *
+   * @param nanos the time taken to compile the expression
+   */
+  default void compiled(SEXP expression, long nanos) {
+  }
+
+  /**
+   * Called when {@code expression} could not be compiled, and will be interpreted instead.
+   */
+  default void compilationFailed(SEXP expression, Throwable cause) {
+  }
+
+  /**
+   * Called when the type or value of a variable, or the sequence of a loop, no longer matches the assumption
+   * with which {@code expression} was compiled.
+   *
+   * @param assumption the violated assumption, which is a {@link CachedLoopBody.AssumeSequenceBounds} if the
+   *                   loop sequence no longer matches
+   */
+  default void assumptionViolated(SEXP expression, RuntimeAssumption assumption) {
+  }
+
+  /**
+   * Called when the compiled code for {@code expression} has been discarded, and evaluation returns to
+   * the interpreter.
+   */
+  default void deoptimized(SEXP expression) {
+  }
+
+  /**
+   * Called when an interpreted {@code for} loop transfers to compiled code between two iterations.
+   *
+   * @param iteration the zero-based index of the first iteration evaluated by the compiled code
+   */
+  default void enteredCompiledLoop(FunctionCall loop, int iteration) {
+  }
+}
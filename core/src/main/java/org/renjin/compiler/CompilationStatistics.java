@@ -0,0 +1,88 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.compiler;
+
+import org.renjin.compiler.ir.tac.RuntimeAssumption;
+import org.renjin.sexp.FunctionCall;
+import org.renjin.sexp.SEXP;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link CompilationListener} which counts the compiler's decisions.
+ */
+public class CompilationStatistics implements CompilationListener {
+
+  private final AtomicLong compiledCount = new AtomicLong();
+  private final AtomicLong compileNanos = new AtomicLong();
+  private final AtomicLong failedCount = new AtomicLong();
+  private final AtomicLong violatedCount = new AtomicLong();
+  private final AtomicLong deoptimizedCount = new AtomicLong();
+  private final AtomicLong loopEntryCount = new AtomicLong();
+
+  @Override
+  public void compiled(SEXP expression, long nanos) {
+    compiledCount.incrementAndGet();
+    compileNanos.addAndGet(nanos);
+  }
+
+  @Override
+  public void compilationFailed(SEXP expression, Throwable cause) {
+    failedCount.incrementAndGet();
+  }
+
+  @Override
+  public void assumptionViolated(SEXP expression, RuntimeAssumption assumption) {
+    violatedCount.incrementAndGet();
+  }
+
+  @Override
+  public void deoptimized(SEXP expression) {
+    deoptimizedCount.incrementAndGet();
+  }
+
+  @Override
+  public void enteredCompiledLoop(FunctionCall loop, int iteration) {
+    loopEntryCount.incrementAndGet();
+  }
+
+  public long getCompiledCount() {
+    return compiledCount.get();
+  }
+
+  public long getCompileNanos() {
+    return compileNanos.get();
+  }
+
+  public long getFailedCount() {
+    return failedCount.get();
+  }
+
+  public long getAssumptionViolationCount() {
+    return violatedCount.get();
+  }
+
+  public long getDeoptimizationCount() {
+    return deoptimizedCount.get();
+  }
+
+  public long getCompiledLoopEntryCount() {
+    return loopEntryCount.get();
+  }
+}
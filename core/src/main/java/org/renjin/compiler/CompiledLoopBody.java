@@ -46,15 +46,27 @@ public interface CompiledLoopBody {
    */
   int LOOP_ITERATION_INDEX = 4;
 
+  /**
+   * The index of the local variable holding the index of the iteration at which to stop.
+   */
+  int LOOP_END_INDEX = 5;
+
 
   /**
    * The number of local variable used by this and the arguments.
-   * (this + context + environment + sequence + iteration)
+   * (this + context + environment + sequence + iteration + end)
    */
-  int PARAM_SIZE = 5;
+  int PARAM_SIZE = 6;
 
 
-
-  SEXP run(Context context, Environment rho, SEXP sequence, int iteration);
+  /**
+   * Evaluates the iterations {@code iteration} through {@code end - 1} of the loop, and then stores all variables
+   * back to the environment {@code rho}, so that the interpreter or another call to {@code run} can
+   * continue with the next iteration.
+   *
+   * @return {@code Null.INSTANCE} if all iterations were evaluated, or any other value if the loop was
+   * exited through {@code break}
+   */
+  SEXP run(Context context, Environment rho, SEXP sequence, int iteration, int end);
   
 }
@@ -0,0 +1,223 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.compiler;
+
+import org.renjin.RenjinVersion;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Persistent, on-disk cache of generated classes, so that short-lived JVMs do not have to pay the cost of
+ * generating the same bytecode again.
+ *
+ * <p>Classes are stored under a key which must completely determine the generated bytecode. Each entry
+ * also records the version of Renjin which generated it, and entries written by other versions are
+ * ignored. The cache is strictly best-effort: any failure to read or write an entry is treated as a miss.</p>
+ *
+ * <p>The default cache is enabled by setting the {@code renjin.jit.cache.dir} system property to
+ * the directory in which classes should be stored.</p>
+ */
+public class JitClassCache {
+
+  private static final int MAGIC = 0x524A4954;
+
+  private static final int MAX_ENTRY_LENGTH = 64 * 1024 * 1024;
+
+  private static final String CACHE_DIR_PROPERTY = "renjin.jit.cache.dir";
+
+  private static final JitClassCache DEFAULT = fromSystemProperties();
+
+  /**
+   * A cached class.
+   */
+  public static class Entry {
+    private final String className;
+    private final byte[] classBytes;
+
+    public Entry(String className, byte[] classBytes) {
+      this.className = className;
+      this.classBytes = classBytes;
+    }
+
+    public String getClassName() {
+      return className;
+    }
+
+    public byte[] getClassBytes() {
+      return classBytes;
+    }
+  }
+
+  private final File directory;
+  private final String version;
+
+  /**
+   * Creates a new cache in the given directory.
+   *
+   * @param directory the root directory of the cache, which is created if it does not exist.
+   * @param version the version of the code generator. Entries written by any other version are ignored.
+   */
+  public JitClassCache(File directory, String version) {
+    this.directory = directory;
+    this.version = version;
+  }
+
+  /**
+   * @return the default cache, configured by the {@code renjin.jit.cache.dir} system property, or
+   * {@code null} if no persistent cache is configured.
+   */
+  public static JitClassCache getDefault() {
+    return DEFAULT;
+  }
+
+  private static JitClassCache fromSystemProperties() {
+    String dir = System.getProperty(CACHE_DIR_PROPERTY);
+    if(dir == null || dir.isEmpty()) {
+      return null;
+    }
+    String version;
+    try {
+      version = RenjinVersion.getVersionName();
+    } catch (AssertionError e) {
+      // Without a version, we cannot safely validate entries
+      return null;
+    }
+    return new JitClassCache(new File(dir), version);
+  }
+
+  public File getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Looks up the class stored under the given {@code key}
+   *
+   * @return the cached class, or {@code null} if there is no valid entry for this key.
+   */
+  public Entry get(String key) {
+    File file = entryFile(key);
+    if(!file.exists()) {
+      return null;
+    }
+    try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if(in.readInt() != MAGIC ||
+         !version.equals(in.readUTF()) ||
+         !key.equals(readString(in))) {
+        return null;
+      }
+      String className = in.readUTF();
+      byte[] classBytes = new byte[readLength(in)];
+      in.readFully(classBytes);
+      return new Entry(className, classBytes);
+
+    } catch (IOException e) {
+      // Corrupt or truncated entry, will be overwritten
+      return null;
+    }
+  }
+
+  /**
+   * Stores a generated class under the given {@code key}, replacing any existing entry.
+   */
+  public void put(String key, String className, byte[] classBytes) {
+    File file = entryFile(key);
+    File tempFile = null;
+    try {
+      File dir = file.getParentFile();
+      if(!dir.exists() && !dir.mkdirs() && !dir.exists()) {
+        return;
+      }
+      // Write first to a temporary file and then move it into place so
+      // that concurrent readers never see a partial entry
+      tempFile = File.createTempFile("jit", ".tmp", dir);
+      try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+        out.writeInt(MAGIC);
+        out.writeUTF(version);
+        writeString(out, key);
+        out.writeUTF(className);
+        out.writeInt(classBytes.length);
+        out.write(classBytes);
+      }
+      try {
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+      tempFile = null;
+
+    } catch (IOException e) {
+      // The cache is only an optimization: the caller still has
+      // a perfectly good class.
+    } finally {
+      if(tempFile != null) {
+        tempFile.delete();
+      }
+    }
+  }
+
+  private File entryFile(String key) {
+    return new File(new File(directory, sanitize(version)), hash(key) + ".jit");
+  }
+
+  private static String sanitize(String version) {
+    return version.replaceAll("[^A-Za-z0-9._-]", "_");
+  }
+
+  private static String hash(String key) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    byte[] hash = digest.digest(key.getBytes(StandardCharsets.UTF_8));
+    StringBuilder hex = new StringBuilder();
+    for (byte b : hash) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+      hex.append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+
+  private static void writeString(DataOutputStream out, String string) throws IOException {
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static int readLength(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if(length < 0 || length > MAX_ENTRY_LENGTH) {
+      throw new IOException("Invalid length: " + length);
+    }
+    return length;
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[readLength(in)];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
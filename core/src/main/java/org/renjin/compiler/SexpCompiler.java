@@ -45,9 +45,13 @@ import org.renjin.repackaged.asm.commons.InstructionAdapter;
 import org.renjin.repackaged.guava.annotations.VisibleForTesting;
 import org.renjin.sexp.Environment;
 import org.renjin.sexp.FunctionCall;
+import org.renjin.sexp.FunctionEnvironment;
 import org.renjin.sexp.SEXP;
+import org.renjin.sexp.Symbol;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Compiles SEXPs to JVM bytecode using runtime type information.
@@ -56,6 +60,8 @@ public class SexpCompiler {
 
   private static final boolean DEBUG = false;
 
+  private static volatile CompilationListener listener = CompilationListener.NONE;
+
   private final RuntimeState runtimeState;
   private final IRBody body;
 
@@ -67,6 +73,8 @@ public class SexpCompiler {
 
   private final SsaTransformer ssaTransformer;
 
+  private final boolean dynamicCalls;
+
   public SexpCompiler(RuntimeState runtimeState, IRBody body, boolean environmentVisible) {
     this.runtimeState = runtimeState;
     this.body = body;
@@ -74,6 +82,7 @@ public class SexpCompiler {
     cfg = new ControlFlowGraph(body);
 
     ssaTransformer = new SsaTransformer(cfg);
+    dynamicCalls = ssaTransformer.hasDynamicCalls();
     if(environmentVisible) {
       ssaTransformer.insertEnvironmentUpdates();
     }
@@ -84,13 +93,44 @@ public class SexpCompiler {
     types = new TypeSolver(cfg, useDefMap);
   }
 
+  /**
+   * Sets the listener which is notified of the compiler's decisions, such as compiling a loop or
+   * falling back to the interpreter.
+   */
+  public static void setCompilationListener(CompilationListener listener) {
+    SexpCompiler.listener = listener == null ? CompilationListener.NONE : listener;
+  }
+
+  public static CompilationListener getCompilationListener() {
+    return listener;
+  }
+
   public static CachedLoopBody compileForLoop(Context context, Environment rho, FunctionCall call, SEXP sequence) throws InstantiationException, IllegalAccessException {
+    return compileForLoop(context, rho, call, sequence, null, Collections.emptyMap());
+  }
+
+  /**
+   * Compiles the body of a {@code for} loop, specialized to the given sequence and the current values of
+   * the variables it reads from {@code rho}.
+   *
+   * @param widenedSequenceBounds if not {@code null}, the bounds of sequences seen by earlier compilations of
+   *                              this loop, which the compiled body should also accept
+   * @param widenedVariableBounds the bounds of variables seen by earlier compilations of this loop
+   */
+  public static CachedLoopBody compileForLoop(Context context, Environment rho, FunctionCall call, SEXP sequence,
+                                              ValueBounds widenedSequenceBounds,
+                                              Map<Symbol, ValueBounds> widenedVariableBounds) throws InstantiationException, IllegalAccessException {
 
     RuntimeState runtimeState = new RuntimeState(context, rho);
+    runtimeState.widenVariableBounds(widenedVariableBounds);
+
     ValueBounds sequenceBounds = ValueBounds.builder()
         .setTypeSet(TypeSet.of(sequence))
         .addFlags(sequenceFlags(sequence))
         .build();
+    if(widenedSequenceBounds != null) {
+      sequenceBounds = sequenceBounds.union(widenedSequenceBounds);
+    }
 
     IRBodyBuilder builder = new IRBodyBuilder(runtimeState);
     IRBody body = builder.buildLoopBody(call, sequenceBounds);
@@ -98,7 +138,7 @@ public class SexpCompiler {
     SexpCompiler compiler = new SexpCompiler(runtimeState, body, true);
     CompiledLoopBody compiledLoopBody = compiler.compileForLoopBody();
 
-    return new CachedLoopBody(compiledLoopBody, sequenceBounds, runtimeState.getAssumptions());
+    return new CachedLoopBody(compiledLoopBody, sequenceBounds, runtimeState.getAssumptions(), compiler.dynamicCalls);
   }
 
   private static int sequenceFlags(SEXP sequence) {
@@ -123,6 +163,20 @@ public class SexpCompiler {
     return new CachedBody(compiledBody, runtimeState.getAssumptions());
   }
 
+  /**
+   * Compiles the body of a closure, specialized to the arguments matched in the given
+   * function environment.
+   */
+  public static CachedBody compileClosureBody(Context context, FunctionEnvironment rho, SEXP closureBody) throws InstantiationException, IllegalAccessException {
+    RuntimeState runtimeState = new RuntimeState(context, rho);
+    IRBody body = new IRBodyBuilder(runtimeState).buildClosureBody(closureBody);
+
+    SexpCompiler compiler = new SexpCompiler(runtimeState, body, true);
+    CompiledBody compiledBody = compiler.compileBody();
+
+    return new CachedBody(compiledBody, runtimeState.getAssumptions());
+  }
+
   private void compileForBody() {
 
     types.execute();
@@ -144,16 +198,13 @@ public class SexpCompiler {
 
   private CompiledLoopBody compileForLoopBody() throws IllegalAccessException, InstantiationException {
 
-    System.out.println(cfg);
-
     compileForBody();
 
 
     LocalVarAllocator localVars = new LocalVarAllocator(CompiledLoopBody.PARAM_SIZE);
     VariableMap variableMap = new VariableMap(cfg, localVars, types, useDefMap);
-    LoopBodyEmitContext emitContext = new LoopBodyEmitContext(localVars, variableMap);
-
     ClassGenerator<CompiledLoopBody> classGenerator = new ClassGenerator<>(CompiledLoopBody.class);
+    LoopBodyEmitContext emitContext = new LoopBodyEmitContext(localVars, variableMap, classGenerator);
     classGenerator.addLoopBodyMethod(mv -> {
       mv.visitCode();
 
@@ -171,9 +222,8 @@ public class SexpCompiler {
 
     LocalVarAllocator localVars = new LocalVarAllocator(CompiledBody.PARAM_SIZE);
     VariableMap variableMap = new VariableMap(cfg, localVars, types, useDefMap);
-    LoopBodyEmitContext emitContext = new LoopBodyEmitContext(localVars, variableMap);
-
     ClassGenerator<CompiledBody> classGenerator = new ClassGenerator<>(CompiledBody.class);
+    LoopBodyEmitContext emitContext = new LoopBodyEmitContext(localVars, variableMap, classGenerator);
     classGenerator.addBodyMethod(mv -> {
       mv.visitCode();
       emitBody(emitContext, mv);
@@ -0,0 +1,165 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.compiler;
+
+import org.renjin.compiler.ir.exception.InvalidSyntaxException;
+import org.renjin.compiler.ir.tac.RuntimeAssumption;
+import org.renjin.eval.Context;
+import org.renjin.primitives.special.ForFunction;
+import org.renjin.sexp.FunctionEnvironment;
+import org.renjin.sexp.SEXP;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks the invocations of a single {@link org.renjin.sexp.Closure} and promotes
+ * its body from the AST interpreter to JVM bytecode once it becomes hot.
+ *
+ * <p>The compiled body is specialized to the types of the arguments and free variables
+ * observed at the moment of compilation. These are recorded as {@link org.renjin.compiler.ir.tac.RuntimeAssumption}s
+ * and are verified before each compiled invocation. If an assumption no longer holds, the
+ * compiled body is discarded and the closure returns to the interpreter, where it must warm up
+ * again before being recompiled against the new types. After {@link #MAX_DEOPTIMIZATIONS}
+ * such failures, the closure remains in the interpreter for good.</p>
+ *
+ * <p>A closure, and so its {@code TieredClosureBody}, may be shared by sessions evaluating on different
+ * threads. Compiled bodies are immutable, and are only compiled or discarded while holding this object's lock,
+ * so a thread continues with the body it selected even if another thread discards it.</p>
+ */
+public class TieredClosureBody {
+
+  public static boolean COMPILE_CLOSURES = Boolean.getBoolean("renjin.compile.closures");
+
+  /**
+   * The number of interpreted invocations after which a closure is compiled.
+   */
+  public static int COMPILE_THRESHOLD = Integer.getInteger("renjin.compile.closures.threshold", 1000);
+
+  /**
+   * The number of times a compiled body may be discarded before we give up on compiling
+   * this closure.
+   */
+  public static final int MAX_DEOPTIMIZATIONS = 3;
+
+  private final SEXP body;
+
+  private final AtomicInteger invocationCount = new AtomicInteger();
+  private volatile int deoptimizationCount;
+  private volatile boolean compilationFailed;
+
+  private volatile CachedBody cachedBody;
+
+  public TieredClosureBody(SEXP body) {
+    this.body = body;
+  }
+
+  /**
+   * Selects the compiled body to use for this invocation, compiling the closure body if it
+   * has become hot.
+   *
+   * @param context the function's context
+   * @param rho the function's newly created environment, with all arguments matched
+   * @return the compiled body whose assumptions are met by this invocation, or {@code null} if the
+   * body should be interpreted.
+   */
+  public CompiledBody select(Context context, FunctionEnvironment rho) {
+
+    if(compilationFailed) {
+      return null;
+    }
+
+    CompilationListener listener = SexpCompiler.getCompilationListener();
+
+    CachedBody cached = cachedBody;
+    if(cached == null) {
+      if(invocationCount.incrementAndGet() < COMPILE_THRESHOLD) {
+        return null;
+      }
+      cached = compile(context, rho);
+      if(cached == null) {
+        return null;
+      }
+    }
+
+    // The body may have been compiled by another thread, for arguments of different types
+    RuntimeAssumption violated = cached.findViolatedAssumption(context, rho);
+    if(violated != null) {
+      listener.assumptionViolated(body, violated);
+      deoptimize(cached);
+      return null;
+    }
+    return cached.getCompiledBody();
+  }
+
+  private synchronized CachedBody compile(Context context, FunctionEnvironment rho) {
+    if(cachedBody != null || compilationFailed) {
+      // Another thread got here first
+      return cachedBody;
+    }
+    CompilationListener listener = SexpCompiler.getCompilationListener();
+    long startTime = System.nanoTime();
+    CachedBody compiled;
+    try {
+      compiled = SexpCompiler.compileClosureBody(context, rho, body);
+    } catch (NotCompilableException | InvalidSyntaxException e) {
+      // The interpreter is always able to handle this body, so just
+      // stop trying to compile.
+      listener.compilationFailed(body, e);
+      compilationFailed = true;
+      return null;
+
+    } catch (Exception | VerifyError e) {
+      if (ForFunction.FAIL_ON_COMPILATION_ERROR) {
+        throw new AssertionError("Closure compilation failed", e);
+      }
+      listener.compilationFailed(body, e);
+      compilationFailed = true;
+      return null;
+    }
+
+    listener.compiled(body, System.nanoTime() - startTime);
+
+    this.cachedBody = compiled;
+    return compiled;
+  }
+
+  private synchronized void deoptimize(CachedBody cached) {
+    if(cachedBody != cached) {
+      // Already discarded by another thread
+      return;
+    }
+    SexpCompiler.getCompilationListener().deoptimized(body);
+
+    int count = deoptimizationCount + 1;
+    deoptimizationCount = count;
+    if(count > MAX_DEOPTIMIZATIONS) {
+      compilationFailed = true;
+    }
+    invocationCount.set(0);
+    cachedBody = null;
+  }
+
+  public boolean isCompiled() {
+    return cachedBody != null;
+  }
+
+  public int getDeoptimizationCount() {
+    return deoptimizationCount;
+  }
+}
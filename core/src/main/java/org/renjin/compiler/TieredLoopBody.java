@@ -0,0 +1,246 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.compiler;
+
+import org.renjin.compiler.ir.ValueBounds;
+import org.renjin.compiler.ir.exception.InvalidSyntaxException;
+import org.renjin.compiler.ir.tac.RuntimeAssumption;
+import org.renjin.compiler.ir.tac.RuntimeState;
+import org.renjin.eval.Context;
+import org.renjin.primitives.special.ForFunction;
+import org.renjin.sexp.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks the iterations of a single {@code for} loop and moves it from the AST interpreter to
+ * JVM bytecode once it becomes hot.
+ *
+ * <p>The interpreter counts the iterations of the loop across all of its evaluations. Once
+ * {@link #COMPILE_THRESHOLD} iterations have been interpreted, the loop body is compiled and the
+ * remaining iterations are evaluated by the compiled body, starting with the next iteration: a loop
+ * that runs for hours does not have to be entered again to benefit from compilation.</p>
+ *
+ * <p>The compiled body is specialized to the sequence and to the types of the variables it reads, which are
+ * recorded as {@link RuntimeAssumption}s. The compiled body evaluates the loop in segments of at most
+ * {@link #SAFEPOINT_INTERVAL} iterations, and only a single iteration at a time if the body calls closures
+ * which could change any variable. At the end of each segment, all variables are stored back to the
+ * environment and the assumptions are checked again. If they no longer hold, the compiled body is
+ * discarded and the interpreter continues with the next iteration. When the loop becomes hot again, it is
+ * recompiled with bounds widened to include both the values seen earlier and the current ones. After
+ * {@link #MAX_DEOPTIMIZATIONS} such failures, the loop remains in the interpreter for good.</p>
+ *
+ * <p>A {@code TieredLoopBody} is stored in the parse tree, which may be shared by sessions evaluating on
+ * different threads. Compiled bodies are immutable, and are only compiled or discarded while holding this
+ * object's lock, so a thread continues with the body it entered even if another thread discards it.</p>
+ */
+public class TieredLoopBody {
+
+  /**
+   * The number of interpreted iterations after which a loop is compiled.
+   */
+  public static int COMPILE_THRESHOLD = Integer.getInteger("renjin.compile.loops.threshold", 200);
+
+  /**
+   * The maximum number of iterations evaluated by the compiled body before its assumptions are
+   * checked again.
+   */
+  public static int SAFEPOINT_INTERVAL = Integer.getInteger("renjin.compile.loops.safepoint", 4096);
+
+  /**
+   * The number of times a compiled body may be discarded before we give up on compiling
+   * this loop.
+   */
+  public static final int MAX_DEOPTIMIZATIONS = 3;
+
+  /**
+   * Returned by {@link #run(Context, Environment, Vector, int)} if the loop was exited through {@code break}.
+   */
+  public static final int BREAK = -1;
+
+  private final FunctionCall call;
+
+  private final AtomicInteger iterationCount = new AtomicInteger();
+  private volatile int deoptimizationCount;
+  private volatile boolean compilationFailed;
+
+  private volatile CachedLoopBody cachedBody;
+
+  /*
+   * Guarded by this
+   */
+  private ValueBounds widenedSequenceBounds;
+  private final Map<Symbol, ValueBounds> widenedVariableBounds = new HashMap<>();
+
+  public TieredLoopBody(FunctionCall call) {
+    this.call = call;
+  }
+
+  /**
+   * Counts an iteration about to be evaluated by the interpreter.
+   *
+   * @return true if the iteration, and those following it, should be evaluated by
+   * {@link #run(Context, Environment, Vector, int)} instead.
+   */
+  public boolean isHot() {
+    if(compilationFailed) {
+      return false;
+    }
+    return cachedBody != null || iterationCount.incrementAndGet() >= COMPILE_THRESHOLD;
+  }
+
+  /**
+   * Evaluates the iterations of the loop starting with {@code iteration} in compiled code, compiling the loop
+   * body first if necessary.
+   *
+   * @return the index of the first iteration which remains to be interpreted, which is the length of the
+   * {@code sequence} if all iterations were evaluated, or {@link #BREAK} if the loop was exited.
+   */
+  public int run(Context context, Environment rho, Vector sequence, int iteration) {
+
+    CompilationListener listener = SexpCompiler.getCompilationListener();
+
+    CachedLoopBody body = cachedBody;
+    if(body == null) {
+      body = compile(context, rho, sequence);
+      if(body == null) {
+        return iteration;
+      }
+    }
+    // The body may have been compiled by another thread, for a different sequence or environment
+    RuntimeAssumption violated = body.findViolatedAssumption(context, rho, sequence);
+    if(violated != null) {
+      listener.assumptionViolated(call, violated);
+      deoptimize(body);
+      return iteration;
+    }
+
+    listener.enteredCompiledLoop(call, iteration);
+
+    // The body reads the elements of the sequence each time it is entered
+    Vector elements = materialize(sequence);
+
+    int length = sequence.length();
+    while(true) {
+      int end = nextSafepoint(body, iteration, length);
+      SEXP result = body.getCompiledBody().run(context, rho, elements, iteration, end);
+      if(result != Null.INSTANCE) {
+        return BREAK;
+      }
+      iteration = end;
+      if(iteration >= length) {
+        return length;
+      }
+      // The sequence itself cannot change during the loop
+      violated = body.findViolatedAssumption(context, rho);
+      if(violated != null) {
+        listener.assumptionViolated(call, violated);
+        deoptimize(body);
+        return iteration;
+      }
+    }
+  }
+
+  private static Vector materialize(Vector sequence) {
+    if(sequence instanceof IntVector && !(sequence instanceof IntArrayVector)) {
+      return IntArrayVector.unsafe(((IntVector) sequence).toIntArray(), sequence.getAttributes());
+    }
+    if(sequence instanceof DoubleVector && !(sequence instanceof DoubleArrayVector)) {
+      return DoubleArrayVector.unsafe(((DoubleVector) sequence).toDoubleArray(), sequence.getAttributes());
+    }
+    return sequence;
+  }
+
+  private static int nextSafepoint(CachedLoopBody body, int iteration, int length) {
+    if(body.hasDynamicCalls()) {
+      return iteration + 1;
+    }
+    return (int) Math.min(length, (long) iteration + Math.max(1, SAFEPOINT_INTERVAL));
+  }
+
+  private synchronized CachedLoopBody compile(Context context, Environment rho, Vector sequence) {
+    if(cachedBody != null || compilationFailed) {
+      // Another thread got here first
+      return cachedBody;
+    }
+    CompilationListener listener = SexpCompiler.getCompilationListener();
+    long startTime = System.nanoTime();
+    CachedLoopBody compiled;
+    try {
+      compiled = SexpCompiler.compileForLoop(context, rho, call, sequence,
+          widenedSequenceBounds, widenedVariableBounds);
+
+    } catch (NotCompilableException | InvalidSyntaxException e) {
+      // The interpreter is always able to handle this body, so just
+      // stop trying to compile.
+      listener.compilationFailed(call, e);
+      compilationFailed = true;
+      return null;
+
+    } catch (Exception | VerifyError e) {
+      if (ForFunction.FAIL_ON_COMPILATION_ERROR) {
+        throw new AssertionError("Loop compilation failed", e);
+      }
+      listener.compilationFailed(call, e);
+      compilationFailed = true;
+      return null;
+    }
+
+    listener.compiled(call, System.nanoTime() - startTime);
+
+    this.cachedBody = compiled;
+    return compiled;
+  }
+
+  private synchronized void deoptimize(CachedLoopBody body) {
+    if(cachedBody != body) {
+      // Already discarded by another thread
+      return;
+    }
+    SexpCompiler.getCompilationListener().deoptimized(call);
+
+    // Remember the bounds assumed by the discarded body, so that the next
+    // compilation will accept these values as well as the new ones.
+    widenedSequenceBounds = body.getSequenceBounds();
+    for (RuntimeAssumption assumption : body.getAssumptions()) {
+      if(assumption instanceof RuntimeState.AssumeVariableBounds) {
+        RuntimeState.AssumeVariableBounds variable = (RuntimeState.AssumeVariableBounds) assumption;
+        widenedVariableBounds.merge(variable.getName(), variable.getBounds(), ValueBounds::union);
+      }
+    }
+
+    int count = deoptimizationCount + 1;
+    deoptimizationCount = count;
+    if(count > MAX_DEOPTIMIZATIONS) {
+      compilationFailed = true;
+    }
+    iterationCount.set(0);
+    cachedBody = null;
+  }
+
+  public boolean isCompiled() {
+    return cachedBody != null;
+  }
+
+  public int getDeoptimizationCount() {
+    return deoptimizationCount;
+  }
+}
@@ -76,7 +76,6 @@ public class InlinedFunction {
         returnStatements.add((ReturnStatement) statement);
       }
     }
-    System.out.println(compiler.getControlFlowGraph());
   }
 
   @VisibleForTesting
@@ -33,6 +33,8 @@ import org.renjin.sexp.SEXP;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
@@ -41,7 +43,9 @@ import static org.renjin.repackaged.asm.Type.getType;
 
 public class ClassGenerator<T> implements Opcodes {
 
-  private static final boolean DEBUG = true;
+  private static final boolean DEBUG = false;
+
+  private static final String CONSTANTS_FIELD = "constants";
 
   private static final AtomicLong CLASS_COUNTER = new AtomicLong(1);
 
@@ -51,6 +55,12 @@ public class ClassGenerator<T> implements Opcodes {
   private final ClassVisitor cv;
   private String className;
 
+  /**
+   * Constants that cannot be expressed directly in bytecode, and which are
+   * stored in a static field of the generated class once it is loaded.
+   */
+  private final List<SEXP> constants = new ArrayList<>();
+
   public ClassGenerator(Class<T> interfaceClass) {
     super();
     this.interfaceClass = interfaceClass;
@@ -84,7 +94,46 @@ public class ClassGenerator<T> implements Opcodes {
         e.printStackTrace();
       }
     }
-    return JitClassLoader.defineClass(interfaceClass, className.replace('/', '.'), cw.toByteArray());
+    Class<T> loadedClass = JitClassLoader.defineClass(interfaceClass, className.replace('/', '.'), cw.toByteArray());
+    if(!constants.isEmpty()) {
+      try {
+        loadedClass.getField(CONSTANTS_FIELD).set(null, constants.toArray(new SEXP[0]));
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException("Failed to initialize constant pool of " + className, e);
+      }
+    }
+    return loadedClass;
+  }
+
+  /**
+   * Generates the bytecode to push a constant onto the stack. Constants that cannot be written
+   * inline as bytecode are added to the class' constant pool.
+   */
+  public void pushConstant(InstructionAdapter mv, SEXP value) {
+    if(ConstantBytecode.isInlineable(value)) {
+      ConstantBytecode.pushConstant(mv, value);
+      return;
+    }
+    int index = constantIndex(value);
+    if(index == -1) {
+      if(constants.isEmpty()) {
+        cv.visitField(ACC_PUBLIC | ACC_STATIC, CONSTANTS_FIELD, Type.getDescriptor(SEXP[].class), null, null);
+      }
+      index = constants.size();
+      constants.add(value);
+    }
+    mv.visitFieldInsn(GETSTATIC, className, CONSTANTS_FIELD, Type.getDescriptor(SEXP[].class));
+    mv.iconst(index);
+    mv.visitInsn(AALOAD);
+  }
+
+  private int constantIndex(SEXP value) {
+    for (int i = 0; i < constants.size(); i++) {
+      if(constants.get(i) == value) {
+        return i;
+      }
+    }
+    return -1;
   }
 
   private void writeConstructor() {
@@ -103,6 +152,7 @@ public class ClassGenerator<T> implements Opcodes {
         getType(Context.class),
         getType(Environment.class),
         getType(SEXP.class),
+        Type.INT_TYPE,
         Type.INT_TYPE));
   }
 
@@ -88,6 +88,26 @@ public class ConstantBytecode {
         Type.getMethodDescriptor(Type.getType(AttributeMap.class)), false);
   }
 
+  /**
+   * Returns true if {@link #pushConstant(InstructionAdapter, SEXP)} can generate
+   * the bytecode to construct {@code value} inline.
+   */
+  public static boolean isInlineable(SEXP value) {
+    if(value == Null.INSTANCE || value == Symbol.MISSING_ARG) {
+      return true;
+    }
+    if(value instanceof Symbol) {
+      return true;
+    }
+    if(value instanceof DoubleVector) {
+      return value.length() == 1;
+    }
+    if(value instanceof LogicalVector || value instanceof IntVector || value instanceof StringVector) {
+      return value.length() == 1 && value.getAttributes().isEmpty();
+    }
+    return false;
+  }
+
   public static void pushConstant(InstructionAdapter mv, SEXP value) {
     if(value == Null.INSTANCE) {
       mv.visitFieldInsn(Opcodes.GETSTATIC, Type.getInternalName(Null.class), "INSTANCE", Type.getDescriptor(Null.class));
@@ -97,6 +117,12 @@ public class ConstantBytecode {
       mv.visitFieldInsn(Opcodes.GETSTATIC, Type.getInternalName(Symbol.class), "MISSING_ARG", Type.getDescriptor(Symbol.class));
       return;
     }
+    if(value instanceof Symbol) {
+      mv.visitLdcInsn(((Symbol) value).getPrintName());
+      mv.invokestatic(Type.getInternalName(Symbol.class), "get",
+          Type.getMethodDescriptor(Type.getType(Symbol.class), Type.getType(String.class)), false);
+      return;
+    }
     if(value instanceof DoubleVector) {
       if (value.length() == 1) {
         mv.anew(Type.getType(DoubleArrayVector.class));
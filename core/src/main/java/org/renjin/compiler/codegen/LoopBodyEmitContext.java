@@ -20,6 +20,7 @@ package org.renjin.compiler.codegen;
 
 import org.renjin.compiler.CompiledLoopBody;
 import org.renjin.compiler.codegen.expr.CompiledSexp;
+import org.renjin.compiler.codegen.expr.SexpExpr;
 import org.renjin.compiler.codegen.var.LocalVarAllocator;
 import org.renjin.compiler.codegen.var.VariableMap;
 import org.renjin.compiler.codegen.var.VariableStrategy;
@@ -28,15 +29,18 @@ import org.renjin.compiler.ir.tac.expressions.LValue;
 import org.renjin.repackaged.asm.Label;
 import org.renjin.repackaged.asm.Opcodes;
 import org.renjin.repackaged.asm.commons.InstructionAdapter;
+import org.renjin.sexp.SEXP;
 
 public class LoopBodyEmitContext implements EmitContext {
   private final LocalVarAllocator localVars;
   private final VariableMap variableMap;
+  private final ClassGenerator<?> classGenerator;
   private final LabelMap labelMap = new LabelMap();
 
-  public LoopBodyEmitContext(LocalVarAllocator localVars, VariableMap variableMap) {
+  public LoopBodyEmitContext(LocalVarAllocator localVars, VariableMap variableMap, ClassGenerator<?> classGenerator) {
     this.localVars = localVars;
     this.variableMap = variableMap;
+    this.classGenerator = classGenerator;
   }
 
   @Override
@@ -78,4 +82,14 @@ public class LoopBodyEmitContext implements EmitContext {
   public VariableStrategy getVariable(LValue lhs) {
     return variableMap.getStorage(lhs);
   }
+
+  @Override
+  public CompiledSexp constantSexp(SEXP sexp) {
+    return new SexpExpr() {
+      @Override
+      public void loadSexp(EmitContext context, InstructionAdapter mv) {
+        classGenerator.pushConstant(mv, sexp);
+      }
+    };
+  }
 }
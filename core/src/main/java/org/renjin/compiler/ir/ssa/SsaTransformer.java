@@ -61,6 +61,10 @@ public class SsaTransformer {
   }
 
   public void insertEnvironmentUpdates() {
+    if(hasDynamicCalls()) {
+      insertWriteThroughEnvironmentUpdates();
+      return;
+    }
     Collection<BasicBlock> returningBlocks = rdt.getChildren(cfg.getExit());
     for (BasicBlock returningBlock : returningBlocks) {
       if (returningBlock != cfg.getEntry()) {
@@ -69,6 +73,54 @@ public class SsaTransformer {
     }
   }
 
+  /**
+   * Dynamic calls may refer to any variable in the environment, either through their promised
+   * arguments or through the calling frame, so if the body includes such calls, we must update
+   * the environment immediately after each assignment rather than only upon exit.
+   */
+  private void insertWriteThroughEnvironmentUpdates() {
+    for (BasicBlock block : cfg.getBasicBlocks()) {
+      List<Statement> statements = block.getStatements();
+      for (int i = 0; i < statements.size(); i++) {
+        Statement statement = statements.get(i);
+        if (statement instanceof Assignment) {
+          Assignment assignment = (Assignment) statement;
+          if (assignment.getLHS() instanceof EnvironmentVariable && !(assignment.getRHS() instanceof ReadEnvironment)) {
+            EnvironmentVariable var = (EnvironmentVariable) assignment.getLHS();
+            statements.add(i + 1, new UpdateEnvironment(var.getName(), var));
+            i++;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * @return true if the body calls closures which are not inlined.
+   */
+  public boolean hasDynamicCalls() {
+    for (BasicBlock block : cfg.getBasicBlocks()) {
+      for (Statement statement : block.getStatements()) {
+        if(containsDynamicCall(statement)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean containsDynamicCall(TreeNode node) {
+    if(node instanceof DynamicCall) {
+      return true;
+    }
+    for (int i = 0; i < node.getChildCount(); i++) {
+      if(containsDynamicCall(node.childAt(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private void insertEnvironmentUpdates(BasicBlock target, BasicBlock block, Set<Symbol> alreadyInserted) {
 
     Set<Symbol> inserted = Sets.newHashSet(alreadyInserted);
@@ -98,8 +98,6 @@ public class IRBodyBuilder {
    
     removeRedundantJumps();
 
-    System.out.println(statements);
-
     if(ensureInitialized) {
       initializeEnvironmentVariables();
     }
@@ -108,21 +106,51 @@ public class IRBodyBuilder {
     return new IRBody(statements, labels, sourceFile, sourceLineMap);
   }
   
+  /**
+   * Builds the body of a closure that will be evaluated in a function environment, resolving
+   * {@code ...} and {@code missing()} against the arguments available at the time of compilation.
+   */
+  public IRBody buildClosureBody(SEXP exp) {
+    statements = Lists.newArrayList();
+    labels = Maps.newHashMap();
+
+    LoopBodyContext bodyContext = new LoopBodyContext(runtimeContext);
+
+    Expression returnValue = translateSimpleExpression(bodyContext, exp);
+    addStatement(new ReturnStatement(returnValue));
+
+    removeRedundantJumps();
+
+    initializeEnvironmentVariables();
+    maybeInitializeEllipses(bodyContext);
+    mergeInitializations();
+
+    return new IRBody(statements, labels, sourceFile, sourceLineMap);
+  }
+
   public IRBody buildLoopBody(FunctionCall call, ValueBounds sequenceBounds) {
     statements = Lists.newArrayList();
     labels = Maps.newHashMap();
 
     LocalVariable vector = newLocalVariable("elements");
     LocalVariable counter = newLocalVariable("i");
+    LocalVariable end = newLocalVariable("end");
 
     statements.add(new Assignment(vector, new ReadLoopVector(sequenceBounds)));
     statements.add(new Assignment(counter, new ReadLoopIt()));
+    statements.add(new Assignment(end, new ReadLoopEnd()));
 
     LoopBodyContext bodyContext = new LoopBodyContext(runtimeContext);
-    
-    ForTranslator.buildLoop(bodyContext, this, call, vector, counter);
+
+    IRLabel breakLabel = newLabel();
+
+    ForTranslator.buildLoop(bodyContext, this, call, vector, counter, end, breakLabel);
 
     addStatement(new ReturnStatement(new Constant(Null.INSTANCE)));
+
+    // Tell the interpreter not to continue with the next iteration
+    addLabel(breakLabel);
+    addStatement(new ReturnStatement(new Constant(LogicalVector.TRUE)));
     
 //    removeRedundantJumps();
     initializeEnvironmentVariables();
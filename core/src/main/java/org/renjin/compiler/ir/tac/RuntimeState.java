@@ -23,6 +23,7 @@ import org.renjin.compiler.ir.TypeSet;
 import org.renjin.compiler.ir.ValueBounds;
 import org.renjin.compiler.ir.exception.InvalidSyntaxException;
 import org.renjin.eval.Context;
+import org.renjin.eval.EvalException;
 import org.renjin.packaging.SerializedPromise;
 import org.renjin.primitives.S3;
 import org.renjin.primitives.sequence.DoubleSequence;
@@ -31,6 +32,7 @@ import org.renjin.repackaged.guava.collect.Maps;
 import org.renjin.sexp.*;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -60,6 +62,12 @@ public class RuntimeState {
 
   private Predicate<Environment> environmentPredicate = rho -> true;
 
+  /**
+   * Bounds of variables observed by earlier compilations of the same code, which are
+   * combined with the bounds of the variables' current values.
+   */
+  private Map<Symbol, ValueBounds> widenedBounds = Collections.emptyMap();
+
 
   /**
    * Creates a new {@code RuntimeState} for an arbitrary execution environment.
@@ -94,6 +102,14 @@ public class RuntimeState {
     }
   }
 
+  /**
+   * Widens the bounds assumed for the given variables to include the given bounds, so that code compiled
+   * again after an assumption failed is not specialized to the values seen this time either.
+   */
+  public void widenVariableBounds(Map<Symbol, ValueBounds> bounds) {
+    this.widenedBounds = bounds;
+  }
+
   public List<ExtraArgument> findEllipses() {
     if(extraArguments != null) {
       return extraArguments;
@@ -135,6 +151,10 @@ public class RuntimeState {
     }
 
     ValueBounds bounds = reasonableBounds(value);
+    ValueBounds widened = widenedBounds.get(name);
+    if(widened != null) {
+      bounds = bounds.union(widened);
+    }
 
     assumptions.add(new AssumeVariableBounds(name, bounds));
 
@@ -402,8 +422,22 @@ public class RuntimeState {
     return assumptions;
   }
 
+  /**
+   * Determines whether the argument {@code name} is missing in the function environment
+   * being compiled, and records the answer as an assumption.
+   */
   public boolean isMissing(Symbol name) {
-    throw new UnsupportedOperationException("TODO");
+    if(!(rho instanceof FunctionEnvironment)) {
+      throw new InvalidSyntaxException("'missing' can only be used for arguments");
+    }
+    boolean missing;
+    try {
+      missing = ((FunctionEnvironment) rho).isMissingArgument(context, name);
+    } catch (EvalException e) {
+      throw new NotCompilableException(name, e.getMessage());
+    }
+    assumptions.add(new AssumeMissing(name, missing));
+    return missing;
   }
 
 
@@ -420,6 +454,14 @@ public class RuntimeState {
       this.bounds = bounds;
     }
 
+    public Symbol getName() {
+      return name;
+    }
+
+    public ValueBounds getBounds() {
+      return bounds;
+    }
+
     @Override
     public String toString() {
       return "Variable{" + name + " = " + bounds + "}";
@@ -476,6 +518,33 @@ public class RuntimeState {
     }
   }
 
+  public static class AssumeMissing implements RuntimeAssumption {
+    private final Symbol name;
+    private final boolean missing;
+
+    public AssumeMissing(Symbol name, boolean missing) {
+      this.name = name;
+      this.missing = missing;
+    }
+
+    @Override
+    public String toString() {
+      return "Missing{" + name + " = " + missing + "}";
+    }
+
+    @Override
+    public boolean test(Context context, Environment rho) {
+      if(!(rho instanceof FunctionEnvironment)) {
+        return false;
+      }
+      try {
+        return ((FunctionEnvironment) rho).isMissingArgument(context, name) == missing;
+      } catch (EvalException e) {
+        return false;
+      }
+    }
+  }
+
   public static class AssumeEllipses implements RuntimeAssumption {
 
     private final List<ExtraArgument> arguments;
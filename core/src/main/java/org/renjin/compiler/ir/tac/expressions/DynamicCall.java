@@ -19,6 +19,7 @@
 package org.renjin.compiler.ir.tac.expressions;
 
 import org.renjin.compiler.aot.ClosureEmitContext;
+import org.renjin.compiler.codegen.ConstantBytecode;
 import org.renjin.compiler.codegen.EmitContext;
 import org.renjin.compiler.codegen.FunctionLoader;
 import org.renjin.compiler.codegen.expr.CompiledSexp;
@@ -249,8 +250,22 @@ public class DynamicCall implements Expression {
   }
 
   static void loadSymbolPromise(EmitContext context, InstructionAdapter mv, Symbol symbol) {
-    ClosureEmitContext closureEmitContext = (ClosureEmitContext) context;
-    closureEmitContext.loadSymbolPromise(symbol, mv);
+    if(context instanceof ClosureEmitContext) {
+      ClosureEmitContext closureEmitContext = (ClosureEmitContext) context;
+      closureEmitContext.loadSymbolPromise(symbol, mv);
+
+    } else if(symbol == Symbol.MISSING_ARG) {
+      ConstantBytecode.pushConstant(mv, symbol);
+
+    } else {
+      // Compiled outside of a closure, variables always live in the environment,
+      // so we can simply promise to look up the symbol there.
+      ConstantBytecode.pushConstant(mv, symbol);
+      mv.visitVarInsn(Opcodes.ALOAD, context.getEnvironmentVarIndex());
+      mv.invokeinterface(Type.getInternalName(SEXP.class), "promise", Type.getMethodDescriptor(
+          Type.getType(SEXP.class),
+          Type.getType(Environment.class)));
+    }
   }
 
   @Override
@@ -22,7 +22,7 @@ public class DynamicSetterCall implements Expression {
   private final FunctionCall call;
   private final FunctionLoader functionLoader;
   private final String functionName;
-  private final Expression rhs;
+  private Expression rhs;
   private final int forwardedArgumentIndex;
 
   public DynamicSetterCall(FunctionCall call, FunctionLoader functionLoader, String functionName, Expression rhs) {
@@ -45,17 +45,27 @@ public class DynamicSetterCall implements Expression {
 
   @Override
   public void setChild(int childIndex, Expression child) {
-    throw new IllegalArgumentException();
+    if(childIndex != 0) {
+      throw new IllegalArgumentException();
+    }
+    rhs = child;
   }
 
+  /**
+   * The other arguments are promised from the environment by name, but the value is passed
+   * through a variable, which must be seen as used.
+   */
   @Override
   public int getChildCount() {
-    return 0;
+    return 1;
   }
 
   @Override
   public Expression childAt(int index) {
-    throw new IllegalArgumentException();
+    if(index != 0) {
+      throw new IllegalArgumentException();
+    }
+    return rhs;
   }
 
   @Override
@@ -22,9 +22,12 @@ import org.renjin.compiler.CompiledLoopBody;
 import org.renjin.compiler.codegen.EmitContext;
 import org.renjin.compiler.codegen.expr.CompiledSexp;
 import org.renjin.compiler.codegen.expr.SexpExpr;
+import org.renjin.compiler.codegen.expr.VectorType;
 import org.renjin.compiler.ir.ValueBounds;
 import org.renjin.repackaged.asm.Opcodes;
+import org.renjin.repackaged.asm.Type;
 import org.renjin.repackaged.asm.commons.InstructionAdapter;
+import org.renjin.sexp.*;
 
 
 public class ReadLoopVector implements Expression {
@@ -57,9 +60,54 @@ public class ReadLoopVector implements Expression {
       public void loadSexp(EmitContext context, InstructionAdapter mv) {
         mv.visitVarInsn(Opcodes.ALOAD, CompiledLoopBody.LOOP_VECTOR_INDEX);
       }
+
+      @Override
+      public void loadArray(EmitContext context, InstructionAdapter mv, VectorType vectorType) {
+        // The loop body is entered again at each safepoint, so avoid copying the sequence each time
+        switch (vectorType) {
+          case LOGICAL:
+          case INT:
+            loadSexp(context, mv);
+            mv.invokestatic(Type.getInternalName(ReadLoopVector.class), "intArray",
+                Type.getMethodDescriptor(Type.getType(int[].class), Type.getType(SEXP.class)), false);
+            break;
+          case DOUBLE:
+            loadSexp(context, mv);
+            mv.invokestatic(Type.getInternalName(ReadLoopVector.class), "doubleArray",
+                Type.getMethodDescriptor(Type.getType(double[].class), Type.getType(SEXP.class)), false);
+            break;
+          default:
+            super.loadArray(context, mv, vectorType);
+        }
+      }
     };
   }
 
+  /**
+   * @return the elements of the loop sequence, which the loop body only reads, without copying them
+   * if possible.
+   */
+  public static int[] intArray(SEXP sequence) {
+    if(sequence instanceof IntArrayVector) {
+      return ((IntArrayVector) sequence).toIntArrayUnsafe();
+    }
+    if(sequence instanceof LogicalArrayVector) {
+      return ((LogicalArrayVector) sequence).toIntArrayUnsafe();
+    }
+    return ((AtomicVector) sequence).toIntArray();
+  }
+
+  /**
+   * @return the elements of the loop sequence, which the loop body only reads, without copying them
+   * if possible.
+   */
+  public static double[] doubleArray(SEXP sequence) {
+    if(sequence instanceof DoubleArrayVector) {
+      return ((DoubleArrayVector) sequence).toDoubleArrayUnsafe();
+    }
+    return ((AtomicVector) sequence).toDoubleArray();
+  }
+
   @Override
   public void setChild(int childIndex, Expression child) {
     throw new IllegalArgumentException("no children");
@@ -59,8 +59,23 @@ public class ForTranslator extends FunctionCallTranslator {
   }
 
   public static void buildLoop(TranslationContext parentContext, IRBodyBuilder factory, FunctionCall call, Expression vector, LValue counter) {
-    Symbol symbol = call.getArgument(0);
     Temp length = factory.newTemp();
+    factory.addStatement(new Assignment(length, new BuiltinCall(factory.getRuntimeState(), "length",
+        new LengthSpecializer(), Collections.singletonList(new IRArgument(vector)))));
+
+    buildLoop(parentContext, factory, call, vector, counter, length, null);
+  }
+
+  /**
+   * Builds a loop over the elements of {@code vector} from the current value of {@code counter} up to,
+   * but not including, {@code end}.
+   *
+   * @param breakLabel the label to which {@code break} jumps, or {@code null} if {@code break} should
+   *                   jump to the end of the loop
+   */
+  public static void buildLoop(TranslationContext parentContext, IRBodyBuilder factory, FunctionCall call,
+                               Expression vector, LValue counter, Expression end, IRLabel breakLabel) {
+    Symbol symbol = call.getArgument(0);
 
     Variable elementVariable = factory.getEnvironmentVariable(symbol);
 
@@ -71,18 +86,15 @@ public class ForTranslator extends FunctionCallTranslator {
     IRLabel noLoopLabel = factory.newLabel();
     IRLabel exitLabel = factory.newLabel();
 
-    factory.addStatement(new Assignment(length, new BuiltinCall(factory.getRuntimeState(), "length",
-        new LengthSpecializer(), Collections.singletonList(new IRArgument(vector)))));
-
     // In order to avoid updating the enclosing environment at each loop iteration,
     // we need an extra check to see whether the loop is executed at all
-    factory.addStatement(new IfStatement(new EqZero(length), noLoopLabel, bodyLabel));
+    factory.addStatement(new IfStatement(new EqZero(end), noLoopLabel, bodyLabel));
 
     // start the body here
     factory.addLabel(bodyLabel);
     factory.addStatement(new Assignment(elementVariable, new ElementAccess(vector, counter)));
 
-    LoopContext loopContext = new LoopContext(parentContext, nextLabel, exitLabel);
+    LoopContext loopContext = new LoopContext(parentContext, nextLabel, breakLabel == null ? exitLabel : breakLabel);
     factory.translateStatements(loopContext, body);
 
     // increment the counter
@@ -90,7 +102,7 @@ public class ForTranslator extends FunctionCallTranslator {
     factory.addStatement(new Assignment(counter, new IncrementCounter(counter)));
 
     // check the counter and potentially loop
-    factory.addStatement(new IfStatement(new CmpGE(counter, length), exitLabel, bodyLabel));
+    factory.addStatement(new IfStatement(new CmpGE(counter, end), exitLabel, bodyLabel));
 
     factory.addLabel(exitLabel);
     factory.addStatement(new NoopStatement());
@@ -26,6 +26,7 @@ import org.renjin.compiler.ir.tac.expressions.BuiltinCall;
 import org.renjin.compiler.ir.tac.expressions.Expression;
 import org.renjin.compiler.ir.tac.statements.ExprStatement;
 import org.renjin.invoke.model.PrimitiveModel;
+import org.renjin.primitives.Contexts;
 import org.renjin.primitives.Primitives;
 import org.renjin.sexp.FunctionCall;
 import org.renjin.sexp.SEXP;
@@ -55,6 +56,14 @@ public class InternalCallTranslator extends FunctionCallTranslator {
       throw new InvalidSyntaxException("No such .Internal function '" + internalName + "'");
     }
 
+    if(entry.functionClass == Contexts.class ||
+        entry.name.equals("match.call") ||
+        entry.name.equals("environment")) {
+      // These functions inspect the stack of function contexts, which is not preserved
+      // when the enclosing closure is inlined.
+      throw new NotCompilableException(call, "Unsupported context-dependent internal: " + entry.name);
+    }
+
     PrimitiveModel model = new PrimitiveModel(entry);
     if(model.hasVargs()) {
       throw new NotCompilableException(call, "Unsupported var args internal: " + model.getName());
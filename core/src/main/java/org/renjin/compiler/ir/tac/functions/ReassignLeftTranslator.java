@@ -21,25 +21,16 @@ package org.renjin.compiler.ir.tac.functions;
 import org.renjin.compiler.NotCompilableException;
 import org.renjin.compiler.ir.tac.IRBodyBuilder;
 import org.renjin.compiler.ir.tac.expressions.Expression;
-import org.renjin.compiler.ir.tac.expressions.ReassignStatement;
 import org.renjin.sexp.SEXP;
-import org.renjin.sexp.StringVector;
-import org.renjin.sexp.Symbol;
 
 
 public class ReassignLeftTranslator extends AssignLeftTranslator {
   @Override
   protected void doAssignment(IRBodyBuilder builder, SEXP lhs, Expression rhs) {
-    String name;
-    if(lhs instanceof Symbol) {
-      name = ((Symbol) lhs).getPrintName();
-    } else if(lhs instanceof StringVector) {
-      name = ((StringVector) lhs).getElementAsString(0);
-    } else {
-      throw new NotCompilableException(lhs, "Invalid lhs for <<-");
-    }
-
-    builder.addStatement(new ReassignStatement(name, rhs));
 
+    // The target of a super-assignment may be a variable that the compiled code
+    // holds in a local variable, or one assigned by an inlined closure's caller, so
+    // leave these to the interpreter.
+    throw new NotCompilableException(lhs, "<<- is not supported by the compiler");
   }
 }
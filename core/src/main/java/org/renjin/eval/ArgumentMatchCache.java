@@ -0,0 +1,128 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.eval;
+
+import org.renjin.sexp.FunctionCall;
+import org.renjin.sexp.PairList;
+
+import java.util.Arrays;
+
+/**
+ * A polymorphic inline cache of argument matchings, held by a {@link FunctionCall}.
+ *
+ * <p>A given call site almost always calls the same closure, or closures created from the same
+ * {@code function} expression, with the same argument names. The result of matching depends only on the
+ * formal argument names and the names of the supplied arguments, so it is cached for up to {@link #LIMIT}
+ * combinations of formals and argument names, after which the call site is considered megamorphic and
+ * no further matchings are cached.</p>
+ *
+ * <p>Instances are immutable: adding an entry creates a new cache, which replaces the old one on the call site.
+ * Calls can thus be evaluated concurrently by sessions which share the same function definitions.</p>
+ */
+public final class ArgumentMatchCache {
+
+  /**
+   * The maximum number of matchings cached per call site.
+   */
+  public static final int LIMIT = 4;
+
+  private static final ArgumentMatchCache EMPTY = new ArgumentMatchCache(
+      new PairList[0], new String[0][], new MatchedArgumentPositions[0]);
+
+  private final PairList[] formals;
+  private final String[][] actualNames;
+  private final MatchedArgumentPositions[] positions;
+
+  private ArgumentMatchCache(PairList[] formals, String[][] actualNames, MatchedArgumentPositions[] positions) {
+    this.formals = formals;
+    this.actualNames = actualNames;
+    this.positions = positions;
+  }
+
+  /**
+   * Matches the supplied arguments to the formals of a closure, reusing the matching cached on the {@code call},
+   * if there is one.
+   *
+   * @param call the call site, or {@code null}
+   * @param formals the formal argument list of the closure being called
+   * @param matcher the closure's {@link ArgumentMatcher}, used if there is no cached matching
+   * @param actualNames the names of the supplied arguments, with {@code null} for unnamed arguments
+   */
+  public static MatchedArgumentPositions match(FunctionCall call, PairList formals, ArgumentMatcher matcher,
+                                               String[] actualNames) {
+    if(call == null) {
+      return matcher.match(actualNames);
+    }
+    ArgumentMatchCache cache = call.argumentMatchCache;
+    if(cache == null) {
+      cache = EMPTY;
+    }
+    MatchedArgumentPositions cached = cache.lookup(formals, actualNames);
+    if(cached != null) {
+      return cached;
+    }
+    MatchedArgumentPositions matched = matcher.match(actualNames);
+    if(cache.size() < LIMIT) {
+      call.argumentMatchCache = cache.add(formals, actualNames, matched);
+    }
+    return matched;
+  }
+
+  private MatchedArgumentPositions lookup(PairList formals, String[] actualNames) {
+    for (int i = 0; i < this.formals.length; i++) {
+      if(this.formals[i] == formals && namesEqual(this.actualNames[i], actualNames)) {
+        return positions[i];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Compares argument names, which are nearly always the interned print names of symbols.
+   */
+  private static boolean namesEqual(String[] x, String[] y) {
+    if(x.length != y.length) {
+      return false;
+    }
+    for (int i = 0; i < x.length; i++) {
+      if(x[i] != y[i] && (x[i] == null || !x[i].equals(y[i]))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private ArgumentMatchCache add(PairList formals, String[] actualNames, MatchedArgumentPositions matched) {
+    int size = size();
+    PairList[] newFormals = Arrays.copyOf(this.formals, size + 1);
+    String[][] newActualNames = Arrays.copyOf(this.actualNames, size + 1);
+    MatchedArgumentPositions[] newPositions = Arrays.copyOf(this.positions, size + 1);
+    newFormals[size] = formals;
+    newActualNames[size] = actualNames.clone();
+    newPositions[size] = matched;
+    return new ArgumentMatchCache(newFormals, newActualNames, newPositions);
+  }
+
+  /**
+   * @return the number of matchings cached.
+   */
+  public int size() {
+    return formals.length;
+  }
+}
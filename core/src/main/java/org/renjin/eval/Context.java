@@ -228,7 +228,7 @@ public class Context {
   }
 
   public ListVector materialize(ListVector listVector) {
-    if(!VectorPipeliner.ENABLED) {
+    if(!session.getVectorEngine().isEnabled()) {
       return listVector;
     }
     if(!anyDeferred(listVector)) {
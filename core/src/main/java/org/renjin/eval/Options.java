@@ -50,6 +50,13 @@ public class Options {
     map.put("useFancyQuotes", LogicalVector.TRUE);
   }
 
+  /**
+   * Creates a copy of another session's options.
+   */
+  public Options(Options other) {
+    map = Maps.newHashMap(other.map);
+  }
+
   public SEXP get(String name) {
     SEXP value = map.get(name);
     return value == null ? Null.INSTANCE : value;
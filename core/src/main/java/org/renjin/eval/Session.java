@@ -23,7 +23,8 @@ import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileSystemManager;
 import org.renjin.base.BaseFrame;
 import org.renjin.pipeliner.VectorPipeliner;
-import org.renjin.primitives.Warning;
+import org.renjin.primitives.matrix.BlasProvider;
+import org.renjin.primitives.text.regex.RECache;
 import org.renjin.primitives.io.connections.ConnectionTable;
 import org.renjin.primitives.packaging.DllInfo;
 import org.renjin.primitives.packaging.NamespaceRegistry;
@@ -90,6 +91,8 @@ public class Session {
    * This session's global environment
    */
   private final Environment globalEnvironment;
+
+  private final Frame globalFrame;
   
   /**
    * This session's base namespace environment.
@@ -102,7 +105,7 @@ public class Session {
   
   private Map<Class, Object> singletons = Maps.newHashMap();
   
-  private final ConnectionTable connectionTable = new ConnectionTable();
+  private final ConnectionTable connectionTable;
 
   private FileObject workingDirectory;
   
@@ -114,6 +117,10 @@ public class Session {
   
   private VectorPipeliner vectorPipeliner;
 
+  private final BlasProvider blasProvider;
+
+  private final RECache regexCache;
+
   private ClassLoader classLoader;
 
   /**
@@ -121,6 +128,12 @@ public class Session {
    */
   private List<DllInfo> loadedLibraries = new ArrayList<>();
 
+  /**
+   * The warnings collected since they were last cleared. GNU R keeps these in {@code last.warning} in the
+   * base environment, but the base environment is shared with forked sessions.
+   */
+  private ListVector lastWarning;
+
 
   /**
    * Whether the result of the evaluation should be "invisible" in a
@@ -141,14 +154,19 @@ public class Session {
           ClassLoader classLoader,
           PackageLoader packageLoader,
           ExecutorService executorService,
+          VectorPipeliner vectorPipeliner,
+          BlasProvider blasProvider,
           Frame globalFrame) {
     this.fileSystemManager = fileSystemManager;
     this.classLoader = classLoader;
     this.homeDirectory = FileSystemUtils.homeDirectoryInCoreJar(fileSystemManager);
     this.workingDirectory = FileSystemUtils.workingDirectory(fileSystemManager);
     this.systemEnvironment = Maps.newHashMap(System.getenv()); //load system environment variables
+    this.connectionTable = new ConnectionTable();
+    this.regexCache = new RECache();
     this.baseFrame = new BaseFrame(this);
     this.baseEnvironment = new DynamicEnvironment(Environment.BASE_ENVIRONMENT, Environment.EMPTY, baseFrame);
+    this.globalFrame = globalFrame;
     this.globalEnvironment = new DynamicEnvironment(Environment.GLOBAL_ENVIRONMENT_NAME, baseEnvironment, globalFrame);
     this.baseNamespaceEnv = new DynamicEnvironment(Environment.BASE_NAMESPACE_ENVIRONMENT, globalEnvironment, baseFrame);
     this.topLevelContext = new Context(this);
@@ -157,7 +175,8 @@ public class Session {
     namespaceRegistry = new NamespaceRegistry(packageLoader, baseNamespaceEnv);
     securityManager = new SecurityManager();
 
-    this.vectorPipeliner = new VectorPipeliner(executorService);
+    this.vectorPipeliner = vectorPipeliner;
+    this.blasProvider = blasProvider;
 
 
     // TODO(alex)
@@ -166,6 +185,79 @@ public class Session {
     globalEnvironment.setVariable(topLevelContext, ".Random.seed", IntVector.valueOf(1));
   }
 
+  /**
+   * Creates a session forked from {@code parent}, which reads from and writes to the given
+   * {@code connectionTable}.
+   *
+   * @see #fork()
+   */
+  private Session(Session parent, ConnectionTable connectionTable) {
+    this.fileSystemManager = parent.fileSystemManager;
+    this.classLoader = parent.classLoader;
+    this.homeDirectory = parent.homeDirectory;
+    this.workingDirectory = parent.workingDirectory;
+    this.systemEnvironment = Maps.newHashMap(parent.systemEnvironment);
+    this.commandLineArguments = parent.commandLineArguments;
+    this.sessionController = parent.sessionController;
+    this.securityManager = parent.securityManager;
+    this.connectionTable = connectionTable;
+    this.regexCache = parent.regexCache;
+    this.vectorPipeliner = parent.vectorPipeliner;
+    this.blasProvider = parent.blasProvider;
+    this.loadedLibraries = parent.loadedLibraries;
+    this.baseFrame = parent.baseFrame;
+    this.baseEnvironment = parent.baseEnvironment;
+    this.baseNamespaceEnv = parent.baseNamespaceEnv;
+    this.namespaceRegistry = parent.namespaceRegistry;
+    this.globalFrame = new HashFrame(parent.globalFrame);
+    this.globalEnvironment = new DynamicEnvironment(Environment.GLOBAL_ENVIRONMENT_NAME,
+        parent.globalEnvironment.getParent(), globalFrame);
+    this.topLevelContext = new Context(this);
+
+    Options options = parent.singletons.containsKey(Options.class) ? parent.getOptions() : null;
+    if(options != null) {
+      singletons.put(Options.class, new Options(options));
+    }
+    this.rng.copyKind(parent.rng);
+
+    // Values are now bound in both global environments, so neither session may replace their elements in place
+    for (Symbol symbol : globalFrame.getSymbols()) {
+      AbstractSEXP.share(globalFrame.getVariable(symbol));
+    }
+
+    // Like GNU R's mclapply(mc.set.seed = TRUE), start each fork with a different stream
+    // unless a seed is explicitly assigned
+    this.globalFrame.remove(Symbol.get(".Random.seed"));
+  }
+
+  /**
+   * Creates a new session which, like a process forked from GNU R, starts out with a copy of this
+   * session's global environment, options, and random number generator kind.
+   *
+   * <p>The forked session's global environment is a snapshot of this session's bindings taken when the fork
+   * is created. Variables assigned to the forked session's global environment are not visible to this session,
+   * and vice versa, so the fork can evaluate code on another thread. Everything that is not part of the
+   * global environment, including loaded namespaces, the search path, and connections, is shared with
+   * this session: unlike a forked process, changes made to these by the forked session are seen
+   * by this one.</p>
+   *
+   * <p>The forked session's generator is not seeded from this session's {@code .Random.seed}, so that
+   * each fork draws a different sequence of random numbers.</p>
+   */
+  public Session fork() {
+    return new Session(this, connectionTable);
+  }
+
+  /**
+   * Creates a forked session with its own standard input, output and error connections, so that
+   * its output is not interleaved with that of this session or other forks.
+   *
+   * @see SessionPool
+   */
+  Session forkWithOwnConnections() {
+    return new Session(this, new ConnectionTable());
+  }
+
 
   public void setStdOut(PrintWriter writer) {
     this.connectionTable.getStdout().setStream(writer);
@@ -241,6 +333,20 @@ public class Session {
   public VectorPipeliner getVectorEngine() {
     return vectorPipeliner;
   }
+
+  /**
+   * @return the BLAS implementation used to compute matrix products in this session.
+   */
+  public BlasProvider getBlasProvider() {
+    return blasProvider;
+  }
+
+  /**
+   * @return the cache of regular expressions compiled by builtins like {@code grepl} and {@code gsub}
+   */
+  public RECache getRegexCache() {
+    return regexCache;
+  }
   
   public void setCommandLineArguments(String executableName, String... arguments) {
     commandLineArguments = new StringArrayVector(Lists.asList(executableName, arguments));
@@ -402,17 +508,40 @@ public class Session {
   }
 
 
+  /**
+   * Adds a warning to those collected by this session, to be printed at the end of the current
+   * top-level evaluation.
+   */
+  public void addWarning(String message, SEXP call) {
+    ListVector.NamedBuilder warnings = new ListVector.NamedBuilder();
+    if(lastWarning != null) {
+      warnings.addAll(lastWarning);
+    }
+    warnings.add(message, call);
+    lastWarning = warnings.build();
+  }
+
+  /**
+   * @return the warnings collected by this session since they were last cleared, as a named list of calls,
+   * or {@code Null.INSTANCE} if there are none.
+   */
+  public SEXP getLastWarning() {
+    if(lastWarning == null) {
+      return Null.INSTANCE;
+    }
+    return lastWarning;
+  }
+
   public void printWarnings() {
-    SEXP warnings = baseEnvironment.getVariable(topLevelContext, Warning.LAST_WARNING);
-    if(warnings != Symbol.UNBOUND_VALUE) {
-      topLevelContext.evaluate( FunctionCall.newCall(Symbol.get("print.warnings"), warnings),
+    if(lastWarning != null) {
+      topLevelContext.evaluate( FunctionCall.newCall(Symbol.get("print.warnings"), lastWarning),
           topLevelContext.getBaseEnvironment());
 
     }
   }
 
   public void clearWarnings() {
-    baseEnvironment.remove(Warning.LAST_WARNING);
+    lastWarning = null;
   }
 
 
@@ -19,6 +19,8 @@
 package org.renjin.eval;
 
 import org.apache.commons.vfs2.FileSystemManager;
+import org.renjin.pipeliner.VectorPipeliner;
+import org.renjin.primitives.matrix.BlasProvider;
 import org.renjin.primitives.packaging.ClasspathPackageLoader;
 import org.renjin.primitives.packaging.PackageLoader;
 import org.renjin.repackaged.guava.collect.Lists;
@@ -41,6 +43,9 @@ public class SessionBuilder {
   private PackageLoader packageLoader;
   private ClassLoader classLoader;
   private ExecutorService executorService = null;
+  private boolean vectorPipelinerEnabled = VectorPipeliner.DEFAULT_ENABLED;
+  private int vectorPipelinerPartitionLength = VectorPipeliner.MIN_PARTITION_LENGTH;
+  private BlasProvider blasProvider = null;
 
   private Frame globalFrame = new HashFrame();
 
@@ -111,6 +116,50 @@ public class SessionBuilder {
   }
 
 
+  /**
+   * Enables or disables the {@link VectorPipeliner} for the new {@code Session}.
+   *
+   * <p>When enabled, operations on large vectors are deferred until their result is actually needed,
+   * at which point chains of operations like {@code sum(x * y + z)} are fused into a single loop
+   * that does not allocate intermediate vectors. If an {@code ExecutorService} backed by a
+   * thread pool is provided, fused loops are split across its threads.</p>
+   *
+   * <p>By default, the pipeliner is enabled only if the {@code renjin.vp.enabled} system property
+   * is set to {@code true}.</p>
+   *
+   * @see #setExecutorService(ExecutorService)
+   */
+  public SessionBuilder setVectorPipelinerEnabled(boolean enabled) {
+    this.vectorPipelinerEnabled = enabled;
+    return this;
+  }
+
+  /**
+   * Sets the minimum number of elements processed by each thread when the {@link VectorPipeliner}
+   * splits a fused loop. Loops shorter than twice this length are not split.
+   *
+   * <p>By default, this is taken from the {@code renjin.vp.partition.length} system property,
+   * or 262144 if it is not set.</p>
+   */
+  public SessionBuilder setVectorPipelinerPartitionLength(int minPartitionLength) {
+    this.vectorPipelinerPartitionLength = minPartitionLength;
+    return this;
+  }
+
+  /**
+   * Sets the BLAS implementation used to compute matrix products such as {@code %*%} and
+   * {@code crossprod} in the new {@code Session}.
+   *
+   * <p>By default, products are computed by netlib-java, which uses a native BLAS if one is
+   * installed and otherwise falls back to its translation of the reference BLAS. Setting the
+   * {@code renjin.blas} system property to {@code java} selects {@link org.renjin.primitives.matrix.JavaBlasProvider}
+   * instead, which computes large products in parallel, cache-blocked tiles without any native code.</p>
+   */
+  public SessionBuilder setBlasProvider(BlasProvider blasProvider) {
+    this.blasProvider = blasProvider;
+    return this;
+  }
+
   /**
    * Sets the {@link ClassLoader} to use to resolve JVM classes by the {@code import()} builtin.
    */
@@ -165,7 +214,15 @@ public class SessionBuilder {
         executorService = MoreExecutors.newDirectExecutorService();
       }
 
-      Session session = new Session(fileSystemManager, classLoader, packageLoader, executorService, globalFrame);
+      if(blasProvider == null) {
+        blasProvider = BlasProvider.getDefault();
+      }
+
+      VectorPipeliner vectorPipeliner = new VectorPipeliner(executorService, vectorPipelinerEnabled,
+          vectorPipelinerPartitionLength);
+
+      Session session = new Session(fileSystemManager, classLoader, packageLoader, executorService,
+          vectorPipeliner, blasProvider, globalFrame);
 
       if(loadBasePackage) {
         session.baseFrame.load(session.getTopLevelContext());
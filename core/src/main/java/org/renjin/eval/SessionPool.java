@@ -0,0 +1,110 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.eval;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A pool of sessions cloned from a single, fully initialized template session.
+ *
+ * <p>Building a session and loading the default packages takes seconds, which is far too slow
+ * for a service that needs an isolated session for every request. Instead, the pool initializes
+ * one template session, for example with {@code new SessionBuilder().withDefaultPackages().build()}
+ * followed by any application-specific setup, and then hands out {@linkplain Session#fork() forks}
+ * of it. A fork starts out with a snapshot of the bindings in the template's global environment and a copy of
+ * its options, so acquiring a session does not need to evaluate any R code, and a few forks are kept
+ * ready to be handed out.</p>
+ *
+ * <p>Each session handed out by the pool has its own global environment, options, warnings, random number
+ * generator, and standard input, output and error connections. Assignments to the global environment
+ * are never seen by the template or by other sessions. Releasing a session discards it, and
+ * the next session acquired starts out again with the template's state.</p>
+ *
+ * <p>All other environments are shared with the template and with the other sessions, which is what makes
+ * acquiring a session cheap: the base environment and base namespace, loaded namespaces, and the
+ * environments on the search path. Load all the packages that requests need into the template before creating
+ * the pool: packages loaded later by one session are also seen by the others. Likewise, a value assigned
+ * into one of these environments, for example with {@code assign(..., envir = baseenv())} or with {@code <<-}
+ * from a package's function, is seen by every session. Such assignments are not synchronized between sessions,
+ * so code evaluated in pooled sessions must not make them.</p>
+ *
+ * <p>The pool takes ownership of the template, which must not be used to evaluate code afterwards,
+ * as its global environment serves as the snapshot from which all sessions are cloned.</p>
+ */
+public class SessionPool {
+
+  public static final int DEFAULT_CAPACITY = Integer.getInteger("renjin.session.pool.size", 4);
+
+  private final Session template;
+
+  private final BlockingQueue<Session> ready;
+
+  public SessionPool(Session template) {
+    this(template, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param template the initialized session from which sessions are cloned
+   * @param capacity the number of sessions to keep ready for {@link #acquire()}
+   */
+  public SessionPool(Session template, int capacity) {
+    this.template = template;
+    this.ready = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    while(ready.offer(template.forkWithOwnConnections())) {
+    }
+  }
+
+  /**
+   * @return a session which starts out with the template's global environment and options, and which
+   * the caller can use exclusively until it is {@linkplain #release(Session) released}.
+   */
+  public Session acquire() {
+    Session session = ready.poll();
+    if(session == null) {
+      session = template.forkWithOwnConnections();
+    }
+    return session;
+  }
+
+  /**
+   * Closes a session obtained from {@link #acquire()}, running its {@code on.exit} handlers and finalizers,
+   * and clones a fresh session to take its place in the pool. The session must not be used afterwards.
+   */
+  public void release(Session session) {
+    session.close();
+    if(ready.remainingCapacity() > 0) {
+      ready.offer(template.forkWithOwnConnections());
+    }
+  }
+
+  /**
+   * @return the template session from which this pool's sessions are cloned.
+   */
+  public Session getTemplate() {
+    return template;
+  }
+
+  /**
+   * @return the number of sessions currently ready to be acquired.
+   */
+  public int size() {
+    return ready.size();
+  }
+}
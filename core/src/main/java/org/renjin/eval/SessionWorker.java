@@ -0,0 +1,159 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.eval;
+
+import org.renjin.sexp.Function;
+import org.renjin.sexp.FunctionCall;
+import org.renjin.sexp.SEXP;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Evaluates functions on its own thread, in a {@link Session#fork() fork} of the session
+ * which created it.
+ *
+ * <p>Functions are evaluated in the order in which they are submitted, and their results
+ * are received in the same order.</p>
+ */
+public class SessionWorker {
+
+  private static final AtomicInteger THREAD_COUNT = new AtomicInteger(0);
+
+  /**
+   * Monitor notified whenever any worker completes an evaluation, so that we can wait
+   * for the first of several workers to finish.
+   */
+  private static final Object COMPLETION = new Object();
+
+  private final Session session;
+  private final ExecutorService executor;
+  private final Deque<Future<SEXP>> pending = new ArrayDeque<>();
+
+  public SessionWorker(Session parent) {
+    this.session = parent.fork();
+    this.executor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "renjin-worker-" + THREAD_COUNT.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  public Session getSession() {
+    return session;
+  }
+
+  /**
+   * Queues a call to {@code function}, without arguments, for evaluation on this worker's thread.
+   */
+  public synchronized void submit(Function function) {
+    FutureTask<SEXP> task = new FutureTask<SEXP>(() ->
+        session.getTopLevelContext().evaluate(FunctionCall.newCall(function))) {
+      @Override
+      protected void done() {
+        synchronized (COMPLETION) {
+          COMPLETION.notifyAll();
+        }
+      }
+    };
+    executor.execute(task);
+    pending.add(task);
+  }
+
+  /**
+   * @return true if the result of the earliest pending evaluation is available.
+   */
+  public synchronized boolean isResultReady() {
+    return !pending.isEmpty() && pending.peek().isDone();
+  }
+
+  /**
+   * Waits for, and returns, the result of the earliest pending evaluation.
+   *
+   * @throws EvalException if there is no pending evaluation, or if the evaluation failed
+   */
+  public SEXP receive() {
+    Future<SEXP> result;
+    synchronized (this) {
+      result = pending.poll();
+    }
+    if(result == null) {
+      throw new EvalException("Nothing has been sent to this worker");
+    }
+    try {
+      return result.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new EvalException("Interrupted while waiting for worker");
+    } catch (ExecutionException e) {
+      throw new EvalException("Error in worker: " + e.getCause().getMessage(), e.getCause());
+    }
+  }
+
+  /**
+   * Waits until one of the given workers has a result ready.
+   *
+   * @return the index, within {@code workers}, of the first worker with a result ready
+   * @throws EvalException if none of the workers has a pending evaluation.
+   */
+  public static int select(List<SessionWorker> workers) {
+    synchronized (COMPLETION) {
+      while(true) {
+        boolean anyPending = false;
+        for (int i = 0; i < workers.size(); i++) {
+          SessionWorker worker = workers.get(i);
+          if(worker.isResultReady()) {
+            return i;
+          }
+          anyPending |= worker.hasPending();
+        }
+        if(!anyPending) {
+          throw new EvalException("Nothing has been sent to these workers");
+        }
+        try {
+          COMPLETION.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new EvalException("Interrupted while waiting for workers");
+        }
+      }
+    }
+  }
+
+  private synchronized boolean hasPending() {
+    return !pending.isEmpty();
+  }
+
+  /**
+   * Interrupts any running evaluation, discards pending evaluations and stops this worker's thread.
+   */
+  public void shutdown() {
+    synchronized (this) {
+      for (Future<SEXP> result : pending) {
+        result.cancel(true);
+      }
+      pending.clear();
+    }
+    executor.execute(session::close);
+    executor.shutdown();
+  }
+}
@@ -22,7 +22,6 @@ import com.sun.codemodel.*;
 import org.apache.commons.math.complex.Complex;
 import org.renjin.invoke.model.JvmMethod;
 import org.renjin.invoke.model.PrimitiveModel;
-import org.renjin.pipeliner.VectorPipeliner;
 import org.renjin.primitives.vector.DeferredComputation;
 import org.renjin.repackaged.guava.collect.Lists;
 import org.renjin.sexp.*;
@@ -191,7 +190,10 @@ public class DeferredVectorBuilder {
     condition = condition.cand(cycleCount.ne(lit(0)));
 
     // Runtime disabling
-    condition = codeModel.ref(VectorPipeliner.class).staticRef("ENABLED").cand(condition);
+    condition = condition.cand(contextArgument
+        .invoke("getSession")
+        .invoke("getVectorEngine")
+        .invoke("isEnabled"));
     
     JBlock ifBig = parent._if(condition)._then();
 
@@ -20,8 +20,11 @@ package org.renjin.invoke.reflection;
 
 import org.renjin.eval.Context;
 import org.renjin.invoke.annotations.Current;
+import org.renjin.invoke.annotations.ReadOnly;
 import org.renjin.invoke.reflection.converters.Converter;
 import org.renjin.invoke.reflection.converters.Converters;
+import org.renjin.invoke.reflection.converters.DoubleArrayConverter;
+import org.renjin.invoke.reflection.converters.IntegerArrayConverter;
 import org.renjin.sexp.SEXP;
 
 import java.lang.annotation.Annotation;
@@ -68,7 +71,7 @@ public abstract class AbstractOverload {
     
     this.argumentConverters = new Converter[baseArgCount];
     for(int i=0;i!=baseArgCount;++i) {
-      argumentConverters[i] = Converters.get(parameterTypes[firstArg+i]);
+      argumentConverters[i] = argumentConverter(parameterTypes[firstArg+i], annotations, firstArg+i);
     }
     
     if(varArgs) {
@@ -78,6 +81,30 @@ public abstract class AbstractOverload {
     }
   }
 
+  /**
+   * Selects the converter for a parameter. Arrays are copied unless the parameter is annotated
+   * with {@link ReadOnly}.
+   */
+  private static Converter argumentConverter(Class parameterType, Annotation[][] annotations, int index) {
+    if(index < annotations.length && isReadOnly(annotations[index])) {
+      if(parameterType == double[].class) {
+        return DoubleArrayConverter.READ_ONLY_DOUBLE_ARRAY;
+      } else if(parameterType == int[].class) {
+        return IntegerArrayConverter.READ_ONLY_INT_ARRAY;
+      }
+    }
+    return Converters.get(parameterType);
+  }
+
+  private static boolean isReadOnly(Annotation[] annotations) {
+    for (Annotation annotation : annotations) {
+      if(annotation instanceof ReadOnly) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private boolean firstArgIsContext(Annotation[][] annotations) {
     if(annotations.length == 0) {
       return false;
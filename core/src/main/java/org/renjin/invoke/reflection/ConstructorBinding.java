@@ -21,8 +21,11 @@ package org.renjin.invoke.reflection;
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
 import org.renjin.repackaged.guava.collect.Lists;
+import org.renjin.sexp.FunctionCall;
 import org.renjin.sexp.SEXP;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
@@ -63,15 +66,36 @@ public class ConstructorBinding implements MemberBinding {
   public static class Overload extends AbstractOverload {
     private Constructor constructor;
 
+    /**
+     * Invokes the constructor with an array of converted arguments, or {@code null} if the constructor
+     * cannot be looked up as a handle.
+     */
+    private MethodHandle invoker;
     
     public Overload(Constructor constructor) {
       super(constructor.getParameterTypes(), 
           constructor.getParameterAnnotations(), constructor.isVarArgs());
       this.constructor = constructor;
+      try {
+        MethodHandle handle = MethodHandles.lookup().unreflectConstructor(constructor).asFixedArity();
+        this.invoker = handle
+            .asType(handle.type().generic())
+            .asSpreader(Object[].class, constructor.getParameterTypes().length);
+      } catch (IllegalAccessException e) {
+        this.invoker = null;
+      }
     }
     
    
     public Object newInstance(Context context, List<SEXP> args) {
+      if(invoker != null) {
+        Object[] converted = convertArguments(context, args);
+        try {
+          return (Object) invoker.invokeExact(converted);
+        } catch (Throwable e) {
+          throw new RuntimeException(e);
+        }
+      }
       try {
         return constructor.newInstance(convertArguments(context, args));
       } catch (IllegalArgumentException e) {
@@ -92,11 +116,30 @@ public class ConstructorBinding implements MemberBinding {
   }
   
   public Object newInstance(Context context, List<SEXP> arguments) {
+    return selectOverload(arguments).newInstance(context, arguments);
+  }
+
+  /**
+   * Invokes the constructor matching the {@code arguments}, which is only selected the first time that
+   * arguments of a given shape are passed from the {@code call}.
+   */
+  public Object newInstance(Context context, FunctionCall call, List<SEXP> arguments) {
+    JvmCallSite callSite = JvmCallSite.of(call);
+    if(callSite == null) {
+      return newInstance(context, arguments);
+    }
+    Overload overload = callSite.get(this, arguments);
+    if(overload == null) {
+      overload = selectOverload(arguments);
+      callSite.put(this, arguments, overload);
+    }
+    return overload.newInstance(context, arguments);
+  }
+
+  private Overload selectOverload(List<SEXP> arguments) {
     for(Overload overload : overloads) {
       if(overload.accept(arguments)) {
-        
-        return overload.newInstance(context, arguments);
-        
+        return overload;
       }
     }
 
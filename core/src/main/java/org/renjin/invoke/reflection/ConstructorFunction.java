@@ -65,7 +65,7 @@ public class ConstructorFunction extends AbstractSEXP implements Function {
       }
     }
   
-    Object instance = binding.newInstance(context, constructorArgs);
+    Object instance = binding.newInstance(context, call, constructorArgs);
     if(instance instanceof SEXP) {
       return (SEXP) instance;
     } else {
@@ -23,6 +23,9 @@ import org.renjin.invoke.reflection.converters.Converter;
 import org.renjin.invoke.reflection.converters.Converters;
 import org.renjin.sexp.SEXP;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 
@@ -31,29 +34,75 @@ public class FieldBinding implements MemberBinding {
   private final Field field;
   private final Converter converter;
 
+  /**
+   * Reads the field of an instance, or the static field, as {@code (Object)Object}, or {@code null}
+   * if the field can only be read through reflection.
+   */
+  private final MethodHandle getter;
+
+  /**
+   * Writes the field of an instance, or the static field, as {@code (Object,Object)void}, or
+   * {@code null} if the field is final.
+   */
+  private final MethodHandle setter;
+
   public FieldBinding(Field field) {
     this.field = field;
     this.converter = Converters.get(field.getType());
+
+    boolean isStatic = Modifier.isStatic(field.getModifiers());
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    MethodHandle getter;
+    try {
+      getter = lookup.unreflectGetter(field);
+      if(isStatic) {
+        getter = MethodHandles.dropArguments(getter, 0, Object.class);
+      }
+      getter = getter.asType(MethodType.methodType(Object.class, Object.class));
+    } catch (IllegalAccessException e) {
+      getter = null;
+    }
+    this.getter = getter;
+
+    MethodHandle setter = null;
+    if(!Modifier.isFinal(field.getModifiers())) {
+      try {
+        setter = lookup.unreflectSetter(field);
+        if(isStatic) {
+          setter = MethodHandles.dropArguments(setter, 0, Object.class);
+        }
+        setter = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+      } catch (IllegalAccessException e) {
+        setter = null;
+      }
+    }
+    this.setter = setter;
   }
 
   @Override
   public SEXP getValue(Object instance) {
+    Object value;
     try {
-      return converter.convertToR(field.get(instance));
-    } catch (IllegalAccessException e) {
+      if(getter == null) {
+        value = field.get(instance);
+      } else {
+        value = (Object) getter.invokeExact(instance);
+      }
+    } catch (Throwable e) {
       throw new IllegalStateException("Exception reading value of field " + field, e);
     }
+    return converter.convertToR(value);
   }
 
   @Override
   public void setValue(Object instance, SEXP value) {
-    if(!Modifier.isFinal(field.getModifiers())) {
+    if(setter == null) {
       throw new EvalException("The static field '%s' is read-only",
           field.toString());
     }
     try {
-      field.set(instance, converter.convertToJava(value));
-    } catch (IllegalAccessException e) {
+      setter.invokeExact(instance, converter.convertToJava(value));
+    } catch (Throwable e) {
       throw new EvalException("Exception setting field " + field.toString(), e);
     }
   }
@@ -25,11 +25,10 @@ import org.renjin.invoke.reflection.converters.Converter;
 import org.renjin.invoke.reflection.converters.Converters;
 import org.renjin.repackaged.guava.collect.Iterables;
 import org.renjin.repackaged.guava.collect.Lists;
-import org.renjin.sexp.Environment;
-import org.renjin.sexp.ListVector;
-import org.renjin.sexp.PairList;
-import org.renjin.sexp.SEXP;
+import org.renjin.sexp.*;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
@@ -81,6 +80,12 @@ public class FunctionBinding {
   public static class Overload extends AbstractOverload {
     private Method method;
     private Converter returnValueConverter;
+
+    /**
+     * Invokes the method with the receiver, or {@code null}, and an array of converted arguments. This is
+     * {@code null} if the method cannot be looked up as a handle, in which case it is invoked through reflection.
+     */
+    private MethodHandle invoker;
     
     public Overload(Method method) {
       super(method.getParameterTypes(),
@@ -101,6 +106,22 @@ public class FunctionBinding {
           // but we should still continue constructing the metadata for this class.
         }
       }
+      this.invoker = invoker(method);
+    }
+
+    private static MethodHandle invoker(Method method) {
+      MethodHandle handle;
+      try {
+        handle = MethodHandles.lookup().unreflect(method).asFixedArity();
+      } catch (IllegalAccessException e) {
+        return null;
+      }
+      if(Modifier.isStatic(method.getModifiers())) {
+        handle = MethodHandles.dropArguments(handle, 0, Object.class);
+      }
+      return handle
+          .asType(handle.type().generic())
+          .asSpreader(Object[].class, method.getParameterTypes().length);
     }
     
     public Class getDeclaringClass() {
@@ -113,6 +134,15 @@ public class FunctionBinding {
     
     public SEXP invoke(Context context, Object instance, List<SEXP> args) {
       Object[] converted = convertArguments(context, args);
+      if(invoker != null) {
+        Object result;
+        try {
+          result = (Object) invoker.invokeExact(instance, converted);
+        } catch (Throwable e) {
+          throw new EvalException(e.getMessage(), e);
+        }
+        return returnValueConverter.convertToR(result);
+      }
       try {
         Object result = method.invoke(instance, converted);
         return returnValueConverter.convertToR(result);
@@ -144,14 +174,30 @@ public class FunctionBinding {
    * @param arguments the UNEVALUATED arguments
    */
   public SEXP evaluateArgsAndInvoke(Object instance, Context context, Environment rho, PairList arguments) {
-    
-    // eval arguments
+    return invoke(instance, context, evaluateArgs(context, rho, arguments), null);
+  }
+
+  /**
+   * Evaluates the arguments of the {@code call} and invokes the matching overload, which is only
+   * selected the first time that arguments of a given shape are passed from the {@code call}.
+   *
+   * @param instance the JVM object instance
+   * @param context the calling context
+   * @param rho the calling environment
+   * @param call the call to the method
+   */
+  public SEXP evaluateArgsAndInvoke(Object instance, Context context, Environment rho, FunctionCall call) {
+    List<SEXP> args = evaluateArgs(context, rho, call.getArguments());
+    return invoke(instance, context, args, JvmCallSite.of(call));
+  }
+
+  private List<SEXP> evaluateArgs(Context context, Environment rho, PairList arguments) {
     List<SEXP> args = Lists.newArrayListWithCapacity(maxArgCount);
     ArgumentIterator it = new ArgumentIterator(context, rho, arguments);
     while(it.hasNext()) {
       args.add(context.evaluate( it.next(), rho));
     }
-    return invoke(instance, context, args);
+    return args;
   }
 
   /**
@@ -162,14 +208,24 @@ public class FunctionBinding {
    */
   public SEXP invoke(Object instance, Context context, ListVector evaluatedArguments) {
     List<SEXP> args = Lists.newArrayList(evaluatedArguments);
-    return invoke(instance, context, args);
+    return invoke(instance, context, args, null);
+  }
+
+  private SEXP invoke(Object instance, Context context, List<SEXP> args, JvmCallSite callSite) {
+    Overload overload = callSite == null ? null : callSite.<Overload>get(this, args);
+    if(overload == null) {
+      overload = selectOverload(args);
+      if(callSite != null) {
+        callSite.put(this, args, overload);
+      }
+    }
+    return overload.invoke(context, instance, args);
   }
 
-  private SEXP invoke(Object instance, Context context, List<SEXP> args) {
-    // find overload
+  private Overload selectOverload(List<SEXP> args) {
     for(Overload overload : overloads) {
       if(overload.accept(args)) {
-        return overload.invoke(context, instance, args);
+        return overload;
       }
     }
     throw new EvalException("Cannot match arguments (%s) to any JVM method overload:\n%s",
@@ -0,0 +1,140 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.invoke.reflection;
+
+import org.renjin.sexp.ExternalPtr;
+import org.renjin.sexp.FunctionCall;
+import org.renjin.sexp.SEXP;
+
+import java.util.List;
+
+/**
+ * Remembers, at a single R call site, the overloads of JVM methods or constructors that were
+ * selected for the arguments passed there.
+ *
+ * <p>Selecting an overload means testing the arguments against the converters of each overload in turn.
+ * Whether a converter accepts an argument depends only on the class of the argument, its length (zero, one, or more),
+ * and, for an {@link ExternalPtr}, the class of the wrapped instance. Once an overload has been selected for
+ * a binding and arguments of a given shape, it is reused for all later calls at the same site with arguments of
+ * the same shape.</p>
+ *
+ * <p>Call sites may be evaluated by several threads at once, for example when a script is parsed once and then
+ * evaluated in different sessions, so the entries are never modified, and the array of entries is replaced
+ * as a whole.</p>
+ */
+class JvmCallSite {
+
+  /**
+   * The maximum number of overloads remembered at each site. Most sites only ever see one.
+   */
+  static final int MAX_ENTRIES = 4;
+
+  private static final Entry[] EMPTY = new Entry[0];
+
+  private volatile Entry[] entries = EMPTY;
+
+  /**
+   * @return the call site cached on the given {@code call}, or {@code null} if the cache
+   * of the {@code call} is already used for something else.
+   */
+  static JvmCallSite of(FunctionCall call) {
+    Object cache = call.cache;
+    if(cache instanceof JvmCallSite) {
+      return (JvmCallSite) cache;
+    }
+    if(cache != null) {
+      return null;
+    }
+    JvmCallSite site = new JvmCallSite();
+    call.cache = site;
+    return site;
+  }
+
+  /**
+   * @return the overload of {@code binding} previously selected for arguments of the same shape as {@code args},
+   * or {@code null} if there is none.
+   */
+  @SuppressWarnings("unchecked")
+  <T extends AbstractOverload> T get(Object binding, List<SEXP> args) {
+    for (Entry entry : entries) {
+      if(entry.binding == binding && entry.matches(args)) {
+        return (T) entry.overload;
+      }
+    }
+    return null;
+  }
+
+  void put(Object binding, List<SEXP> args, AbstractOverload overload) {
+    Entry[] current = entries;
+    int kept = Math.min(current.length, MAX_ENTRIES - 1);
+    Entry[] updated = new Entry[kept + 1];
+    updated[0] = new Entry(binding, args, overload);
+    System.arraycopy(current, 0, updated, 1, kept);
+    entries = updated;
+  }
+
+  private static final class Entry {
+    private final Object binding;
+    private final Class[] classes;
+    private final Class[] instanceClasses;
+    private final int[] lengths;
+    private final AbstractOverload overload;
+
+    Entry(Object binding, List<SEXP> args, AbstractOverload overload) {
+      this.binding = binding;
+      this.overload = overload;
+      this.classes = new Class[args.size()];
+      this.instanceClasses = new Class[args.size()];
+      this.lengths = new int[args.size()];
+      for (int i = 0; i < classes.length; i++) {
+        SEXP arg = args.get(i);
+        classes[i] = arg.getClass();
+        instanceClasses[i] = instanceClass(arg);
+        lengths[i] = lengthClass(arg);
+      }
+    }
+
+    boolean matches(List<SEXP> args) {
+      if(args.size() != classes.length) {
+        return false;
+      }
+      for (int i = 0; i < classes.length; i++) {
+        SEXP arg = args.get(i);
+        if(arg.getClass() != classes[i] ||
+           lengthClass(arg) != lengths[i] ||
+           instanceClass(arg) != instanceClasses[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private static int lengthClass(SEXP arg) {
+    return Math.min(arg.length(), 2);
+  }
+
+  private static Class instanceClass(SEXP arg) {
+    if(arg instanceof ExternalPtr) {
+      Object instance = ((ExternalPtr) arg).getInstance();
+      return instance == null ? null : instance.getClass();
+    }
+    return null;
+  }
+}
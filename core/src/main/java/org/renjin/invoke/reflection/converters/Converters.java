@@ -63,6 +63,9 @@ public class Converters  {
     }else if(BooleanArrayConverter.accept(clazz)) {
       return BooleanArrayConverter.INSTANCE;
       
+    } else if(clazz == int[].class) {
+      return IntegerArrayConverter.INT_ARRAY;
+
     } else if(IntegerArrayConverter.accept(clazz)) {
       return IntegerArrayConverter.INSTANCE;
 
@@ -19,6 +19,7 @@
 package org.renjin.invoke.reflection.converters;
 
 import org.renjin.eval.EvalException;
+import org.renjin.invoke.annotations.ReadOnly;
 import org.renjin.sexp.*;
 
 import java.lang.reflect.Array;
@@ -31,6 +32,20 @@ public class DoubleArrayConverter implements Converter<Object> {
 
   public static final DoubleArrayConverter DOUBLE_ARRAY = new DoubleArrayConverter(double.class);
 
+  /**
+   * Converter for {@code double[]} parameters annotated with {@link ReadOnly}, which are passed the array
+   * of a {@link DoubleArrayVector} as-is, without copying.
+   */
+  public static final DoubleArrayConverter READ_ONLY_DOUBLE_ARRAY = new DoubleArrayConverter(double.class) {
+    @Override
+    protected Object convertToJavaArray(AtomicVector vector) {
+      if(vector instanceof DoubleArrayVector) {
+        return ((DoubleArrayVector) vector).toDoubleArrayUnsafe();
+      }
+      return vector.toDoubleArray();
+    }
+  };
+
   protected final Class componentClass;
 
   protected DoubleArrayConverter(Class clazz) {
@@ -74,6 +89,9 @@ public class DoubleArrayConverter implements Converter<Object> {
     return convertToJavaArray((AtomicVector) value);
   }
 
+  /**
+   * Copies the {@code vector} to a new {@code double[]} array, which the JVM method is free to modify.
+   */
   protected Object convertToJavaArray(AtomicVector vector) {
     return vector.toDoubleArray();
   }
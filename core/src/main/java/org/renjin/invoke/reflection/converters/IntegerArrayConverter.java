@@ -19,10 +19,8 @@
 package org.renjin.invoke.reflection.converters;
 
 import org.renjin.eval.EvalException;
-import org.renjin.sexp.AtomicVector;
-import org.renjin.sexp.IntArrayVector;
-import org.renjin.sexp.IntVector;
-import org.renjin.sexp.SEXP;
+import org.renjin.invoke.annotations.ReadOnly;
+import org.renjin.sexp.*;
 
 import java.lang.reflect.Array;
 
@@ -32,9 +30,25 @@ import java.lang.reflect.Array;
  */
 public class IntegerArrayConverter implements Converter<Object> {
 
-  public static final IntegerArrayConverter INSTANCE = new IntegerArrayConverter();
+  public static final IntegerArrayConverter INSTANCE = new IntegerArrayConverter(false, false);
 
-  private IntegerArrayConverter() {
+  /**
+   * Converter for {@code int[]} arrays, which are passed a copy of the vector.
+   */
+  public static final IntegerArrayConverter INT_ARRAY = new IntegerArrayConverter(true, false);
+
+  /**
+   * Converter for {@code int[]} parameters annotated with {@link ReadOnly}, which are passed the array of an
+   * {@link IntArrayVector} as-is, without copying.
+   */
+  public static final IntegerArrayConverter READ_ONLY_INT_ARRAY = new IntegerArrayConverter(true, true);
+
+  private final boolean primitive;
+  private final boolean readOnly;
+
+  private IntegerArrayConverter(boolean primitive, boolean readOnly) {
+    this.primitive = primitive;
+    this.readOnly = readOnly;
   }
 
   @Override
@@ -72,7 +86,14 @@ public class IntegerArrayConverter implements Converter<Object> {
   public Object convertToJava(SEXP value) {  
     if(!(value instanceof AtomicVector)) {
       throw new EvalException("It's not an AtomicVector", value.getTypeName());
-    } else if(value.length() < 1) {
+    }
+    if(primitive) {
+      if(readOnly && value instanceof IntArrayVector) {
+        return ((IntArrayVector) value).toIntArrayUnsafe();
+      }
+      return ((IntVector) value).toIntArray();
+    }
+    if(value.length() < 1) {
       //to keep its type info
       return new Integer[0];
     }
@@ -24,14 +24,26 @@ import static org.renjin.repackaged.asm.Opcodes.ICONST_0;
 import static org.renjin.repackaged.asm.Opcodes.ISTORE;
 
 public class ComputeMethod {
-  private int localCount = 2; // includes instance pointer and argument
+  private int localCount;
 
   private MethodVisitor visitor;
   private int maxStackSize = 0;
   private int currentStack = 0;
 
+  /**
+   * Creates a new {@code ComputeMethod} for {@code double[] compute(Vector[] operands)}
+   */
   public ComputeMethod(MethodVisitor visitor) {
+    this(visitor, 1);
+  }
+
+  /**
+   * @param parameterSlots the number of local variable slots used by the method's parameters,
+   *                       not including the instance pointer.
+   */
+  public ComputeMethod(MethodVisitor visitor, int parameterSlots) {
     this.visitor = visitor;
+    this.localCount = 1 + parameterSlots;
   }
 
   public MethodVisitor getVisitor() {
@@ -72,6 +84,22 @@ public class ComputeMethod {
     return 1;
   }
 
+  /**
+   * @return the index of the {@code int} parameter holding the first element index (inclusive) to compute
+   * in {@code double[] computePartial(Vector[] operands, int start, int end)}
+   */
+  public int getStartLocalIndex() {
+    return 2;
+  }
+
+  /**
+   * @return the index of the {@code int} parameter holding the last element index (exclusive) to compute
+   * in {@code double[] computePartial(Vector[] operands, int start, int end)}
+   */
+  public int getEndLocalIndex() {
+    return 3;
+  }
+
   public int getMaxLocals() {
     return localCount;
   }
@@ -295,6 +295,16 @@ public class DeferredGraph {
     return nodes;
   }
 
+  /**
+   * Removes a node which is no longer used by any other node in the graph.
+   */
+  public void removeNode(DeferredNode node) {
+    nodes.remove(node);
+    for (DeferredNode operand : node.getOperands()) {
+      operand.removeUse(node);
+    }
+  }
+
   public void replaceNode(DeferredNode toReplace, DeferredNode replacementNode) {
     nodes.remove(toReplace);
     if(!nodes.contains(replacementNode)) {
@@ -93,13 +93,15 @@ public class DeferredGraphEval {
 
   private void scheduleRoots() {
     for (DeferredNode node : graph.getRoots()) {
-      if(node instanceof Runnable) {
-        schedule(node);
-      }
+      schedule(node);
     }
   }
 
   private void schedule(DeferredNode node) {
+
+    if(!scheduled.add(node)) {
+      return;
+    }
     
     boolean ready = true;
     
@@ -109,8 +111,10 @@ public class DeferredGraphEval {
         ready = false;
       }
     }
-    
-    if(ready) {
+
+    // Nodes like the outputs of native calls are not computed themselves, 
+    // but are ready as soon as their inputs are.
+    if(ready && node instanceof Runnable) {
       submit(node);
     }
   }
@@ -121,16 +125,22 @@ public class DeferredGraphEval {
 
   private boolean inputsComplete(DeferredNode node) {
     for (DeferredNode input : node.getOperands()) {
-      if(input instanceof Runnable) {
-        Future<DeferredNode> future = submitted.get(input);
-        if(future == null || !future.isDone()) {
-          return false;
-        }
+      if(!complete(input)) {
+        return false;
       }
     }
     return true;
   }
 
+  private boolean complete(DeferredNode node) {
+    if(node instanceof Runnable) {
+      Future<DeferredNode> future = submitted.get(node);
+      return future != null && future.isDone();
+    } else {
+      return inputsComplete(node);
+    }
+  }
+
   private void submit(DeferredNode node) {
     Future<DeferredNode> future = service.submit((Runnable) node, node);
     submitted.put(node, future);
@@ -18,7 +18,9 @@
  */
 package org.renjin.pipeliner;
 
+import org.renjin.pipeliner.fusion.FusedNode;
 import org.renjin.pipeliner.fusion.LoopKernelCache;
+import org.renjin.pipeliner.node.DeferredNode;
 import org.renjin.primitives.ni.DeferredNativeCall;
 import org.renjin.primitives.vector.DeferredComputation;
 import org.renjin.primitives.vector.MemoizedDoubleVector;
@@ -27,10 +29,29 @@ import org.renjin.repackaged.guava.util.concurrent.MoreExecutors;
 import org.renjin.sexp.*;
 
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
 
+/**
+ * Evaluates graphs of deferred vector computations, fusing chains of element-wise operations
+ * into their consumers so that no intermediate vectors need to be allocated.
+ *
+ * <p>Each {@link org.renjin.eval.Session} has its own {@code VectorPipeliner}. Builtins only
+ * create deferred computations if the session's pipeliner {@link #isEnabled() is enabled}, which
+ * can be set with {@link org.renjin.eval.SessionBuilder#setVectorPipelinerEnabled(boolean)}, or
+ * for all sessions with the {@code renjin.vp.enabled} system property.</p>
+ */
 public class VectorPipeliner {
 
-  public static final boolean ENABLED = false;
+  /**
+   * The default for new sessions which do not explicitly enable or disable the pipeliner.
+   */
+  public static final boolean DEFAULT_ENABLED = Boolean.getBoolean("renjin.vp.enabled");
+
+  /**
+   * The default minimum number of elements processed by each partition of a fused loop.
+   */
+  public static final int MIN_PARTITION_LENGTH = Integer.getInteger("renjin.vp.partition.length", 256 * 1024);
 
   public static boolean DEBUG = "true".equals(System.getProperty("renjin.vp.debug"));
   public static int MAX_DEPTH = 25;
@@ -39,17 +60,77 @@ public class VectorPipeliner {
 
   private final LoopKernelCache loopKernelCache;
 
+  private final boolean enabled;
+
+  /**
+   * The maximum number of partitions into which a single fused loop is split.
+   */
+  private final int parallelism;
+
+  /**
+   * The minimum number of elements processed by each partition of a fused loop.
+   */
+  private final int minPartitionLength;
+
   public VectorPipeliner(ExecutorService executorService) {
+    this(executorService, DEFAULT_ENABLED);
+  }
+
+  public VectorPipeliner(ExecutorService executorService, boolean enabled) {
+    this(executorService, enabled, MIN_PARTITION_LENGTH);
+  }
+
+  public VectorPipeliner(ExecutorService executorService, boolean enabled, int minPartitionLength) {
     this.executorService = MoreExecutors.listeningDecorator(executorService);
     this.loopKernelCache = new LoopKernelCache(executorService);
+    this.enabled = enabled;
+    this.parallelism = parallelism(executorService);
+    this.minPartitionLength = minPartitionLength;
+  }
+
+  /**
+   * Estimates the number of threads available to the given {@code executorService}. Only
+   * the standard JDK thread pools are recognized: loops are not partitioned for other executors, including
+   * the default direct executor.
+   */
+  private static int parallelism(ExecutorService executorService) {
+    if(executorService instanceof ThreadPoolExecutor) {
+      return Math.max(1, ((ThreadPoolExecutor) executorService).getMaximumPoolSize());
+    }
+    if(executorService instanceof ForkJoinPool) {
+      return ((ForkJoinPool) executorService).getParallelism();
+    }
+    return 1;
+  }
+
+  /**
+   * @return true if builtins should defer computations on large vectors so that they can be
+   * fused by this pipeliner.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  public int getMinPartitionLength() {
+    return minPartitionLength;
+  }
+
+  /**
+   * @return the executor on which this session's computations may be run in parallel.
+   */
+  public ExecutorService getExecutorService() {
+    return executorService;
   }
 
   public void materialize(DeferredNativeCall call) {
 
     DeferredGraph graph = new DeferredGraph(call);
-    graph.optimize(loopKernelCache);
-    graph.dumpGraph();
-    throw new UnsupportedOperationException("TODO");
+
+    materializeGraph(graph);
   }
 
   public Vector materialize(Vector root) {
@@ -108,6 +189,14 @@ public class VectorPipeliner {
 
     graph.optimize(loopKernelCache);
 
+    if(parallelism > 1) {
+      for (DeferredNode node : graph.getNodes()) {
+        if(node instanceof FusedNode) {
+          ((FusedNode) node).partition(executorService, parallelism, minPartitionLength);
+        }
+      }
+    }
+
     if(VectorPipeliner.DEBUG) {
       graph.dumpGraph();
     }
@@ -20,7 +20,9 @@ package org.renjin.pipeliner.fusion;
 
 import org.renjin.eval.EvalException;
 import org.renjin.pipeliner.fusion.kernel.CompiledKernel;
+import org.renjin.pipeliner.fusion.kernel.CompiledPartitionableKernel;
 import org.renjin.pipeliner.fusion.kernel.LoopKernel;
+import org.renjin.pipeliner.fusion.kernel.PartitionableKernel;
 import org.renjin.pipeliner.fusion.node.*;
 import org.renjin.pipeliner.node.DeferredNode;
 import org.renjin.pipeliner.node.FunctionNode;
@@ -29,10 +31,11 @@ import org.renjin.primitives.sequence.IntSequence;
 import org.renjin.primitives.vector.MemoizedComputation;
 import org.renjin.repackaged.asm.Type;
 import org.renjin.sexp.*;
+import org.renjin.util.Partitions;
 
 import java.lang.reflect.Method;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
+import java.util.List;
+import java.util.concurrent.*;
 
 /**
  * A {@code {@link DeferredNode } that represents a loop operation, such as {@code sum} or
@@ -44,15 +47,24 @@ public class FusedNode extends DeferredNode implements Runnable {
   private LoopNode[] kernelOperands;
 
   private MemoizedComputation memoizedComputation;
-  private DoubleArrayVector resultVector;
+  private AtomicVector resultVector;
   private Future<CompiledKernel> compiledKernel;
 
+  /**
+   * The number of elements over which the kernel loops.
+   */
+  private final int loopLength;
+
+  private Executor partitionExecutor;
+  private int partitionCount = 1;
+
   public FusedNode(FunctionNode node) {
     super();
 
     this.kernel = LoopKernels.INSTANCE.get(node);
     this.kernelOperands = new LoopNode[node.getOperands().size()];
     this.memoizedComputation = (MemoizedComputation) node.getVector();
+    this.loopLength = memoizedComputation.getOperands()[0].length();
 
     for (int i = 0; i < kernelOperands.length; i++) {
       kernelOperands[i] = addLoopNode(node.getOperand(i));
@@ -63,13 +75,18 @@ public class FusedNode extends DeferredNode implements Runnable {
 
 
     // Fused nodes are not available yet, but their result will be always
-    // be a DoubleArrayVector
+    // be an array-backed vector
 
     if(node instanceof FusedNode) {
       int inputIndex = this.addInput(node);
       node.addOutput(this);
 
-      return new DoubleArrayNode(inputIndex, Type.getType(DoubleArrayVector.class));
+      Type resultType = node.getResultVectorType();
+      if(resultType.equals(Type.getType(DoubleArrayVector.class))) {
+        return new DoubleArrayNode(inputIndex, resultType);
+      } else {
+        return new IntArrayNode(inputIndex, resultType);
+      }
     }
 
     // If this Deferred is a binary or unary vector operator, then 
@@ -90,6 +107,13 @@ public class FusedNode extends DeferredNode implements Runnable {
             addLoopNode(node.getOperand(1)));
       }
 
+      if(name.equals("ifelse")) {
+        return new IfElseNode(
+            addLoopNode(node.getOperand(0)),
+            addLoopNode(node.getOperand(1)),
+            addLoopNode(node.getOperand(2)));
+      }
+
       if(name.equals("t")) {
         return new TransposeNode(
             addLoopNode(node.getOperand(0)),
@@ -166,13 +190,31 @@ public class FusedNode extends DeferredNode implements Runnable {
 
   @Override
   public Type getResultVectorType() {
-    return Type.getType(DoubleArrayVector.class);
+    if(memoizedComputation instanceof IntVector) {
+      return Type.getType(IntArrayVector.class);
+    } else if(memoizedComputation instanceof LogicalVector) {
+      return Type.getType(LogicalArrayVector.class);
+    } else {
+      return Type.getType(DoubleArrayVector.class);
+    }
   }
 
   public void startCompilation(LoopKernelCache loopKernelCache) {
     this.compiledKernel = loopKernelCache.get(kernel, kernelOperands);
   }
 
+  /**
+   * Splits the loop into as many as {@code maxPartitions} ranges of at least {@code minPartitionLength}
+   * elements which are computed concurrently on the given {@code executor}, if this node's kernel supports
+   * partitioning.
+   */
+  public void partition(Executor executor, int maxPartitions, int minPartitionLength) {
+    if(kernel instanceof PartitionableKernel) {
+      this.partitionExecutor = executor;
+      this.partitionCount = Math.max(1, Math.min(maxPartitions, loopLength / Math.max(1, minPartitionLength)));
+    }
+  }
+
   @Override
   public void run() {
 
@@ -188,14 +230,58 @@ public class FusedNode extends DeferredNode implements Runnable {
       vectorOperands[i] = getOperand(i).getVector();
     }
 
-    double[] result = kernel.compute(vectorOperands);
+    double[] result;
+    if(partitionCount > 1) {
+      result = computePartitioned((CompiledPartitionableKernel) kernel, vectorOperands);
+    } else {
+      result = kernel.compute(vectorOperands);
+    }
 
-    resultVector = DoubleArrayVector.unsafe(result, memoizedComputation.getAttributes());
+    resultVector = wrapResult(result, memoizedComputation.getAttributes());
 
     memoizedComputation.setResult(resultVector);
   }
   
-  public DoubleArrayVector getVector() {
+  private double[] computePartitioned(CompiledPartitionableKernel compiled, Vector[] vectorOperands) {
+
+    int partitionLength = (loopLength + partitionCount - 1) / partitionCount;
+
+    List<double[]> partials;
+    try {
+      partials = Partitions.compute(partitionExecutor, partitionCount, partition -> {
+        int start = partition * partitionLength;
+        int end = Math.min(loopLength, start + partitionLength);
+        return compiled.computePartial(vectorOperands, start, end);
+      });
+    } catch (InterruptedException e) {
+      throw new EvalException("Interrupted while computing " + getDebugLabel());
+    } catch (ExecutionException e) {
+      throw new EvalException("Exception computing " + getDebugLabel(), e.getCause());
+    }
+
+    return ((PartitionableKernel) this.kernel).combine(partials.toArray(new double[partitionCount][]), loopLength);
+  }
+
+  /**
+   * Kernels always compute into a {@code double[]} array, which we convert here to
+   * the type of the deferred computation.
+   */
+  private AtomicVector wrapResult(double[] result, AttributeMap attributes) {
+    if(memoizedComputation instanceof IntVector || memoizedComputation instanceof LogicalVector) {
+      int[] values = new int[result.length];
+      for (int i = 0; i < result.length; i++) {
+        values[i] = Double.isNaN(result[i]) ? IntVector.NA : (int) result[i];
+      }
+      if(memoizedComputation instanceof IntVector) {
+        return IntArrayVector.unsafe(values, attributes);
+      } else {
+        return LogicalArrayVector.unsafe(values, attributes);
+      }
+    }
+    return DoubleArrayVector.unsafe(result, attributes);
+  }
+
+  public AtomicVector getVector() {
     if(resultVector == null) {
       throw new IllegalStateException("Not computed yet.");
     }
@@ -18,6 +18,7 @@
  */
 package org.renjin.pipeliner.fusion;
 
+import org.renjin.compiler.JitClassCache;
 import org.renjin.pipeliner.fusion.kernel.CompiledKernel;
 import org.renjin.pipeliner.fusion.kernel.LoopKernel;
 import org.renjin.pipeliner.fusion.node.LoopNode;
@@ -29,15 +30,28 @@ import java.util.concurrent.Future;
 
 /**
  * Caches loop kernels based on their shape.
+ *
+ * <p>Compiled kernels are kept in memory, and, if a {@link JitClassCache} is provided,
+ * their bytecode is also persisted to disk so that it can be reused by later JVMs.</p>
  */
 public class LoopKernelCache {
 
 
   private final Cache<String, Future<CompiledKernel>> cache;
   private ExecutorService executorService;
+  private final JitClassCache classCache;
 
   public LoopKernelCache(ExecutorService executorService) {
+    this(executorService, JitClassCache.getDefault());
+  }
+
+  /**
+   * @param classCache the persistent cache of kernel classes, or {@code null} if kernels
+   *                   should only be cached in memory.
+   */
+  public LoopKernelCache(ExecutorService executorService, JitClassCache classCache) {
     this.executorService = executorService;
+    this.classCache = classCache;
 
     cache = CacheBuilder.newBuilder()
         .softValues()
@@ -53,7 +67,7 @@ public class LoopKernelCache {
 
     if(compiledKernel == null) {
 
-      LoopKernelCompiler compiler = new LoopKernelCompiler(kernel, kernelOperands);
+      LoopKernelCompiler compiler = new LoopKernelCompiler(kernel, kernelOperands, key, classCache);
       compiledKernel = executorService.submit(compiler);
 
       cache.put(key, compiledKernel);
@@ -18,11 +18,14 @@
  */
 package org.renjin.pipeliner.fusion;
 
+import org.renjin.compiler.JitClassCache;
 import org.renjin.compiler.JitClassLoader;
 import org.renjin.pipeliner.ComputeMethod;
 import org.renjin.pipeliner.VectorPipeliner;
 import org.renjin.pipeliner.fusion.kernel.CompiledKernel;
+import org.renjin.pipeliner.fusion.kernel.CompiledPartitionableKernel;
 import org.renjin.pipeliner.fusion.kernel.LoopKernel;
+import org.renjin.pipeliner.fusion.kernel.PartitionableKernel;
 import org.renjin.pipeliner.fusion.node.LoopNode;
 import org.renjin.repackaged.asm.ClassVisitor;
 import org.renjin.repackaged.asm.ClassWriter;
@@ -78,29 +81,65 @@ public class LoopKernelCompiler implements Callable<CompiledKernel> {
 
   private static final String KERNEL_INTERFACE = Type.getInternalName(CompiledKernel.class);
 
+  private static final String PARTITIONABLE_KERNEL_INTERFACE = Type.getInternalName(CompiledPartitionableKernel.class);
+
   private final LoopKernel kernel;
   private final LoopNode[] operands;
 
+  private final String key;
+  private final JitClassCache classCache;
+
   private String className;
   private ClassVisitor cv;
 
   public LoopKernelCompiler(LoopKernel kernel, LoopNode[] operands) {
+    this(kernel, operands, null, null);
+  }
+
+  /**
+   * @param key the key which uniquely identifies the shape of this kernel
+   * @param classCache the persistent cache in which to look up and store the compiled kernel, or {@code null}
+   */
+  public LoopKernelCompiler(LoopKernel kernel, LoopNode[] operands, String key, JitClassCache classCache) {
     this.kernel = kernel;
     this.operands = operands;
+    this.key = key;
+    this.classCache = classCache;
     this.className = "Jit" + System.identityHashCode(this);
   }
 
   public CompiledKernel call()  {
+
+    if(classCache != null && key != null) {
+      JitClassCache.Entry entry = classCache.get(key);
+      if(entry != null) {
+        CompiledKernel cached = newInstance(
+            JitClassLoader.defineClass(CompiledKernel.class, entry.getClassName(), entry.getClassBytes()));
+
+        // Classes written by an earlier build of this version may lack computePartial()
+        if(!isPartitionable() || cached instanceof CompiledPartitionableKernel) {
+          return cached;
+        }
+      }
+    }
+
     long startTime = System.nanoTime();
     ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
     cv = cw;
-    cv.visit(V1_6, ACC_PUBLIC + ACC_SUPER, className, null, "java/lang/Object", new String[]{ KERNEL_INTERFACE });
+    cv.visit(V1_6, ACC_PUBLIC + ACC_SUPER, className, null, "java/lang/Object",
+        new String[]{ isPartitionable() ? PARTITIONABLE_KERNEL_INTERFACE : KERNEL_INTERFACE });
 
     writeConstructor();
     if(DEBUG) {
-      writeComputeDebug(kernel, operands);
+      writeComputeDebug(kernel, operands, false);
+      if(isPartitionable()) {
+        writeComputeDebug(kernel, operands, true);
+      }
     } else {
-      writeCompute(kernel, operands);
+      writeCompute(kernel, operands, false);
+      if(isPartitionable()) {
+        writeCompute(kernel, operands, true);
+      }
     }
     cv.visitEnd();
 
@@ -109,6 +148,10 @@ public class LoopKernelCompiler implements Callable<CompiledKernel> {
 
     Class<CompiledKernel> jitClass = JitClassLoader.defineClass(CompiledKernel.class, className, classBytes);
 
+    if(classCache != null && key != null) {
+      classCache.put(key, className, classBytes);
+    }
+
     long loadTime = System.nanoTime() - startTime - compileTime;
 
     if(VectorPipeliner.DEBUG) {
@@ -125,6 +168,14 @@ public class LoopKernelCompiler implements Callable<CompiledKernel> {
       }
     }
 
+    return newInstance(jitClass);
+  }
+
+  private boolean isPartitionable() {
+    return kernel instanceof PartitionableKernel;
+  }
+
+  private static CompiledKernel newInstance(Class<CompiledKernel> jitClass) {
     try {
       return jitClass.newInstance();
     } catch (Exception e) {
@@ -142,30 +193,37 @@ public class LoopKernelCompiler implements Callable<CompiledKernel> {
     mv.visitEnd();
   }
 
-  private void writeCompute(LoopKernel kernel, LoopNode[] operands) {
-    String typeDescriptor = "([Lorg/renjin/sexp/Vector;)[D";
+  private void writeCompute(LoopKernel kernel, LoopNode[] operands, boolean partial) {
 
-    MethodVisitor mv = cv.visitMethod(ACC_PUBLIC, "compute", typeDescriptor, null, null);
+    MethodVisitor mv = cv.visitMethod(ACC_PUBLIC, methodName(partial), methodDescriptor(partial), null, null);
 //
 //    mv = new CheckMethodAdapter(ACC_PUBLIC, "compute", typeDescriptor, mv, new HashMap());
 //    mv.visitCode();
 
-    ComputeMethod methodContext = new ComputeMethod(mv);
+    ComputeMethod methodContext = new ComputeMethod(mv, parameterSlots(partial));
 
-    kernel.compute(methodContext, operands);
+    if(partial) {
+      ((PartitionableKernel) kernel).computePartial(methodContext, operands);
+    } else {
+      kernel.compute(methodContext, operands);
+    }
 
     mv.visitMaxs(1, methodContext.getMaxLocals());
     mv.visitEnd();
   }
 
-  private void writeComputeDebug(LoopKernel kernel, LoopNode[] operands) {
+  private void writeComputeDebug(LoopKernel kernel, LoopNode[] operands, boolean partial) {
 
-    MethodNode mv = new MethodNode(ACC_PUBLIC, "compute", "([Lorg/renjin/sexp/Vector;)[D", null, null);
+    MethodNode mv = new MethodNode(ACC_PUBLIC, methodName(partial), methodDescriptor(partial), null, null);
     mv.visitCode();
 
-    ComputeMethod methodContext = new ComputeMethod(mv);
+    ComputeMethod methodContext = new ComputeMethod(mv, parameterSlots(partial));
 
-    kernel.compute(methodContext, operands);
+    if(partial) {
+      ((PartitionableKernel) kernel).computePartial(methodContext, operands);
+    } else {
+      kernel.compute(methodContext, operands);
+    }
 
     mv.visitMaxs(1, methodContext.getMaxLocals());
     mv.visitEnd();
@@ -182,6 +240,17 @@ public class LoopKernelCompiler implements Callable<CompiledKernel> {
     }
   }
 
+  private static String methodName(boolean partial) {
+    return partial ? "computePartial" : "compute";
+  }
+
+  private static String methodDescriptor(boolean partial) {
+    return partial ? "([Lorg/renjin/sexp/Vector;II)[D" : "([Lorg/renjin/sexp/Vector;)[D";
+  }
+
+  private static int parameterSlots(boolean partial) {
+    return partial ? 3 : 1;
+  }
 
   private String toString(MethodNode methodNode) {
     try {
@@ -18,10 +18,7 @@
  */
 package org.renjin.pipeliner.fusion;
 
-import org.renjin.pipeliner.fusion.kernel.ColSumKernel;
-import org.renjin.pipeliner.fusion.kernel.LoopKernel;
-import org.renjin.pipeliner.fusion.kernel.RowMeanKernel;
-import org.renjin.pipeliner.fusion.kernel.SumMeanKernel;
+import org.renjin.pipeliner.fusion.kernel.*;
 import org.renjin.pipeliner.node.DeferredNode;
 import org.renjin.pipeliner.node.FunctionNode;
 
@@ -42,6 +39,18 @@ public enum LoopKernels {
       map.put("sum", SumMeanKernel.sum());
       map.put("rowMeans", new RowMeanKernel());
       map.put("colSums", new ColSumKernel());
+      map.put("min", MinMaxKernel.min());
+      map.put("max", MinMaxKernel.max());
+      map.put("range", MinMaxKernel.range());
+      map.put("var", new VarianceKernel());
+      map.put("cumsum", CumulativeKernel.sum());
+      map.put("cumprod", CumulativeKernel.product());
+      map.put("which", new WhichKernel());
+      map.put("any", AnyAllKernel.any(false));
+      map.put("anyNaRm", AnyAllKernel.any(true));
+      map.put("all", AnyAllKernel.all(false));
+      map.put("allNaRm", AnyAllKernel.all(true));
+      map.put("tabulate", new TabulateKernel());
     } else {
       System.err.println("Specializers are disabled");
     }
@@ -0,0 +1,136 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.pipeliner.fusion.kernel;
+
+import org.renjin.pipeliner.ComputeMethod;
+import org.renjin.pipeliner.fusion.node.LoopNode;
+import org.renjin.repackaged.asm.Label;
+import org.renjin.repackaged.asm.MethodVisitor;
+
+import static org.renjin.repackaged.asm.Opcodes.*;
+
+/**
+ * Computes {@code any()} or {@code all()} of a logical vector, stopping at the first
+ * element which determines the result. The result is 1 for {@code TRUE}, 0 for {@code FALSE},
+ * or NA.
+ */
+public class AnyAllKernel implements LoopKernel {
+
+  private final boolean all;
+  private final boolean removeNA;
+
+  private AnyAllKernel(boolean all, boolean removeNA) {
+    this.all = all;
+    this.removeNA = removeNA;
+  }
+
+  public static AnyAllKernel any(boolean removeNA) {
+    return new AnyAllKernel(false, removeNA);
+  }
+
+  public static AnyAllKernel all(boolean removeNA) {
+    return new AnyAllKernel(true, removeNA);
+  }
+
+  @Override
+  public void compute(ComputeMethod method, LoopNode[] operands) {
+
+    MethodVisitor mv = method.getVisitor();
+
+    LoopNode vector = operands[0];
+    vector.init(method);
+
+    int lengthLocal = method.reserveLocal(1);
+    vector.pushLength(method);
+    mv.visitVarInsn(ISTORE, lengthLocal);
+
+    int counterLocal = method.declareCounter();
+
+    Label loopLabel = new Label();
+    Label naLabel = new Label();
+    Label nextLabel = new Label();
+    Label decidedLabel = new Label();
+    Label exitLabel = new Label();
+
+    mv.visitLabel(loopLabel);
+    mv.visitVarInsn(ILOAD, counterLocal);
+    mv.visitVarInsn(ILOAD, lengthLocal);
+    mv.visitJumpInsn(IF_ICMPGE, exitLabel);
+
+    mv.visitVarInsn(ILOAD, counterLocal);
+    vector.pushElementAsDoubleOrNA(method);
+
+    // stack => { value }
+    // NaN is the only value which does not compare equal to itself
+    mv.visitInsn(DUP2);
+    mv.visitInsn(DUP2);
+    mv.visitInsn(DCMPL);
+    mv.visitJumpInsn(IFNE, naLabel);
+
+    // stack => { value }
+    mv.visitInsn(DCONST_0);
+    mv.visitInsn(DCMPL);
+    mv.visitJumpInsn(all ? IFEQ : IFNE, decidedLabel);
+
+    mv.visitLabel(nextLabel);
+    mv.visitIincInsn(counterLocal, 1);
+    mv.visitJumpInsn(GOTO, loopLabel);
+
+    // stack => { NA }
+    mv.visitLabel(naLabel);
+    mv.visitInsn(POP2);
+    if(removeNA) {
+      mv.visitJumpInsn(GOTO, nextLabel);
+    } else {
+      returnValue(mv, () -> mv.visitFieldInsn(GETSTATIC, "org/renjin/sexp/DoubleVector", "NA", "D"));
+    }
+
+    // We've found a FALSE value for all(), or a TRUE value for any()
+    mv.visitLabel(decidedLabel);
+    returnValue(mv, () -> mv.visitInsn(all ? DCONST_0 : DCONST_1));
+
+    // Nothing decided the result
+    mv.visitLabel(exitLabel);
+    returnValue(mv, () -> mv.visitInsn(all ? DCONST_1 : DCONST_0));
+  }
+
+  private void returnValue(MethodVisitor mv, Runnable pushValue) {
+    mv.visitInsn(ICONST_1);
+    mv.visitIntInsn(NEWARRAY, T_DOUBLE);
+    mv.visitInsn(DUP);
+    mv.visitInsn(ICONST_0);
+    pushValue.run();
+    mv.visitInsn(DASTORE);
+    mv.visitInsn(ARETURN);
+  }
+
+  @Override
+  public String debugLabel(LoopNode[] operands) {
+    return getName() + "(" + operands[0] + ")";
+  }
+
+  @Override
+  public void appendToKey(StringBuilder key) {
+    key.append(getName());
+  }
+
+  private String getName() {
+    return (all ? "all" : "any") + (removeNA ? "NaRm" : "");
+  }
+}
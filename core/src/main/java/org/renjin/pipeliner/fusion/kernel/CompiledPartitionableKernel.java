@@ -0,0 +1,34 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.pipeliner.fusion.kernel;
+
+import org.renjin.sexp.Vector;
+
+/**
+ * The compiled form of a {@link PartitionableKernel}.
+ */
+public interface CompiledPartitionableKernel extends CompiledKernel {
+
+  /**
+   * Computes the partial result of this kernel over the elements {@code [start, end)}.
+   *
+   * @param operands the array of loop inputs.
+   */
+  double[] computePartial(Vector[] operands, int start, int end);
+}
@@ -0,0 +1,127 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.pipeliner.fusion.kernel;
+
+import org.renjin.pipeliner.ComputeMethod;
+import org.renjin.pipeliner.fusion.node.LoopNode;
+import org.renjin.repackaged.asm.Label;
+import org.renjin.repackaged.asm.MethodVisitor;
+
+import static org.renjin.repackaged.asm.Opcodes.*;
+
+/**
+ * Computes the cumulative sum or product of a double vector.
+ */
+public class CumulativeKernel implements LoopKernel {
+
+  private final boolean product;
+
+  private CumulativeKernel(boolean product) {
+    this.product = product;
+  }
+
+  public static CumulativeKernel sum() {
+    return new CumulativeKernel(false);
+  }
+
+  public static CumulativeKernel product() {
+    return new CumulativeKernel(true);
+  }
+
+  @Override
+  public void compute(ComputeMethod method, LoopNode[] operands) {
+
+    MethodVisitor mv = method.getVisitor();
+
+    LoopNode vector = operands[0];
+    vector.init(method);
+
+    int lengthLocal = method.reserveLocal(1);
+    vector.pushLength(method);
+    mv.visitVarInsn(ISTORE, lengthLocal);
+
+    int resultLocal = method.reserveLocal(1);
+    mv.visitVarInsn(ILOAD, lengthLocal);
+    mv.visitIntInsn(NEWARRAY, T_DOUBLE);
+    mv.visitVarInsn(ASTORE, resultLocal);
+
+    int accumulatorLocal = method.reserveLocal(2);
+    mv.visitInsn(product ? DCONST_1 : DCONST_0);
+    mv.visitVarInsn(DSTORE, accumulatorLocal);
+
+    int counterLocal = method.declareCounter();
+
+    Label loopLabel = new Label();
+    Label exitLabel = new Label();
+    Label naLabel = new Label();
+
+    mv.visitLabel(loopLabel);
+    mv.visitVarInsn(ILOAD, counterLocal);
+    mv.visitVarInsn(ILOAD, lengthLocal);
+    mv.visitJumpInsn(IF_ICMPGE, exitLabel);
+
+    mv.visitVarInsn(DLOAD, accumulatorLocal);
+    mv.visitVarInsn(ILOAD, counterLocal);
+    vector.pushElementAsDoubleOrNA(method);
+    mv.visitInsn(product ? DMUL : DADD);
+    mv.visitVarInsn(DSTORE, accumulatorLocal);
+
+    if(!product) {
+      // Once the sum is NA, all remaining elements are NA
+      mv.visitVarInsn(DLOAD, accumulatorLocal);
+      mv.visitMethodInsn(INVOKESTATIC, "org/renjin/sexp/DoubleVector", "isNA", "(D)Z", false);
+      mv.visitJumpInsn(IFNE, naLabel);
+    }
+
+    mv.visitVarInsn(ALOAD, resultLocal);
+    mv.visitVarInsn(ILOAD, counterLocal);
+    mv.visitVarInsn(DLOAD, accumulatorLocal);
+    mv.visitInsn(DASTORE);
+
+    mv.visitIincInsn(counterLocal, 1);
+    mv.visitJumpInsn(GOTO, loopLabel);
+
+    if(!product) {
+      mv.visitLabel(naLabel);
+      mv.visitVarInsn(ALOAD, resultLocal);
+      mv.visitVarInsn(ILOAD, counterLocal);
+      mv.visitVarInsn(ILOAD, lengthLocal);
+      mv.visitFieldInsn(GETSTATIC, "org/renjin/sexp/DoubleVector", "NA", "D");
+      mv.visitMethodInsn(INVOKESTATIC, "java/util/Arrays", "fill", "([DIID)V", false);
+    }
+
+    mv.visitLabel(exitLabel);
+    mv.visitVarInsn(ALOAD, resultLocal);
+    mv.visitInsn(ARETURN);
+  }
+
+  @Override
+  public String debugLabel(LoopNode[] operands) {
+    return getName() + "(" + operands[0] + ")";
+  }
+
+  @Override
+  public void appendToKey(StringBuilder key) {
+    key.append(getName());
+  }
+
+  private String getName() {
+    return product ? "cumprod" : "cumsum";
+  }
+}
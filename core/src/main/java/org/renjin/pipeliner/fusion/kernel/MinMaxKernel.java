@@ -0,0 +1,244 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.pipeliner.fusion.kernel;
+
+import org.renjin.pipeliner.ComputeMethod;
+import org.renjin.pipeliner.fusion.node.LoopNode;
+import org.renjin.repackaged.asm.Label;
+import org.renjin.repackaged.asm.MethodVisitor;
+import org.renjin.sexp.DoubleVector;
+
+import static org.renjin.repackaged.asm.Opcodes.*;
+
+/**
+ * Computes the {@code min}, {@code max}, or {@code range} of a double vector.
+ *
+ * <p>As in GNU R, an NA anywhere in the vector yields NA, otherwise a NaN anywhere in the
+ * vector yields NaN.</p>
+ */
+public class MinMaxKernel implements PartitionableKernel {
+
+  private final boolean min;
+  private final boolean max;
+
+  private MinMaxKernel(boolean min, boolean max) {
+    this.min = min;
+    this.max = max;
+  }
+
+  public static MinMaxKernel min() {
+    return new MinMaxKernel(true, false);
+  }
+
+  public static MinMaxKernel max() {
+    return new MinMaxKernel(false, true);
+  }
+
+  public static MinMaxKernel range() {
+    return new MinMaxKernel(true, true);
+  }
+
+  @Override
+  public void compute(ComputeMethod method, LoopNode[] operands) {
+    MethodVisitor mv = method.getVisitor();
+
+    LoopNode vector = operands[0];
+    vector.init(method);
+
+    int lengthLocal = method.reserveLocal(1);
+    vector.pushLength(method);
+    mv.visitVarInsn(ISTORE, lengthLocal);
+
+    int counterLocal = method.declareCounter();
+
+    writeLoop(method, vector, counterLocal, lengthLocal);
+  }
+
+  @Override
+  public void computePartial(ComputeMethod method, LoopNode[] operands) {
+    LoopNode vector = operands[0];
+    vector.init(method);
+
+    writeLoop(method, vector, method.getStartLocalIndex(), method.getEndLocalIndex());
+  }
+
+  @Override
+  public double[] combine(double[][] partials, int length) {
+    double minValue = Double.POSITIVE_INFINITY;
+    double maxValue = Double.NEGATIVE_INFINITY;
+    double nan = 0;
+
+    for (double[] partial : partials) {
+      double partialMin = partial[0];
+      double partialMax = partial[partial.length - 1];
+      if(Double.isNaN(partialMin)) {
+        if(DoubleVector.isNA(partialMin)) {
+          return result(partialMin, partialMin);
+        }
+        nan = partialMin;
+      } else {
+        minValue = Math.min(minValue, partialMin);
+        maxValue = Math.max(maxValue, partialMax);
+      }
+    }
+    if(Double.isNaN(nan)) {
+      return result(nan, nan);
+    }
+    return result(minValue, maxValue);
+  }
+
+  private double[] result(double minValue, double maxValue) {
+    if(min && max) {
+      return new double[] { minValue, maxValue };
+    } else if(min) {
+      return new double[] { minValue };
+    } else {
+      return new double[] { maxValue };
+    }
+  }
+
+  /**
+   * Writes a loop over the elements from {@code counterLocal} up to, but not including {@code endLocal},
+   * followed by the return of the result array.
+   */
+  private void writeLoop(ComputeMethod method, LoopNode vector, int counterLocal, int endLocal) {
+
+    MethodVisitor mv = method.getVisitor();
+
+    int minLocal = method.reserveLocal(2);
+    int maxLocal = method.reserveLocal(2);
+    int valueLocal = method.reserveLocal(2);
+    int nanLocal = method.reserveLocal(2);
+
+    mv.visitLdcInsn(Double.POSITIVE_INFINITY);
+    mv.visitVarInsn(DSTORE, minLocal);
+    mv.visitLdcInsn(Double.NEGATIVE_INFINITY);
+    mv.visitVarInsn(DSTORE, maxLocal);
+    mv.visitInsn(DCONST_0);
+    mv.visitVarInsn(DSTORE, nanLocal);
+
+    Label loopLabel = new Label();
+    Label nextLabel = new Label();
+    Label notNaNLabel = new Label();
+    Label naLabel = new Label();
+    Label exitLabel = new Label();
+    Label returnLabel = new Label();
+
+    mv.visitLabel(loopLabel);
+    mv.visitVarInsn(ILOAD, counterLocal);
+    mv.visitVarInsn(ILOAD, endLocal);
+    mv.visitJumpInsn(IF_ICMPGE, exitLabel);
+
+    mv.visitVarInsn(ILOAD, counterLocal);
+    vector.pushElementAsDoubleOrNA(method);
+    mv.visitVarInsn(DSTORE, valueLocal);
+
+    // NaN is the only value which does not compare equal to itself
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitInsn(DCMPL);
+    mv.visitJumpInsn(IFEQ, notNaNLabel);
+
+    // An NA trumps everything, but we have to keep looking for an NA after a NaN
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitMethodInsn(INVOKESTATIC, "org/renjin/sexp/DoubleVector", "isNA", "(D)Z", false);
+    mv.visitJumpInsn(IFNE, naLabel);
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitVarInsn(DSTORE, nanLocal);
+    mv.visitJumpInsn(GOTO, nextLabel);
+
+    mv.visitLabel(notNaNLabel);
+    Label notLessLabel = new Label();
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitVarInsn(DLOAD, minLocal);
+    mv.visitInsn(DCMPG);
+    mv.visitJumpInsn(IFGE, notLessLabel);
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitVarInsn(DSTORE, minLocal);
+    mv.visitLabel(notLessLabel);
+
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitVarInsn(DLOAD, maxLocal);
+    mv.visitInsn(DCMPL);
+    mv.visitJumpInsn(IFLE, nextLabel);
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitVarInsn(DSTORE, maxLocal);
+
+    mv.visitLabel(nextLabel);
+    mv.visitIincInsn(counterLocal, 1);
+    mv.visitJumpInsn(GOTO, loopLabel);
+
+    // Found an NA: the result is NA
+    mv.visitLabel(naLabel);
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitVarInsn(DSTORE, minLocal);
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitVarInsn(DSTORE, maxLocal);
+    mv.visitJumpInsn(GOTO, returnLabel);
+
+    // Reached the end of the loop: if we encountered a NaN, the result is NaN
+    mv.visitLabel(exitLabel);
+    mv.visitVarInsn(DLOAD, nanLocal);
+    mv.visitVarInsn(DLOAD, nanLocal);
+    mv.visitInsn(DCMPL);
+    mv.visitJumpInsn(IFEQ, returnLabel);
+    mv.visitVarInsn(DLOAD, nanLocal);
+    mv.visitVarInsn(DSTORE, minLocal);
+    mv.visitVarInsn(DLOAD, nanLocal);
+    mv.visitVarInsn(DSTORE, maxLocal);
+
+    mv.visitLabel(returnLabel);
+    mv.visitInsn((min && max) ? ICONST_2 : ICONST_1);
+    mv.visitIntInsn(NEWARRAY, T_DOUBLE);
+    int index = 0;
+    if(min) {
+      mv.visitInsn(DUP);
+      mv.visitInsn(ICONST_0 + index++);
+      mv.visitVarInsn(DLOAD, minLocal);
+      mv.visitInsn(DASTORE);
+    }
+    if(max) {
+      mv.visitInsn(DUP);
+      mv.visitInsn(ICONST_0 + index);
+      mv.visitVarInsn(DLOAD, maxLocal);
+      mv.visitInsn(DASTORE);
+    }
+    mv.visitInsn(ARETURN);
+  }
+
+  @Override
+  public String debugLabel(LoopNode[] operands) {
+    return getName() + "(" + operands[0] + ")";
+  }
+
+  @Override
+  public void appendToKey(StringBuilder key) {
+    key.append(getName());
+  }
+
+  private String getName() {
+    if(min && max) {
+      return "range";
+    } else if(min) {
+      return "min";
+    } else {
+      return "max";
+    }
+  }
+}
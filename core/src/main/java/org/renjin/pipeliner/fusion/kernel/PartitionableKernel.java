@@ -0,0 +1,45 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.pipeliner.fusion.kernel;
+
+import org.renjin.pipeliner.ComputeMethod;
+import org.renjin.pipeliner.fusion.node.LoopNode;
+
+/**
+ * A {@link LoopKernel} which can be computed independently over disjoint ranges of the loop, and whose
+ * partial results are later {@link #combine(double[][], int) combined}.
+ *
+ * <p>The compiled form of such a kernel is a {@link CompiledPartitionableKernel}.</p>
+ */
+public interface PartitionableKernel extends LoopKernel {
+
+  /**
+   * Writes the body of {@code double[] computePartial(Vector[] operands, int start, int end)}, which
+   * computes the partial result over the elements {@code [start, end)}
+   */
+  void computePartial(ComputeMethod method, LoopNode[] operands);
+
+  /**
+   * Combines the partial results of each range into the final result.
+   *
+   * @param partials the results of {@code computePartial}, in order of their ranges
+   * @param length the total number of elements in the loop
+   */
+  double[] combine(double[][] partials, int length);
+}
@@ -25,7 +25,7 @@ import org.renjin.repackaged.asm.MethodVisitor;
 
 import static org.renjin.repackaged.asm.Opcodes.*;
 
-public class SumMeanKernel implements LoopKernel {
+public class SumMeanKernel implements PartitionableKernel {
 
   private boolean mean;
 
@@ -44,7 +44,6 @@ public class SumMeanKernel implements LoopKernel {
   @Override
   public void compute(ComputeMethod method, LoopNode[] operands) {
 
-    
     MethodVisitor mv = method.getVisitor();
 
     LoopNode vector = operands[0];
@@ -55,22 +54,81 @@ public class SumMeanKernel implements LoopKernel {
     vector.pushLength(method);
     mv.visitVarInsn(ISTORE, lengthLocal);
 
+    int counterLocal = method.declareCounter();
+    int sumLocal = writeSumLoop(method, vector, counterLocal, lengthLocal);
+
+    // return result
+    mv.visitInsn(ICONST_1);
+    mv.visitIntInsn(NEWARRAY, T_DOUBLE);
+    mv.visitInsn(DUP);
+    mv.visitInsn(ICONST_0);
+    mv.visitVarInsn(DLOAD, sumLocal);
+    
+    if(mean) {
+      mv.visitVarInsn(ILOAD, lengthLocal);
+      mv.visitInsn(I2D);
+      mv.visitInsn(DDIV);
+    }
+    
+    mv.visitInsn(DASTORE);
+    mv.visitInsn(ARETURN);
+  }
+
+  @Override
+  public void computePartial(ComputeMethod method, LoopNode[] operands) {
+
+    MethodVisitor mv = method.getVisitor();
+
+    LoopNode vector = operands[0];
+    vector.init(method);
+
+    // Sum the elements in [start, end), using the start parameter as our counter
+    int sumLocal = writeSumLoop(method, vector, method.getStartLocalIndex(), method.getEndLocalIndex());
+
+    // return the partial sum: the mean is only computed once all partitions are combined
+    mv.visitInsn(ICONST_1);
+    mv.visitIntInsn(NEWARRAY, T_DOUBLE);
+    mv.visitInsn(DUP);
+    mv.visitInsn(ICONST_0);
+    mv.visitVarInsn(DLOAD, sumLocal);
+    mv.visitInsn(DASTORE);
+    mv.visitInsn(ARETURN);
+  }
+
+  @Override
+  public double[] combine(double[][] partials, int length) {
+    double sum = 0;
+    for (double[] partial : partials) {
+      sum += partial[0];
+    }
+    if(mean) {
+      sum /= length;
+    }
+    return new double[] { sum };
+  }
+
+  /**
+   * Writes a loop that sums the elements of {@code vector} from the current value of {@code counterLocal}
+   * up to, but not including, the value of {@code endLocal}.
+   *
+   * @return the index of the local variable holding the sum.
+   */
+  private int writeSumLoop(ComputeMethod method, LoopNode vector, int counterLocal, int endLocal) {
+
+    MethodVisitor mv = method.getVisitor();
+
     // initial the sum variable
     int sumLocal = method.reserveLocal(2);
     mv.visitInsn(DCONST_0);
     mv.visitVarInsn(DSTORE, sumLocal);
 
-    int counterLocal = method.reserveLocal(1);
-    mv.visitInsn(ICONST_0);
-    mv.visitVarInsn(ISTORE, counterLocal);
-
     Label l3 = new Label();
     mv.visitLabel(l3);
     mv.visitVarInsn(ILOAD, counterLocal);
-    mv.visitVarInsn(ILOAD, lengthLocal);
+    mv.visitVarInsn(ILOAD, endLocal);
 
     Label l4 = new Label();
-    mv.visitJumpInsn(IF_ICMPEQ, l4);
+    mv.visitJumpInsn(IF_ICMPGE, l4);
 
     Label l5 = new Label();
     mv.visitLabel(l5);
@@ -90,21 +148,7 @@ public class SumMeanKernel implements LoopKernel {
     mv.visitJumpInsn(GOTO, l3);
     mv.visitLabel(l4);
 
-    // return result
-    mv.visitInsn(ICONST_1);
-    mv.visitIntInsn(NEWARRAY, T_DOUBLE);
-    mv.visitInsn(DUP);
-    mv.visitInsn(ICONST_0);
-    mv.visitVarInsn(DLOAD, sumLocal);
-    
-    if(mean) {
-      mv.visitVarInsn(ILOAD, lengthLocal);
-      mv.visitInsn(I2D);
-      mv.visitInsn(DDIV);
-    }
-    
-    mv.visitInsn(DASTORE);
-    mv.visitInsn(ARETURN);
+    return sumLocal;
   }
 
   @Override
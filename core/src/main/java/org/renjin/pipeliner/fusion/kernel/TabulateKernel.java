@@ -0,0 +1,119 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.pipeliner.fusion.kernel;
+
+import org.renjin.pipeliner.ComputeMethod;
+import org.renjin.pipeliner.fusion.node.LoopNode;
+import org.renjin.repackaged.asm.Label;
+import org.renjin.repackaged.asm.MethodVisitor;
+
+import static org.renjin.repackaged.asm.Opcodes.*;
+
+/**
+ * Counts the number of times each of the integers {@code 1...nbins} occurs in a vector,
+ * silently ignoring NAs and values outside of this range.
+ */
+public class TabulateKernel implements LoopKernel {
+
+  @Override
+  public void compute(ComputeMethod method, LoopNode[] operands) {
+
+    MethodVisitor mv = method.getVisitor();
+
+    LoopNode bin = operands[0];
+    LoopNode nbins = operands[1];
+    bin.init(method);
+    nbins.init(method);
+
+    int lengthLocal = method.reserveLocal(1);
+    bin.pushLength(method);
+    mv.visitVarInsn(ISTORE, lengthLocal);
+
+    int nbinsLocal = method.reserveLocal(1);
+    nbins.pushElementAsInt(method, 0);
+    mv.visitVarInsn(ISTORE, nbinsLocal);
+
+    int countsLocal = method.reserveLocal(1);
+    mv.visitVarInsn(ILOAD, nbinsLocal);
+    mv.visitIntInsn(NEWARRAY, T_DOUBLE);
+    mv.visitVarInsn(ASTORE, countsLocal);
+
+    int valueLocal = method.reserveLocal(2);
+    int binLocal = method.reserveLocal(1);
+    int counterLocal = method.declareCounter();
+
+    Label loopLabel = new Label();
+    Label nextLabel = new Label();
+    Label exitLabel = new Label();
+
+    mv.visitLabel(loopLabel);
+    mv.visitVarInsn(ILOAD, counterLocal);
+    mv.visitVarInsn(ILOAD, lengthLocal);
+    mv.visitJumpInsn(IF_ICMPGE, exitLabel);
+
+    mv.visitVarInsn(ILOAD, counterLocal);
+    bin.pushElementAsDoubleOrNA(method);
+    mv.visitVarInsn(DSTORE, valueLocal);
+
+    // Skip NAs
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitInsn(DCMPL);
+    mv.visitJumpInsn(IFNE, nextLabel);
+
+    // Skip values outside of [1, nbins]
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitInsn(D2I);
+    mv.visitVarInsn(ISTORE, binLocal);
+    mv.visitVarInsn(ILOAD, binLocal);
+    mv.visitJumpInsn(IFLE, nextLabel);
+    mv.visitVarInsn(ILOAD, binLocal);
+    mv.visitVarInsn(ILOAD, nbinsLocal);
+    mv.visitJumpInsn(IF_ICMPGT, nextLabel);
+
+    // counts[bin - 1] += 1
+    mv.visitVarInsn(ALOAD, countsLocal);
+    mv.visitVarInsn(ILOAD, binLocal);
+    mv.visitInsn(ICONST_1);
+    mv.visitInsn(ISUB);
+    mv.visitInsn(DUP2);
+    mv.visitInsn(DALOAD);
+    mv.visitInsn(DCONST_1);
+    mv.visitInsn(DADD);
+    mv.visitInsn(DASTORE);
+
+    mv.visitLabel(nextLabel);
+    mv.visitIincInsn(counterLocal, 1);
+    mv.visitJumpInsn(GOTO, loopLabel);
+
+    mv.visitLabel(exitLabel);
+    mv.visitVarInsn(ALOAD, countsLocal);
+    mv.visitInsn(ARETURN);
+  }
+
+  @Override
+  public String debugLabel(LoopNode[] operands) {
+    return "tabulate(" + operands[0] + ")";
+  }
+
+  @Override
+  public void appendToKey(StringBuilder key) {
+    key.append("tabulate");
+  }
+}
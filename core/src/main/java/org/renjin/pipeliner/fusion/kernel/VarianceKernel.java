@@ -0,0 +1,172 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.pipeliner.fusion.kernel;
+
+import org.renjin.pipeliner.ComputeMethod;
+import org.renjin.pipeliner.fusion.node.LoopNode;
+import org.renjin.repackaged.asm.Label;
+import org.renjin.repackaged.asm.MethodVisitor;
+
+import static org.renjin.repackaged.asm.Opcodes.*;
+
+/**
+ * Computes the sample variance of a double vector, using the same two-pass algorithm
+ * as GNU R's {@code cov()}: the mean is first refined by the mean of the residuals, and
+ * then the sum of squared residuals is divided by {@code n - 1}.
+ *
+ * <p>As with {@code cov(use = "everything")}, the variance is {@code NA} if any element is {@code NA}
+ * or {@code NaN}.</p>
+ */
+public class VarianceKernel implements LoopKernel {
+
+  private static final int SUM = 0;
+  private static final int RESIDUALS = 1;
+  private static final int SQUARED_RESIDUALS = 2;
+
+  @Override
+  public void compute(ComputeMethod method, LoopNode[] operands) {
+
+    MethodVisitor mv = method.getVisitor();
+
+    LoopNode vector = operands[0];
+    vector.init(method);
+
+    int lengthLocal = method.reserveLocal(1);
+    vector.pushLength(method);
+    mv.visitVarInsn(ISTORE, lengthLocal);
+
+    int counterLocal = method.reserveLocal(1);
+    int meanLocal = method.reserveLocal(2);
+    int accumulatorLocal = method.reserveLocal(2);
+
+    // mean = sum(x) / n, or NA if any element is NA or NaN
+    Label naLabel = new Label();
+    writeLoop(method, vector, SUM, counterLocal, lengthLocal, meanLocal, accumulatorLocal, naLabel);
+    mv.visitVarInsn(DLOAD, accumulatorLocal);
+    mv.visitVarInsn(ILOAD, lengthLocal);
+    mv.visitInsn(I2D);
+    mv.visitInsn(DDIV);
+    mv.visitVarInsn(DSTORE, meanLocal);
+
+    // if the mean is finite, then refine: mean += sum(x - mean) / n
+    Label notFinite = new Label();
+    mv.visitVarInsn(DLOAD, meanLocal);
+    mv.visitMethodInsn(INVOKESTATIC, "java/lang/Double", "isFinite", "(D)Z", false);
+    mv.visitJumpInsn(IFEQ, notFinite);
+    writeLoop(method, vector, RESIDUALS, counterLocal, lengthLocal, meanLocal, accumulatorLocal, null);
+    mv.visitVarInsn(DLOAD, meanLocal);
+    mv.visitVarInsn(DLOAD, accumulatorLocal);
+    mv.visitVarInsn(ILOAD, lengthLocal);
+    mv.visitInsn(I2D);
+    mv.visitInsn(DDIV);
+    mv.visitInsn(DADD);
+    mv.visitVarInsn(DSTORE, meanLocal);
+    mv.visitLabel(notFinite);
+
+    // var = sum((x - mean)^2) / (n - 1)
+    writeLoop(method, vector, SQUARED_RESIDUALS, counterLocal, lengthLocal, meanLocal, accumulatorLocal, null);
+
+    mv.visitInsn(ICONST_1);
+    mv.visitIntInsn(NEWARRAY, T_DOUBLE);
+    mv.visitInsn(DUP);
+    mv.visitInsn(ICONST_0);
+    mv.visitVarInsn(DLOAD, accumulatorLocal);
+    mv.visitVarInsn(ILOAD, lengthLocal);
+    mv.visitInsn(ICONST_1);
+    mv.visitInsn(ISUB);
+    mv.visitInsn(I2D);
+    mv.visitInsn(DDIV);
+    mv.visitInsn(DASTORE);
+    mv.visitInsn(ARETURN);
+
+    // Found an NA or NaN: stack => { acc, x }
+    mv.visitLabel(naLabel);
+    mv.visitInsn(POP2);
+    mv.visitInsn(POP2);
+    mv.visitInsn(ICONST_1);
+    mv.visitIntInsn(NEWARRAY, T_DOUBLE);
+    mv.visitInsn(DUP);
+    mv.visitInsn(ICONST_0);
+    mv.visitFieldInsn(GETSTATIC, "org/renjin/sexp/DoubleVector", "NA", "D");
+    mv.visitInsn(DASTORE);
+    mv.visitInsn(ARETURN);
+  }
+
+  /**
+   * Writes a loop over all elements of the vector, accumulating the sum of the
+   * elements, their residuals, or their squared residuals into {@code accumulatorLocal}
+   *
+   * @param naLabel if not {@code null}, the label to jump to when an element is NA or NaN
+   */
+  private void writeLoop(ComputeMethod method, LoopNode vector, int term,
+                         int counterLocal, int lengthLocal, int meanLocal, int accumulatorLocal, Label naLabel) {
+
+    MethodVisitor mv = method.getVisitor();
+
+    mv.visitInsn(ICONST_0);
+    mv.visitVarInsn(ISTORE, counterLocal);
+    mv.visitInsn(DCONST_0);
+    mv.visitVarInsn(DSTORE, accumulatorLocal);
+
+    Label loopLabel = new Label();
+    Label exitLabel = new Label();
+
+    mv.visitLabel(loopLabel);
+    mv.visitVarInsn(ILOAD, counterLocal);
+    mv.visitVarInsn(ILOAD, lengthLocal);
+    mv.visitJumpInsn(IF_ICMPGE, exitLabel);
+
+    mv.visitVarInsn(DLOAD, accumulatorLocal);
+    mv.visitVarInsn(ILOAD, counterLocal);
+    vector.pushElementAsDoubleOrNA(method);
+
+    if(naLabel != null) {
+      // stack => { acc, x }
+      mv.visitInsn(DUP2);
+      mv.visitMethodInsn(INVOKESTATIC, "java/lang/Double", "isNaN", "(D)Z", false);
+      mv.visitJumpInsn(IFNE, naLabel);
+    }
+    if(term != SUM) {
+      // stack => { acc, x }
+      mv.visitVarInsn(DLOAD, meanLocal);
+      mv.visitInsn(DSUB);
+    }
+    if(term == SQUARED_RESIDUALS) {
+      // stack => { acc, x - mean }
+      mv.visitInsn(DUP2);
+      mv.visitInsn(DMUL);
+    }
+    mv.visitInsn(DADD);
+    mv.visitVarInsn(DSTORE, accumulatorLocal);
+
+    mv.visitIincInsn(counterLocal, 1);
+    mv.visitJumpInsn(GOTO, loopLabel);
+    mv.visitLabel(exitLabel);
+  }
+
+  @Override
+  public String debugLabel(LoopNode[] operands) {
+    return "var(" + operands[0] + ")";
+  }
+
+  @Override
+  public void appendToKey(StringBuilder key) {
+    key.append("var");
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.pipeliner.fusion.kernel;
+
+import org.renjin.pipeliner.ComputeMethod;
+import org.renjin.pipeliner.fusion.node.LoopNode;
+import org.renjin.repackaged.asm.Label;
+import org.renjin.repackaged.asm.MethodVisitor;
+
+import static org.renjin.repackaged.asm.Opcodes.*;
+
+/**
+ * Computes the (1-based) indices of the {@code TRUE} elements of a logical vector.
+ */
+public class WhichKernel implements LoopKernel {
+
+  @Override
+  public void compute(ComputeMethod method, LoopNode[] operands) {
+
+    MethodVisitor mv = method.getVisitor();
+
+    LoopNode vector = operands[0];
+    vector.init(method);
+
+    int lengthLocal = method.reserveLocal(1);
+    vector.pushLength(method);
+    mv.visitVarInsn(ISTORE, lengthLocal);
+
+    // Allocate a buffer large enough for the case that all elements are TRUE
+    int bufferLocal = method.reserveLocal(1);
+    mv.visitVarInsn(ILOAD, lengthLocal);
+    mv.visitIntInsn(NEWARRAY, T_DOUBLE);
+    mv.visitVarInsn(ASTORE, bufferLocal);
+
+    int countLocal = method.declareCounter();
+    int counterLocal = method.declareCounter();
+
+    Label loopLabel = new Label();
+    Label nextLabel = new Label();
+    Label exitLabel = new Label();
+
+    mv.visitLabel(loopLabel);
+    mv.visitVarInsn(ILOAD, counterLocal);
+    mv.visitVarInsn(ILOAD, lengthLocal);
+    mv.visitJumpInsn(IF_ICMPGE, exitLabel);
+
+    mv.visitVarInsn(ILOAD, counterLocal);
+    vector.pushElementAsDoubleOrNA(method);
+
+    // Logical elements are either 0, 1, or NA: DCMPL yields 1 only for TRUE,
+    // and -1 for NA
+    mv.visitInsn(DCONST_0);
+    mv.visitInsn(DCMPL);
+    mv.visitJumpInsn(IFLE, nextLabel);
+
+    // buffer[count++] = i + 1
+    mv.visitVarInsn(ALOAD, bufferLocal);
+    mv.visitVarInsn(ILOAD, countLocal);
+    mv.visitVarInsn(ILOAD, counterLocal);
+    mv.visitInsn(ICONST_1);
+    mv.visitInsn(IADD);
+    mv.visitInsn(I2D);
+    mv.visitInsn(DASTORE);
+    mv.visitIincInsn(countLocal, 1);
+
+    mv.visitLabel(nextLabel);
+    mv.visitIincInsn(counterLocal, 1);
+    mv.visitJumpInsn(GOTO, loopLabel);
+
+    mv.visitLabel(exitLabel);
+    mv.visitVarInsn(ALOAD, bufferLocal);
+    mv.visitVarInsn(ILOAD, countLocal);
+    mv.visitMethodInsn(INVOKESTATIC, "java/util/Arrays", "copyOf", "([DI)[D", false);
+    mv.visitInsn(ARETURN);
+  }
+
+  @Override
+  public String debugLabel(LoopNode[] operands) {
+    return "which(" + operands[0] + ")";
+  }
+
+  @Override
+  public void appendToKey(StringBuilder key) {
+    key.append("which");
+  }
+}
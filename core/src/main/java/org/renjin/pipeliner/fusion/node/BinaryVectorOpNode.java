@@ -109,6 +109,7 @@ public class BinaryVectorOpNode extends LoopNode {
   @Override
   public void appendToKey(StringBuilder key) {
     key.append(operatorName);
+    key.append('@').append(Type.getInternalName(applyMethod.getDeclaringClass()));
     key.append('(');
     for (LoopNode operandAccessor : operands) {
       operandAccessor.appendToKey(key);
@@ -69,7 +69,7 @@ public class DoubleArrayNode extends LoopNode {
 
   @Override
   public void appendToKey(StringBuilder key) {
-    key.append("DA");
+    key.append("DA").append(operandIndex).append(':').append(vectorType);
   }
 
   @Override
@@ -0,0 +1,145 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.pipeliner.fusion.node;
+
+import org.renjin.pipeliner.ComputeMethod;
+import org.renjin.repackaged.asm.Label;
+import org.renjin.repackaged.asm.MethodVisitor;
+
+import java.util.Optional;
+
+import static org.renjin.repackaged.asm.Opcodes.*;
+
+/**
+ * Selects elements from {@code yes} or {@code no} depending on the value of {@code test},
+ * recycling {@code yes} and {@code no} to the length of {@code test}.
+ */
+public class IfElseNode extends LoopNode {
+
+  private final LoopNode test;
+  private final LoopNode yes;
+  private final LoopNode no;
+
+  private int indexLocal;
+  private int testLengthLocal;
+  private int yesLengthLocal;
+  private int noLengthLocal;
+
+  public IfElseNode(LoopNode test, LoopNode yes, LoopNode no) {
+    this.test = test;
+    this.yes = yes;
+    this.no = no;
+  }
+
+  @Override
+  public void init(ComputeMethod method) {
+    test.init(method);
+    yes.init(method);
+    no.init(method);
+
+    indexLocal = method.reserveLocal(1);
+    testLengthLocal = method.reserveLocal(1);
+    yesLengthLocal = method.reserveLocal(1);
+    noLengthLocal = method.reserveLocal(1);
+
+    MethodVisitor mv = method.getVisitor();
+    test.pushLength(method);
+    mv.visitVarInsn(ISTORE, testLengthLocal);
+    yes.pushLength(method);
+    mv.visitVarInsn(ISTORE, yesLengthLocal);
+    no.pushLength(method);
+    mv.visitVarInsn(ISTORE, noLengthLocal);
+  }
+
+  @Override
+  public void pushElementAsDouble(ComputeMethod method, Optional<Label> integerNaLabel) {
+    MethodVisitor mv = method.getVisitor();
+    Label noLabel = new Label();
+    Label naLabel = new Label();
+    Label doneLabel = new Label();
+
+    // stack => { index }
+    mv.visitVarInsn(ISTORE, indexLocal);
+    mv.visitVarInsn(ILOAD, indexLocal);
+    test.pushElementAsDoubleOrNA(method);
+
+    // stack => { test }
+    // NaN is the only value which does not compare equal to itself
+    mv.visitInsn(DUP2);
+    mv.visitInsn(DUP2);
+    mv.visitInsn(DCMPL);
+    mv.visitJumpInsn(IFNE, naLabel);
+
+    // stack => { test }
+    mv.visitInsn(DCONST_0);
+    mv.visitInsn(DCMPL);
+    mv.visitJumpInsn(IFEQ, noLabel);
+
+    // stack => { }
+    pushRecycledElement(method, yes, yesLengthLocal);
+    mv.visitJumpInsn(GOTO, doneLabel);
+
+    mv.visitLabel(noLabel);
+    pushRecycledElement(method, no, noLengthLocal);
+    mv.visitJumpInsn(GOTO, doneLabel);
+
+    // stack => { test }
+    mv.visitLabel(naLabel);
+    mv.visitInsn(POP2);
+    mv.visitFieldInsn(GETSTATIC, "org/renjin/sexp/DoubleVector", "NA", "D");
+
+    // stack => { value }
+    mv.visitLabel(doneLabel);
+  }
+
+  private void pushRecycledElement(ComputeMethod method, LoopNode operand, int lengthLocal) {
+    MethodVisitor mv = method.getVisitor();
+    mv.visitVarInsn(ILOAD, indexLocal);
+    mv.visitVarInsn(ILOAD, lengthLocal);
+    mv.visitInsn(IREM);
+    operand.pushElementAsDoubleOrNA(method);
+  }
+
+  @Override
+  public void pushLength(ComputeMethod method) {
+    method.getVisitor().visitVarInsn(ILOAD, testLengthLocal);
+  }
+
+  @Override
+  public boolean mustCheckForIntegerNAs() {
+    // Integer NAs in any of the operands are already converted to double NAs
+    return false;
+  }
+
+  @Override
+  public void appendToKey(StringBuilder key) {
+    key.append("ifelse(");
+    test.appendToKey(key);
+    key.append(';');
+    yes.appendToKey(key);
+    key.append(';');
+    no.appendToKey(key);
+    key.append(')');
+  }
+
+  @Override
+  public String toString() {
+    return "ifelse(" + test + ", " + yes + ", " + no + ")";
+  }
+}
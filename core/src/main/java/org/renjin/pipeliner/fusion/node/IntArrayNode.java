@@ -85,7 +85,7 @@ public class IntArrayNode extends LoopNode {
 
   @Override
   public void appendToKey(StringBuilder key) {
-    key.append("IAN:" + vectorType);
+    key.append("IAN").append(operandIndex).append(':').append(vectorType);
   }
 
   @Override
@@ -100,7 +100,7 @@ public class IntBufferNode extends LoopNode {
 
   @Override
   public void appendToKey(StringBuilder key) {
-    key.append("IBN");
+    key.append("IBN").append(operandIndex);
   }
 
   @Override
@@ -85,7 +85,7 @@ public class IntSeqNode extends LoopNode {
 
   @Override
   public void appendToKey(StringBuilder key) {
-    key.append("ISN");
+    key.append("ISN").append(operandIndex);
   }
 
   @Override
@@ -43,6 +43,30 @@ public abstract class LoopNode {
   
   public abstract void pushElementAsDouble(ComputeMethod method, Optional<Label> integerNaLabel);
 
+  /**
+   * Writes the bytecode instructions to push the element of this vector onto the stack as a {@code double},
+   * converting integer NAs to {@link org.renjin.sexp.DoubleVector#NA}. The operand index MUST be the next
+   * element on the stack.
+   */
+  public final void pushElementAsDoubleOrNA(ComputeMethod method) {
+    if(!mustCheckForIntegerNAs()) {
+      pushElementAsDouble(method);
+      return;
+    }
+    MethodVisitor mv = method.getVisitor();
+    Label naLabel = new Label();
+    Label doneLabel = new Label();
+    pushElementAsDouble(method, Optional.of(naLabel));
+    mv.visitJumpInsn(GOTO, doneLabel);
+
+    // stack => { ..., NA::int }
+    mv.visitLabel(naLabel);
+    mv.visitInsn(POP);
+    mv.visitFieldInsn(GETSTATIC, "org/renjin/sexp/DoubleVector", "NA", "D");
+
+    mv.visitLabel(doneLabel);
+  }
+
   /**
    * Writes the bytecode instructions to push the length of this vector onto the stack.
    * The operand index MUST be the next element on the stack.
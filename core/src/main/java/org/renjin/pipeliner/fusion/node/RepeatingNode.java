@@ -80,7 +80,7 @@ public class RepeatingNode extends LoopNode {
     MethodVisitor mv = method.getVisitor();
     mv.visitVarInsn(ILOAD, sourceLengthLocal);
     mv.visitInsn(IREM);
-    sourceNode.pushElementAsDouble(method);
+    sourceNode.pushElementAsDouble(method, integerNaLabel);
   }
 
   @Override
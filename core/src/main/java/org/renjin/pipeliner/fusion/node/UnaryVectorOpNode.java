@@ -85,6 +85,7 @@ public class UnaryVectorOpNode extends LoopNode {
   @Override
   public void appendToKey(StringBuilder key) {
     key.append(operatorName);
+    key.append('@').append(Type.getInternalName(applyMethod.getDeclaringClass()));
     key.append('(');
     operand.appendToKey(key);
     key.append(')');
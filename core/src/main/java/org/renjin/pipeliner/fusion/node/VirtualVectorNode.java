@@ -111,6 +111,6 @@ public class VirtualVectorNode extends LoopNode {
 
   @Override
   public void appendToKey(StringBuilder key) {
-    key.append(vectorClass);
+    key.append("V").append(operandIndex).append(':').append(vectorClass);
   }
 }
@@ -0,0 +1,176 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.pipeliner.optimize;
+
+import org.renjin.pipeliner.DeferredGraph;
+import org.renjin.pipeliner.node.DeferredNode;
+import org.renjin.pipeliner.node.FunctionNode;
+import org.renjin.primitives.matrix.DeferredMatrixProduct;
+import org.renjin.primitives.matrix.MatrixChain;
+import org.renjin.primitives.matrix.MatrixProduct;
+import org.renjin.primitives.matrix.TransposingMatrix;
+import org.renjin.sexp.AtomicVector;
+import org.renjin.sexp.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collapses nested matrix products like {@code t(X) %*% W %*% X %*% beta} into a single
+ * {@link MatrixChain}, which is evaluated in the cheapest order, and passes transposed operands
+ * directly to the BLAS.
+ *
+ * <p>Only intermediate products which are not used elsewhere in the graph are merged into the chain, so
+ * that no product is computed twice.</p>
+ */
+public class MatrixChainOptimizer implements Optimizer {
+
+  private static class Factor {
+    private final DeferredNode node;
+    private final int rows;
+    private final int cols;
+    private final boolean transposed;
+
+    Factor(DeferredNode node, int rows, int cols, boolean transposed) {
+      this.node = node;
+      this.rows = rows;
+      this.cols = cols;
+      this.transposed = transposed;
+    }
+  }
+
+  @Override
+  public boolean optimize(DeferredGraph graph, FunctionNode node) {
+
+    // Start only from the outermost product of a chain
+    if(!isProduct(node) || isMergeable(graph, node)) {
+      return false;
+    }
+
+    List<Factor> factors = new ArrayList<>();
+    List<DeferredNode> products = new ArrayList<>();
+    List<DeferredNode> transposes = new ArrayList<>();
+
+    products.add(node);
+    addOperands(graph, node, false, factors, products, transposes);
+
+    if(factors.size() < 3 && transposes.isEmpty()) {
+      // Nothing to reorder
+      return false;
+    }
+
+    DeferredMatrixProduct vector = (DeferredMatrixProduct) node.getVector();
+    MatrixChain chain = new MatrixChain(vector.getProduct().getBlasProvider());
+    for (Factor factor : factors) {
+      Vector operand = factor.node.getVector();
+      if(!(operand instanceof AtomicVector) || factor.rows == 0 || factor.cols == 0) {
+        return false;
+      }
+      chain.add((AtomicVector) operand, factor.rows, factor.cols, factor.transposed);
+    }
+
+    vector.setChain(chain);
+
+    // Now rewire the graph so that the outermost product depends directly on the factors
+    for (DeferredNode product : products) {
+      for (DeferredNode operand : product.getOperands()) {
+        operand.removeUse(product);
+      }
+      if(product != node) {
+        graph.removeNode(product);
+      }
+    }
+    for (DeferredNode transpose : transposes) {
+      if(!transpose.isUsed() && !graph.getRoots().contains(transpose)) {
+        graph.removeNode(transpose);
+      }
+    }
+
+    DeferredNode[] operands = new DeferredNode[factors.size()];
+    for (int i = 0; i < operands.length; i++) {
+      operands[i] = factors.get(i).node;
+      operands[i].addOutput(node);
+    }
+    node.replaceOperands(operands);
+
+    return true;
+  }
+
+  private void addOperands(DeferredGraph graph, FunctionNode node, boolean transposed,
+                           List<Factor> factors, List<DeferredNode> products, List<DeferredNode> transposes) {
+
+    MatrixProduct product = ((DeferredMatrixProduct) node.getVector()).getProduct();
+
+    DeferredNode left = node.getOperand(0);
+    DeferredNode right = product.isSymmetrical() ? left : node.getOperand(1);
+    int[] leftDim = product.getLeftDim();
+    int[] rightDim = product.getRightDim();
+
+    if(transposed) {
+      // t(A %*% B) = t(B) %*% t(A)
+      addFactor(graph, right, rightDim[1], rightDim[0], !product.isRightTransposed(), factors, products, transposes);
+      addFactor(graph, left, leftDim[1], leftDim[0], !product.isLeftTransposed(), factors, products, transposes);
+    } else {
+      addFactor(graph, left, leftDim[0], leftDim[1], product.isLeftTransposed(), factors, products, transposes);
+      addFactor(graph, right, rightDim[0], rightDim[1], product.isRightTransposed(), factors, products, transposes);
+    }
+  }
+
+  private void addFactor(DeferredGraph graph, DeferredNode node, int rows, int cols, boolean transposed,
+                         List<Factor> factors, List<DeferredNode> products, List<DeferredNode> transposes) {
+
+    if(isMergeable(graph, node)) {
+      products.add(node);
+      addOperands(graph, (FunctionNode) node, transposed, factors, products, transposes);
+
+    } else if(node instanceof FunctionNode && node.getVector() instanceof TransposingMatrix &&
+        ((TransposingMatrix) node.getVector()).hasTransposedAttributes()) {
+      // t(t(X)) = X
+      transposes.add(node);
+      factors.add(new Factor(node.getOperand(0), rows, cols, !transposed));
+
+    } else {
+      factors.add(new Factor(node, rows, cols, transposed));
+    }
+  }
+
+  private static boolean isProduct(DeferredNode node) {
+    return node instanceof FunctionNode &&
+        node.getVector() instanceof DeferredMatrixProduct &&
+        node.getVector().isDeferred();
+  }
+
+  /**
+   * @return true if {@code node} is a product whose only use is as an operand of a single
+   * other product, so that it can be merged into the chain of its user.
+   */
+  private static boolean isMergeable(DeferredGraph graph, DeferredNode node) {
+    if(!isProduct(node) || node.getUses().size() != 1 || graph.getRoots().contains(node)) {
+      return false;
+    }
+    DeferredNode user = node.getUses().iterator().next();
+    if(!isProduct(user) || !graph.getNodes().contains(user)) {
+      return false;
+    }
+    // The product must be used only once by its user: we can't merge the
+    // operand of crossprod(x) or of x %*% x
+    MatrixProduct product = ((DeferredMatrixProduct) user.getVector()).getProduct();
+    return !product.isSymmetrical() && user.getOperand(0) != user.getOperand(1);
+  }
+}
@@ -31,6 +31,7 @@ public class Optimizers {
   public Optimizers() {
     if (System.getProperty("renjin.vp.disableopt") == null) {
       optimizers.add(new SquareOptimizer());
+      optimizers.add(new MatrixChainOptimizer());
       optimizers.add(new IdentityRemover());
       optimizers.add(new AggregationRecycler());
     } else {
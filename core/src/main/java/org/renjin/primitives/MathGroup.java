@@ -23,6 +23,7 @@ import org.apache.commons.math.util.MathUtils;
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
 import org.renjin.invoke.annotations.*;
+import org.renjin.primitives.summary.DeferredCumulative;
 import org.renjin.repackaged.guava.math.IntMath;
 import org.renjin.sexp.*;
 
@@ -399,7 +400,10 @@ public class MathGroup {
 
 
   @Builtin
-  public static DoubleVector cumsum(DoubleVector source) {
+  public static DoubleVector cumsum(@Current Context context, DoubleVector source) {
+    if(isDeferrableCumulative(context, source)) {
+      return new DeferredCumulative(source, false, namesAttribute(source));
+    }
     return cumulativeRealSum(source);
   }
   
@@ -502,10 +506,25 @@ public class MathGroup {
   }
   
   @Builtin
-  public static DoubleVector cumprod(DoubleVector source) {
+  public static DoubleVector cumprod(@Current Context context, DoubleVector source) {
+    if(isDeferrableCumulative(context, source)) {
+      return new DeferredCumulative(source, true, namesAttribute(source));
+    }
     return cumulativeRealProduct(source);
   }
 
+  private static boolean isDeferrableCumulative(Context context, DoubleVector source) {
+    return context.getSession().getVectorEngine().isEnabled() &&
+        (source.isDeferred() || source.length() > 100000);
+  }
+
+  private static AttributeMap namesAttribute(Vector source) {
+    if(source.getNames() == Null.INSTANCE) {
+      return AttributeMap.EMPTY;
+    }
+    return AttributeMap.builder().setNames(source.getNames()).build();
+  }
+
   private static DoubleVector cumulativeRealProduct(Vector source) {
     DoubleArrayVector.Builder result = new DoubleArrayVector.Builder();
     result.setAttribute(Symbols.NAMES, source.getNames());
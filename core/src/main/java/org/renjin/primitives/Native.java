@@ -26,6 +26,7 @@ import org.renjin.invoke.annotations.*;
 import org.renjin.invoke.reflection.ClassBindingImpl;
 import org.renjin.invoke.reflection.FunctionBinding;
 import org.renjin.methods.Methods;
+import org.renjin.primitives.ni.DeferredFortranCall;
 import org.renjin.primitives.packaging.DllInfo;
 import org.renjin.primitives.packaging.DllSymbol;
 import org.renjin.primitives.packaging.Namespace;
@@ -286,6 +287,12 @@ public class Native {
           " expected " + fortranTypes.length + " arguments, received " + callArguments.length() + " arguments");
     }
 
+    // If the VectorPipeliner is enabled and some of our inputs are still deferred, then
+    // add this call to the deferred graph rather than forcing the inputs one by one.
+    if(isDeferrable(context, fortranTypes, callArguments)) {
+      return new DeferredFortranCall(context, method.getName(), method.getMethodHandle(), callArguments).getOutputList();
+    }
+
     Object[] fortranArgs = new Object[fortranTypes.length];
     ListVector.NamedBuilder returnValues = ListVector.newNamedBuilder();
 
@@ -326,6 +333,32 @@ public class Native {
     return returnValues.build();
   }
 
+  private static boolean isDeferrable(Context context, Class<?>[] fortranTypes, ListVector callArguments) {
+    if(!context.getSession().getVectorEngine().isEnabled() ||
+        fortranTypes.length != callArguments.length()) {
+      return false;
+    }
+    boolean anyDeferred = false;
+    for (int i = 0; i < fortranTypes.length; i++) {
+      SEXP argument = callArguments.get(i);
+      if(argument instanceof DoubleVector) {
+        if(!fortranTypes[i].equals(DoublePtr.class)) {
+          return false;
+        }
+      } else if(argument instanceof IntVector || argument instanceof LogicalVector) {
+        if(!fortranTypes[i].equals(IntPtr.class)) {
+          return false;
+        }
+      } else {
+        return false;
+      }
+      if(((Vector) argument).isDeferred()) {
+        anyDeferred = true;
+      }
+    }
+    return anyDeferred;
+  }
+
   private static boolean[] toBooleanArray(AtomicVector vector) {
     boolean array[] = new boolean[vector.length()];
     for(int i=0;i<vector.length();++i) {
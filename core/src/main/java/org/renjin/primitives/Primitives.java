@@ -202,6 +202,7 @@ public class Primitives {
     f("geterrmessage", Conditions.class, 11);
     f("seterrmessage", Conditions.class, 111);
     f("printDeferredWarnings", Warning.class, 111);
+    f("lastWarning", Warning.class, 11);
     f("interruptsSuspended", /*interruptsSuspended*/ null, 11);
 
     addInternal(new RestartFunction());
@@ -307,6 +308,7 @@ public class Primitives {
     addInternal(new ColumnBindFunction());
     addInternal(new RowBindFunction());
     f("drop", Vectors.class, 11);
+    f("ifelse", Vectors.class, 11);
     f("class", Attributes.class, "getClass", 1);
     f(".cache_class", Methods.class, 2);
     f("unclass", Attributes.class, 1);
@@ -557,11 +559,14 @@ public class Primitives {
 
     f("RNGkind", RNG.class, 11);
     f("set.seed", RNG.class, 11);
+    f("nextRNGStream", RNG.class, 11);
+    f("nextRNGSubStream", RNG.class, 11);
 
 /* Data Summaries */
 /* sum, min, max, prod, range are group generic and so need to eval args */
     f("sum", Summary.class, 1);
     f("mean", Summary.class, 11);
+    f("var", Summary.class, 11);
     f("min", Summary.class, 1);
     f("max", Summary.class, 1);
     f("prod", Summary.class, 1);
@@ -687,6 +692,7 @@ public class Primitives {
     f("loadFromConn2", Serialization.class, 111);
     f("serializeToConn", Serialization.class, 111);
     f("unserializeFromConn", Serialization.class, 111);
+    f("unserializeFromFile", Serialization.class, 111);
     f("deparse", Deparse.class, 11);
     f("deparseRd", /*deparseRd*/ null, 11);
     f("dump", /*dump*/ null, 111);
@@ -695,6 +701,11 @@ public class Primitives {
     f("quit", Sessions.class, 111);
     f("interactive", Sessions.class, 0);
     f("readline", Sessions.class, 11);
+    f("forkWorker", Sessions.class, 11);
+    f("sendToWorker", Sessions.class, 11);
+    f("receiveFromWorker", Sessions.class, 11);
+    f("selectWorker", Sessions.class, 11);
+    f("stopWorker", Sessions.class, 11);
     f("print.default", Print.class, 111);
     f("print.function", Print.class, 111);
     f("prmatrix", /*prmatrix*/ null, 111);
@@ -742,7 +753,7 @@ public class Primitives {
     f("is.unsorted", Sort.class, 11);
     f("psort", Sort.class, null, 11);
     f("qsort", Sort.class, 11);
-    f("radixsort", /*radixsort*/ null, 11);
+    f("radixsort", Sort.class, 11);
     f("order", Sort.class, 11);
     f("rank", Sort.class, 11);
     f("findInterval", Sort.class, 11111);
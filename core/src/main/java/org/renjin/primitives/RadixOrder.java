@@ -0,0 +1,643 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.primitives;
+
+import org.renjin.eval.EvalException;
+import org.renjin.primitives.match.HashIndex;
+import org.renjin.sexp.*;
+import org.renjin.util.Partitions;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.IntConsumer;
+
+/**
+ * Computes a stable ordering of the rows of one or more key columns, in the manner of data.table's
+ * {@code forder}.
+ *
+ * <p>Keys are applied one column at a time, starting with the last, each pass stably reordering the permutation
+ * computed so far. Each column is first reduced to unsigned integer keys: integers, logicals and factors are
+ * offset by their minimum, doubles are mapped to their IEEE 754 bits with the sign bit flipped (and the other bits
+ * inverted for negative numbers), and strings are replaced by the rank of their distinct value. These keys
+ * are then sorted with a counting sort if their range is small, and with a least-significant-digit radix sort otherwise.
+ * {@code NA} and {@code NaN} are moved to the beginning or the end before sorting, keeping their original order.</p>
+ *
+ * <p>Long columns are split into partitions which are counted and scattered concurrently on the given
+ * executor.</p>
+ */
+public class RadixOrder {
+
+  /**
+   * The minimum number of rows handled by each thread in a single radix pass.
+   */
+  public static final int MIN_PARTITION_LENGTH = Integer.getInteger("renjin.sort.partition.length", 256 * 1024);
+
+  /**
+   * The number of bits sorted in each pass of the radix sort, chosen so that the counts fit in the L1 cache.
+   */
+  private static final int DIGIT_BITS = 11;
+
+  /**
+   * The maximum number of bits sorted with a single counting sort.
+   */
+  private static final int MAX_COUNTING_BITS = 16;
+
+  /**
+   * Fewer rows than this are sorted with an insertion sort.
+   */
+  private static final int INSERTION_SORT_LENGTH = 48;
+
+  private final boolean naLast;
+  private final Executor executor;
+  private final int parallelism;
+
+  /**
+   * The permutation computed so far, as zero-based row indices.
+   */
+  private int[] rows;
+
+  /**
+   * Scratch space for the radix passes. Rows with {@code NA} keys are stored at the end, in reverse order,
+   * while the others are sorted.
+   */
+  private int[] buffer;
+
+  /**
+   * Creates a new ordering of the given number of rows.
+   *
+   * @param naLast true if rows with {@code NA} keys should come last
+   * @param executor executor on which long columns are sorted concurrently
+   * @param parallelism the maximum number of partitions into which a radix pass is split
+   */
+  public RadixOrder(int length, boolean naLast, Executor executor, int parallelism) {
+    this.naLast = naLast;
+    this.executor = executor;
+    this.parallelism = parallelism;
+    this.rows = new int[length];
+    for (int i = 0; i < length; i++) {
+      rows[i] = i;
+    }
+  }
+
+  public RadixOrder(int length, boolean naLast) {
+    this(length, naLast, Runnable::run, 1);
+  }
+
+  /**
+   * Removes all rows in which any of the given columns is {@code NA} or {@code NaN}.
+   */
+  public void removeNA(ListVector columns) {
+    int kept = 0;
+    for (int i = 0; i < rows.length; i++) {
+      int row = rows[i];
+      if(!anyNA(columns, row)) {
+        rows[kept++] = row;
+      }
+    }
+    if(kept < rows.length) {
+      rows = Arrays.copyOf(rows, kept);
+    }
+  }
+
+  private static boolean anyNA(ListVector columns, int row) {
+    for (int i = 0; i < columns.length(); i++) {
+      if(isNA((AtomicVector) columns.getElementAsSEXP(i), row)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isNA(AtomicVector column, int row) {
+    if(column instanceof DoubleVector) {
+      return Double.isNaN(column.getElementAsDouble(row));
+    } else {
+      return column.isElementNA(row);
+    }
+  }
+
+  /**
+   * Orders the rows by the given columns, breaking ties in the first column by the second, and so on.
+   *
+   * @param decreasing for each column, true if it should be sorted in decreasing order.
+   * @param sortStrings if false, strings are ordered by their first appearance rather than alphabetically.
+   */
+  public void sortBy(ListVector columns, boolean[] decreasing, boolean sortStrings) {
+    for (int i = columns.length() - 1; i >= 0; i--) {
+      sortBy(columns.getElementAsSEXP(i), decreasing[i], sortStrings);
+    }
+  }
+
+  /**
+   * Stably orders the rows by a single column, so that rows which are equal in {@code column} keep the
+   * order established by any previous calls.
+   */
+  public void sortBy(SEXP column, boolean decreasing, boolean sortStrings) {
+    if(buffer == null) {
+      buffer = new int[rows.length];
+    }
+    if(column instanceof IntVector || column instanceof LogicalVector) {
+      sortByInts((AtomicVector) column, decreasing);
+    } else if(column instanceof DoubleVector) {
+      sortByDoubles((DoubleVector) column, decreasing);
+    } else if(column instanceof StringVector) {
+      sortByStrings((StringVector) column, decreasing, sortStrings);
+    } else if(column instanceof AtomicVector) {
+      sortByComparison((AtomicVector) column, decreasing);
+    } else {
+      throw new EvalException("argument is not a vector");
+    }
+  }
+
+  /**
+   * @return the ordering as a one-based R integer vector
+   */
+  public IntVector toVector() {
+    int[] result = new int[rows.length];
+    for (int i = 0; i < rows.length; i++) {
+      result[i] = rows[i] + 1;
+    }
+    return IntArrayVector.unsafe(result);
+  }
+
+  /**
+   * @return the ordering, as zero-based row indices.
+   */
+  public int[] getRows() {
+    return rows;
+  }
+
+  /**
+   * Finds the groups of consecutive rows in the ordering which are equal in all the given columns.
+   * {@code NA} and {@code NaN} are considered equal to each other.
+   *
+   * @return the (exclusive) end position of each group in the ordering
+   */
+  public int[] groupEnds(ListVector columns) {
+    int[] ends = new int[rows.length];
+    int groupCount = 0;
+    for (int i = 1; i < rows.length; i++) {
+      if(!equal(columns, rows[i - 1], rows[i])) {
+        ends[groupCount++] = i;
+      }
+    }
+    if(rows.length > 0) {
+      ends[groupCount++] = rows.length;
+    }
+    return Arrays.copyOf(ends, groupCount);
+  }
+
+  private static boolean equal(ListVector columns, int row1, int row2) {
+    for (int i = 0; i < columns.length(); i++) {
+      if(!equal((AtomicVector) columns.getElementAsSEXP(i), row1, row2)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean equal(AtomicVector column, int row1, int row2) {
+    if(column instanceof IntVector || column instanceof LogicalVector) {
+      return column.getElementAsInt(row1) == column.getElementAsInt(row2);
+    } else if(column instanceof DoubleVector) {
+      double x = column.getElementAsDouble(row1);
+      double y = column.getElementAsDouble(row2);
+      return x == y || (Double.isNaN(x) && Double.isNaN(y));
+    } else if(column instanceof StringVector) {
+      return Objects.equals(column.getElementAsString(row1), column.getElementAsString(row2));
+    } else {
+      boolean na1 = column.isElementNA(row1);
+      boolean na2 = column.isElementNA(row2);
+      return na1 || na2 ? na1 && na2 : column.compare(row1, row2) == 0;
+    }
+  }
+
+  private void sortByInts(AtomicVector column, boolean decreasing) {
+    int n = rows.length;
+    int[] keys = new int[n];
+    int count = 0;
+    int naCount = 0;
+    int min = Integer.MAX_VALUE;
+    int max = Integer.MIN_VALUE;
+    for (int i = 0; i < n; i++) {
+      int row = rows[i];
+      int value = column.getElementAsInt(row);
+      if(value == IntVector.NA) {
+        buffer[n - 1 - naCount++] = row;
+      } else {
+        rows[count] = row;
+        keys[count] = value;
+        count++;
+        if(value < min) {
+          min = value;
+        }
+        if(value > max) {
+          max = value;
+        }
+      }
+    }
+    // The differences may overflow, but are correct as unsigned integers
+    for (int i = 0; i < count; i++) {
+      keys[i] = decreasing ? max - keys[i] : keys[i] - min;
+    }
+    int bits = count == 0 ? 0 : 64 - Long.numberOfLeadingZeros((long) max - (long) min);
+
+    placeNA(sort(keys, count, bits), count, naCount);
+  }
+
+  private void sortByStrings(StringVector column, boolean decreasing, boolean sortStrings) {
+    int[] ranks = rank(column, sortStrings);
+    int n = rows.length;
+    int[] keys = new int[n];
+    int count = 0;
+    int naCount = 0;
+    int maxRank = 0;
+    for (int i = 0; i < n; i++) {
+      int row = rows[i];
+      int rank = ranks[row];
+      if(rank == -1) {
+        buffer[n - 1 - naCount++] = row;
+      } else {
+        rows[count] = row;
+        keys[count] = rank;
+        count++;
+        if(rank > maxRank) {
+          maxRank = rank;
+        }
+      }
+    }
+    if(decreasing) {
+      for (int i = 0; i < count; i++) {
+        keys[i] = maxRank - keys[i];
+      }
+    }
+    int bits = 32 - Integer.numberOfLeadingZeros(maxRank);
+
+    placeNA(sort(keys, count, bits), count, naCount);
+  }
+
+  /**
+   * Ranks each distinct string in {@code column}, so that only one comparison sort is needed
+   * for each distinct string, rather than for each row.
+   *
+   * @return the zero-based rank of each element's value, or -1 if it is {@code NA}
+   */
+  private static int[] rank(StringVector column, boolean sortStrings) {
+    int length = column.length();
+    HashIndex index = HashIndex.create(column);
+    int[] ranks = new int[length];
+    int[] distinctRows = new int[length];
+    int distinctCount = 0;
+    for (int i = 0; i < length; i++) {
+      if(column.isElementNA(i)) {
+        ranks[i] = -1;
+      } else {
+        int first = index.add(i);
+        if(first == -1) {
+          ranks[i] = distinctCount;
+          distinctRows[distinctCount++] = i;
+        } else {
+          ranks[i] = ranks[first];
+        }
+      }
+    }
+    if(sortStrings) {
+      String[] distinct = new String[distinctCount];
+      for (int i = 0; i < distinctCount; i++) {
+        distinct[i] = column.getElementAsString(distinctRows[i]);
+      }
+      String[] sorted = distinct.clone();
+      Arrays.sort(sorted);
+      int[] sortedRanks = new int[distinctCount];
+      for (int i = 0; i < distinctCount; i++) {
+        sortedRanks[i] = Arrays.binarySearch(sorted, distinct[i]);
+      }
+      for (int i = 0; i < length; i++) {
+        if(ranks[i] != -1) {
+          ranks[i] = sortedRanks[ranks[i]];
+        }
+      }
+    }
+    return ranks;
+  }
+
+  private void sortByDoubles(DoubleVector column, boolean decreasing) {
+    int n = rows.length;
+    long[] keys = new long[n];
+    int count = 0;
+    int naCount = 0;
+    long min = -1L;
+    long max = 0L;
+    for (int i = 0; i < n; i++) {
+      int row = rows[i];
+      double value = column.getElementAsDouble(row);
+      if(Double.isNaN(value)) {
+        buffer[n - 1 - naCount++] = row;
+      } else {
+        long key = key(value);
+        rows[count] = row;
+        keys[count] = key;
+        count++;
+        if(Long.compareUnsigned(key, min) < 0) {
+          min = key;
+        }
+        if(Long.compareUnsigned(key, max) > 0) {
+          max = key;
+        }
+      }
+    }
+    for (int i = 0; i < count; i++) {
+      keys[i] = decreasing ? max - keys[i] : keys[i] - min;
+    }
+    int bits = count == 0 ? 0 : 64 - Long.numberOfLeadingZeros(max - min);
+
+    placeNA(sort(keys, count, bits), count, naCount);
+  }
+
+  /**
+   * Maps a double to a long whose unsigned order is the numeric order of the doubles. Negative and
+   * positive zero are mapped to the same key.
+   */
+  static long key(double value) {
+    long bits = Double.doubleToRawLongBits(value == 0 ? 0d : value);
+    return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+  }
+
+  private void sortByComparison(AtomicVector column, boolean decreasing) {
+    int n = rows.length;
+    int count = 0;
+    int naCount = 0;
+    for (int i = 0; i < n; i++) {
+      int row = rows[i];
+      if(column.isElementNA(row)) {
+        buffer[n - 1 - naCount++] = row;
+      } else {
+        rows[count++] = row;
+      }
+    }
+    Integer[] sorted = new Integer[count];
+    for (int i = 0; i < count; i++) {
+      sorted[i] = rows[i];
+    }
+    // Arrays.sort is stable for objects
+    Arrays.sort(sorted, (row1, row2) -> decreasing ? column.compare(row2, row1) : column.compare(row1, row2));
+    for (int i = 0; i < count; i++) {
+      rows[i] = sorted[i];
+    }
+    placeNA(rows, count, naCount);
+  }
+
+  /**
+   * Moves the sorted rows, now held in {@code sorted}, and the rows with {@code NA} keys, held at the end of
+   * {@code buffer}, into place.
+   */
+  private void placeNA(int[] sorted, int count, int naCount) {
+    int n = rows.length;
+    int offset = naLast ? 0 : naCount;
+    if(sorted != rows || offset != 0) {
+      java.lang.System.arraycopy(sorted, 0, rows, offset, count);
+    }
+    int naOffset = naLast ? count : 0;
+    for (int i = 0; i < naCount; i++) {
+      rows[naOffset + i] = buffer[n - 1 - i];
+    }
+  }
+
+  /**
+   * Sorts the first {@code count} rows by their unsigned {@code keys}, which must all be less than {@code 2^bits}.
+   *
+   * @return the array, either {@code rows} or {@code buffer}, which holds the sorted rows.
+   */
+  private int[] sort(int[] keys, int count, int bits) {
+    if(count < INSERTION_SORT_LENGTH) {
+      insertionSort(keys, count);
+      return rows;
+    }
+    int digitBits = digitBits(count, bits);
+    int[] rowsIn = rows;
+    int[] rowsOut = buffer;
+    int[] keysIn = keys;
+    int[] keysOut = null;
+    for (int shift = 0; shift < bits; shift += digitBits) {
+      boolean lastPass = shift + digitBits >= bits;
+      if(!lastPass && keysOut == null) {
+        keysOut = new int[count];
+      }
+      if(pass(keysIn, lastPass ? null : keysOut, rowsIn, rowsOut, count, shift, digitBits)) {
+        int[] rowsSwap = rowsIn;
+        rowsIn = rowsOut;
+        rowsOut = rowsSwap;
+        int[] keysSwap = keysIn;
+        keysIn = keysOut;
+        keysOut = keysSwap;
+      }
+    }
+    return rowsIn;
+  }
+
+  private int[] sort(long[] keys, int count, int bits) {
+    if(count < INSERTION_SORT_LENGTH) {
+      insertionSort(keys, count);
+      return rows;
+    }
+    int digitBits = digitBits(count, bits);
+    int[] rowsIn = rows;
+    int[] rowsOut = buffer;
+    long[] keysIn = keys;
+    long[] keysOut = null;
+    for (int shift = 0; shift < bits; shift += digitBits) {
+      boolean lastPass = shift + digitBits >= bits;
+      if(!lastPass && keysOut == null) {
+        keysOut = new long[count];
+      }
+      if(pass(keysIn, lastPass ? null : keysOut, rowsIn, rowsOut, count, shift, digitBits)) {
+        int[] rowsSwap = rowsIn;
+        rowsIn = rowsOut;
+        rowsOut = rowsSwap;
+        long[] keysSwap = keysIn;
+        keysIn = keysOut;
+        keysOut = keysSwap;
+      }
+    }
+    return rowsIn;
+  }
+
+  /**
+   * Keys with a small range are sorted in a single counting pass, as long as there are enough rows
+   * to justify the size of the counts.
+   */
+  private static int digitBits(int count, int bits) {
+    if(bits <= MAX_COUNTING_BITS && (1 << bits) <= Math.max(1 << DIGIT_BITS, count)) {
+      return Math.max(1, bits);
+    }
+    return DIGIT_BITS;
+  }
+
+  /**
+   * Stably scatters {@code rowsIn}, and {@code keysIn} if {@code keysOut} is not null, by the digit of
+   * the keys at {@code shift}.
+   *
+   * @return false if all the keys have the same digit, in which case nothing is scattered.
+   */
+  private boolean pass(int[] keysIn, int[] keysOut, int[] rowsIn, int[] rowsOut, int count, int shift, int digitBits) {
+    int mask = (1 << digitBits) - 1;
+    int partitionCount = partitionCount(count);
+    int partitionLength = (count + partitionCount - 1) / partitionCount;
+    int[][] offsets = new int[partitionCount][mask + 1];
+
+    forEachPartition(partitionCount, partition -> {
+      int[] counts = offsets[partition];
+      int end = Math.min(count, (partition + 1) * partitionLength);
+      for (int i = partition * partitionLength; i < end; i++) {
+        counts[(keysIn[i] >>> shift) & mask]++;
+      }
+    });
+
+    if(!toOffsets(offsets, count)) {
+      return false;
+    }
+
+    forEachPartition(partitionCount, partition -> {
+      int[] next = offsets[partition];
+      int end = Math.min(count, (partition + 1) * partitionLength);
+      for (int i = partition * partitionLength; i < end; i++) {
+        int target = next[(keysIn[i] >>> shift) & mask]++;
+        rowsOut[target] = rowsIn[i];
+        if(keysOut != null) {
+          keysOut[target] = keysIn[i];
+        }
+      }
+    });
+    return true;
+  }
+
+  private boolean pass(long[] keysIn, long[] keysOut, int[] rowsIn, int[] rowsOut, int count, int shift, int digitBits) {
+    int mask = (1 << digitBits) - 1;
+    int partitionCount = partitionCount(count);
+    int partitionLength = (count + partitionCount - 1) / partitionCount;
+    int[][] offsets = new int[partitionCount][mask + 1];
+
+    forEachPartition(partitionCount, partition -> {
+      int[] counts = offsets[partition];
+      int end = Math.min(count, (partition + 1) * partitionLength);
+      for (int i = partition * partitionLength; i < end; i++) {
+        counts[(int) (keysIn[i] >>> shift) & mask]++;
+      }
+    });
+
+    if(!toOffsets(offsets, count)) {
+      return false;
+    }
+
+    forEachPartition(partitionCount, partition -> {
+      int[] next = offsets[partition];
+      int end = Math.min(count, (partition + 1) * partitionLength);
+      for (int i = partition * partitionLength; i < end; i++) {
+        int target = next[(int) (keysIn[i] >>> shift) & mask]++;
+        rowsOut[target] = rowsIn[i];
+        if(keysOut != null) {
+          keysOut[target] = keysIn[i];
+        }
+      }
+    });
+    return true;
+  }
+
+  /**
+   * Replaces each partition's count of each digit with the position at which the partition's first row with
+   * that digit is to be written: all rows with smaller digits come first, followed by the rows with the same
+   * digit in earlier partitions.
+   *
+   * @return false if all the rows have the same digit.
+   */
+  private static boolean toOffsets(int[][] counts, int count) {
+    int digits = counts[0].length;
+    int offset = 0;
+    for (int digit = 0; digit < digits; digit++) {
+      int start = offset;
+      for (int[] partitionCounts : counts) {
+        int digitCount = partitionCounts[digit];
+        partitionCounts[digit] = offset;
+        offset += digitCount;
+      }
+      if(offset - start == count) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int partitionCount(int count) {
+    return Math.max(1, Math.min(parallelism, count / Math.max(1, MIN_PARTITION_LENGTH)));
+  }
+
+  /**
+   * Runs {@code action} for each partition, concurrently on the executor if there is more than one.
+   *
+   * @see Partitions#compute(Executor, int, Partitions.Task)
+   */
+  private void forEachPartition(int partitionCount, IntConsumer action) {
+    if(partitionCount == 1) {
+      action.accept(0);
+      return;
+    }
+    try {
+      Partitions.compute(executor, partitionCount, partition -> {
+        action.accept(partition);
+        return null;
+      });
+    } catch (InterruptedException e) {
+      throw new EvalException("Interrupted while sorting");
+    } catch (ExecutionException e) {
+      throw new EvalException("Exception while sorting", e.getCause());
+    }
+  }
+
+  private void insertionSort(int[] keys, int count) {
+    for (int i = 1; i < count; i++) {
+      int key = keys[i];
+      int row = rows[i];
+      int j = i - 1;
+      while(j >= 0 && Integer.compareUnsigned(keys[j], key) > 0) {
+        keys[j + 1] = keys[j];
+        rows[j + 1] = rows[j];
+        j--;
+      }
+      keys[j + 1] = key;
+      rows[j + 1] = row;
+    }
+  }
+
+  private void insertionSort(long[] keys, int count) {
+    for (int i = 1; i < count; i++) {
+      long key = keys[i];
+      int row = rows[i];
+      int j = i - 1;
+      while(j >= 0 && Long.compareUnsigned(keys[j], key) > 0) {
+        keys[j + 1] = keys[j];
+        rows[j + 1] = rows[j];
+        j--;
+      }
+      keys[j + 1] = key;
+      rows[j + 1] = row;
+    }
+  }
+}
@@ -579,18 +579,54 @@ public class S3 {
     assert !"".equals(group);
 
     Environment methodTable = findMethodTable(context, definitionEnvironment);
+
+    S3DispatchCache cache = context.getSession().getSingleton(S3DispatchCache.class);
+    S3DispatchCache.Key key = S3DispatchCache.key(definitionEnvironment, callingEnvironment,
+        genericMethodName, group, classes, searchForDefault);
+
+    S3DispatchCache.Entry entry = cache.get(key, callingEnvironment, methodTable);
+    if(entry != null) {
+      if(!entry.isFound()) {
+        return null;
+      }
+      Function method = entry.select(context, dispatchTable);
+      if(method != null) {
+        return method;
+      }
+    }
+
+    S3DispatchCache.Trace trace = new S3DispatchCache.Trace();
+    Function method = findUncachedMethod(context, methodTable, definitionEnvironment, callingEnvironment,
+        genericMethodName, group, classes, searchForDefault, dispatchTable, trace);
+
+    cache.put(key, trace, methodTable, method == null ? null : dispatchTable.method);
+
+    return method;
+  }
+
+  private static Function findUncachedMethod(Context context,
+                                             Environment methodTable,
+                                             Environment definitionEnvironment,
+                                             Environment callingEnvironment,
+                                             String genericMethodName,
+                                             String group,
+                                             Iterable<String> classes,
+                                             boolean searchForDefault,
+                                             S3DispatchMetadata dispatchTable,
+                                             S3DispatchCache.Trace trace) {
     Function method;
 
     for(String className : classes) {
 
-      method = findMethod(context, methodTable, callingEnvironment, genericMethodName, className, dispatchTable);
+      method = findMethod(context, methodTable, callingEnvironment, genericMethodName, className, dispatchTable, trace);
       if(method != null) {
         return method;
       }
       if(group != null) {
-        method = findMethod(context, methodTable, callingEnvironment, group, className, dispatchTable);
+        method = findMethod(context, methodTable, callingEnvironment, group, className, dispatchTable, trace);
         if(method != null) {
           dispatchTable.group = group;
+          trace.selectedGroup(group);
           return method;
         }
       }
@@ -603,16 +639,18 @@ public class S3 {
     //---this is from nextOrDefault() //
 
     // Look up the .default method first in the definition environment
-    Function function = findMethod(context, methodTable, definitionEnvironment, genericMethodName, "default", dispatchTable);
+    Function function = findMethod(context, methodTable, definitionEnvironment, genericMethodName, "default", dispatchTable, trace);
     if(function != null) {
       dispatchTable.classVector = null;
+      trace.selectedDefault();
       return function;
     }
 
     // Otherwise see if *another* package has defined a default method
-    function = findMethod(context, methodTable, callingEnvironment, genericMethodName, "default", dispatchTable);
+    function = findMethod(context, methodTable, callingEnvironment, genericMethodName, "default", dispatchTable, trace);
     if(function != null) {
       dispatchTable.classVector = null;
+      trace.selectedDefault();
       return function;
     }
 
@@ -621,6 +659,7 @@ public class S3 {
     PrimitiveFunction primitive = Primitives.getBuiltin(genericMethodName);
     if(primitive != null) {
       dispatchTable.method = genericMethodName + ".default";
+      trace.foundPrimitive(primitive);
       return primitive;
     }
 
@@ -632,17 +671,21 @@ public class S3 {
                                      Environment callingEnvironment,
                                      String name,
                                      String className,
-                                     S3DispatchMetadata dispatchTable) {
+                                     S3DispatchMetadata dispatchTable,
+                                     S3DispatchCache.Trace trace) {
 
     String method = name + "." + className;
     Symbol methodSymbol = Symbol.get(method);
+    trace.probe(methodSymbol);
     Function function = callingEnvironment.findFunction(context, methodSymbol);
     if(function != null) {
       dispatchTable.method = methodSymbol.getPrintName();
+      trace.foundInEnvironment(context, callingEnvironment, methodSymbol);
       return function;
 
     } else if(methodTable.hasVariable(methodSymbol)) {
       dispatchTable.method = methodSymbol.getPrintName();
+      trace.foundInMethodTable(methodTable, methodSymbol);
       return (Function) methodTable.getVariableUnsafe(methodSymbol).force(context);
 
     } else {
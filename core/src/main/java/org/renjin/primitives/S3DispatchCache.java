@@ -0,0 +1,384 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.primitives;
+
+import org.renjin.eval.Context;
+import org.renjin.eval.S3DispatchMetadata;
+import org.renjin.sexp.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A least-recently-used cache of the methods selected by S3 dispatch.
+ *
+ * <p>Selecting a method for a generic such as {@code print} or {@code [} requires looking up a symbol like
+ * {@code print.foo} for each class of the object, which usually fails for all but one or two classes, and each
+ * failed lookup walks all the way up to the empty environment. The result only depends on the generic, the classes,
+ * the environment in which the generic is defined and the environment from which it is called, so each
+ * {@code Session} keeps one cache of the outcome for each combination.</p>
+ *
+ * <p>An entry remembers the symbols it looked up and their {@link Symbol#getBindingVersion() binding versions},
+ * and is discarded as soon as one of these might be found in a different place: when a method is defined or
+ * registered in the S3 methods table, when a package is attached, or when the parent of an environment changes.
+ * Like the lookup caches of {@link Environment}, entries hold the environment in which the method was found
+ * rather than the method itself, so that redefining an existing method does not require invalidation.</p>
+ */
+public class S3DispatchCache {
+
+  public static final int DEFAULT_CAPACITY = Integer.getInteger("renjin.s3.cache.size", 1024);
+
+  private static final int NOT_FOUND = 0;
+  private static final int ENVIRONMENT = 1;
+  private static final int METHOD_TABLE = 2;
+  private static final int PRIMITIVE = 3;
+
+  public static final class Key {
+    private final String generic;
+    private final String group;
+    private final String[] classes;
+    private final Environment definitionEnvironment;
+
+    /**
+     * The first environment from the calling environment whose lookups can be cached. Function
+     * environments which precede it are checked for each lookup.
+     */
+    private final Environment start;
+    private final boolean searchForDefault;
+    private final int hashCode;
+
+    private Key(String generic, String group, String[] classes, Environment definitionEnvironment,
+                Environment start, boolean searchForDefault) {
+      this.generic = generic;
+      this.group = group;
+      this.classes = classes;
+      this.definitionEnvironment = definitionEnvironment;
+      this.start = start;
+      this.searchForDefault = searchForDefault;
+      this.hashCode = 31 * (31 * (31 * (31 * generic.hashCode() + Objects.hashCode(group)) +
+          Arrays.hashCode(classes)) + java.lang.System.identityHashCode(definitionEnvironment)) +
+          java.lang.System.identityHashCode(start) + (searchForDefault ? 1 : 0);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key key = (Key) o;
+      return hashCode == key.hashCode &&
+          definitionEnvironment == key.definitionEnvironment &&
+          start == key.start &&
+          searchForDefault == key.searchForDefault &&
+          generic.equals(key.generic) &&
+          Objects.equals(group, key.group) &&
+          Arrays.equals(classes, key.classes);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /**
+   * The outcome of a method lookup.
+   */
+  public static final class Entry {
+    private final Symbol[] probes;
+    private final int[] versions;
+    private final int epoch;
+    private final Environment methodTable;
+
+    private final int source;
+    private final Environment environment;
+    private final Symbol methodSymbol;
+    private final Function primitive;
+
+    private final String method;
+    private final String group;
+    private final boolean isDefault;
+
+    private Entry(Trace trace, Environment methodTable, String method) {
+      this.probes = trace.probes.toArray(new Symbol[0]);
+      this.versions = Arrays.copyOf(trace.versions, probes.length);
+      this.epoch = trace.epoch;
+      this.methodTable = methodTable;
+      this.source = trace.source;
+      this.environment = trace.environment;
+      this.methodSymbol = trace.methodSymbol;
+      this.primitive = trace.primitive;
+      this.method = method;
+      this.group = trace.group;
+      this.isDefault = trace.isDefault;
+    }
+
+    /**
+     * @return true if a method was selected, false if no method is defined for any of the classes.
+     */
+    public boolean isFound() {
+      return source != NOT_FOUND;
+    }
+
+    /**
+     * Fetches the selected method and updates {@code dispatchTable} as the original lookup did.
+     *
+     * @return the selected method, or {@code null} if it has since been removed.
+     */
+    public Function select(Context context, S3DispatchMetadata dispatchTable) {
+      Function function;
+      switch (source) {
+        case ENVIRONMENT:
+          function = environment.getFunction(context, methodSymbol);
+          break;
+        case METHOD_TABLE:
+          SEXP value = environment.getVariableUnsafe(methodSymbol);
+          function = value == Symbol.UNBOUND_VALUE ? null : (Function) value.force(context);
+          break;
+        default:
+          function = primitive;
+          break;
+      }
+      if(function != null) {
+        dispatchTable.method = method;
+        if(group != null) {
+          dispatchTable.group = group;
+        }
+        if(isDefault) {
+          dispatchTable.classVector = null;
+        }
+      }
+      return function;
+    }
+
+    private boolean isValid(Key key, Environment callingEnvironment, Environment methodTable) {
+      if(epoch != Environment.getLookupEpoch() || methodTable != this.methodTable) {
+        return false;
+      }
+      for (int i = 0; i < probes.length; i++) {
+        if(probes[i].getBindingVersion() != versions[i]) {
+          return false;
+        }
+      }
+      // Function environments may have gained a binding without changing its version
+      Environment env = callingEnvironment;
+      while(env != key.start) {
+        for (Symbol probe : probes) {
+          if(env.hasVariable(probe)) {
+            return false;
+          }
+        }
+        env = env.getParent();
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Records the lookups made while selecting a method, so that the outcome can be cached.
+   */
+  public static final class Trace {
+    private final int epoch = Environment.getLookupEpoch();
+    private final List<Symbol> probes = new ArrayList<>();
+    private int[] versions = new int[8];
+
+    private int source = NOT_FOUND;
+    private Environment environment;
+    private Symbol methodSymbol;
+    private Function primitive;
+
+    private String group;
+    private boolean isDefault;
+
+    /**
+     * Called before looking up {@code symbol}.
+     */
+    public void probe(Symbol symbol) {
+      if(probes.size() == versions.length) {
+        versions = Arrays.copyOf(versions, versions.length * 2);
+      }
+      versions[probes.size()] = symbol.getBindingVersion();
+      probes.add(symbol);
+    }
+
+    /**
+     * Called when {@code symbol} has been found by looking up a function from {@code callingEnvironment}.
+     */
+    public void foundInEnvironment(Context context, Environment callingEnvironment, Symbol symbol) {
+      Environment env = callingEnvironment;
+      while(env != Environment.EMPTY && env.getFunction(context, symbol) == null) {
+        env = env.getParent();
+      }
+      this.source = ENVIRONMENT;
+      this.environment = env;
+      this.methodSymbol = symbol;
+    }
+
+    /**
+     * Called when {@code symbol} has been found in the S3 methods table.
+     */
+    public void foundInMethodTable(Environment methodTable, Symbol symbol) {
+      this.source = METHOD_TABLE;
+      this.environment = methodTable;
+      this.methodSymbol = symbol;
+    }
+
+    /**
+     * Called when the builtin {@code primitive} is selected as the default method.
+     */
+    public void foundPrimitive(Function primitive) {
+      this.source = PRIMITIVE;
+      this.primitive = primitive;
+    }
+
+    /**
+     * Called when a method for the {@code group} generic has been selected.
+     */
+    public void selectedGroup(String group) {
+      this.group = group;
+    }
+
+    /**
+     * Called when a default method has been selected, which is not dispatched on any class.
+     */
+    public void selectedDefault() {
+      this.isDefault = true;
+    }
+  }
+
+  private final int capacity;
+  private final Map<Key, Entry> entries;
+
+  private long hitCount;
+  private long missCount;
+
+  public S3DispatchCache() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public S3DispatchCache(final int capacity) {
+    this.capacity = capacity;
+    this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, S3DispatchCache.Entry> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  /**
+   * @return the key under which the outcome of {@link S3#findMethod(Context, Environment, Environment, String,
+   * String, Iterable, boolean, S3DispatchMetadata) findMethod} with these arguments is cached.
+   */
+  public static Key key(Environment definitionEnvironment, Environment callingEnvironment, String generic,
+                        String group, Iterable<String> classes, boolean searchForDefault) {
+    Environment start = callingEnvironment;
+    while(start != Environment.EMPTY && !start.isLookupCacheable()) {
+      start = start.getParent();
+    }
+    return new Key(generic, group, toArray(classes), definitionEnvironment, start, searchForDefault);
+  }
+
+  private static String[] toArray(Iterable<String> classes) {
+    if(classes instanceof StringVector) {
+      StringVector vector = (StringVector) classes;
+      String[] array = new String[vector.length()];
+      for (int i = 0; i < array.length; i++) {
+        array[i] = vector.getElementAsString(i);
+      }
+      return array;
+    }
+    List<String> list = new ArrayList<>();
+    for (String className : classes) {
+      list.add(className);
+    }
+    return list.toArray(new String[0]);
+  }
+
+  /**
+   * @return the cached outcome for {@code key}, or {@code null} if there is none or if it may no longer hold.
+   */
+  public synchronized Entry get(Key key, Environment callingEnvironment, Environment methodTable) {
+    Entry entry = entries.get(key);
+    if(entry != null) {
+      if(entry.isValid(key, callingEnvironment, methodTable)) {
+        hitCount++;
+        return entry;
+      }
+      entries.remove(key);
+    }
+    missCount++;
+    return null;
+  }
+
+  /**
+   * Caches the outcome of the lookups recorded in {@code trace}, unless it depends on environments whose bindings
+   * can change without notice.
+   */
+  public void put(Key key, Trace trace, Environment methodTable, String method) {
+    if(trace.environment != null && !trace.environment.isLookupCacheable()) {
+      return;
+    }
+    if(!isCacheableChain(key.start) || !isCacheableChain(key.definitionEnvironment) ||
+        !isCacheableChain(methodTable)) {
+      return;
+    }
+    Entry entry = new Entry(trace, methodTable, method);
+    synchronized (this) {
+      entries.put(key, entry);
+    }
+  }
+
+  private static boolean isCacheableChain(Environment env) {
+    while(env != Environment.EMPTY) {
+      if(!env.isLookupCacheable()) {
+        return false;
+      }
+      env = env.getParent();
+    }
+    return true;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+  }
+}
@@ -19,10 +19,19 @@
 package org.renjin.primitives;
 
 import org.renjin.eval.Context;
+import org.renjin.eval.EvalException;
 import org.renjin.eval.SessionController.SaveMode;
+import org.renjin.eval.SessionWorker;
 import org.renjin.invoke.annotations.Builtin;
 import org.renjin.invoke.annotations.Current;
 import org.renjin.invoke.annotations.Internal;
+import org.renjin.sexp.ExternalPtr;
+import org.renjin.sexp.Function;
+import org.renjin.sexp.ListVector;
+import org.renjin.sexp.SEXP;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Implementation of interactive session related primitives like q(), interactive(),
@@ -51,4 +60,54 @@ public class Sessions {
   public static String readline(@Current Context context, String prompt) {
     return context.getSession().getSessionController().readLine(prompt);
   }
+
+  /**
+   * Starts a new worker thread evaluating in a fork of the current session.
+   */
+  @Internal
+  public static SEXP forkWorker(@Current Context context) {
+    return new ExternalPtr<>(new SessionWorker(context.getSession()));
+  }
+
+  /**
+   * Queues a call to {@code fun}, which must not take any arguments, for evaluation by {@code worker}.
+   */
+  @Internal
+  public static void sendToWorker(SEXP worker, Function fun) {
+    toWorker(worker).submit(fun);
+  }
+
+  /**
+   * Waits for the result of the earliest call sent to {@code worker}.
+   */
+  @Internal
+  public static SEXP receiveFromWorker(SEXP worker) {
+    return toWorker(worker).receive();
+  }
+
+  /**
+   * Waits until any of the given workers has a result ready.
+   *
+   * @return the (one-based) index of the worker
+   */
+  @Internal
+  public static int selectWorker(ListVector workers) {
+    List<SessionWorker> list = new ArrayList<>();
+    for (SEXP worker : workers) {
+      list.add(toWorker(worker));
+    }
+    return SessionWorker.select(list) + 1;
+  }
+
+  @Internal
+  public static void stopWorker(SEXP worker) {
+    toWorker(worker).shutdown();
+  }
+
+  private static SessionWorker toWorker(SEXP sexp) {
+    if(sexp instanceof ExternalPtr && ((ExternalPtr) sexp).getInstance() instanceof SessionWorker) {
+      return (SessionWorker) ((ExternalPtr) sexp).getInstance();
+    }
+    throw new EvalException("Expected a worker, found '%s'", sexp.getTypeName());
+  }
 }
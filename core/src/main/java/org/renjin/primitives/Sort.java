@@ -24,13 +24,11 @@ import org.renjin.eval.EvalException;
 import org.renjin.gcc.runtime.DoublePtr;
 import org.renjin.gcc.runtime.IntPtr;
 import org.renjin.invoke.annotations.*;
-import org.renjin.repackaged.guava.collect.Lists;
+import org.renjin.pipeliner.VectorPipeliner;
 import org.renjin.sexp.*;
 
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
 import java.util.stream.IntStream;
 
 public class Sort {
@@ -315,70 +313,97 @@ public class Sort {
    * @return
    */
   @Internal
-  public static Vector order(final boolean naLast, final boolean decreasing, @ArgumentList final ListVector columns) {
+  public static Vector order(@Current Context context, final boolean naLast, final boolean decreasing,
+                             @ArgumentList final ListVector columns) {
         
     if (columns.length() == 0) {
       return Null.INSTANCE;
     }
 
-    int numRows = columns.getElementAsSEXP(0).length();
+    checkColumns(columns);
 
-    for (int i = 0; i != columns.length(); ++i) {
-      if (columns.getElementAsSEXP(i).length() != numRows) {
-        throw new EvalException("argument lengths differ");
-      }
+    boolean[] decreasingColumns = new boolean[columns.length()];
+    Arrays.fill(decreasingColumns, decreasing);
+
+    RadixOrder ordering = newOrdering(context, columns, naLast);
+    ordering.sortBy(columns, decreasingColumns, true);
+
+    return ordering.toVector();
+  }
+
+  /**
+   * Orders the rows of one or more columns, like {@link #order(Context, boolean, boolean, ListVector)},
+   * but allows the direction to be chosen for each column.
+   *
+   * @param naLast {@code TRUE} if {@code NA}s should be placed last, {@code FALSE} if they should be placed first, or
+   *               {@code NA} if they should be removed.
+   * @param decreasing for each column, {@code TRUE} if it should be sorted in decreasing order
+   * @param returnGroups if {@code TRUE}, the "ends" attribute of the result is set to the end positions of each
+   *                     group of equal rows, and the "maxgrpn" attribute to the size of the largest group.
+   * @param sortStrings if {@code FALSE}, strings are ordered by their first appearance rather than alphabetically.
+   */
+  @Internal
+  public static Vector radixsort(@Current Context context, LogicalVector naLast, LogicalVector decreasing,
+                                 boolean returnGroups, boolean sortStrings, @ArgumentList ListVector columns) {
+    if (columns.length() == 0) {
+      return Null.INSTANCE;
+    }
+    if (decreasing.length() != columns.length()) {
+      throw new EvalException("length(decreasing) must match the number of order arguments");
     }
+    checkColumns(columns);
 
-    List<Integer> ordering = Lists.newArrayListWithCapacity(numRows);
-    for (int i = 0; i != numRows; ++i) {
-      ordering.add(i);
+    boolean[] decreasingColumns = new boolean[columns.length()];
+    for (int i = 0; i < decreasingColumns.length; i++) {
+      if(decreasing.isElementNA(i)) {
+        throw new EvalException("'decreasing' elements must be TRUE or FALSE");
+      }
+      decreasingColumns[i] = decreasing.isElementTrue(i);
     }
 
-    Collections.sort(ordering, new Comparator<Integer>() {
+    boolean removeNA = naLast.length() == 0 || naLast.isElementNA(0);
 
-      @Override
-      public int compare(Integer row1, Integer row2) {
-        int col = 0;
-        int rel;
-        while ((rel = compare(row1, row2, col)) == 0) {
-          col++;
-          if (col == columns.length()) {
-            return 0;
-          }
-        }
-        return rel;
-      }
+    RadixOrder ordering = newOrdering(context, columns, removeNA || naLast.isElementTrue(0));
+    if(removeNA) {
+      ordering.removeNA(columns);
+    }
+    ordering.sortBy(columns, decreasingColumns, sortStrings);
 
-      private int compare(Integer row1, Integer row2, int col) {
-        AtomicVector column = (AtomicVector) columns.get(col);
-        boolean na1 = column.isElementNA(row1);
-        boolean na2 = column.isElementNA(row2);
-        if(na1 && na2) {
-          // Both values are NA, consider equal
-          return 0;
-        } else if(na1) {
-          // NA <-> 42
-          return naLast ? +1 : -1;
-        } else if(na2) {
-          // 42 <-> NA
-          return naLast ? -1 : +1;
-        } else {
-          // 42 <-> 41
-          return decreasing ?
-              -column.compare(row1, row2) :
-              +column.compare(row1, row2);
-        }
+    IntVector result = ordering.toVector();
+    if(returnGroups) {
+      int[] ends = ordering.groupEnds(columns);
+      int maxGroupSize = 0;
+      for (int i = 0; i < ends.length; i++) {
+        int groupSize = ends[i] - (i == 0 ? 0 : ends[i - 1]);
+        maxGroupSize = Math.max(maxGroupSize, groupSize);
       }
+      result = (IntVector) result.setAttributes(AttributeMap.builder()
+          .set("ends", IntArrayVector.unsafe(ends))
+          .set("maxgrpn", IntVector.valueOf(maxGroupSize))
+          .build());
+    }
+    return result;
+  }
 
-    });
+  private static void checkColumns(ListVector columns) {
+    int numRows = columns.getElementAsSEXP(0).length();
 
-    IntArrayVector.Builder result = new IntArrayVector.Builder();
-    for (Integer index : ordering) {
-      result.add(index + 1);
+    for (int i = 0; i != columns.length(); ++i) {
+      SEXP column = columns.getElementAsSEXP(i);
+      if (!(column instanceof AtomicVector)) {
+        throw new EvalException("argument %d is not a vector", i + 1);
+      }
+      if (column.length() != numRows) {
+        throw new EvalException("argument lengths differ");
+      }
     }
+  }
 
-    return result.build();
-  }   
+  private static RadixOrder newOrdering(Context context, ListVector columns, boolean naLast) {
+    int numRows = columns.getElementAsSEXP(0).length();
+    VectorPipeliner engine = context.getSession().getVectorEngine();
+    return new RadixOrder(numRows, naLast, engine.getExecutorService(), engine.getParallelism());
+  }
 
   @Internal("which.min")
   public static IntVector whichMin(Vector input) {
@@ -437,88 +462,45 @@ public class Sort {
   }
 
   @Internal
-  public static Vector rank(final AtomicVector input, int length, String tiesMethod) {
-
-    if(length == 1L) {
-      if(tiesMethod.toUpperCase().equals("AVERAGE")) {
-        return new DoubleArrayVector(1);
-      }
-      return new IntArrayVector(1);
-    }
-
-    boolean decreasing = false;
+  public static Vector rank(@Current Context context, final AtomicVector input, int length, String tiesMethod) {
 
-    AtomicVector sortedInput;
+    ListVector columns = new ListVector(input);
+    RadixOrder ordering = newOrdering(context, columns, true);
+    ordering.sortBy(input, false, true);
 
-    String typeVector = input.getTypeName();
-    switch (typeVector){
-      case "character":
-        StringVector inputStringVector = ((StringVector) input.setAttributes(AttributeMap.EMPTY));
-        sortedInput = ((AtomicVector) sort(inputStringVector, decreasing));
-        break;
-      case "double":
-        DoubleVector inputDoubleVector = ((DoubleVector) input.setAttributes(AttributeMap.EMPTY));
-        sortedInput = ((AtomicVector) sort(inputDoubleVector, decreasing));
-        break;
-      default:
-        IntVector inputIntVector = ((IntVector) input.setAttributes(AttributeMap.EMPTY));
-        sortedInput = ((AtomicVector) sort(inputIntVector, decreasing));
-        break;
-    }
+    int[] rows = ordering.getRows();
+    int[] ends = ordering.groupEnds(columns);
 
     switch(tiesMethod.toUpperCase()){
       case "MIN":
-        return rankMin(input, sortedInput);
-
-      case "MAX":
-        return rankMax(input, sortedInput);
-
-      case "AVERAGE":
-        return rankAverage(input, sortedInput);
-
-      default:
-        throw new EvalException("Invalid ties.method.");
-    }
-
-  }
-
-  private static Vector rankAverage(AtomicVector input, AtomicVector sortedInput) {
-    DoubleArrayVector.Builder ranks = new DoubleArrayVector.Builder();
-    for ( int i=0; i < sortedInput.length(); i++ ) {
-      int minRank = sortedInput.indexOf(input, i, 0);
-      int maxRank = minRank;
-      while ( maxRank+1 < sortedInput.length() &&
-              sortedInput.compare(minRank, maxRank+1) == 0) {
-        maxRank++;
+      case "MAX": {
+        boolean min = tiesMethod.equalsIgnoreCase("MIN");
+        int[] ranks = new int[rows.length];
+        int start = 0;
+        for (int end : ends) {
+          for (int i = start; i < end; i++) {
+            ranks[rows[i]] = min ? start + 1 : end;
+          }
+          start = end;
+        }
+        return IntArrayVector.unsafe(ranks);
       }
 
-      double average = (((double) minRank) + ((double) maxRank)) / 2d;
-      ranks.add(average + 1);
-    }
-    return ranks.build();
-  }
-
-  private static Vector rankMax(AtomicVector input, AtomicVector sortedInput) {
-    IntArrayVector.Builder ranks = new IntArrayVector.Builder();
-    for ( int i=0; i < sortedInput.length(); i++ ) {
-      int minRank = sortedInput.indexOf(input, i, 0);
-      int maxRank = minRank;
-      while ( maxRank+1 < sortedInput.length() &&
-              sortedInput.compare(minRank, maxRank+1) == 0) {
-        maxRank++;
+      case "AVERAGE": {
+        double[] ranks = new double[rows.length];
+        int start = 0;
+        for (int end : ends) {
+          for (int i = start; i < end; i++) {
+            ranks[rows[i]] = (start + 1 + end) / 2d;
+          }
+          start = end;
+        }
+        return DoubleArrayVector.unsafe(ranks);
       }
-      ranks.add(maxRank + 1);
-    }
-    return ranks.build();
-  }
 
-  private static Vector rankMin(AtomicVector input, AtomicVector sortedInput) {
-    IntArrayVector.Builder ranks = new IntArrayVector.Builder();
-
-    for (int i=0; i < sortedInput.length(); i++) {
-      ranks.add( sortedInput.indexOf( input, i, 0 ) + 1 );
+      default:
+        throw new EvalException("Invalid ties.method.");
     }
-    return ranks.build();
   }
 
   @Builtin
@@ -23,9 +23,7 @@ import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
 import org.renjin.invoke.annotations.*;
 import org.renjin.parser.NumericLiterals;
-import org.renjin.pipeliner.VectorPipeliner;
-import org.renjin.primitives.summary.DeferredMean;
-import org.renjin.primitives.summary.DeferredSum;
+import org.renjin.primitives.summary.*;
 import org.renjin.sexp.*;
 
 
@@ -39,9 +37,13 @@ public class Summary {
   @Builtin
   @GroupGeneric
   @NoAttributes
-  public static SEXP min(@ArgumentList ListVector arguments,
+  public static SEXP min(@Current Context context, @ArgumentList ListVector arguments,
                          @NamedFlag("na.rm") boolean removeNA) {
 
+    if(isDeferrableRange(context, arguments, removeNA)) {
+      return new DeferredMin((Vector) arguments.get(0), AttributeMap.EMPTY);
+    }
+
     return new RangeCalculator()
             .setRemoveNA(removeNA)
             .addList(arguments)
@@ -51,9 +53,13 @@ public class Summary {
   @Builtin
   @GroupGeneric
   @NoAttributes
-  public static SEXP max(@ArgumentList ListVector arguments,
+  public static SEXP max(@Current Context context, @ArgumentList ListVector arguments,
                          @NamedFlag("na.rm") boolean removeNA) {
 
+    if(isDeferrableRange(context, arguments, removeNA)) {
+      return new DeferredMax((Vector) arguments.get(0), AttributeMap.EMPTY);
+    }
+
     return new RangeCalculator()
             .setRemoveNA(removeNA)
             .addList(arguments)
@@ -72,9 +78,13 @@ public class Summary {
   @Builtin
   @GroupGeneric
   @NoAttributes
-  public static Vector range(@ArgumentList ListVector arguments,
+  public static Vector range(@Current Context context, @ArgumentList ListVector arguments,
                              @NamedFlag("na.rm") boolean removeNA) {
 
+    if(isDeferrableRange(context, arguments, removeNA)) {
+      return new DeferredRange((Vector) arguments.get(0), AttributeMap.EMPTY);
+    }
+
     // in the C implementation, this primitive actually delegates back to a
     // function in the base library called "range.default". I don't think 
     // it's a good idea to create a circular dependency between the 
@@ -90,6 +100,23 @@ public class Summary {
             .getRange();
   }
 
+  /**
+   * @return true if the min, max or range of these arguments can be deferred to the
+   * vector pipeliner: a single, non-empty double vector that is either itself deferred
+   * or long enough to be worth compiling a loop for.
+   */
+  private static boolean isDeferrableRange(Context context, ListVector arguments, boolean removeNA) {
+    if(removeNA || arguments.length() != 1 || !context.getSession().getVectorEngine().isEnabled()) {
+      return false;
+    }
+    SEXP argument = arguments.get(0);
+    if(!(argument instanceof DoubleVector)) {
+      return false;
+    }
+    DoubleVector vector = (DoubleVector) argument;
+    return vector.length() > 0 && (vector.isDeferred() || vector.length() > 100000);
+  }
+
   private static class RangeCalculator {
     private boolean removeNA;
     private boolean recursive;
@@ -601,9 +628,15 @@ public class Summary {
    */
   @Builtin
   @GroupGeneric
-  public static Logical any(@ArgumentList ListVector arguments,
+  public static Logical any(@Current Context context, @ArgumentList ListVector arguments,
                             @NamedFlag("na.rm") boolean removeNA) {
 
+    if(isDeferredLogical(context, arguments)) {
+      DeferredAnyAll any = new DeferredAnyAll((Vector) arguments.get(0), false, removeNA, AttributeMap.EMPTY);
+      context.materialize(any);
+      return any.getLogical();
+    }
+
     for(SEXP argument : arguments) {
       Vector vector = (Vector) argument;
       for(int i=0;i!=vector.length();++i) {
@@ -634,9 +667,15 @@ public class Summary {
    */
   @Builtin
   @GroupGeneric
-  public static Logical all(@ArgumentList ListVector arguments,
+  public static Logical all(@Current Context context, @ArgumentList ListVector arguments,
                             @NamedFlag("na.rm") boolean removeNA) {
 
+    if(isDeferredLogical(context, arguments)) {
+      DeferredAnyAll all = new DeferredAnyAll((Vector) arguments.get(0), true, removeNA, AttributeMap.EMPTY);
+      context.materialize(all);
+      return all.getLogical();
+    }
+
     for(SEXP argument : arguments) {
       Vector vector = (Vector) argument;
       for(int i=0;i!=vector.length();++i) {
@@ -655,13 +694,23 @@ public class Summary {
     return Logical.TRUE;
   }
 
+  /**
+   * @return true if the arguments consist of a single deferred logical vector, whose
+   * computation can be fused with any() or all() by the vector pipeliner.
+   */
+  private static boolean isDeferredLogical(Context context, ListVector arguments) {
+    return arguments.length() == 1 &&
+        arguments.get(0) instanceof LogicalVector &&
+        ((Vector) arguments.get(0)).isDeferred() &&
+        context.getSession().getVectorEngine().isEnabled();
+  }
 
   @Deferrable
   @Internal
   @NoAttributes
-  public static DoubleVector mean(Vector x) {
+  public static DoubleVector mean(@Current Context context, Vector x) {
 
-    if(VectorPipeliner.ENABLED) {
+    if(context.getSession().getVectorEngine().isEnabled()) {
       if (x.isDeferred() || x.length() > 100000) {
         return new DeferredMean(x, AttributeMap.EMPTY);
       }
@@ -674,6 +723,23 @@ public class Summary {
     return new DoubleArrayVector(mean / x.length());
   }
 
+  /**
+   * Computes the sample variance of a double vector, and is called by {@code var()} in the stats
+   * package for this common case. As with {@code cov(use = "everything")}, the variance is {@code NA}
+   * if any element is {@code NA} or {@code NaN}.
+   */
+  @Internal
+  @NoAttributes
+  public static DoubleVector var(@Current Context context, DoubleVector x) {
+    DeferredVariance variance = new DeferredVariance(x, AttributeMap.EMPTY);
+    if(context.getSession().getVectorEngine().isEnabled()) {
+      if (x.isDeferred() || x.length() > 100000) {
+        return variance;
+      }
+    }
+    return new DoubleArrayVector(variance.getElementAsDouble(0));
+  }
+
   public double[] compute(Vector[] x) {
     double[] x_array = ((DoubleArrayVector)x[0]).toDoubleArrayUnsafe();
     double sum = 0;
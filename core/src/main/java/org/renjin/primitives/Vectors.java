@@ -24,6 +24,7 @@ import org.renjin.invoke.annotations.*;
 import org.renjin.invoke.reflection.converters.*;
 import org.renjin.primitives.vector.ConvertingDoubleVector;
 import org.renjin.primitives.vector.ConvertingStringVector;
+import org.renjin.primitives.vector.DeferredIfElse;
 import org.renjin.repackaged.guava.base.Charsets;
 import org.renjin.sexp.*;
 
@@ -36,6 +37,26 @@ import java.util.function.Predicate;
  */
 public class Vectors {
 
+  /**
+   * Selects elements from the double vectors {@code yes} or {@code no} depending on the
+   * logical vector {@code test}, retaining the attributes of {@code test}. Called by {@code ifelse()}.
+   */
+  @Internal
+  public static DoubleVector ifelse(@Current Context context, LogicalVector test, DoubleVector yes, DoubleVector no) {
+    DeferredIfElse result = new DeferredIfElse(test, yes, no, test.getAttributes());
+
+    if(context.getSession().getVectorEngine().isEnabled() &&
+        (test.isDeferred() || yes.isDeferred() || no.isDeferred() || test.length() > 100000)) {
+      return result;
+    }
+
+    double[] values = new double[result.length()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = result.getElementAsDouble(i);
+    }
+    return DoubleArrayVector.unsafe(values, test.getAttributes());
+  }
+
   @Builtin("length<-")
   public static Vector setLength(Vector source, int length) {
     
@@ -30,8 +30,6 @@ import java.io.PrintWriter;
 
 public class Warning {
 
-  public static final Symbol LAST_WARNING = Symbol.get("last.warning");
-
   /**
    * Implementation of the .Internal(warning) R function.
    *
@@ -152,14 +150,15 @@ public class Warning {
 
     // Step 2c: Otherwise, collect the warning for printing at the end of the current statement
 
-    ListVector.NamedBuilder lastWarning = new ListVector.NamedBuilder();
+    context.getSession().addWarning(message, call);
+  }
 
-    Environment baseEnv = context.getBaseEnvironment();
-    if(baseEnv.hasVariable(LAST_WARNING)) {
-      lastWarning.addAll((ListVector)baseEnv.getVariable(context, LAST_WARNING).force(context));
-    }
-    lastWarning.add(message, call);
-    baseEnv.setVariable(context, LAST_WARNING, lastWarning.build());
+  /**
+   * @return the warnings collected by the current session, which {@code warnings()} returns.
+   */
+  @Internal
+  public static SEXP lastWarning(@Current Context context) {
+    return context.getSession().getLastWarning();
   }
 
   @Internal
@@ -25,7 +25,7 @@ public class AnyDuplicateAlgorithm implements DuplicateSearchAlgorithm<Integer>
   public int firstDuplicatedIndex;
 
   @Override
-  public void init(Vector source) {
+  public void init(Vector source, int length) {
     firstDuplicatedIndex = 0;
   }  
   
@@ -0,0 +1,98 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.primitives.match;
+
+import org.renjin.primitives.vector.MemoizedComputation;
+import org.renjin.sexp.*;
+
+/**
+ * The deferred (1-based) indices of the {@code TRUE} elements of a logical vector.
+ *
+ * <p>The length of the result is not known until it is computed, so querying the length
+ * forces the computation.</p>
+ */
+public class DeferredWhich extends IntVector implements MemoizedComputation {
+
+  private final Vector vector;
+  private Vector result;
+
+  public DeferredWhich(Vector vector) {
+    super(AttributeMap.EMPTY);
+    this.vector = vector;
+  }
+
+  @Override
+  public Vector forceResult() {
+    if(result == null) {
+      IntArrayVector.Builder indices = new IntArrayVector.Builder();
+      for (int i = 0; i < vector.length(); i++) {
+        if(vector.getElementAsRawLogical(i) == 1) {
+          indices.add(i + 1);
+        }
+      }
+      result = indices.build();
+    }
+    return result;
+  }
+
+  @Override
+  public void setResult(Vector result) {
+    this.result = result;
+  }
+
+  @Override
+  public boolean isCalculated() {
+    return result != null;
+  }
+
+  @Override
+  public boolean isDeferred() {
+    return !isCalculated();
+  }
+
+  @Override
+  public Vector[] getOperands() {
+    return new Vector[] { vector };
+  }
+
+  @Override
+  public String getComputationName() {
+    return "which";
+  }
+
+  @Override
+  public int length() {
+    return forceResult().length();
+  }
+
+  @Override
+  public int getElementAsInt(int i) {
+    return forceResult().getElementAsInt(i);
+  }
+
+  @Override
+  public boolean isConstantAccessTime() {
+    return false;
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return forceResult().setAttributes(attributes);
+  }
+}
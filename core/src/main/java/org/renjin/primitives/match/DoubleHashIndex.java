@@ -0,0 +1,90 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.primitives.match;
+
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.Vector;
+
+/**
+ * {@link HashIndex} over a double vector.
+ *
+ * <p>Values are indexed by the bits of their canonical form, so that {@code -0} and {@code 0}
+ * are equal, and all {@code NA}s and all other {@code NaN}s are equal among themselves.</p>
+ */
+final class DoubleHashIndex extends HashIndex {
+
+  private static final long NAN_BITS = Double.doubleToLongBits(Double.NaN);
+
+  private final long[] keys;
+
+  DoubleHashIndex(Vector vector) {
+    super(vector.length());
+    this.keys = new long[vector.length()];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = keyOf(vector.getElementAsDouble(i));
+    }
+  }
+
+  static long keyOf(double value) {
+    if(value == 0) {
+      return 0L;
+    }
+    if(Double.isNaN(value)) {
+      return DoubleVector.isNA(value) ? DoubleVector.NA_BITS : NAN_BITS;
+    }
+    return Double.doubleToRawLongBits(value);
+  }
+
+  private static int hash(long key) {
+    return spread((int) (key ^ (key >>> 32)));
+  }
+
+  @Override
+  public int add(int position) {
+    long key = keys[position];
+    int slot = hash(key) & mask;
+    int entry;
+    while((entry = slots[slot]) != 0) {
+      if(keys[entry - 1] == key) {
+        return entry - 1;
+      }
+      slot = (slot + 1) & mask;
+    }
+    slots[slot] = position + 1;
+    return -1;
+  }
+
+  @Override
+  public int indexOf(Vector vector, int i) {
+    return indexOf(vector.getElementAsDouble(i));
+  }
+
+  public int indexOf(double value) {
+    long key = keyOf(value);
+    int slot = hash(key) & mask;
+    int entry;
+    while((entry = slots[slot]) != 0) {
+      if(keys[entry - 1] == key) {
+        return entry - 1;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+}
@@ -27,7 +27,11 @@ interface DuplicateSearchAlgorithm<ResultType> {
     CONTINUE
   }
   
-  void init(Vector source);
+  /**
+   * @param source the vector being searched
+   * @param length the number of elements, or rows, in {@code source}
+   */
+  void init(Vector source, int length);
   
   void onUnique(int index);
 
@@ -27,8 +27,8 @@ public class DuplicatedAlgorithm implements DuplicateSearchAlgorithm<LogicalVect
   private LogicalArrayVector.Builder result;
   
   @Override
-  public void init(Vector source) {
-    result = new LogicalArrayVector.Builder(source.length());
+  public void init(Vector source, int length) {
+    result = new LogicalArrayVector.Builder(length);
   }
   
   @Override
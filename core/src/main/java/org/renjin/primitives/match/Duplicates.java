@@ -45,34 +45,38 @@ public class Duplicates {
   @Internal
   public static Vector unique(Vector x, Vector incomparables, boolean fromLast, int nmax) {
     
-    return search(x, incomparables, fromLast, nmax,
+    return search(x, incomparables, fromLast, nmax, false,
         new UniqueAlgorithm());
  
   }
 
+  /**
+   * Determines which elements of a vector, or which rows of a data frame, are duplicates of elements
+   * with smaller subscripts.
+   */
   @Internal
   public static Vector duplicated(Vector x, Vector incomparables, boolean fromLast, int nmax) {
     
-    return search(x, incomparables, fromLast, nmax,
+    return search(x, incomparables, fromLast, nmax, x.inherits("data.frame"),
         new DuplicatedAlgorithm());
  
   }
   
   /**
-   * Determines which elements of a vector or data frame are duplicates of elements with smaller
-   * subscripts, and returns a logical vector indicating which elements (rows) are duplicates.
+   * Determines whether any element of a vector, or any row of a data frame, is a duplicate of an
+   * element with a smaller subscript.
    * @param x a vector
    * @param incomparables a vector of values that cannot be compared. FALSE is a special value, meaning
    *        that all values can be compared, and may be the only value accepted for methods
    *      other than the default. It will be coerced internally to the same type as x.
    * @param fromLast logical indicating if duplication should be considered from the reverse side, i.e.,
    *      the last (or rightmost) of identical elements would correspond to duplicated=FALSE.
-   * @return a non-negative integer (of length one).
+   * @return the index of the first duplicated element, or zero if there are none.
    */
   @Internal
   public static int anyDuplicated(Vector x, Vector incomparables, boolean fromLast) {
 
-    return search(x, incomparables, fromLast, IntVector.NA,
+    return search(x, incomparables, fromLast, IntVector.NA, x.inherits("data.frame"),
         new AnyDuplicateAlgorithm());
   }
   
@@ -81,32 +85,50 @@ public class Duplicates {
       Vector incomparables,
       boolean fromLast,
       int nmax,
+      boolean byRow,
       DuplicateSearchAlgorithm<ResultType> algorithm) {
 
-    algorithm.init(x);
-    
-    /* Maps elements -> first encountered index */
-    HashMap<SEXP, Integer> seen;
-    if(IntVector.isNA(nmax) || nmax < 16) {
-      seen = Maps.newHashMap();
-    } else {
-      seen = Maps.newHashMapWithExpectedSize(nmax);
-    }
-
     /* incomparables = FALSE is a special case: */
     boolean skipIncomparables = (incomparables instanceof AtomicVector
             && incomparables.length() == 1
             && incomparables.asLogical() == Logical.FALSE);
 
     if (!skipIncomparables) {
-      if (incomparables.getVectorType() != x.getVectorType()) {
-        /* incomparables needs to be coerced to the same type as x, but not if x is a list */
-        if (x instanceof AtomicVector) {
-          incomparables = (Vector) Vectors.asVector(incomparables, x.getTypeName());
-        }
+      incomparables = coerceIncomparables(x, incomparables);
+    }
+
+    // Data frames are compared row by row, and atomic vectors of the most common types
+    // using a specialized hash table, neither of which allocates anything per element
+
+    if(byRow && x instanceof ListVector) {
+      RowHashIndex rowIndex = new RowHashIndex((ListVector) x);
+      algorithm.init(x, rowIndex.getRowCount());
+      return searchUsingIndex(rowIndex, rowIndex.getRowCount(), null, x, fromLast, algorithm);
+    }
+
+    HashIndex hashIndex = HashIndex.create(x);
+    if(hashIndex != null) {
+      HashIndex ignore = null;
+      if(!skipIncomparables && incomparables.length() > 0) {
+        // The elements of x are looked up in this index, so it must be of the same type as x's
+        ignore = HashIndex.build(incomparables);
+      }
+      if(ignore != null || skipIncomparables || incomparables.length() == 0) {
+        algorithm.init(x, x.length());
+        return searchUsingIndex(hashIndex, x.length(), ignore, x, fromLast, algorithm);
       }
     }
 
+    algorithm.init(x, x.length());
+
+    /* Maps elements -> first encountered index */
+    HashMap<SEXP, Integer> seen;
+    if(IntVector.isNA(nmax) || nmax < 16) {
+      seen = Maps.newHashMap();
+    } else {
+      seen = Maps.newHashMapWithExpectedSize(nmax);
+    }
+
     HashMap<SEXP, Integer> ignore = Maps.newHashMapWithExpectedSize(incomparables.length());
 
     for (int i = 0; i < incomparables.length(); i++) {
@@ -139,4 +161,51 @@ public class Duplicates {
     }
     return algorithm.getResult();
   }
+
+  /**
+   * Coerces {@code incomparables} to the type of {@code x}, as GNU R does with
+   * {@code coerceVector(incomparables, TYPEOF(x))}. Lists are compared as they are.
+   */
+  private static Vector coerceIncomparables(Vector x, Vector incomparables) {
+    if (x instanceof AtomicVector && !x.getTypeName().equals(incomparables.getTypeName())) {
+      return (Vector) Vectors.asVector(incomparables, x.getTypeName());
+    }
+    return incomparables;
+  }
+
+  /**
+   * Searches for duplicates by adding each element, in order, to {@code index}.
+   *
+   * @param ignore an index of the incomparable values, or {@code null}
+   */
+  private static <ResultType> ResultType searchUsingIndex(
+      DistinctIndex index,
+      int length,
+      HashIndex ignore,
+      Vector x,
+      boolean fromLast,
+      DuplicateSearchAlgorithm<ResultType> algorithm) {
+
+    int step = fromLast ? -1 : 1;
+    int i = fromLast ? length - 1 : 0;
+
+    for (int n = 0; n < length; n++, i += step) {
+
+      if(ignore != null && ignore.indexOf(x, i) != -1) {
+        algorithm.onIncomparable(i);
+        continue;
+      }
+
+      int originalIndex = index.add(i);
+
+      if(originalIndex == -1) {
+        algorithm.onUnique(i);
+      } else {
+        if(algorithm.onDuplicate(i, originalIndex) == Action.STOP) {
+          return algorithm.getResult();
+        }
+      }
+    }
+    return algorithm.getResult();
+  }
 }
@@ -0,0 +1,122 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.primitives.match;
+
+import org.renjin.sexp.*;
+
+/**
+ * An open-addressing hash table over the elements of a vector, which maps each
+ * distinct value to the position of its first occurrence.
+ *
+ * <p>Elements are compared with the semantics of {@code match()}: {@code NA} matches
+ * only {@code NA}, {@code NaN} only {@code NaN}, and {@code -0} matches {@code 0}.</p>
+ *
+ * <p>The table stores only positions within the indexed vector, so there is no boxing of
+ * keys or positions. Each vector type has its own specialized implementation.</p>
+ */
+public abstract class HashIndex implements DistinctIndex {
+
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  /**
+   * The slots of the table, each holding a position within the indexed vector plus one,
+   * or zero if the slot is empty.
+   */
+  protected final int[] slots;
+
+  protected final int mask;
+
+  protected HashIndex(int expectedSize) {
+    this.slots = new int[capacityFor(expectedSize)];
+    this.mask = slots.length - 1;
+  }
+
+  /**
+   * @return the number of slots, a power of two, of a table that is to hold {@code expectedSize} elements.
+   */
+  static int capacityFor(int expectedSize) {
+    if(expectedSize > MAX_CAPACITY / 2) {
+      throw new IllegalArgumentException("Cannot index more than " + (MAX_CAPACITY / 2) + " elements");
+    }
+    // Keep the load factor below 0.5 so that probe sequences stay short
+    int capacity = 4;
+    while(capacity < expectedSize * 2) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  /**
+   * Creates an empty index over the elements of {@code vector}.
+   *
+   * @return the index, or {@code null} if there is no specialized index for the vector's type.
+   */
+  public static HashIndex create(Vector vector) {
+    if(vector instanceof IntVector || vector instanceof LogicalVector) {
+      return new IntHashIndex(vector);
+    } else if(vector instanceof DoubleVector) {
+      return new DoubleHashIndex(vector);
+    } else if(vector instanceof StringVector) {
+      return new StringHashIndex(vector);
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * Creates an index over all elements of {@code vector}.
+   *
+   * @return the index, or {@code null} if there is no specialized index for the vector's type.
+   */
+  public static HashIndex build(Vector vector) {
+    HashIndex index = create(vector);
+    if(index != null) {
+      int length = vector.length();
+      for (int i = 0; i < length; i++) {
+        index.add(i);
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Adds the element at {@code position} of the indexed vector, unless an equal element
+   * has already been added.
+   *
+   * @return the position of the equal element previously added, or -1 if the element was added.
+   */
+  @Override
+  public abstract int add(int position);
+
+  /**
+   * Looks up element {@code i} of {@code vector}, which must be of the same type as the indexed vector.
+   *
+   * @return the position of the equal element within the indexed vector, or -1 if there is none.
+   */
+  public abstract int indexOf(Vector vector, int i);
+
+  /**
+   * Scrambles the bits of a hash code so that keys which differ only in their
+   * high bits, such as consecutive doubles, are spread across the table.
+   */
+  protected static int spread(int hash) {
+    int h = hash * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
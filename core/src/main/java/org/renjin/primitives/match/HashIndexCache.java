@@ -0,0 +1,115 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.primitives.match;
+
+import org.renjin.sexp.Vector;
+
+import java.lang.ref.WeakReference;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the {@link HashIndex}es of the tables most recently passed to {@code match()}.
+ *
+ * <p>Code like {@code x %in% table} is often called over and over again with the same large
+ * {@code table}, for example within a loop, and rebuilding the index on each call would make each
+ * lookup as expensive as a linear search. Each {@code Session} holds one cache, retrieved with
+ * {@code Session.getSingleton()}.</p>
+ *
+ * <p>Tables are identified by reference, which is sufficient since vectors are not modified after
+ * they are created. The cache only holds weak references to the tables, so that an index
+ * is discarded along with its table.</p>
+ */
+public class HashIndexCache {
+
+  public static final int CAPACITY = Integer.getInteger("renjin.match.cache.size", 8);
+
+  /**
+   * Tables shorter than this are cheaper to index again than to look up.
+   */
+  public static final int MIN_CACHED_LENGTH = 64;
+
+  private static final class Entry {
+    private final WeakReference<Vector> table;
+    private final Vector.Type type;
+    private final HashIndex index;
+
+    Entry(Vector table, Vector.Type type, HashIndex index) {
+      this.table = new WeakReference<>(table);
+      this.type = type;
+      this.index = index;
+    }
+  }
+
+  private final Entry[] entries = new Entry[CAPACITY];
+
+  /**
+   * The entry to replace next.
+   */
+  private int next = 0;
+
+  private long hitCount;
+  private long missCount;
+
+  /**
+   * Returns the index of {@code table}, once coerced to {@code type}.
+   *
+   * @param table the table, as passed to {@code match()}
+   * @param type the type to which the table is coerced before indexing
+   * @param coercedTable supplies the table coerced to {@code type}, if the index must be built
+   * @return the index, or {@code null} if there is no specialized index for {@code type}.
+   */
+  public synchronized HashIndex get(Vector table, Vector.Type type, Supplier<Vector> coercedTable) {
+    if(table.length() < MIN_CACHED_LENGTH) {
+      return HashIndex.build(coercedTable.get());
+    }
+    for (int i = 0; i < entries.length; i++) {
+      Entry entry = entries[i];
+      if(entry != null) {
+        Vector cachedTable = entry.table.get();
+        if(cachedTable == null) {
+          entries[i] = null;
+        } else if(cachedTable == table && entry.type.equals(type)) {
+          hitCount++;
+          return entry.index;
+        }
+      }
+    }
+    missCount++;
+    HashIndex index = HashIndex.build(coercedTable.get());
+    if(index != null && entries.length > 0) {
+      entries[next] = new Entry(table, type, index);
+      next = (next + 1) % entries.length;
+    }
+    return index;
+  }
+
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  public synchronized void clear() {
+    for (int i = 0; i < entries.length; i++) {
+      entries[i] = null;
+    }
+  }
+}
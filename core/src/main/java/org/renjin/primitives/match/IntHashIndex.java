@@ -0,0 +1,82 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.primitives.match;
+
+import org.renjin.sexp.IntArrayVector;
+import org.renjin.sexp.LogicalArrayVector;
+import org.renjin.sexp.Vector;
+
+/**
+ * {@link HashIndex} over an integer or logical vector.
+ */
+final class IntHashIndex extends HashIndex {
+
+  private final int[] values;
+
+  IntHashIndex(Vector vector) {
+    super(vector.length());
+    this.values = valuesOf(vector);
+  }
+
+  private static int[] valuesOf(Vector vector) {
+    if(vector instanceof IntArrayVector) {
+      return ((IntArrayVector) vector).toIntArrayUnsafe();
+    }
+    if(vector instanceof LogicalArrayVector) {
+      return ((LogicalArrayVector) vector).toIntArrayUnsafe();
+    }
+    int[] values = new int[vector.length()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = vector.getElementAsInt(i);
+    }
+    return values;
+  }
+
+  @Override
+  public int add(int position) {
+    int key = values[position];
+    int slot = spread(key) & mask;
+    int entry;
+    while((entry = slots[slot]) != 0) {
+      if(values[entry - 1] == key) {
+        return entry - 1;
+      }
+      slot = (slot + 1) & mask;
+    }
+    slots[slot] = position + 1;
+    return -1;
+  }
+
+  @Override
+  public int indexOf(Vector vector, int i) {
+    return indexOf(vector.getElementAsInt(i));
+  }
+
+  public int indexOf(int key) {
+    int slot = spread(key) & mask;
+    int entry;
+    while((entry = slots[slot]) != 0) {
+      if(values[entry - 1] == key) {
+        return entry - 1;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+}
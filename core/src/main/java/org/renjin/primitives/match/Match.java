@@ -28,8 +28,6 @@ import org.renjin.primitives.sequence.IntSequence;
 import org.renjin.primitives.vector.ConvertingStringVector;
 import org.renjin.sexp.*;
 
-import java.util.HashMap;
-
 
 /**
  * Default implementations of match() related functions.
@@ -51,12 +49,15 @@ public class Match {
    * @return
    */
   @Internal
-  public static IntVector match(Vector search, Vector table, int noMatch, AtomicVector incomparables) {
+  public static IntVector match(@Current Context context, Vector search, Vector table, int noMatch,
+                                AtomicVector incomparables) {
     //For historical reasons, FALSE is equivalent to NULL.
     if(incomparables.equals( LogicalVector.FALSE ) ) {
       incomparables = Null.INSTANCE;
     }
 
+    Vector originalTable = table;
+
     // We need to handle factors specially here -
     // treat them as strings if one of the other arguments
     // is a string
@@ -80,6 +81,15 @@ public class Match {
 
     Vector.Type commonType = Vector.Type.widest(search.getVectorType(), table.getVectorType());
     search = commonType.to(search);
+
+    Vector indexedTable = table;
+    HashIndex index = context.getSession().getSingleton(HashIndexCache.class)
+        .get(originalTable, commonType, () -> commonType.to(indexedTable));
+
+    if(index != null) {
+      return matchUsingIndex(search, index, noMatch, incomparables);
+    }
+
     table = commonType.to(table);
 
     int[] matches = new int[search.length()];
@@ -154,34 +164,22 @@ public class Match {
     return null;
   }
 
-  private static IntVector matchUsingStringHash(Vector search, Vector table, int noMatch, AtomicVector incomparables) {
-
-    // Build HashMap... 
-    // If items are repeated in the table, only the first is used.
-    HashMap<String, Integer> lookup = new HashMap<>();
-    for (int i = 0; i < table.length(); i++) {
-      String tableElement = table.getElementAsString(i);
-      if(!lookup.containsKey(tableElement)) {
-        lookup.put(tableElement, i);
-      }
-    }
-
-    for (int i = 0; i < incomparables.length(); i++) {
-      lookup.put(incomparables.getElementAsString(i), noMatch);
-    }
-    
-    int match[] = new int[search.length()];
-    for (int i = 0; i < search.length(); i++) {
-      String toMatch = search.getElementAsString(i);
-      Integer index = lookup.get(toMatch);
-      if(index == null) {
-        match[i] = noMatch;
+  /**
+   * Matches each element of {@code search} using a hash index of the table, which has the
+   * same type as {@code search}
+   */
+  private static IntVector matchUsingIndex(Vector search, HashIndex index, int noMatch, AtomicVector incomparables) {
+    boolean checkIncomparables = incomparables.length() > 0;
+    int[] matches = new int[search.length()];
+    for (int i = 0; i < matches.length; i++) {
+      if(checkIncomparables && incomparables.contains(search, i)) {
+        matches[i] = noMatch;
       } else {
-        match[i] = index;
+        int pos = index.indexOf(search, i);
+        matches[i] = pos >= 0 ? pos + 1 : noMatch;
       }
     }
-    
-    return new IntArrayVector(match);
+    return IntArrayVector.unsafe(matches);
   }
 
   private static int indexOfNA(Vector table) {
@@ -248,10 +246,19 @@ public class Match {
     boolean matchedTable[] = new boolean[table.length()];
     boolean matchedSearch[] = new boolean[x.length()];
 
+    String[] tableElements = new String[table.length()];
+    for (int i = 0; i < tableElements.length; i++) {
+      tableElements[i] = pmatchElementAt(table, i);
+    }
+    StringHashIndex exactIndex = new StringHashIndex(tableElements);
+    for (int i = 0; i < tableElements.length; i++) {
+      exactIndex.add(i);
+    }
+
     // first pass : exact matches
     for(int i=0;i!= x.length();++i) {
       String toMatch = pmatchElementAt(x, i);
-      int match = exactMatch(toMatch, table);
+      int match = exactIndex.indexOf(toMatch);
       if(match != UNMATCHED && (duplicatesOk || !matchedTable[match])) {
         result.set(i, match+1);
         matchedTable[match] = true;
@@ -277,16 +284,6 @@ public class Match {
     return result.build();
   }
 
-  private static int exactMatch(String toMatch, StringVector table) {
-    for(int i=0;i!=table.length();++i) {
-      String t = pmatchElementAt(table, i);
-      if(toMatch.equals(t)) {
-        return i;
-      }
-    }
-    return -1;
-  }
-
   /**
    * Attempts to match a string value within in a table of values
    * @param toMatch
@@ -365,7 +362,14 @@ public class Match {
    * the indices
    */
   @Internal
-  public static IntVector which(Vector x) {
+  public static IntVector which(@Current Context context, Vector x) {
+
+    if(x.isDeferred() && x.getNames() == Null.INSTANCE && context.getSession().getVectorEngine().isEnabled()) {
+      DeferredWhich which = new DeferredWhich(x);
+      context.materialize(which);
+      return (IntVector) which.forceResult();
+    }
+
     IntArrayVector.Builder indices = new IntArrayVector.Builder();
    
     Vector xn = x.getNames();
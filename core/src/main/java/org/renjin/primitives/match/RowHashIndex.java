@@ -0,0 +1,164 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.primitives.match;
+
+import org.renjin.eval.EvalException;
+import org.renjin.sexp.*;
+
+/**
+ * Open-addressing hash table, like {@link HashIndex}, over the rows of a data frame, where two rows are
+ * equal if all of their columns are equal.
+ *
+ * <p>Rows can only be compared to other rows of the same data frame, so unlike a {@code HashIndex}, this
+ * index cannot be used to look up the elements of another vector.</p>
+ */
+final class RowHashIndex implements DistinctIndex {
+
+  private final int rowCount;
+
+  /**
+   * The slots of the table, each holding a row number plus one, or zero if the slot is empty.
+   */
+  private final int[] slots;
+
+  private final int mask;
+
+  /**
+   * The values of each column: an {@code int[]}, {@code long[]} of
+   * {@link DoubleHashIndex#keyOf(double) keys}, {@code String[]}, or, for other
+   * types of columns, the {@code Vector} itself.
+   */
+  private final Object[] columns;
+
+  private final int[] hashes;
+
+  RowHashIndex(ListVector frame) {
+    this(frame, rowCount(frame));
+  }
+
+  private RowHashIndex(ListVector frame, int rowCount) {
+    this.rowCount = rowCount;
+    this.slots = new int[HashIndex.capacityFor(rowCount)];
+    this.mask = slots.length - 1;
+    this.columns = new Object[frame.length()];
+    for (int j = 0; j < columns.length; j++) {
+      columns[j] = valuesOf((Vector) frame.getElementAsSEXP(j), rowCount);
+    }
+    this.hashes = new int[rowCount];
+    for (int i = 0; i < rowCount; i++) {
+      hashes[i] = HashIndex.spread(hashRow(i));
+    }
+  }
+
+  static int rowCount(ListVector frame) {
+    return frame.length() == 0 ? 0 : frame.getElementAsSEXP(0).length();
+  }
+
+  int getRowCount() {
+    return rowCount;
+  }
+
+  private static Object valuesOf(Vector column, int rowCount) {
+    if(column.length() != rowCount) {
+      throw new EvalException("columns of data frame have differing lengths");
+    }
+    if(column instanceof IntVector || column instanceof LogicalVector) {
+      int[] values = new int[rowCount];
+      for (int i = 0; i < rowCount; i++) {
+        values[i] = column.getElementAsInt(i);
+      }
+      return values;
+    } else if(column instanceof DoubleVector) {
+      long[] keys = new long[rowCount];
+      for (int i = 0; i < rowCount; i++) {
+        keys[i] = DoubleHashIndex.keyOf(column.getElementAsDouble(i));
+      }
+      return keys;
+    } else if(column instanceof StringVector) {
+      String[] values = new String[rowCount];
+      for (int i = 0; i < rowCount; i++) {
+        values[i] = column.getElementAsString(i);
+      }
+      return values;
+    } else {
+      return column;
+    }
+  }
+
+  private int hashRow(int row) {
+    int hash = 1;
+    for (Object column : columns) {
+      int columnHash;
+      if(column instanceof int[]) {
+        columnHash = ((int[]) column)[row];
+      } else if(column instanceof long[]) {
+        long key = ((long[]) column)[row];
+        columnHash = (int) (key ^ (key >>> 32));
+      } else if(column instanceof String[]) {
+        String value = ((String[]) column)[row];
+        columnHash = value == null ? 0 : value.hashCode();
+      } else {
+        columnHash = ((Vector) column).getElementAsSEXP(row).hashCode();
+      }
+      hash = 31 * hash + columnHash;
+    }
+    return hash;
+  }
+
+  private boolean rowsEqual(int x, int y) {
+    for (Object column : columns) {
+      if(column instanceof int[]) {
+        if(((int[]) column)[x] != ((int[]) column)[y]) {
+          return false;
+        }
+      } else if(column instanceof long[]) {
+        if(((long[]) column)[x] != ((long[]) column)[y]) {
+          return false;
+        }
+      } else if(column instanceof String[]) {
+        String a = ((String[]) column)[x];
+        String b = ((String[]) column)[y];
+        if(a != b && (a == null || !a.equals(b))) {
+          return false;
+        }
+      } else {
+        Vector vector = (Vector) column;
+        if(!vector.getElementAsSEXP(x).equals(vector.getElementAsSEXP(y))) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int add(int position) {
+    int hash = hashes[position];
+    int slot = hash & mask;
+    int entry;
+    while((entry = slots[slot]) != 0) {
+      if(hashes[entry - 1] == hash && rowsEqual(entry - 1, position)) {
+        return entry - 1;
+      }
+      slot = (slot + 1) & mask;
+    }
+    slots[slot] = position + 1;
+    return -1;
+  }
+}
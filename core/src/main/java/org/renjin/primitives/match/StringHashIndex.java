@@ -0,0 +1,97 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.primitives.match;
+
+import org.renjin.sexp.Vector;
+
+/**
+ * {@link HashIndex} over a character vector, in which {@code NA} is only equal to {@code NA}.
+ */
+final class StringHashIndex extends HashIndex {
+
+  private final String[] values;
+
+  /**
+   * Each value's hash code, checked before comparing strings.
+   */
+  private final int[] hashes;
+
+  StringHashIndex(Vector vector) {
+    this(valuesOf(vector));
+  }
+
+  StringHashIndex(String[] values) {
+    super(values.length);
+    this.values = values;
+    this.hashes = new int[values.length];
+    for (int i = 0; i < values.length; i++) {
+      hashes[i] = hash(values[i]);
+    }
+  }
+
+  private static String[] valuesOf(Vector vector) {
+    String[] values = new String[vector.length()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = vector.getElementAsString(i);
+    }
+    return values;
+  }
+
+  private static int hash(String value) {
+    return value == null ? 0 : spread(value.hashCode());
+  }
+
+  private static boolean equal(String x, String y) {
+    return x == y || (x != null && x.equals(y));
+  }
+
+  @Override
+  public int add(int position) {
+    String value = values[position];
+    int hash = hashes[position];
+    int slot = hash & mask;
+    int entry;
+    while((entry = slots[slot]) != 0) {
+      if(hashes[entry - 1] == hash && equal(values[entry - 1], value)) {
+        return entry - 1;
+      }
+      slot = (slot + 1) & mask;
+    }
+    slots[slot] = position + 1;
+    return -1;
+  }
+
+  @Override
+  public int indexOf(Vector vector, int i) {
+    return indexOf(vector.getElementAsString(i));
+  }
+
+  public int indexOf(String value) {
+    int hash = hash(value);
+    int slot = hash & mask;
+    int entry;
+    while((entry = slots[slot]) != 0) {
+      if(hashes[entry - 1] == hash && equal(values[entry - 1], value)) {
+        return entry - 1;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+}
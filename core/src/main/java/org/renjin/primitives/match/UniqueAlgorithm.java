@@ -27,9 +27,9 @@ public class UniqueAlgorithm implements DuplicateSearchAlgorithm<Vector> {
   private int uniqueCount;
   
   @Override
-  public void init(Vector source) {
+  public void init(Vector source, int length) {
     this.source = source;
-    this.unique = new boolean[source.length()];
+    this.unique = new boolean[length];
   }
 
   @Override
@@ -0,0 +1,66 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.primitives.matrix;
+
+/**
+ * Provides the level-3 BLAS routines used to compute matrix products like
+ * {@code %*%}, {@code crossprod} and {@code tcrossprod}.
+ *
+ * <p>All matrices are stored in column-major order, and the arguments follow the
+ * conventions of the reference BLAS.</p>
+ */
+public interface BlasProvider {
+
+  /**
+   * Computes {@code C := alpha*op(A)*op(B) + beta*C}, where {@code op(X)} is either {@code X} or {@code X'}
+   *
+   * @param transa "N" to use A, or "T" to use A'
+   * @param transb "N" to use B, or "T" to use B'
+   * @param m the number of rows of op(A) and C
+   * @param n the number of columns of op(B) and C
+   * @param k the number of columns of op(A) and rows of op(B)
+   */
+  void dgemm(String transa, String transb, int m, int n, int k,
+             double alpha, double[] a, int lda,
+             double[] b, int ldb,
+             double beta, double[] c, int ldc);
+
+  /**
+   * Computes the upper or lower triangle of the symmetric matrix {@code C := alpha*A*A' + beta*C} if
+   * {@code trans} is "N", or {@code C := alpha*A'*A + beta*C} if {@code trans} is "T".
+   *
+   * @param uplo "U" to compute the upper triangle of C, or "L" to compute the lower triangle
+   * @param n the order of C
+   * @param k the number of columns of A if {@code trans} is "N", otherwise the number of rows.
+   */
+  void dsyrk(String uplo, String trans, int n, int k,
+             double alpha, double[] a, int lda,
+             double beta, double[] c, int ldc);
+
+  /**
+   * @return the provider selected by the {@code renjin.blas} system property: {@code "java"} for
+   * {@link JavaBlasProvider}, or otherwise {@link NetlibBlasProvider}.
+   */
+  static BlasProvider getDefault() {
+    if("java".equalsIgnoreCase(System.getProperty("renjin.blas"))) {
+      return JavaBlasProvider.getDefault();
+    }
+    return NetlibBlasProvider.INSTANCE;
+  }
+}
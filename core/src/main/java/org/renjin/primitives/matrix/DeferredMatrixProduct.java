@@ -20,6 +20,7 @@ package org.renjin.primitives.matrix;
 
 import org.renjin.primitives.vector.MemoizedDoubleVector;
 import org.renjin.sexp.AttributeMap;
+import org.renjin.sexp.DoubleArrayVector;
 import org.renjin.sexp.SEXP;
 import org.renjin.sexp.Vector;
 
@@ -27,6 +28,11 @@ public class DeferredMatrixProduct extends MemoizedDoubleVector {
 
   private MatrixProduct product;
 
+  /**
+   * If not null, an equivalent chain of products to compute instead of {@code product}
+   */
+  private MatrixChain chain;
+
   public DeferredMatrixProduct(MatrixProduct product) {
     super(product.getOperands(), product.computeLength(), product.computeAttributes());
     this.product = product;
@@ -42,8 +48,26 @@ public class DeferredMatrixProduct extends MemoizedDoubleVector {
     return new DeferredMatrixProduct(product, attributes);
   }
 
+  public MatrixProduct getProduct() {
+    return product;
+  }
+
+  /**
+   * Computes this product as the given {@code chain}, which must be mathematically equivalent, but may
+   * reorder, merge or transpose the operands of this product.
+   */
+  public void setChain(MatrixChain chain) {
+    if(chain.getRowCount() * chain.getColCount() != length()) {
+      throw new IllegalArgumentException("chain dimensions do not match product");
+    }
+    this.chain = chain;
+  }
+
   @Override
   public Vector computeResult() {
+    if(chain != null) {
+      return DoubleArrayVector.unsafe(chain.compute(), getAttributes());
+    }
     return product.computeResultVector(getAttributes());
   }
 
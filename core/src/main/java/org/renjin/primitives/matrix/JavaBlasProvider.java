@@ -0,0 +1,429 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.primitives.matrix;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Pure-Java implementation of the level-3 BLAS routines used for matrix products.
+ *
+ * <p>The product is computed in cache-sized blocks: for each block, a panel of {@code op(A)} and a panel of
+ * {@code op(B)} are first copied ("packed") into contiguous arrays, laid out so that the inner loop reads both
+ * sequentially, and the block of C is then updated in tiles of 4x4 elements held in local variables.</p>
+ *
+ * <p>Large products are divided into independent blocks of C which are computed in parallel
+ * on a {@link ForkJoinPool}.</p>
+ */
+public class JavaBlasProvider implements BlasProvider {
+
+  /**
+   * The number of rows of op(A) packed at a time.
+   */
+  private static final int MC = 64;
+
+  /**
+   * The number of columns of op(A) and rows of op(B) packed at a time.
+   */
+  private static final int KC = 256;
+
+  /**
+   * The number of columns of op(B) packed at a time.
+   */
+  private static final int NC = 256;
+
+  /**
+   * The minimum number of multiply-adds in a block of C for it to be worth splitting across threads.
+   */
+  private static final long PARALLEL_GRAIN = 1L << 21;
+
+  private static final int FULL = 0;
+  private static final int UPPER = 1;
+  private static final int LOWER = 2;
+
+  private static final JavaBlasProvider DEFAULT = new JavaBlasProvider(ForkJoinPool.commonPool());
+
+  private final ForkJoinPool pool;
+
+  /**
+   * @param pool the pool on which to compute large products in parallel.
+   */
+  public JavaBlasProvider(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * @return an instance which uses the common {@link ForkJoinPool}
+   */
+  public static JavaBlasProvider getDefault() {
+    return DEFAULT;
+  }
+
+  @Override
+  public void dgemm(String transa, String transb, int m, int n, int k,
+                    double alpha, double[] a, int lda,
+                    double[] b, int ldb,
+                    double beta, double[] c, int ldc) {
+
+    new Product(isTransposed(transa), isTransposed(transb), m, n, k, alpha, a, lda, b, ldb, c, ldc, FULL)
+        .compute(beta);
+  }
+
+  @Override
+  public void dsyrk(String uplo, String trans, int n, int k,
+                    double alpha, double[] a, int lda,
+                    double beta, double[] c, int ldc) {
+
+    // A*A' if trans = "N", where A is n x k
+    // A'*A if trans = "T", where A is k x n
+    boolean transposed = isTransposed(trans);
+    int triangle = isUpper(uplo) ? UPPER : LOWER;
+
+    new Product(transposed, !transposed, n, n, k, alpha, a, lda, a, lda, c, ldc, triangle)
+        .compute(beta);
+  }
+
+  private static boolean isTransposed(String trans) {
+    switch (trans.charAt(0)) {
+      case 'N':
+      case 'n':
+        return false;
+      case 'T':
+      case 't':
+      case 'C':
+      case 'c':
+        return true;
+      default:
+        throw new IllegalArgumentException("trans: " + trans);
+    }
+  }
+
+  private static boolean isUpper(String uplo) {
+    switch (uplo.charAt(0)) {
+      case 'U':
+      case 'u':
+        return true;
+      case 'L':
+      case 'l':
+        return false;
+      default:
+        throw new IllegalArgumentException("uplo: " + uplo);
+    }
+  }
+
+  /**
+   * A single product {@code C := alpha*op(A)*op(B) + beta*C}, optionally restricted to the upper or
+   * lower triangle of C.
+   */
+  private class Product {
+    private final boolean transA;
+    private final boolean transB;
+    private final int m;
+    private final int n;
+    private final int k;
+    private final double alpha;
+    private final double[] a;
+    private final int lda;
+    private final double[] b;
+    private final int ldb;
+    private final double[] c;
+    private final int ldc;
+    private final int triangle;
+
+    Product(boolean transA, boolean transB, int m, int n, int k,
+            double alpha, double[] a, int lda, double[] b, int ldb,
+            double[] c, int ldc, int triangle) {
+      this.transA = transA;
+      this.transB = transB;
+      this.m = m;
+      this.n = n;
+      this.k = k;
+      this.alpha = alpha;
+      this.a = a;
+      this.lda = lda;
+      this.b = b;
+      this.ldb = ldb;
+      this.c = c;
+      this.ldc = ldc;
+      this.triangle = triangle;
+    }
+
+    void compute(double beta) {
+      if(m == 0 || n == 0) {
+        return;
+      }
+      if(beta != 1) {
+        scale(beta);
+      }
+      if(k == 0 || alpha == 0) {
+        return;
+      }
+      long work = (long) m * n * k;
+      int parallelism = pool.getParallelism();
+      if(work < 2 * PARALLEL_GRAIN || parallelism < 2) {
+        computeBlock(0, m, 0, n);
+      } else {
+        pool.invoke(new BlockTask(0, m, 0, n, parallelism * 4));
+      }
+    }
+
+    private boolean inTriangle(int row, int col) {
+      switch (triangle) {
+        case UPPER:
+          return row <= col;
+        case LOWER:
+          return row >= col;
+        default:
+          return true;
+      }
+    }
+
+    private void scale(double beta) {
+      for (int j = 0; j < n; j++) {
+        for (int i = 0; i < m; i++) {
+          if(inTriangle(i, j)) {
+            int index = i + j * ldc;
+            c[index] = (beta == 0) ? 0 : beta * c[index];
+          }
+        }
+      }
+    }
+
+    /**
+     * @return true if the block of C at rows {@code [i0, i1)} and columns {@code [j0, j1)} lies
+     * entirely outside of the triangle to compute.
+     */
+    private boolean outsideTriangle(int i0, int i1, int j0, int j1) {
+      switch (triangle) {
+        case UPPER:
+          // every row is below the last column
+          return i0 > j1 - 1;
+        case LOWER:
+          return i1 - 1 < j0;
+        default:
+          return false;
+      }
+    }
+
+    /**
+     * Computes the block of C at rows {@code [i0, i1)} and columns {@code [j0, j1)}
+     */
+    void computeBlock(int i0, int i1, int j0, int j1) {
+      if(outsideTriangle(i0, i1, j0, j1)) {
+        return;
+      }
+      double[] packedA = new double[Math.min(MC, i1 - i0) * Math.min(KC, k)];
+      double[] packedB = new double[Math.min(NC, j1 - j0) * Math.min(KC, k)];
+
+      for (int jc = j0; jc < j1; jc += NC) {
+        int nc = Math.min(NC, j1 - jc);
+        for (int pc = 0; pc < k; pc += KC) {
+          int kc = Math.min(KC, k - pc);
+          packB(packedB, pc, kc, jc, nc);
+
+          for (int ic = i0; ic < i1; ic += MC) {
+            int mc = Math.min(MC, i1 - ic);
+            if(outsideTriangle(ic, ic + mc, jc, jc + nc)) {
+              continue;
+            }
+            packA(packedA, ic, mc, pc, kc);
+            multiplyPacked(packedA, packedB, ic, mc, jc, nc, kc);
+          }
+        }
+      }
+    }
+
+    /**
+     * Copies the rows {@code [i0, i0+mc)} and columns {@code [p0, p0+kc)} of op(A) into {@code packed},
+     * so that each row is contiguous.
+     */
+    private void packA(double[] packed, int i0, int mc, int p0, int kc) {
+      if(transA) {
+        // op(A)[i, p] = A[p, i]: rows of op(A) are already contiguous columns of A
+        for (int i = 0; i < mc; i++) {
+          System.arraycopy(a, p0 + (i0 + i) * lda, packed, i * kc, kc);
+        }
+      } else {
+        for (int p = 0; p < kc; p++) {
+          int offset = i0 + (p0 + p) * lda;
+          for (int i = 0; i < mc; i++) {
+            packed[i * kc + p] = a[offset + i];
+          }
+        }
+      }
+    }
+
+    /**
+     * Copies the rows {@code [p0, p0+kc)} and columns {@code [j0, j0+nc)} of op(B) into {@code packed}
+     * so that each column is contiguous.
+     */
+    private void packB(double[] packed, int p0, int kc, int j0, int nc) {
+      if(transB) {
+        // op(B)[p, j] = B[j, p]
+        for (int p = 0; p < kc; p++) {
+          int offset = j0 + (p0 + p) * ldb;
+          for (int j = 0; j < nc; j++) {
+            packed[j * kc + p] = b[offset + j];
+          }
+        }
+      } else {
+        for (int j = 0; j < nc; j++) {
+          System.arraycopy(b, p0 + (j0 + j) * ldb, packed, j * kc, kc);
+        }
+      }
+    }
+
+    private void multiplyPacked(double[] packedA, double[] packedB, int ic, int mc, int jc, int nc, int kc) {
+      int j = 0;
+      for (; j + 4 <= nc; j += 4) {
+        int i = 0;
+        for (; i + 4 <= mc; i += 4) {
+          if(triangle == FULL || !outsideTriangle(ic + i, ic + i + 4, jc + j, jc + j + 4)) {
+            multiply4x4(packedA, i * kc, packedB, j * kc, kc, ic + i, jc + j);
+          }
+        }
+        multiplyEdge(packedA, packedB, i, mc, j, j + 4, kc, ic, jc);
+      }
+      multiplyEdge(packedA, packedB, 0, mc, j, nc, kc, ic, jc);
+    }
+
+    private void multiply4x4(double[] packedA, int a0, double[] packedB, int b0, int kc, int row, int col) {
+      int a1 = a0 + kc;
+      int a2 = a1 + kc;
+      int a3 = a2 + kc;
+      int b1 = b0 + kc;
+      int b2 = b1 + kc;
+      int b3 = b2 + kc;
+
+      double c00 = 0, c01 = 0, c02 = 0, c03 = 0;
+      double c10 = 0, c11 = 0, c12 = 0, c13 = 0;
+      double c20 = 0, c21 = 0, c22 = 0, c23 = 0;
+      double c30 = 0, c31 = 0, c32 = 0, c33 = 0;
+
+      for (int p = 0; p < kc; p++) {
+        double x0 = packedA[a0 + p];
+        double x1 = packedA[a1 + p];
+        double x2 = packedA[a2 + p];
+        double x3 = packedA[a3 + p];
+
+        double y = packedB[b0 + p];
+        c00 += x0 * y; c10 += x1 * y; c20 += x2 * y; c30 += x3 * y;
+        y = packedB[b1 + p];
+        c01 += x0 * y; c11 += x1 * y; c21 += x2 * y; c31 += x3 * y;
+        y = packedB[b2 + p];
+        c02 += x0 * y; c12 += x1 * y; c22 += x2 * y; c32 += x3 * y;
+        y = packedB[b3 + p];
+        c03 += x0 * y; c13 += x1 * y; c23 += x2 * y; c33 += x3 * y;
+      }
+
+      if(triangle == FULL) {
+        int index = row + col * ldc;
+        c[index] += alpha * c00; c[index + 1] += alpha * c10; c[index + 2] += alpha * c20; c[index + 3] += alpha * c30;
+        index += ldc;
+        c[index] += alpha * c01; c[index + 1] += alpha * c11; c[index + 2] += alpha * c21; c[index + 3] += alpha * c31;
+        index += ldc;
+        c[index] += alpha * c02; c[index + 1] += alpha * c12; c[index + 2] += alpha * c22; c[index + 3] += alpha * c32;
+        index += ldc;
+        c[index] += alpha * c03; c[index + 1] += alpha * c13; c[index + 2] += alpha * c23; c[index + 3] += alpha * c33;
+      } else {
+        update(row, col, c00); update(row + 1, col, c10); update(row + 2, col, c20); update(row + 3, col, c30);
+        update(row, col + 1, c01); update(row + 1, col + 1, c11); update(row + 2, col + 1, c21); update(row + 3, col + 1, c31);
+        update(row, col + 2, c02); update(row + 1, col + 2, c12); update(row + 2, col + 2, c22); update(row + 3, col + 2, c32);
+        update(row, col + 3, c03); update(row + 1, col + 3, c13); update(row + 2, col + 3, c23); update(row + 3, col + 3, c33);
+      }
+    }
+
+    /**
+     * Multiplies the remaining rows {@code [iStart, mc)} and columns {@code [jStart, jEnd)} that do not
+     * fill a complete 4x4 tile.
+     */
+    private void multiplyEdge(double[] packedA, double[] packedB, int iStart, int mc, int jStart, int jEnd,
+                              int kc, int ic, int jc) {
+      for (int j = jStart; j < jEnd; j++) {
+        for (int i = iStart; i < mc; i++) {
+          if(inTriangle(ic + i, jc + j)) {
+            int a0 = i * kc;
+            int b0 = j * kc;
+            double sum = 0;
+            for (int p = 0; p < kc; p++) {
+              sum += packedA[a0 + p] * packedB[b0 + p];
+            }
+            c[(ic + i) + (jc + j) * ldc] += alpha * sum;
+          }
+        }
+      }
+    }
+
+    private void update(int row, int col, double value) {
+      if(inTriangle(row, col)) {
+        c[row + col * ldc] += alpha * value;
+      }
+    }
+
+    /**
+     * Computes a block of C, dividing it between threads until each part is small enough.
+     */
+    private class BlockTask extends RecursiveAction {
+      private final int i0;
+      private final int i1;
+      private final int j0;
+      private final int j1;
+      private final int parts;
+
+      BlockTask(int i0, int i1, int j0, int j1, int parts) {
+        this.i0 = i0;
+        this.i1 = i1;
+        this.j0 = j0;
+        this.j1 = j1;
+        this.parts = parts;
+      }
+
+      @Override
+      protected void compute() {
+        int rows = i1 - i0;
+        int cols = j1 - j0;
+        long work = (long) rows * cols * k;
+
+        if(parts < 2 || work < 2 * PARALLEL_GRAIN || (rows < 8 && cols < 8)) {
+          computeBlock(i0, i1, j0, j1);
+
+        } else if(cols >= rows) {
+          int split = j0 + alignedHalf(cols);
+          invokeAll(
+              new BlockTask(i0, i1, j0, split, parts / 2),
+              new BlockTask(i0, i1, split, j1, parts - parts / 2));
+        } else {
+          int split = i0 + alignedHalf(rows);
+          invokeAll(
+              new BlockTask(i0, split, j0, j1, parts / 2),
+              new BlockTask(split, i1, j0, j1, parts - parts / 2));
+        }
+      }
+
+      /**
+       * Splits a dimension in half, keeping the first half a multiple of 4 so that
+       * we do not lose complete tiles.
+       */
+      private int alignedHalf(int size) {
+        int half = (size / 2) & ~3;
+        return half == 0 ? size / 2 : half;
+      }
+    }
+  }
+}
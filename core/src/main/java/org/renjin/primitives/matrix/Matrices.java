@@ -24,7 +24,6 @@ import org.renjin.invoke.annotations.Builtin;
 import org.renjin.invoke.annotations.Current;
 import org.renjin.invoke.annotations.Generic;
 import org.renjin.invoke.annotations.Internal;
-import org.renjin.pipeliner.VectorPipeliner;
 import org.renjin.primitives.Indexes;
 import org.renjin.primitives.sequence.RepDoubleVector;
 import org.renjin.primitives.sequence.RepLogicalVector;
@@ -144,7 +143,7 @@ public class Matrices {
   /**
    * Transpose dimension names if present.
    */
-  private static SEXP transposeDimNames(Vector x) {
+  static SEXP transposeDimNames(Vector x) {
     Vector dimNames = x.getAttributes().getDimNames();
     if(dimNames == Null.INSTANCE) {
       return Null.INSTANCE;
@@ -165,18 +164,39 @@ public class Matrices {
 
   @Builtin("%*%")
   @Generic(S3 = false, S4 = true)
-  public static SEXP matrixproduct(AtomicVector x, AtomicVector y) {
-    return new MatrixProduct(MatrixProduct.PROD, x, y).compute();
+  public static SEXP matrixproduct(@Current Context context, AtomicVector x, AtomicVector y) {
+    BlasProvider blas = context.getSession().getBlasProvider();
+
+    // Rather than materializing the transpose, let the BLAS read the original
+    // matrix transposed. t(x) %*% x is then computed as crossprod(x) using dsyrk.
+    if(isTranspose(x) && !(y instanceof TransposingMatrix) && isMatrix(y)) {
+      AtomicVector source = (AtomicVector) ((TransposingMatrix) x).getSource();
+      return new MatrixProduct(blas, MatrixProduct.CROSSPROD, source, source == y ? Null.INSTANCE : y).compute();
+    }
+    if(isTranspose(y) && !(x instanceof TransposingMatrix) && isMatrix(x)) {
+      AtomicVector source = (AtomicVector) ((TransposingMatrix) y).getSource();
+      return new MatrixProduct(blas, MatrixProduct.TCROSSPROD, x, source == x ? Null.INSTANCE : source).compute();
+    }
+
+    return new MatrixProduct(blas, MatrixProduct.PROD, x, y).compute();
+  }
+
+  private static boolean isTranspose(AtomicVector x) {
+    return x instanceof TransposingMatrix && ((TransposingMatrix) x).hasTransposedAttributes();
+  }
+
+  private static boolean isMatrix(AtomicVector x) {
+    return x.getAttributes().getDim().length() == 2;
   }
 
   @Internal("crossprod")
-  public static SEXP crossprod(AtomicVector x, AtomicVector y) {
-    return new MatrixProduct(MatrixProduct.CROSSPROD, x, y).compute();
+  public static SEXP crossprod(@Current Context context, AtomicVector x, AtomicVector y) {
+    return new MatrixProduct(context.getSession().getBlasProvider(), MatrixProduct.CROSSPROD, x, y).compute();
   }
 
   @Internal("tcrossprod")
-  public static SEXP tcrossprod(AtomicVector x, AtomicVector y) {
-    return new MatrixProduct(MatrixProduct.TCROSSPROD, x, y).compute();
+  public static SEXP tcrossprod(@Current Context context, AtomicVector x, AtomicVector y) {
+    return new MatrixProduct(context.getSession().getBlasProvider(), MatrixProduct.TCROSSPROD, x, y).compute();
   }
 
   @Internal
@@ -198,12 +218,13 @@ public class Matrices {
   }
 
   @Internal
-  public static DoubleVector rowMeans(AtomicVector x,
+  public static DoubleVector rowMeans(@Current Context context,
+                                      AtomicVector x,
                                       int numRows,
                                       int rowLength,
                                       boolean naRm) {
 
-    if(VectorPipeliner.ENABLED) {
+    if(context.getSession().getVectorEngine().isEnabled()) {
       if (!naRm && x.isDeferred()) {
         return new DeferredRowMeans(x, numRows, AttributeMap.EMPTY);
       }
@@ -231,9 +252,9 @@ public class Matrices {
   }
 
   @Internal
-  public static DoubleVector colSums(AtomicVector x, int columnLength, int numColumns, boolean naRm) {
+  public static DoubleVector colSums(@Current Context context, AtomicVector x, int columnLength, int numColumns, boolean naRm) {
     DeferredColSums dcs =  new DeferredColSums(x, numColumns, naRm, AttributeMap.EMPTY);
-    if (!VectorPipeliner.ENABLED) {
+    if (!context.getSession().getVectorEngine().isEnabled()) {
       return (DoubleVector) dcs.forceResult();
     }
     return dcs;
@@ -0,0 +1,344 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.primitives.matrix;
+
+import org.renjin.sexp.AtomicVector;
+import org.renjin.sexp.DoubleArrayVector;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A product of matrices, {@code A1 %*% A2 %*% ... %*% An}, which is evaluated in the order
+ * requiring the fewest multiplications.
+ *
+ * <p>Matrix multiplication is associative, but the cost of a chain depends heavily on where the parentheses are
+ * placed: with A and B of 1000 x 1000 and a vector v, {@code (A %*% B) %*% v} costs 10^9 multiply-adds, while
+ * {@code A %*% (B %*% v)} costs 2 x 10^6. The order is chosen with the classic O(n^3) dynamic program
+ * over the dimensions of the factors.</p>
+ *
+ * <p>Each factor may be used transposed, which is passed on to the BLAS rather than materializing the transpose.
+ * When the plan multiplies a matrix directly by its own transpose, {@code dsyrk} is used to compute
+ * only half of the symmetric result.</p>
+ */
+public class MatrixChain {
+
+  private static class Factor {
+    private final AtomicVector vector;
+    private final int rows;
+    private final int cols;
+    private final boolean transposed;
+
+    Factor(AtomicVector vector, int rows, int cols, boolean transposed) {
+      this.vector = vector;
+      this.rows = rows;
+      this.cols = cols;
+      this.transposed = transposed;
+    }
+  }
+
+  /**
+   * An intermediate result: a column-major array holding either a matrix, or its transpose.
+   */
+  private static class Operand {
+    private final double[] array;
+    private final int rows;
+    private final int cols;
+    private final boolean transposed;
+
+    Operand(double[] array, int rows, int cols, boolean transposed) {
+      this.array = array;
+      this.rows = rows;
+      this.cols = cols;
+      this.transposed = transposed;
+    }
+
+    int leadingDimension() {
+      return Math.max(1, transposed ? cols : rows);
+    }
+
+    double get(int row, int col) {
+      if(transposed) {
+        return array[col + row * cols];
+      } else {
+        return array[row + col * rows];
+      }
+    }
+  }
+
+  private final BlasProvider blas;
+  private final List<Factor> factors = new ArrayList<>();
+
+  /**
+   * {@code split[i][j]} is the index of the last factor in the left-hand side of the cheapest
+   * product of factors {@code i..j}
+   */
+  private int[][] split;
+  private long[][] cost;
+
+  public MatrixChain(BlasProvider blas) {
+    this.blas = blas;
+  }
+
+  /**
+   * Appends a factor to the right of the chain.
+   *
+   * @param vector the elements of the matrix, in column-major order
+   * @param rows the number of rows of the factor, after any transposition
+   * @param cols the number of columns of the factor, after any transposition
+   * @param transposed true if the factor is the transpose of {@code vector}
+   */
+  public void add(AtomicVector vector, int rows, int cols, boolean transposed) {
+    if(!factors.isEmpty() && getColCount() != rows) {
+      throw new IllegalArgumentException("non-conformable arguments");
+    }
+    factors.add(new Factor(vector, rows, cols, transposed));
+    split = null;
+  }
+
+  public int size() {
+    return factors.size();
+  }
+
+  public int getRowCount() {
+    return factors.get(0).rows;
+  }
+
+  public int getColCount() {
+    return factors.get(factors.size() - 1).cols;
+  }
+
+  /**
+   * @return the number of multiply-adds required to compute the chain in the cheapest order.
+   */
+  public long getCost() {
+    plan();
+    return cost[0][factors.size() - 1];
+  }
+
+  /**
+   * @return the number of multiply-adds required to compute the chain from left to right.
+   */
+  public long getLeftToRightCost() {
+    long total = 0;
+    for (int i = 1; i < factors.size(); i++) {
+      total += (long) getRowCount() * factors.get(i).rows * factors.get(i).cols;
+    }
+    return total;
+  }
+
+  private void plan() {
+    if(split != null) {
+      return;
+    }
+    int n = factors.size();
+    split = new int[n][n];
+    cost = new long[n][n];
+
+    for (int length = 2; length <= n; length++) {
+      for (int i = 0; i + length - 1 < n; i++) {
+        int j = i + length - 1;
+        cost[i][j] = Long.MAX_VALUE;
+        for (int k = i; k < j; k++) {
+          long c = cost[i][k] + cost[k + 1][j] + multiplicationCost(i, k, j);
+          if(c < cost[i][j]) {
+            cost[i][j] = c;
+            split[i][j] = k;
+          }
+        }
+      }
+    }
+  }
+
+  private long multiplicationCost(int i, int k, int j) {
+    long c = (long) factors.get(i).rows * factors.get(k).cols * factors.get(j).cols;
+    if(i == k && k + 1 == j && isGram(i)) {
+      // dsyrk only computes one triangle
+      c = (c + 1) / 2;
+    }
+    return c;
+  }
+
+  /**
+   * @return true if factor {@code i + 1} is the transpose of factor {@code i}
+   */
+  private boolean isGram(int i) {
+    Factor a = factors.get(i);
+    Factor b = factors.get(i + 1);
+    return a.vector == b.vector && a.transposed != b.transposed;
+  }
+
+  /**
+   * Computes the product of the chain.
+   *
+   * @return the elements of the product, in column-major order.
+   */
+  public double[] compute() {
+    plan();
+
+    Map<AtomicVector, double[]> arrays = new IdentityHashMap<>();
+    boolean haveNA = false;
+    for (Factor factor : factors) {
+      if(!arrays.containsKey(factor.vector)) {
+        double[] array = toArray(factor.vector);
+        arrays.put(factor.vector, array);
+        haveNA |= anyNaN(array);
+      }
+    }
+
+    Operand result = compute(arrays, haveNA, 0, factors.size() - 1);
+    if(result.transposed) {
+      return transpose(result);
+    }
+    return result.array;
+  }
+
+  private static double[] toArray(AtomicVector vector) {
+    if(vector instanceof DoubleArrayVector) {
+      // We only read from the array
+      return ((DoubleArrayVector) vector).toDoubleArrayUnsafe();
+    }
+    return vector.toDoubleArray();
+  }
+
+  private static boolean anyNaN(double[] array) {
+    for (int i = 0; i < array.length; i++) {
+      if(Double.isNaN(array[i])) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private Operand compute(Map<AtomicVector, double[]> arrays, boolean haveNA, int i, int j) {
+    if(i == j) {
+      Factor factor = factors.get(i);
+      return new Operand(arrays.get(factor.vector), factor.rows, factor.cols, factor.transposed);
+    }
+
+    int k = split[i][j];
+
+    if(i == k && k + 1 == j && isGram(i) && !haveNA) {
+      return crossProduct(factors.get(i), arrays.get(factors.get(i).vector));
+    }
+
+    Operand left = compute(arrays, haveNA, i, k);
+    Operand right = compute(arrays, haveNA, k + 1, j);
+
+    /* Don't trust the BLAS to handle NA/NaNs correctly: PR#4582 */
+    if(haveNA) {
+      return multiplyNaive(left, right);
+    } else {
+      return multiply(left, right);
+    }
+  }
+
+  private Operand multiply(Operand left, Operand right) {
+    int m = left.rows;
+    int n = right.cols;
+    int k = left.cols;
+
+    double[] z = new double[m * n];
+    blas.dgemm(left.transposed ? "T" : "N", right.transposed ? "T" : "N", m, n, k, 1.0,
+        left.array, left.leadingDimension(),
+        right.array, right.leadingDimension(), 0.0, z, Math.max(1, m));
+
+    return new Operand(z, m, n, false);
+  }
+
+  private static Operand multiplyNaive(Operand left, Operand right) {
+    int m = left.rows;
+    int n = right.cols;
+    double[] z = new double[m * n];
+    for (int i = 0; i < m; i++) {
+      for (int j = 0; j < n; j++) {
+        double sum = 0;
+        for (int p = 0; p < left.cols; p++) {
+          sum += left.get(i, p) * right.get(p, j);
+        }
+        z[i + j * m] = sum;
+      }
+    }
+    return new Operand(z, m, n, false);
+  }
+
+  private static double[] transpose(Operand operand) {
+    double[] array = new double[operand.rows * operand.cols];
+    for (int i = 0; i < operand.rows; i++) {
+      for (int j = 0; j < operand.cols; j++) {
+        array[i + j * operand.rows] = operand.get(i, j);
+      }
+    }
+    return array;
+  }
+
+  /**
+   * Computes {@code op(X) %*% t(op(X))} using {@code dsyrk}.
+   */
+  private Operand crossProduct(Factor factor, double[] x) {
+    int n = factor.rows;
+    int k = factor.cols;
+    double[] z = new double[n * n];
+
+    if(factor.transposed) {
+      // t(X) %*% X, where X is k x n
+      blas.dsyrk("U", "T", n, k, 1.0, x, Math.max(1, k), 0.0, z, Math.max(1, n));
+    } else {
+      // X %*% t(X), where X is n x k
+      blas.dsyrk("U", "N", n, k, 1.0, x, Math.max(1, n), 0.0, z, Math.max(1, n));
+    }
+
+    for (int i = 1; i < n; i++) {
+      for (int j = 0; j < i; j++) {
+        z[i + n * j] = z[j + n * i];
+      }
+    }
+    return new Operand(z, n, n, false);
+  }
+
+  /**
+   * @return the chosen order of evaluation, for example {@code (A1 %*% (t(A2) %*% A3))}
+   */
+  @Override
+  public String toString() {
+    plan();
+    StringBuilder s = new StringBuilder();
+    appendOrder(s, 0, factors.size() - 1);
+    return s.toString();
+  }
+
+  private void appendOrder(StringBuilder s, int i, int j) {
+    if(i == j) {
+      if(factors.get(i).transposed) {
+        s.append("t(A").append(i + 1).append(")");
+      } else {
+        s.append("A").append(i + 1);
+      }
+    } else {
+      int k = split[i][j];
+      s.append("(");
+      appendOrder(s, i, k);
+      s.append(" %*% ");
+      appendOrder(s, k + 1, j);
+      s.append(")");
+    }
+  }
+}
@@ -18,13 +18,12 @@
  */
 package org.renjin.primitives.matrix;
 
-import com.github.fommil.netlib.BLAS;
 import org.renjin.eval.EvalException;
 import org.renjin.primitives.sequence.RepDoubleVector;
 import org.renjin.sexp.*;
 
 
-class MatrixProduct {
+public class MatrixProduct {
 
   public static final int PROD = 0;
   public static final int CROSSPROD = 1;
@@ -33,6 +32,8 @@ class MatrixProduct {
   private static final int ROWS = 0;
   private static final int COLS = 1;
 
+  private final BlasProvider blas;
+
   private int operation;
   private boolean symmetrical;
 
@@ -48,8 +49,9 @@ class MatrixProduct {
 
   private Vector[] operands;
 
-  public MatrixProduct(int operation, AtomicVector x, AtomicVector y) {
+  public MatrixProduct(BlasProvider blas, int operation, AtomicVector x, AtomicVector y) {
     super();
+    this.blas = blas;
     this.x = x;
     this.y = y;
 
@@ -207,6 +209,53 @@ class MatrixProduct {
     return operands;
   }
 
+  public BlasProvider getBlasProvider() {
+    return blas;
+  }
+
+  /**
+   * @return true if this is the product of a single matrix and its own transpose, as in {@code crossprod(x)}
+   */
+  public boolean isSymmetrical() {
+    return symmetrical;
+  }
+
+  /**
+   * @return true if the transpose of {@code x} is the left-hand side of the product.
+   */
+  public boolean isLeftTransposed() {
+    return operation == CROSSPROD;
+  }
+
+  /**
+   * @return true if the transpose of {@code y} is the right-hand side of the product.
+   */
+  public boolean isRightTransposed() {
+    return operation == TCROSSPROD;
+  }
+
+  /**
+   * @return the number of rows and columns of the left-hand side of the product, after any transposition.
+   */
+  public int[] getLeftDim() {
+    if(isLeftTransposed()) {
+      return new int[] { ncx, nrx };
+    } else {
+      return new int[] { nrx, ncx };
+    }
+  }
+
+  /**
+   * @return the number of rows and columns of the right-hand side of the product, after any transposition.
+   */
+  public int[] getRightDim() {
+    if(isRightTransposed()) {
+      return new int[] { ncy, nry };
+    } else {
+      return new int[] { nry, ncy };
+    }
+  }
+
   public boolean isNonZero() {
     return (nrx > 0 && ncx > 0 && nry > 0 && ncy > 0);
   }
@@ -377,7 +426,7 @@ class MatrixProduct {
           }
         }
       } else {
-        BLAS.getInstance().dgemm(transa, transb, nrx, ncy, ncx, one,
+        blas.dgemm(transa, transb, nrx, ncy, ncx, one,
             x, nrx, y, nry, zero, z, nrx);
       }
     }
@@ -394,7 +443,7 @@ class MatrixProduct {
     String transb = "N";
     double one = 1.0, zero = 0.0;
     if (nrx > 0 && ncx > 0 && nry > 0 && ncy > 0) {
-      BLAS.getInstance().dgemm(transa, transb, ncx, ncy, nrx, one,
+      blas.dgemm(transa, transb, ncx, ncy, nrx, one,
           x, nrx, y, nry, zero, z, ncx);
     }
 
@@ -410,7 +459,7 @@ class MatrixProduct {
     String transb = "T";
     double one = 1.0, zero = 0.0;
     if (nrx > 0 && ncx > 0 && nry > 0 && ncy > 0) {
-      BLAS.getInstance().dgemm(transa, transb, nrx, nry, ncx, one,
+      blas.dgemm(transa, transb, nrx, nry, ncx, one,
           x, nrx, y, nry, zero, z, nrx);
     }
     return z;
@@ -427,7 +476,7 @@ class MatrixProduct {
 
     int i, j;
     if (nrx > 0 && ncx > 0) {
-      BLAS.getInstance().dsyrk(uplo, trans, ncx, nrx, one, x, nrx, zero, z, ncx);
+      blas.dsyrk(uplo, trans, ncx, nrx, one, x, nrx, zero, z, ncx);
 
       for (i = 1; i < ncx; i++) {
         for (j = 0; j < i; j++) {
@@ -448,7 +497,7 @@ class MatrixProduct {
     double one = 1.0, zero = 0.0;
     int i, j;
     if (nrx > 0 && ncx > 0) {
-      BLAS.getInstance().dsyrk(uplo, trans, nrx, ncx, one, x, nrx, zero, z, nrx);
+      blas.dsyrk(uplo, trans, nrx, ncx, one, x, nrx, zero, z, nrx);
       for (i = 1; i < nrx; i++) {
         for (j = 0; j < i; j++) {
           z[i + nrx *j] = z[j + nrx * i];
@@ -0,0 +1,48 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.primitives.matrix;
+
+import com.github.fommil.netlib.BLAS;
+
+/**
+ * Delegates to netlib-java, which uses a native BLAS library if one is installed, or otherwise
+ * falls back to the F2J translation of the reference BLAS.
+ */
+public class NetlibBlasProvider implements BlasProvider {
+
+  public static final NetlibBlasProvider INSTANCE = new NetlibBlasProvider();
+
+  private NetlibBlasProvider() {
+  }
+
+  @Override
+  public void dgemm(String transa, String transb, int m, int n, int k,
+                    double alpha, double[] a, int lda,
+                    double[] b, int ldb,
+                    double beta, double[] c, int ldc) {
+    BLAS.getInstance().dgemm(transa, transb, m, n, k, alpha, a, lda, b, ldb, beta, c, ldc);
+  }
+
+  @Override
+  public void dsyrk(String uplo, String trans, int n, int k,
+                    double alpha, double[] a, int lda,
+                    double beta, double[] c, int ldc) {
+    BLAS.getInstance().dsyrk(uplo, trans, n, k, alpha, a, lda, beta, c, ldc);
+  }
+}
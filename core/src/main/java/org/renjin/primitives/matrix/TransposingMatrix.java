@@ -19,6 +19,7 @@
 package org.renjin.primitives.matrix;
 
 
+import org.renjin.primitives.Identical;
 import org.renjin.primitives.vector.DeferredComputation;
 import org.renjin.sexp.*;
 
@@ -39,6 +40,28 @@ public class TransposingMatrix extends DoubleVector implements DeferredComputati
     this.sourceColCount = sourceDim[1];
   }
 
+  /**
+   * @return the matrix of which this is the transpose.
+   */
+  public Vector getSource() {
+    return source;
+  }
+
+  /**
+   * @return true if this vector still has the dimensions and dimension names of the transpose of its source,
+   * so that it may be replaced by reading the source transposed. This is not the case if they have been changed
+   * since {@code t()}, for example by {@code dim<-} or {@code as.vector()}.
+   */
+  public boolean hasTransposedAttributes() {
+    Vector dim = getAttributes().getDim();
+    if(dim.length() != 2 ||
+        dim.getElementAsInt(0) != sourceColCount ||
+        dim.getElementAsInt(1) != sourceRowCount) {
+      return false;
+    }
+    return Identical.identical(getAttributes().getDimNames(), Matrices.transposeDimNames(source));
+  }
+
   @Override
   protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
     return new TransposingMatrix(source, attributes);
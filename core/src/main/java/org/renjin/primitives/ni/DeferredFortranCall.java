@@ -19,10 +19,12 @@
 package org.renjin.primitives.ni;
 
 
+import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
 import org.renjin.gcc.runtime.BooleanPtr;
 import org.renjin.gcc.runtime.DoublePtr;
 import org.renjin.gcc.runtime.IntPtr;
+import org.renjin.primitives.Native;
 import org.renjin.sexp.AtomicVector;
 import org.renjin.sexp.IntVector;
 import org.renjin.sexp.ListVector;
@@ -36,6 +38,7 @@ import java.lang.invoke.MethodHandle;
  */
 public class DeferredFortranCall implements DeferredNativeCall {
 
+  private final Context context;
   private String methodName;
   private final MethodHandle method;
   private final Class<?>[] parameterType;
@@ -46,10 +49,11 @@ public class DeferredFortranCall implements DeferredNativeCall {
   
   private boolean inputsDeferred = false;
   
-  private boolean evaluated = false;
+  private volatile boolean evaluated = false;
   
   
-  public DeferredFortranCall(String methodName, MethodHandle method, ListVector inputs) {
+  public DeferredFortranCall(Context context, String methodName, MethodHandle method, ListVector inputs) {
+    this.context = context;
     this.methodName = methodName;
     this.method = method;
 
@@ -104,9 +108,11 @@ public class DeferredFortranCall implements DeferredNativeCall {
   }
 
   @Override
-  public Object output(int outputIndex) {
+  public synchronized Object output(int outputIndex) {
     if(!evaluated) {
-      throw new IllegalStateException("Not evaluated yet.");
+      // The output is being accessed directly rather than through
+      // the VectorPipeliner, so compute from our operands as they are.
+      evaluate(operands);
     }
     return outputArrays[outputIndex];
   }
@@ -121,7 +127,10 @@ public class DeferredFortranCall implements DeferredNativeCall {
   }
 
   @Override
-  public void evaluate(Vector[] operands) {
+  public synchronized void evaluate(Vector[] operands) {
+    if(evaluated) {
+      return;
+    }
     
     // First make copies of the input arguments
     for (int i = 0; i < operands.length; i++) {
@@ -166,6 +175,8 @@ public class DeferredFortranCall implements DeferredNativeCall {
       }    
     }
 
+    Context previousContext = Native.CURRENT_CONTEXT.get();
+    Native.CURRENT_CONTEXT.set(context);
     try {
       method.invokeWithArguments(fortranArgs);
       evaluated = true;
@@ -173,6 +184,8 @@ public class DeferredFortranCall implements DeferredNativeCall {
       throw e;
     } catch (Throwable e) {
       throw new EvalException("Exception thrown while executing " + method, e);
-    } 
+    } finally {
+      Native.CURRENT_CONTEXT.set(previousContext);
+    }
   }
 }
@@ -21,11 +21,18 @@ package org.renjin.primitives.special;
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
 import org.renjin.invoke.annotations.CompilerSpecialization;
+import org.renjin.primitives.Primitives;
+import org.renjin.primitives.subset.Subsetting;
 import org.renjin.sexp.*;
 
 
 public class AssignLeftFunction extends SpecialFunction {
 
+  private static final Symbol SUBSET = Symbol.get("[");
+  private static final Symbol SINGLE_ELEMENT = Symbol.get("[[");
+  private static final Symbol SET_SUBSET = Symbol.get("[<-");
+  private static final Symbol SET_SINGLE_ELEMENT = Symbol.get("[[<-");
+
   public AssignLeftFunction() {
     super("<-");
   }
@@ -58,6 +65,11 @@ public class AssignLeftFunction extends SpecialFunction {
     SEXP evaluatedValue = value.eval(context, rho);
     SEXP rhs = value.repromise(evaluatedValue);
 
+    if(lhs instanceof FunctionCall && assignElement(context, rho, (FunctionCall) lhs, rhs)) {
+      context.setInvisibleFlag();
+      return evaluatedValue;
+    }
+
     while(lhs instanceof FunctionCall) {
       FunctionCall call = (FunctionCall) lhs;
       FunctionCall setterCall = setterCall(call, rhs);
@@ -85,6 +97,66 @@ public class AssignLeftFunction extends SpecialFunction {
     return evaluatedValue;
   }
 
+  /**
+   * Handles {@code x[i] <- value} and {@code x[[i]] <- value}, where {@code x} is a variable and {@code [<-} and
+   * {@code [[<-} are the builtins, without copying {@code x} every time, so that loops filling in a vector element
+   * by element take linear rather than quadratic time.
+   *
+   * <p>The first such assignment copies {@code x}, as the general case would, and the variable takes
+   * {@link AbstractSEXP#isOwned() ownership} of the copy. Subsequent assignments can then replace elements
+   * in place, until the value of {@code x} is read by anything else than {@code x[j]} or {@code x[[j]]}, which
+   * copy the selected element out of {@code x} (see {@link Subsetting#getElementOfOwnedVariable}).</p>
+   *
+   * @return false if {@code lhs} is not of this form, and the assignment should be made by the general case.
+   */
+  protected boolean assignElement(Context context, Environment rho, FunctionCall lhs, SEXP rhs) {
+    SEXP getter = lhs.getFunction();
+    if(getter != SUBSET && getter != SINGLE_ELEMENT) {
+      return false;
+    }
+    PairList arguments = lhs.getArguments();
+    if(arguments.length() != 2 || !(lhs.getArgument(0) instanceof Symbol)) {
+      return false;
+    }
+    for (PairList.Node argument : arguments.nodes()) {
+      if(argument.hasTag()) {
+        return false;
+      }
+    }
+    Symbol target = lhs.getArgument(0);
+    SEXP subscriptExp = lhs.getArgument(1);
+    if(subscriptExp == Symbol.MISSING_ARG || subscriptExp == Symbols.ELLIPSES ||
+        rho.isActiveBinding(target) || rho.bindingIsLocked(target)) {
+      return false;
+    }
+    boolean singleElement = (getter == SINGLE_ELEMENT);
+    Symbol setter = singleElement ? SET_SINGLE_ELEMENT : SET_SUBSET;
+    if(rho.findFunction(context, setter) != Primitives.getBuiltin(setter)) {
+      return false;
+    }
+
+    // Evaluate the target before the subscript, in the same order as the general case
+    SEXP source = rho.getOwnedVariable(target);
+    if(source == null) {
+      source = target.eval(context, rho);
+    }
+    SEXP subscript = context.evaluate(subscriptExp, rho);
+    SEXP value = rhs.force(context);
+
+    Vector result = Subsetting.setElementInPlace(source, subscript, value, singleElement);
+    if(result != null) {
+      assignResult(context, rho, target, result);
+      ((AbstractSEXP) result).markOwned();
+
+    } else {
+      // Fall back to the builtin, passing the operands that we have already evaluated
+      FunctionCall getterCall = FunctionCall.newCall(getter, target.repromise(source), subscriptExp.repromise(subscript));
+      SEXP replaced = setterCall(getterCall, rhs).eval(context, rho).force(context);
+      assignResult(context, rho, target, replaced);
+    }
+    return true;
+  }
+
   @CompilerSpecialization
   public static FunctionCall setterCall(FunctionCall call, SEXP rhs) {
     SEXP getter = call.getFunction();
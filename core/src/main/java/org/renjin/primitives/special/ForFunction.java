@@ -18,11 +18,7 @@
  */
 package org.renjin.primitives.special;
 
-import org.renjin.compiler.CachedLoopBody;
-import org.renjin.compiler.CompiledLoopBody;
-import org.renjin.compiler.NotCompilableException;
-import org.renjin.compiler.SexpCompiler;
-import org.renjin.compiler.ir.exception.InvalidSyntaxException;
+import org.renjin.compiler.TieredLoopBody;
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
 import org.renjin.sexp.*;
@@ -31,12 +27,8 @@ import org.renjin.sexp.*;
 public class ForFunction extends SpecialFunction {
 
   public static boolean COMPILE_LOOPS = Boolean.getBoolean("renjin.compile.loops");
-  public static boolean COMPILE_LOOPS_VERBOSE = Boolean.getBoolean("renjin.compile.loops.verbose");
 
   public static boolean FAIL_ON_COMPILATION_ERROR = false;
-  
-  private static final int COMPILE_THRESHOLD = 200;
-  private static final int WARMUP_ITERATIONS = 0;
 
   public ForFunction() {
     super("for");
@@ -55,21 +47,21 @@ public class ForFunction extends SpecialFunction {
     Vector elements = (Vector) elementsExp;
     SEXP statement = args.getElementAsSEXP(2);
 
+    TieredLoopBody tieredBody = COMPILE_LOOPS ? tieredBody(call) : null;
+
     int i = 0;
 
-    // Interpret the loop
-    boolean compilationFailed = false;
-    for (i = 0; i != elements.length(); ++i) {
+    // Interpret the loop, transferring to the compiled body between two
+    // iterations once the loop is hot
+    for (i = 0; i < elements.length(); ++i) {
       try {
 
-        if (COMPILE_LOOPS && i >= WARMUP_ITERATIONS && elements.length() > COMPILE_THRESHOLD &&
-            !compilationFailed) {
-
-          if (tryCompileAndRun(context, rho, call, elements, i)) {
+        if (tieredBody != null && tieredBody.isHot()) {
+          int next = tieredBody.run(context, rho, elements, i);
+          if (next == TieredLoopBody.BREAK || next >= elements.length()) {
             break;
-          } else {
-            compilationFailed = true;
           }
+          i = next;
         }
 
         rho.setVariable(context, symbol, elements.getElementAsSEXP(i));
@@ -85,43 +77,18 @@ public class ForFunction extends SpecialFunction {
     return Null.INSTANCE;
   }
 
-  public boolean tryCompileAndRun(Context context, Environment rho, FunctionCall call, Vector sequence, int i) {
-
-    CompiledLoopBody compiledBody = null;
-
-    if(call.cache instanceof CachedLoopBody) {
-      CachedLoopBody cachedLoopBody = (CachedLoopBody) call.cache;
-      if(cachedLoopBody.assumptionsStillMet(context, rho, sequence)) {
-        compiledBody = cachedLoopBody.getCompiledBody();
-      }
+  private static TieredLoopBody tieredBody(FunctionCall call) {
+    if(call.cache instanceof TieredLoopBody) {
+      return (TieredLoopBody) call.cache;
     }
-
-    if(compiledBody == null) {
-      try {
-
-        CachedLoopBody compiled = SexpCompiler.compileForLoop(context, rho, call, sequence);
-
-        // Cache for subsequent evaluations...
-        call.cache = compiled;
-        compiledBody = compiled.getCompiledBody();
-
-      } catch (NotCompilableException e) {
-        if (ForFunction.FAIL_ON_COMPILATION_ERROR) {
-          throw new AssertionError("Loop compilation failed: " + e.toString(context));
-        }
-        context.warn("Could not compile loop because: " + e.toString(context));
-        return false;
-
-      } catch (InvalidSyntaxException e) {
-        throw new EvalException(e.getMessage());
-
-      } catch (Exception e) {
-        throw new EvalException("Exception compiling loop: " + e.getMessage(), e);
+    // The parse tree may be evaluated by several threads, which must share the same loop state
+    synchronized (call) {
+      if(call.cache instanceof TieredLoopBody) {
+        return (TieredLoopBody) call.cache;
       }
+      TieredLoopBody tieredBody = new TieredLoopBody(call);
+      call.cache = tieredBody;
+      return tieredBody;
     }
-
-    compiledBody.run(context, rho, sequence, i);
-    return true;
   }
-
 }
@@ -20,6 +20,7 @@ package org.renjin.primitives.special;
 
 import org.renjin.eval.Context;
 import org.renjin.sexp.Environment;
+import org.renjin.sexp.FunctionCall;
 import org.renjin.sexp.SEXP;
 import org.renjin.sexp.Symbol;
 
@@ -29,6 +30,14 @@ public class ReassignLeftFunction extends AssignLeftFunction {
     super("<<-");
   }
   
+  /**
+   * The target of a super-assignment is bound in an enclosing environment, so it is always copied.
+   */
+  @Override
+  protected boolean assignElement(Context context, Environment rho, FunctionCall lhs, SEXP rhs) {
+    return false;
+  }
+
   @Override
   protected void assignResult(Context context, Environment rho, Symbol lhs, SEXP rhs) {
 
@@ -19,10 +19,12 @@
 package org.renjin.primitives.special;
 
 import org.renjin.compiler.CachedBody;
+import org.renjin.compiler.CompilationListener;
 import org.renjin.compiler.CompiledBody;
 import org.renjin.compiler.NotCompilableException;
 import org.renjin.compiler.SexpCompiler;
 import org.renjin.compiler.ir.exception.InvalidSyntaxException;
+import org.renjin.compiler.ir.tac.RuntimeAssumption;
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
 import org.renjin.sexp.*;
@@ -72,14 +74,21 @@ public class WhileFunction extends SpecialFunction {
 
     CompiledBody compiledBody = null;
 
+    CompilationListener listener = SexpCompiler.getCompilationListener();
+
     if(call.cache instanceof CachedBody) {
       CachedBody cachedLoopBody = (CachedBody) call.cache;
-      if(cachedLoopBody.assumptionsStillMet(context, rho)) {
+      RuntimeAssumption violated = cachedLoopBody.findViolatedAssumption(context, rho);
+      if(violated == null) {
         compiledBody = cachedLoopBody.getCompiledBody();
+      } else {
+        listener.assumptionViolated(call, violated);
+        listener.deoptimized(call);
       }
     }
 
     if(compiledBody == null) {
+      long startTime = System.nanoTime();
       try {
 
         CachedBody compiled = SexpCompiler.compileSexp(context, rho, call);
@@ -92,15 +101,21 @@ public class WhileFunction extends SpecialFunction {
         if (ForFunction.FAIL_ON_COMPILATION_ERROR) {
           throw new AssertionError("Loop compilation failed: " + e.toString(context));
         }
-        context.warn("Could not compile while loop because: " + e.toString(context));
+        listener.compilationFailed(call, e);
         return false;
 
       } catch (InvalidSyntaxException e) {
         throw new EvalException(e.getMessage());
 
-      } catch (Exception e) {
-        throw new EvalException("Exception compiling loop: " + e.getMessage(), e);
+      } catch (Exception | VerifyError e) {
+        if (ForFunction.FAIL_ON_COMPILATION_ERROR) {
+          throw new AssertionError("Loop compilation failed", e);
+        }
+        // The interpreter can still evaluate the loop
+        listener.compilationFailed(call, e);
+        return false;
       }
+      listener.compiled(call, System.nanoTime() - startTime);
     }
 
     compiledBody.evaluate(context, rho);
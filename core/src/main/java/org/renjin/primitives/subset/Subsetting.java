@@ -319,6 +319,146 @@ public class Subsetting {
     }
   }
 
+  /**
+   * Evaluates {@code x[i]} or {@code x[[i]]}, where {@code x} is a variable bound in {@code rho} to a value that
+   * it {@link AbstractSEXP#isOwned() owns}, without giving up ownership if {@code i} is a single positive index,
+   * as the selected element is copied out of {@code x}. A loop such as {@code x[i] <- x[i-1] + 1} can then
+   * keep replacing the elements of {@code x} in place.
+   *
+   * <p>{@code x} is {@link AbstractSEXP#lend() lent} while {@code i} is evaluated, so that it is not modified
+   * by {@code i}, and it remains shared if {@code i} read it.</p>
+   *
+   * @return the selected element, or {@code null} if {@code call} is not of this form, and must be evaluated
+   * by the {@code [} or {@code [[} builtin.
+   */
+  public static SEXP getElementOfOwnedVariable(Context context, Environment rho, FunctionCall call,
+                                               boolean singleElement) {
+    PairList arguments = call.getArguments();
+    if(!(arguments instanceof PairList.Node)) {
+      return null;
+    }
+    PairList.Node sourceArgument = (PairList.Node) arguments;
+    PairList.Node subscriptArgument = sourceArgument.getNextNode();
+    if(subscriptArgument == null || subscriptArgument.hasNextNode() ||
+        sourceArgument.hasTag() || subscriptArgument.hasTag() ||
+        !(sourceArgument.getValue() instanceof Symbol)) {
+      return null;
+    }
+    SEXP subscriptExp = subscriptArgument.getValue();
+    if(subscriptExp == Symbol.MISSING_ARG || subscriptExp == Symbols.ELLIPSES) {
+      return null;
+    }
+    AbstractSEXP source = rho.getOwnedVariable((Symbol) sourceArgument.getValue());
+    if(source == null || source.isObject() || !(source instanceof AtomicVector || source instanceof ListVector)) {
+      return null;
+    }
+
+    SEXP subscript;
+    source.lend();
+    try {
+      subscript = context.evaluate(subscriptExp, rho);
+    } finally {
+      source.reclaim();
+    }
+
+    SEXP result;
+    if(singleElement) {
+      result = getSingleElement(context, source, new ListVector(subscript), true, true);
+    } else {
+      result = getSubset(context, source, new ListVector(subscript), true);
+    }
+    if(result == source || singleIndex(subscript) < 0) {
+      AbstractSEXP.share(source);
+    }
+    return result;
+  }
+
+  /**
+   * Carries out the common case of {@code x[i] <- value} or {@code x[[i]] <- value} with a single positive
+   * index {@code i} and a scalar {@code value} of the same or a narrower type than {@code x}, by replacing the element
+   * in place.
+   *
+   * <p>If {@code source} is {@link AbstractSEXP#isOwned() owned}, it is modified in place. Otherwise it is
+   * copied, and the caller can take ownership of the copy once it has been assigned, so that subsequent
+   * assignments do not need to copy it again.</p>
+   *
+   * <p>Double and integer vectors without attributes are extended in place if {@code i} lies beyond their end.
+   * Lists are only modified in place by {@code [[<-}, and only within their current length.</p>
+   *
+   * @return the modified vector, or {@code null} if this is not the common case, and the replacement must be
+   * made by the {@code [<-} or {@code [[<-} builtin.
+   */
+  public static Vector setElementInPlace(SEXP source, SEXP subscript, SEXP replacement, boolean singleElement) {
+    if(source.isObject() || replacement.isObject()) {
+      return null;
+    }
+    int index = singleIndex(subscript);
+    if(index < 0) {
+      return null;
+    }
+    if(source instanceof ListVector) {
+      if(source.getClass() != ListVector.class || !singleElement || replacement == Null.INSTANCE || index >= source.length()) {
+        return null;
+      }
+      ListVector list;
+      if(((AbstractSEXP) source).isOwned()) {
+        list = (ListVector) source;
+      } else {
+        list = new ListVector(((ListVector) source).toArrayUnsafe(), source.getAttributes());
+      }
+      list.setElementInPlace(index, replacement);
+      return list;
+    }
+
+    if(replacement.length() != 1 || (index >= source.length() && source.hasAttributes())) {
+      return null;
+    }
+    if(source instanceof DoubleVector) {
+      if(!(replacement instanceof DoubleVector || replacement instanceof IntVector ||
+           replacement instanceof LogicalVector)) {
+        return null;
+      }
+      DoubleArrayVector vector;
+      if(((AbstractSEXP) source).isOwned()) {
+        vector = (DoubleArrayVector) source;
+      } else {
+        vector = new DoubleArrayVector((AtomicVector) source);
+      }
+      return vector.setElementInPlace(index, ((AtomicVector) replacement).getElementAsDouble(0));
+
+    } else if(source instanceof IntVector) {
+      if(!(replacement instanceof IntVector || replacement instanceof LogicalVector)) {
+        return null;
+      }
+      IntArrayVector vector;
+      if(((AbstractSEXP) source).isOwned()) {
+        vector = (IntArrayVector) source;
+      } else {
+        vector = new IntArrayVector((AtomicVector) source);
+      }
+      return vector.setElementInPlace(index, ((AtomicVector) replacement).getElementAsInt(0));
+    }
+    return null;
+  }
+
+  /**
+   * @return the zero-based index selected by {@code subscript} if it is a single, positive number, or -1 otherwise.
+   */
+  private static int singleIndex(SEXP subscript) {
+    if(subscript.isObject() || subscript.length() != 1) {
+      return -1;
+    }
+    if(subscript instanceof IntVector) {
+      int index = ((IntVector) subscript).getElementAsInt(0);
+      return index >= 1 ? index - 1 : -1;
+    }
+    if(subscript instanceof DoubleVector) {
+      double index = ((DoubleVector) subscript).getElementAsDouble(0);
+      return index >= 1 && index < Integer.MAX_VALUE ? (int) index - 1 : -1;
+    }
+    return -1;
+  }
+
 
   @Generic
   @Builtin("[[<-")
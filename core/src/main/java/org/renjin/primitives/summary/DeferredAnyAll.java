@@ -0,0 +1,70 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.primitives.summary;
+
+import org.renjin.sexp.*;
+
+/**
+ * The deferred {@code any()} or {@code all()} of a logical vector. The result is
+ * 1 for {@code TRUE}, 0 for {@code FALSE} or NA.
+ */
+public class DeferredAnyAll extends DeferredSummary {
+
+  private final boolean all;
+  private final boolean removeNA;
+
+  public DeferredAnyAll(Vector vector, boolean all, boolean removeNA, AttributeMap attributes) {
+    super(vector, attributes);
+    this.all = all;
+    this.removeNA = removeNA;
+  }
+
+  @Override
+  public String getComputationName() {
+    return (all ? "all" : "any") + (removeNA ? "NaRm" : "");
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return new DeferredAnyAll(vector, all, removeNA, attributes);
+  }
+
+  @Override
+  protected double calculate() {
+    for (int i = 0; i < vector.length(); i++) {
+      int value = vector.getElementAsRawLogical(i);
+      if(value == IntVector.NA) {
+        if(!removeNA) {
+          return DoubleVector.NA;
+        }
+      } else if(all ? value == 0 : value != 0) {
+        return all ? 0 : 1;
+      }
+    }
+    return all ? 1 : 0;
+  }
+
+  public Logical getLogical() {
+    double value = getElementAsDouble(0);
+    if(Double.isNaN(value)) {
+      return Logical.NA;
+    }
+    return value != 0 ? Logical.TRUE : Logical.FALSE;
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.primitives.summary;
+
+import org.renjin.primitives.vector.MemoizedDoubleVector;
+import org.renjin.sexp.*;
+
+import java.util.Arrays;
+
+/**
+ * The deferred cumulative sum or product of a double vector.
+ */
+public class DeferredCumulative extends MemoizedDoubleVector {
+
+  private final Vector vector;
+  private final boolean product;
+
+  public DeferredCumulative(Vector vector, boolean product, AttributeMap attributes) {
+    super(new Vector[] { vector }, vector.length(), attributes);
+    this.vector = vector;
+    this.product = product;
+  }
+
+  @Override
+  public Vector computeResult() {
+    double[] result = new double[vector.length()];
+    double acc = product ? 1 : 0;
+    for (int i = 0; i < result.length; i++) {
+      if(product) {
+        acc *= vector.getElementAsDouble(i);
+      } else {
+        acc += vector.getElementAsDouble(i);
+        if(DoubleVector.isNA(acc)) {
+          Arrays.fill(result, i, result.length, DoubleVector.NA);
+          break;
+        }
+      }
+      result[i] = acc;
+    }
+    return DoubleArrayVector.unsafe(result, getAttributes());
+  }
+
+  @Override
+  public String getComputationName() {
+    return product ? "cumprod" : "cumsum";
+  }
+
+  @Override
+  public boolean isConstantAccessTime() {
+    return false;
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return new DeferredCumulative(vector, product, attributes);
+  }
+}
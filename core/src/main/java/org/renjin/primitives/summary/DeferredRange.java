@@ -0,0 +1,86 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.primitives.summary;
+
+import org.renjin.primitives.vector.MemoizedDoubleVector;
+import org.renjin.sexp.*;
+
+/**
+ * The deferred {@code range} of a double vector, computing both the minimum
+ * and maximum in a single pass.
+ */
+public class DeferredRange extends MemoizedDoubleVector {
+
+  private final Vector vector;
+
+  public DeferredRange(Vector vector, AttributeMap attributes) {
+    super(new Vector[] { vector }, 2, attributes);
+    this.vector = vector;
+  }
+
+  @Override
+  public Vector computeResult() {
+    return DoubleArrayVector.unsafe(range(vector), getAttributes());
+  }
+
+  /**
+   * Computes the minimum and maximum of {@code vector}. If the vector contains an NA, both
+   * are NA, otherwise if the vector contains an NaN, both are NaN.
+   */
+  static double[] range(Vector vector) {
+    double min = Double.POSITIVE_INFINITY;
+    double max = Double.NEGATIVE_INFINITY;
+    double nan = 0;
+    for (int i = 0; i < vector.length(); i++) {
+      double value = vector.getElementAsDouble(i);
+      if(Double.isNaN(value)) {
+        if(DoubleVector.isNA(value)) {
+          return new double[] { value, value };
+        }
+        nan = value;
+      } else {
+        if(value < min) {
+          min = value;
+        }
+        if(value > max) {
+          max = value;
+        }
+      }
+    }
+    if(Double.isNaN(nan)) {
+      return new double[] { nan, nan };
+    }
+    return new double[] { min, max };
+  }
+
+  @Override
+  public String getComputationName() {
+    return "range";
+  }
+
+  @Override
+  public boolean isConstantAccessTime() {
+    return false;
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return new DeferredRange(vector, attributes);
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.primitives.summary;
+
+import org.renjin.sexp.AttributeMap;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.Vector;
+
+/**
+ * The deferred sample variance of a double vector, which, as with {@code cov(use = "everything")}, is
+ * {@code NA} if any element is {@code NA} or {@code NaN}.
+ */
+public class DeferredVariance extends DeferredSummary {
+
+  public DeferredVariance(Vector vector, AttributeMap attributes) {
+    super(vector, attributes);
+  }
+
+  @Override
+  public String getComputationName() {
+    return "var";
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return new DeferredVariance(vector, attributes);
+  }
+
+  @Override
+  protected double calculate() {
+    int n = vector.length();
+
+    double sum = 0;
+    for (int i = 0; i < n; i++) {
+      double x = vector.getElementAsDouble(i);
+      if(Double.isNaN(x)) {
+        return DoubleVector.NA;
+      }
+      sum += x;
+    }
+    double mean = sum / n;
+
+    // Refine the mean as GNU R does
+    if(Double.isFinite(mean)) {
+      double residuals = 0;
+      for (int i = 0; i < n; i++) {
+        residuals += vector.getElementAsDouble(i) - mean;
+      }
+      mean += residuals / n;
+    }
+
+    double sumOfSquares = 0;
+    for (int i = 0; i < n; i++) {
+      double residual = vector.getElementAsDouble(i) - mean;
+      sumOfSquares += residual * residual;
+    }
+    return sumOfSquares / (n - 1);
+  }
+}
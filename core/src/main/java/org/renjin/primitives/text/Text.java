@@ -22,12 +22,14 @@ import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
 import org.renjin.gcc.format.Formatter;
 import org.renjin.invoke.annotations.*;
+import org.renjin.pipeliner.VectorPipeliner;
 import org.renjin.primitives.Deparse;
 import org.renjin.primitives.matrix.IntMatrixBuilder;
 import org.renjin.primitives.print.StringPrinter;
 import org.renjin.primitives.sequence.RepStringVector;
 import org.renjin.primitives.text.regex.ExtendedRE;
 import org.renjin.primitives.text.regex.FuzzyMatcher;
+import org.renjin.primitives.text.regex.PerlRE;
 import org.renjin.primitives.text.regex.RE;
 import org.renjin.primitives.text.regex.REFactory;
 import org.renjin.repackaged.guava.base.Function;
@@ -328,14 +330,15 @@ public class Text {
    */
   @Internal
   @DataParallel
-  public static String sub(String pattern, String replacement,
+  public static String sub(@Current Context context,
+                           String pattern, String replacement,
                            @Recycle String x,
                            boolean ignoreCase,
                            boolean perl,
                            boolean fixed,
                            boolean useBytes) {
     
-    RE re = REFactory.compile(pattern, ignoreCase, perl, fixed, useBytes);
+    RE re = REFactory.compile(context.getSession().getRegexCache(), pattern, ignoreCase, perl, fixed, useBytes);
     return  re.subst(x, replacement, ExtendedRE.REPLACE_FIRSTONLY | ExtendedRE.REPLACE_BACKREFERENCES );
   }
 
@@ -355,14 +358,15 @@ public class Text {
    */
   @Internal
   @DataParallel
-  public static String gsub(String pattern, String replacement,
+  public static String gsub(@Current Context context,
+                            String pattern, String replacement,
                             @Recycle String x,
                             boolean ignoreCase,
                             boolean perl,
                             boolean fixed,
                             boolean useBytes) {
 
-    RE re = REFactory.compile(pattern, ignoreCase, perl, fixed, useBytes);
+    RE re = REFactory.compile(context.getSession().getRegexCache(), pattern, ignoreCase, perl, fixed, useBytes);
     return re.subst(x, replacement, ExtendedRE.REPLACE_ALL | ExtendedRE.REPLACE_BACKREFERENCES );
   }
 
@@ -378,17 +382,19 @@ public class Text {
    */
   @Internal
   @DataParallel
-  public static StringVector strsplit(@Recycle String x, @Recycle String split,
+  public static StringVector strsplit(@Current Context context,
+                                      @Recycle String x, @Recycle String split,
                                       boolean fixed,
                                       boolean perl,
                                       boolean useBytes) {
 
-    RE re = REFactory.compile(split, false, perl, fixed, useBytes);
+    RE re = REFactory.compile(context.getSession().getRegexCache(), split, false, perl, fixed, useBytes);
     return new StringArrayVector( re.split(x) );
   }
 
   @Internal
   public static Vector grep(
+      @Current Context context,
       String pattern,
       StringVector x,
       boolean ignoreCase,
@@ -402,12 +408,13 @@ public class Text {
       return new StringArrayVector(new String[x.length()]);
     }
 
-    RE re = REFactory.compile(pattern,ignoreCase, perl, fixed, useBytes);
+    RE re = REFactory.compile(context.getSession().getRegexCache(), pattern,ignoreCase, perl, fixed, useBytes);
+    boolean[] matches = matchAll(context, re, x);
     if(value) {
       StringVector.Builder result = new StringVector.Builder();
-      for(String string : x) {
-        if(re.match(string)) {
-          result.add(string);
+      for(int i=0;i!=x.length();++i) {
+        if(matches[i]) {
+          result.add(x.getElementAsString(i));
         }
       }
       return result.build();
@@ -415,16 +422,32 @@ public class Text {
 
       IntArrayVector.Builder result = new IntArrayVector.Builder(0);
       for(int i=0;i!=x.length();++i) {
-        if (!x.isElementNA(i)) {
-          if (re.match(x.getElementAsString(i))) {
-            result.add(i + 1);
-          }
+        if (matches[i]) {
+          result.add(i + 1);
         }
       }
       return result.build();
     }
   }
 
+  /**
+   * Matches {@code re} against each element of {@code x}. Perl-compatible expressions
+   * are matched in a single pass, which is split over the session's threads for long vectors.
+   *
+   * @return for each element, {@code true} if it is not NA and matches {@code re}
+   */
+  private static boolean[] matchAll(Context context, RE re, StringVector x) {
+    if(re instanceof PerlRE) {
+      VectorPipeliner engine = context.getSession().getVectorEngine();
+      return ((PerlRE) re).matchAll(x, engine.getExecutorService(), engine.getParallelism());
+    }
+    boolean[] matches = new boolean[x.length()];
+    for(int i=0;i!=x.length();++i) {
+      matches[i] = !x.isElementNA(i) && re.match(x.getElementAsString(i));
+    }
+    return matches;
+  }
+
   /**
    *
    * @param pattern
@@ -439,6 +462,7 @@ public class Text {
    */
   @Internal
   public static Vector grepl(
+      @Current Context context,
       String pattern,
       StringVector x,
       boolean ignoreCase,
@@ -452,10 +476,11 @@ public class Text {
       return new StringArrayVector(new String[x.length()]);
     }
 
-    RE re = REFactory.compile(pattern, ignoreCase,  perl, fixed, useBytes);
-    LogicalArrayVector.Builder result = new LogicalArrayVector.Builder();
-    for(String string : x) {
-      result.add( ! StringVector.isNA(string) && re.match(string ));
+    RE re = REFactory.compile(context.getSession().getRegexCache(), pattern, ignoreCase,  perl, fixed, useBytes);
+    boolean[] matches = matchAll(context, re, x);
+    LogicalArrayVector.Builder result = new LogicalArrayVector.Builder(0, matches.length);
+    for(boolean match : matches) {
+      result.add(match);
     }
     return result.build();
   }
@@ -513,10 +538,10 @@ public class Text {
 
 
   @Internal
-  public static IntVector regexpr(String pattern, StringVector vector, boolean ignoreCase, boolean perl,
+  public static IntVector regexpr(@Current Context context, String pattern, StringVector vector, boolean ignoreCase, boolean perl,
                                   boolean fixed, boolean useBytes) {
 
-    RE re = REFactory.compile(pattern, ignoreCase,  perl, fixed, useBytes);
+    RE re = REFactory.compile(context.getSession().getRegexCache(), pattern, ignoreCase,  perl, fixed, useBytes);
 
     IntArrayVector.Builder position = IntArrayVector.Builder.withInitialCapacity(vector.length());
     IntArrayVector.Builder matchLength = IntArrayVector.Builder.withInitialCapacity(vector.length());
@@ -527,7 +552,11 @@ public class Text {
     StringVector captureNames = null;
 
     if(groups > 0) {
-      captureNames = RepStringVector.createConstantVector("", groups);
+      if(re instanceof PerlRE) {
+        captureNames = new StringArrayVector(((PerlRE) re).getGroupNames());
+      } else {
+        captureNames = RepStringVector.createConstantVector("", groups);
+      }
       captureStart = new IntMatrixBuilder(vector.length(), groups);
       captureLength = new IntMatrixBuilder(vector.length(), groups);
 
@@ -575,8 +604,8 @@ public class Text {
   }
 
   @Internal
-  public static ListVector regexec(String pattern, StringVector vector, boolean ignoreCase, boolean fixed, boolean useBytes) {
-    RE re = REFactory.compile(pattern, ignoreCase, false, fixed, useBytes);
+  public static ListVector regexec(@Current Context context, String pattern, StringVector vector, boolean ignoreCase, boolean fixed, boolean useBytes) {
+    RE re = REFactory.compile(context.getSession().getRegexCache(), pattern, ignoreCase, false, fixed, useBytes);
     int groupCount = re.getGroupCount();
 
 
@@ -611,11 +640,11 @@ public class Text {
 
 
   @Internal
-  public static ListVector gregexpr(String pattern, StringVector vector, boolean ignoreCase, boolean perl,
+  public static ListVector gregexpr(@Current Context context, String pattern, StringVector vector, boolean ignoreCase, boolean perl,
                                   boolean fixed, boolean useBytes) {
 
     ListVector.Builder regexpResults = new ListVector.Builder(0, vector.length());
-    RE re = REFactory.compile(pattern, ignoreCase,  perl, fixed, useBytes);
+    RE re = REFactory.compile(context.getSession().getRegexCache(), pattern, ignoreCase,  perl, fixed, useBytes);
 
     for(String text : vector) {
       IntArrayVector.Builder position = IntArrayVector.Builder.withInitialCapacity(vector.length());
@@ -932,7 +932,7 @@ public class ExtendedRE implements Serializable, RE {
             case E_BOUND: {
               char cLast = ((idx == 0) ? '\n' : search.charAt(idx - 1));
               char cNext = ((search.isEnd(idx)) ? '\n' : search.charAt(idx));
-              if ((Character.isLetterOrDigit(cLast) == Character.isLetterOrDigit(cNext)) == (opdata == E_BOUND)) {
+              if (!matchesBoundary(opdata, cLast, cNext)) {
                 return -1;
               }
             }
@@ -951,30 +951,8 @@ public class ExtendedRE implements Serializable, RE {
                 return -1;
               }
 
-              char c = search.charAt(idx);
-
-              // Switch on escape
-              switch (opdata) {
-                case E_ALNUM:
-                case E_NALNUM:
-                  if (!((Character.isLetterOrDigit(c) || c == '_') == (opdata == E_ALNUM))) {
-                    return -1;
-                  }
-                  break;
-
-                case E_DIGIT:
-                case E_NDIGIT:
-                  if (!(Character.isDigit(c) == (opdata == E_DIGIT))) {
-                    return -1;
-                  }
-                  break;
-
-                case E_SPACE:
-                case E_NSPACE:
-                  if (!(Character.isWhitespace(c) == (opdata == E_SPACE))) {
-                    return -1;
-                  }
-                  break;
+              if (!matchesEscape(opdata, search.charAt(idx))) {
+                return -1;
               }
               idx++;
               break;
@@ -1033,116 +1011,8 @@ public class ExtendedRE implements Serializable, RE {
             return -1;
           }
 
-          switch (opdata) {
-            case POSIX_CLASS_ALNUM:
-              if (!Character.isLetterOrDigit(search.charAt(idx))) {
-                return -1;
-              }
-              break;
-
-            case POSIX_CLASS_ALPHA:
-              if (!Character.isLetter(search.charAt(idx))) {
-                return -1;
-              }
-              break;
-
-            case POSIX_CLASS_DIGIT:
-              if (!Character.isDigit(search.charAt(idx))) {
-                return -1;
-              }
-              break;
-
-            case POSIX_CLASS_BLANK: // JWL - bugbug: is this right??
-              if (!Character.isSpaceChar(search.charAt(idx))) {
-                return -1;
-              }
-              break;
-
-            case POSIX_CLASS_SPACE:
-              if (!Character.isWhitespace(search.charAt(idx))) {
-                return -1;
-              }
-              break;
-
-            case POSIX_CLASS_CNTRL:
-              if (Character.getType(search.charAt(idx)) != Character.CONTROL) {
-                return -1;
-              }
-              break;
-
-            case POSIX_CLASS_GRAPH: // JWL - bugbug???
-              switch (Character.getType(search.charAt(idx))) {
-                case Character.MATH_SYMBOL:
-                case Character.CURRENCY_SYMBOL:
-                case Character.MODIFIER_SYMBOL:
-                case Character.OTHER_SYMBOL:
-                  break;
-
-                default:
-                  return -1;
-              }
-              break;
-
-            case POSIX_CLASS_LOWER:
-              if (Character.getType(search.charAt(idx)) != Character.LOWERCASE_LETTER) {
-                return -1;
-              }
-              break;
-
-            case POSIX_CLASS_UPPER:
-              if (Character.getType(search.charAt(idx)) != Character.UPPERCASE_LETTER) {
-                return -1;
-              }
-              break;
-
-            case POSIX_CLASS_PRINT:
-              if (Character.getType(search.charAt(idx)) == Character.CONTROL) {
-                return -1;
-              }
-              break;
-
-            case POSIX_CLASS_PUNCT: {
-              int type = Character.getType(search.charAt(idx));
-              switch (type) {
-                case Character.DASH_PUNCTUATION:
-                case Character.START_PUNCTUATION:
-                case Character.END_PUNCTUATION:
-                case Character.CONNECTOR_PUNCTUATION:
-                case Character.OTHER_PUNCTUATION:
-                  break;
-
-                default:
-                  return -1;
-              }
-            }
-            break;
-
-            case POSIX_CLASS_XDIGIT: // JWL - bugbug??
-            {
-              boolean isXDigit = ((search.charAt(idx) >= '0' && search.charAt(idx) <= '9') ||
-                  (search.charAt(idx) >= 'a' && search.charAt(idx) <= 'f') ||
-                  (search.charAt(idx) >= 'A' && search.charAt(idx) <= 'F'));
-              if (!isXDigit) {
-                return -1;
-              }
-            }
-            break;
-
-            case POSIX_CLASS_JSTART:
-              if (!Character.isJavaIdentifierStart(search.charAt(idx))) {
-                return -1;
-              }
-              break;
-
-            case POSIX_CLASS_JPART:
-              if (!Character.isJavaIdentifierPart(search.charAt(idx))) {
-                return -1;
-              }
-              break;
-
-            default:
-              internalError("Bad posix class");
-              break;
+          if (!matchesPosixClass(opdata, search.charAt(idx))) {
+            return -1;
           }
 
           // Matched.
@@ -1156,24 +1026,9 @@ public class ExtendedRE implements Serializable, RE {
             return -1;
           }
 
-          // Get character to match against character class and maybe casefold
-          char c = search.charAt(idx);
-          boolean caseFold = (matchFlags & MATCH_CASEINDEPENDENT) != 0;
-          // Loop through character class checking our match character
-          int idxRange = node + NODE_SIZE;
-          int idxEnd = idxRange + (opdata * 2);
-          boolean match = false;
-          for (int i = idxRange; !match && i < idxEnd; ) {
-            // Get start, end and match characters
-            char s = instruction[i++];
-            char e = instruction[i++];
-
-            match = ((compareChars(c, s, caseFold) >= 0)
-                && (compareChars(c, e, caseFold) <= 0));
-          }
-
           // Fail if we didn't match the character class
-          if (!match) {
+          boolean caseFold = (matchFlags & MATCH_CASEINDEPENDENT) != 0;
+          if (!matchesAnyOf(instruction, node, opdata, search.charAt(idx), caseFold)) {
             return -1;
           }
           idx++;
@@ -1550,12 +1405,182 @@ public class ExtendedRE implements Serializable, RE {
     return ret;
   }
 
+  /**
+   * @return true if the character {@code c} is matched by the escaped character class {@code \w},
+   * {@code \W}, {@code \d}, {@code \D}, {@code \s} or {@code \S}
+   */
+  static boolean matchesEscape(int opdata, char c) {
+    switch (opdata) {
+      case E_ALNUM:
+      case E_NALNUM:
+        return (Character.isLetterOrDigit(c) || c == '_') == (opdata == E_ALNUM);
+
+      case E_DIGIT:
+      case E_NDIGIT:
+        return Character.isDigit(c) == (opdata == E_DIGIT);
+
+      case E_SPACE:
+      case E_NSPACE:
+        return Character.isWhitespace(c) == (opdata == E_SPACE);
+
+      default:
+        throw new Error("RE internal error: Unrecognized escape '" + opdata + "'");
+    }
+  }
+
+  /**
+   * @return true if the position between {@code cLast} and {@code cNext} satisfies the word boundary
+   * assertion {@code \b} or {@code \B}
+   */
+  static boolean matchesBoundary(int opdata, char cLast, char cNext) {
+    return (Character.isLetterOrDigit(cLast) == Character.isLetterOrDigit(cNext)) != (opdata == E_BOUND);
+  }
+
+  /**
+   * @return true if the character {@code c} belongs to the posix character class {@code opdata}
+   */
+  static boolean matchesPosixClass(int opdata, char c) {
+    switch (opdata) {
+      case POSIX_CLASS_ALNUM:
+        if (!Character.isLetterOrDigit(c)) {
+          return false;
+        }
+        break;
+
+      case POSIX_CLASS_ALPHA:
+        if (!Character.isLetter(c)) {
+          return false;
+        }
+        break;
+
+      case POSIX_CLASS_DIGIT:
+        if (!Character.isDigit(c)) {
+          return false;
+        }
+        break;
+
+      case POSIX_CLASS_BLANK: // JWL - bugbug: is this right??
+        if (!Character.isSpaceChar(c)) {
+          return false;
+        }
+        break;
+
+      case POSIX_CLASS_SPACE:
+        if (!Character.isWhitespace(c)) {
+          return false;
+        }
+        break;
+
+      case POSIX_CLASS_CNTRL:
+        if (Character.getType(c) != Character.CONTROL) {
+          return false;
+        }
+        break;
+
+      case POSIX_CLASS_GRAPH: // JWL - bugbug???
+        switch (Character.getType(c)) {
+          case Character.MATH_SYMBOL:
+          case Character.CURRENCY_SYMBOL:
+          case Character.MODIFIER_SYMBOL:
+          case Character.OTHER_SYMBOL:
+            break;
+
+          default:
+            return false;
+        }
+        break;
+
+      case POSIX_CLASS_LOWER:
+        if (Character.getType(c) != Character.LOWERCASE_LETTER) {
+          return false;
+        }
+        break;
+
+      case POSIX_CLASS_UPPER:
+        if (Character.getType(c) != Character.UPPERCASE_LETTER) {
+          return false;
+        }
+        break;
+
+      case POSIX_CLASS_PRINT:
+        if (Character.getType(c) == Character.CONTROL) {
+          return false;
+        }
+        break;
+
+      case POSIX_CLASS_PUNCT: {
+        int type = Character.getType(c);
+        switch (type) {
+          case Character.DASH_PUNCTUATION:
+          case Character.START_PUNCTUATION:
+          case Character.END_PUNCTUATION:
+          case Character.CONNECTOR_PUNCTUATION:
+          case Character.OTHER_PUNCTUATION:
+            break;
+
+          default:
+            return false;
+        }
+      }
+      break;
+
+      case POSIX_CLASS_XDIGIT: // JWL - bugbug??
+      {
+        boolean isXDigit = ((c >= '0' && c <= '9') ||
+            (c >= 'a' && c <= 'f') ||
+            (c >= 'A' && c <= 'F'));
+        if (!isXDigit) {
+          return false;
+        }
+      }
+      break;
+
+      case POSIX_CLASS_JSTART:
+        if (!Character.isJavaIdentifierStart(c)) {
+          return false;
+        }
+        break;
+
+      case POSIX_CLASS_JPART:
+        if (!Character.isJavaIdentifierPart(c)) {
+          return false;
+        }
+        break;
+
+      default:
+        throw new Error("RE internal error: Bad posix class");
+    }
+
+    return true;
+  }
+
+  /**
+   * @return true if the character {@code c} falls within one of the {@code count} ranges
+   * of the OP_ANYOF node at {@code node}
+   */
+  static boolean matchesAnyOf(char[] instruction, int node, int count, char c, boolean caseFold) {
+    int idxRange = node + NODE_SIZE;
+    int idxEnd = idxRange + (count * 2);
+    for (int i = idxRange; i < idxEnd; ) {
+      // Get start, end and match characters
+      char s = instruction[i++];
+      char e = instruction[i++];
+
+      if ((compareChars(c, s, caseFold) >= 0) && (compareChars(c, e, caseFold) <= 0)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * @return true if character at i-th position in the <code>search</code> string is a newline
    */
   private boolean isNewline(int i) {
-    char nextChar = search.charAt(i);
+    return isNewline(search.charAt(i));
+  }
 
+  static boolean isNewline(char nextChar) {
     return nextChar == '\n' || nextChar == '\r' || nextChar == '\u0085' ||
         nextChar == '\u2028' || nextChar == '\u2029';
   }
@@ -1569,7 +1594,7 @@ public class ExtendedRE implements Serializable, RE {
    * @return negative, 0, or positive integer as the first character
    * less than, equal to, or greater then the second.
    */
-  private int compareChars(char c1, char c2, boolean caseIndependent) {
+  static int compareChars(char c1, char c2, boolean caseIndependent) {
     if (caseIndependent) {
       c1 = Character.toLowerCase(c1);
       c2 = Character.toLowerCase(c2);
@@ -0,0 +1,449 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.primitives.text.regex;
+
+import java.util.Arrays;
+
+/**
+ * Runs a compiled {@link REProgram} by simulating all paths through the program in parallel,
+ * rather than backtracking as {@link ExtendedRE} does.
+ *
+ * <p>This is the "Pike VM" variant of Thompson's NFA simulation: at each position in the input, we keep
+ * the list of program nodes that can still lead to a match, ordered by priority. A node reached at the same position
+ * by a lower priority path is dropped, so each character of the input is examined at most once for each node in
+ * the program, and a match always completes in time proportional to {@code length(input) x length(program)}.
+ * Patterns like {@code (a|aa)*b} that take exponential time to backtrack are no longer a problem.</p>
+ *
+ * <p>Because paths are explored in the same order of priority as the backtracking matcher, the match found,
+ * including the positions of the parenthesized subexpressions, is the same. Backreferences within the pattern
+ * cannot be matched this way, so {@link REFactory} only selects this matcher for programs without them.</p>
+ */
+public class NfaRE extends ExtendedRE {
+
+  /**
+   * The list of threads at a single position in the input, in order of priority.
+   */
+  private static class ThreadList {
+    private int[] nodes;
+    private int[] atomOffsets;
+    private int[][] groups;
+    private int size;
+
+    ThreadList(int capacity) {
+      nodes = new int[capacity];
+      atomOffsets = new int[capacity];
+      groups = new int[capacity][];
+    }
+
+    void add(int node, int atomOffset, int[] threadGroups) {
+      if(size == nodes.length) {
+        int newCapacity = size * 2;
+        nodes = Arrays.copyOf(nodes, newCapacity);
+        atomOffsets = Arrays.copyOf(atomOffsets, newCapacity);
+        groups = Arrays.copyOf(groups, newCapacity);
+      }
+      nodes[size] = node;
+      atomOffsets[size] = atomOffset;
+      groups[size] = threadGroups;
+      size++;
+    }
+
+    void clear() {
+      // Release references to the group arrays
+      Arrays.fill(groups, 0, size, null);
+      size = 0;
+    }
+  }
+
+  /**
+   * For each program node (or position within an atom), the generation in which
+   * it was last added to a thread list.
+   */
+  private int[] marks;
+  private int generation;
+
+  private ThreadList current;
+  private ThreadList next;
+
+  private int[] matchedGroups;
+
+  public NfaRE(REProgram program, int matchFlags) {
+    super(program, matchFlags);
+  }
+
+  public NfaRE(REProgram program) {
+    this(program, MATCH_NORMAL);
+  }
+
+  @Override
+  public boolean match(CharacterIterator search, int i) {
+    this.search = search;
+
+    if(marks == null) {
+      marks = new int[Math.max(1, program.lenInstruction)];
+      current = new ThreadList(16);
+      next = new ThreadList(16);
+    }
+
+    boolean anchored = (program.flags & REProgram.OPT_HASBOL) == REProgram.OPT_HASBOL &&
+        (matchFlags & MATCH_MULTILINE) == 0;
+
+    if(anchored && i != 0) {
+      parenCount = 0;
+      return false;
+    }
+
+    matchedGroups = null;
+    current.clear();
+    next.clear();
+
+    int idx = i;
+    newGeneration();
+    if(!startThread(idx)) {
+      parenCount = 0;
+      return false;
+    }
+
+    while(true) {
+
+      if(current.size == 0) {
+        if(matchedGroups != null || anchored) {
+          break;
+        }
+        // No more live threads: skip ahead to the next position where a match can start
+        idx = nextStart(idx + 1);
+        if(idx < 0) {
+          break;
+        }
+        newGeneration();
+        startThread(idx);
+        continue;
+      }
+
+      newGeneration();
+      step(idx);
+
+      ThreadList done = current;
+      current = next;
+      next = done;
+      next.clear();
+
+      if(search.isEnd(idx)) {
+        // Threads that are still waiting for input can never match
+        current.clear();
+        break;
+      }
+
+      idx++;
+
+      // Start a new, lowest-priority thread at this position, unless
+      // a match starting further to the left has already been found
+      if(matchedGroups == null && !anchored) {
+        startThread(idx);
+      }
+    }
+
+    current.clear();
+
+    if(matchedGroups == null) {
+      parenCount = 0;
+      return false;
+    }
+
+    setGroups(matchedGroups);
+    return true;
+  }
+
+  private void newGeneration() {
+    generation++;
+    if(generation == Integer.MAX_VALUE) {
+      Arrays.fill(marks, 0);
+      generation = 1;
+    }
+  }
+
+  /**
+   * Adds a thread starting a new match at {@code idx} to the current list, if the
+   * input at {@code idx} can begin a match.
+   *
+   * @return false if no match can start at or after {@code idx}
+   */
+  private boolean startThread(int idx) {
+    if(search.isEnd(idx - 1)) {
+      return false;
+    }
+    if(program.prefix != null && !matchesPrefix(idx)) {
+      // Leave the current list empty; the main loop will skip to the next candidate
+      return true;
+    }
+    int[] groups = new int[groupArrayLength()];
+    Arrays.fill(groups, -1);
+    groups[0] = idx;
+    addThread(current, 0, idx, groups);
+    return true;
+  }
+
+  private int groupArrayLength() {
+    return Math.max(1, program.maxParens) * 2;
+  }
+
+  /**
+   * @return the next position at or after {@code idx} at which a match could start, or -1 if there is none.
+   */
+  private int nextStart(int idx) {
+    for (; !search.isEnd(idx - 1); idx++) {
+      if(program.prefix == null || matchesPrefix(idx)) {
+        return idx;
+      }
+    }
+    return -1;
+  }
+
+  private boolean matchesPrefix(int idx) {
+    char[] prefix = program.prefix;
+    if(search.isEnd(idx + prefix.length - 1)) {
+      return false;
+    }
+    boolean caseIndependent = (matchFlags & MATCH_CASEINDEPENDENT) != 0;
+    for (int k = 0; k < prefix.length; k++) {
+      if(compareChars(search.charAt(idx + k), prefix[k], caseIndependent) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Advances each thread in the current list over the character at {@code idx}, adding the surviving threads
+   * to the next list.
+   */
+  private void step(int idx) {
+    char[] instruction = program.instruction;
+    boolean atEnd = search.isEnd(idx);
+    char c = atEnd ? 0 : search.charAt(idx);
+    boolean caseFold = (matchFlags & MATCH_CASEINDEPENDENT) != 0;
+
+    for (int t = 0; t < current.size; t++) {
+      int node = current.nodes[t];
+      int[] groups = current.groups[t];
+      int opcode = instruction[node];
+      int opdata = instruction[node + OFFSET_OPDATA];
+      int nextNode = node + (short) instruction[node + OFFSET_NEXT];
+
+      if(opcode == OP_END) {
+        // This is the highest priority thread that has reached the end of the program:
+        // it's our best match so far, and all lower priority threads can be discarded.
+        matchedGroups = groups.clone();
+        matchedGroups[1] = idx;
+        return;
+      }
+
+      if(atEnd) {
+        continue;
+      }
+
+      switch (opcode) {
+        case OP_ATOM: {
+          int offset = current.atomOffsets[t];
+          if(compareChars(c, instruction[node + NODE_SIZE + offset], caseFold) == 0) {
+            if(offset + 1 < opdata) {
+              addAtomThread(node, offset + 1, groups);
+            } else {
+              addThread(next, nextNode, idx + 1, groups);
+            }
+          }
+          break;
+        }
+
+        case OP_ANY:
+          if((matchFlags & MATCH_SINGLELINE) == MATCH_SINGLELINE || !isNewline(c)) {
+            addThread(next, nextNode, idx + 1, groups);
+          }
+          break;
+
+        case OP_ANYOF:
+          if(matchesAnyOf(instruction, node, opdata, c, caseFold)) {
+            addThread(next, nextNode, idx + 1, groups);
+          }
+          break;
+
+        case OP_POSIXCLASS:
+          if(matchesPosixClass(opdata, c)) {
+            addThread(next, nextNode, idx + 1, groups);
+          }
+          break;
+
+        case OP_ESCAPE:
+          if(matchesEscape(opdata, c)) {
+            addThread(next, nextNode, idx + 1, groups);
+          }
+          break;
+
+        default:
+          internalError("Invalid opcode in thread list '" + (char)opcode + "'");
+      }
+    }
+  }
+
+  /**
+   * Adds a thread that has matched the first {@code offset} characters of the atom at {@code node}
+   */
+  private void addAtomThread(int node, int offset, int[] groups) {
+    // The position of the character within the atom's data uniquely
+    // identifies this state.
+    int key = node + NODE_SIZE + offset;
+    if(marks[key] != generation) {
+      marks[key] = generation;
+      next.add(node, offset, groups);
+    }
+  }
+
+  /**
+   * Adds {@code node} to the {@code list} of threads at position {@code idx}, following all
+   * the nodes which do not consume input, in the same order in which {@link ExtendedRE#matchNodes(int, int, int)}
+   * would try them.
+   */
+  private void addThread(ThreadList list, int node, int idx, int[] groups) {
+    if(marks[node] == generation) {
+      return;
+    }
+    marks[node] = generation;
+
+    char[] instruction = program.instruction;
+    int opcode = instruction[node];
+    int opdata = instruction[node + OFFSET_OPDATA];
+    int nextNode = node + (short) instruction[node + OFFSET_NEXT];
+
+    switch (opcode) {
+      case OP_MAYBE:
+      case OP_STAR:
+        addThread(list, node + NODE_SIZE, idx, groups);
+        addThread(list, nextNode, idx, groups);
+        break;
+
+      case OP_PLUS:
+        addThread(list, nextNode, idx, groups);
+        addThread(list, nextNode + (short) instruction[nextNode + OFFSET_NEXT], idx, groups);
+        break;
+
+      case OP_RELUCTANTMAYBE:
+      case OP_RELUCTANTSTAR:
+        addThread(list, nextNode, idx, groups);
+        addThread(list, node + NODE_SIZE, idx, groups);
+        break;
+
+      case OP_RELUCTANTPLUS:
+        addThread(list, nextNode + (short) instruction[nextNode + OFFSET_NEXT], idx, groups);
+        addThread(list, nextNode, idx, groups);
+        break;
+
+      case OP_CONTINUE:
+        addThread(list, node + NODE_SIZE, idx, groups);
+        break;
+
+      case OP_BRANCH:
+        if(instruction[nextNode] != OP_BRANCH) {
+          addThread(list, node + NODE_SIZE, idx, groups);
+        } else {
+          int nextBranch;
+          do {
+            addThread(list, node + NODE_SIZE, idx, groups);
+            nextBranch = (short) instruction[node + OFFSET_NEXT];
+            node += nextBranch;
+          } while (nextBranch != 0 && instruction[node] == OP_BRANCH);
+        }
+        break;
+
+      case OP_OPEN:
+      case OP_CLOSE:
+        if(opdata < groupArrayLength() / 2) {
+          int[] updated = groups.clone();
+          updated[opdata * 2 + (opcode == OP_OPEN ? 0 : 1)] = idx;
+          groups = updated;
+        }
+        addThread(list, nextNode, idx, groups);
+        break;
+
+      case OP_OPEN_CLUSTER:
+      case OP_CLOSE_CLUSTER:
+      case OP_NOTHING:
+      case OP_GOTO:
+        addThread(list, nextNode, idx, groups);
+        break;
+
+      case OP_BOL:
+        if(idx == 0 || ((matchFlags & MATCH_MULTILINE) == MATCH_MULTILINE && isNewline(search.charAt(idx - 1)))) {
+          addThread(list, nextNode, idx, groups);
+        }
+        break;
+
+      case OP_EOL:
+        if(search.isEnd(0) || search.isEnd(idx) ||
+            ((matchFlags & MATCH_MULTILINE) == MATCH_MULTILINE && isNewline(search.charAt(idx)))) {
+          addThread(list, nextNode, idx, groups);
+        }
+        break;
+
+      case OP_ESCAPE:
+        if(opdata == E_BOUND || opdata == E_NBOUND) {
+          char cLast = ((idx == 0) ? '\n' : search.charAt(idx - 1));
+          char cNext = ((search.isEnd(idx)) ? '\n' : search.charAt(idx));
+          if(matchesBoundary(opdata, cLast, cNext)) {
+            addThread(list, nextNode, idx, groups);
+          }
+        } else {
+          list.add(node, 0, groups);
+        }
+        break;
+
+      case OP_END:
+      case OP_ATOM:
+      case OP_ANY:
+      case OP_ANYOF:
+      case OP_POSIXCLASS:
+        list.add(node, 0, groups);
+        break;
+
+      case OP_BACKREF:
+        internalError("Backreferences are not supported by NfaRE");
+        break;
+
+      default:
+        internalError("Invalid opcode '" + (char)opcode + "'");
+    }
+  }
+
+  private void setGroups(int[] groups) {
+    start0 = end0 = start1 = end1 = start2 = end2 = -1;
+    startn = null;
+    endn = null;
+
+    int count = 1;
+    for (int g = 1; g * 2 < groups.length; g++) {
+      if(groups[g * 2] != -1 || groups[g * 2 + 1] != -1) {
+        count = g + 1;
+      }
+    }
+    parenCount = count;
+    for (int g = 0; g < count; g++) {
+      setParenStart(g, groups[g * 2]);
+      setParenEnd(g, groups[g * 2 + 1]);
+    }
+  }
+}
@@ -0,0 +1,413 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.primitives.text.regex;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A Perl-compatible regular expression, translated to and compiled by {@link java.util.regex.Pattern}.
+ *
+ * <p>Java's syntax is close to that of PCRE, but differs in a few places that matter for code written
+ * against R's {@code perl = TRUE} mode:</p>
+ * <ul>
+ *   <li>POSIX classes such as {@code [[:alpha:]]} are written as {@code \p{Alpha}} in Java</li>
+ *   <li>Within a character class, PCRE treats {@code [} and {@code &&} as literals, while Java
+ *   uses them for unions and intersections, and a leading {@code ]} is a literal in PCRE.</li>
+ *   <li>Group names may contain underscores in PCRE, and can also be declared as {@code (?P<name>...)}
+ *   or {@code (?'name'...)}, and referenced as {@code (?P=name)}, {@code \k'name'}, {@code \k{name}}
+ *   or {@code \g{n}}.</li>
+ *   <li>Java has no {@code \N}, {@code (*UTF8)}-style option settings or {@code (?#...)} comments.</li>
+ * </ul>
+ *
+ * <p>Like {@link REProgram}, instances are immutable and can be shared between threads and cached.</p>
+ */
+public final class PerlProgram {
+
+  private final String source;
+  private final Pattern pattern;
+  private final String[] groupNames;
+
+  private PerlProgram(String source, Pattern pattern, String[] groupNames) {
+    this.source = source;
+    this.pattern = pattern;
+    this.groupNames = groupNames;
+  }
+
+  /**
+   * Compiles a Perl-compatible regular expression.
+   *
+   * @throws RESyntaxException if the pattern is invalid or uses a feature that Java does not support.
+   */
+  public static PerlProgram compile(String source, boolean ignoreCase) throws RESyntaxException {
+    Translator translator = new Translator(source);
+    String translated = translator.translate();
+    int flags = 0;
+    if(ignoreCase) {
+      flags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+    }
+    Pattern pattern;
+    try {
+      pattern = Pattern.compile(translated, flags);
+    } catch (PatternSyntaxException e) {
+      throw new RESyntaxException(e.getDescription());
+    }
+    String[] groupNames = new String[pattern.matcher("").groupCount()];
+    for (int i = 0; i < groupNames.length; i++) {
+      String name = translator.groupNames.get(i + 1);
+      groupNames[i] = name == null ? "" : name;
+    }
+    return new PerlProgram(source, pattern, groupNames);
+  }
+
+  public String getSource() {
+    return source;
+  }
+
+  public Pattern getPattern() {
+    return pattern;
+  }
+
+  /**
+   * @return the names of the capture groups, or an empty string for unnamed groups.
+   */
+  public String[] getGroupNames() {
+    return groupNames.clone();
+  }
+
+  /**
+   * Translates the syntax of a PCRE pattern to that of {@link Pattern}
+   */
+  static String translate(String source) throws RESyntaxException {
+    return new Translator(source).translate();
+  }
+
+  private static class Translator {
+    private final String source;
+    private final StringBuilder out = new StringBuilder();
+    private int pos = 0;
+
+    /**
+     * Original names of capture groups, by group index
+     */
+    private final Map<Integer, String> groupNames = new HashMap<>();
+
+    /**
+     * Java names of capture groups, by their original name
+     */
+    private final Map<String, String> javaNames = new HashMap<>();
+
+    /**
+     * Number of capture groups opened so far
+     */
+    private int groupCount = 0;
+
+    private Translator(String source) {
+      this.source = source;
+    }
+
+    String translate() throws RESyntaxException {
+      while (pos < source.length()) {
+        char c = source.charAt(pos);
+        switch (c) {
+          case '\\':
+            escape();
+            break;
+          case '(':
+            group();
+            break;
+          case '[':
+            characterClass();
+            break;
+          default:
+            out.append(c);
+            pos++;
+            break;
+        }
+      }
+      return out.toString();
+    }
+
+    private boolean lookingAt(String prefix) {
+      return source.startsWith(prefix, pos);
+    }
+
+    private void escape() throws RESyntaxException {
+      if (pos + 1 >= source.length()) {
+        throw new RESyntaxException("\\ at end of pattern");
+      }
+      char c = source.charAt(pos + 1);
+      switch (c) {
+        case 'Q': {
+          int end = source.indexOf("\\E", pos + 2);
+          if(end == -1) {
+            end = source.length();
+          }
+          out.append(Pattern.quote(source.substring(pos + 2, end)));
+          pos = Math.min(source.length(), end + 2);
+          break;
+        }
+        case 'N':
+          out.append("[^\\n]");
+          pos += 2;
+          break;
+        case 'k':
+          pos += 2;
+          out.append("\\k<").append(javaName(readName())).append('>');
+          break;
+        case 'g':
+          pos += 2;
+          out.append(readGroupReference());
+          break;
+        default:
+          out.append(source, pos, pos + 2);
+          pos += 2;
+          break;
+      }
+    }
+
+    /**
+     * Reads a group name delimited by {@code <>}, {@code ''} or {@code {}}
+     */
+    private String readName() throws RESyntaxException {
+      if (pos >= source.length()) {
+        throw new RESyntaxException("expected group name");
+      }
+      char open = source.charAt(pos);
+      char close;
+      switch (open) {
+        case '<':
+          close = '>';
+          break;
+        case '\'':
+          close = '\'';
+          break;
+        case '{':
+          close = '}';
+          break;
+        default:
+          throw new RESyntaxException("expected group name at offset " + pos);
+      }
+      return readUntil(close);
+    }
+
+    private String readUntil(char close) throws RESyntaxException {
+      int end = source.indexOf(close, pos + 1);
+      if (end == -1) {
+        throw new RESyntaxException("missing terminator '" + close + "' for group name");
+      }
+      String name = source.substring(pos + 1, end);
+      pos = end + 1;
+      return name;
+    }
+
+    /**
+     * Reads the group number in a {@code \g} reference, which may be absolute, relative, or
+     * a group name
+     */
+    private String readGroupReference() throws RESyntaxException {
+      String ref;
+      if (pos < source.length() && source.charAt(pos) == '{') {
+        ref = readUntil('}');
+      } else {
+        int start = pos;
+        if (pos < source.length() && source.charAt(pos) == '-') {
+          pos++;
+        }
+        while (pos < source.length() && Character.isDigit(source.charAt(pos))) {
+          pos++;
+        }
+        ref = source.substring(start, pos);
+      }
+      try {
+        int index = Integer.parseInt(ref);
+        if (index < 0) {
+          index = groupCount + index + 1;
+        }
+        if (index <= 0) {
+          throw new RESyntaxException("invalid group reference \\g" + ref);
+        }
+        // Wrap in a non-capturing group so that following digits are not read as part of the reference
+        return "(?:\\" + index + ")";
+      } catch (NumberFormatException e) {
+        return "\\k<" + javaName(ref) + ">";
+      }
+    }
+
+    private void group() throws RESyntaxException {
+      if (lookingAt("(?#")) {
+        int end = source.indexOf(')', pos);
+        if (end == -1) {
+          throw new RESyntaxException("missing ) after comment");
+        }
+        pos = end + 1;
+
+      } else if (lookingAt("(?P<")) {
+        pos += 3;
+        namedGroup(readName());
+
+      } else if (lookingAt("(?P=")) {
+        pos += 4;
+        int end = source.indexOf(')', pos);
+        if (end == -1) {
+          throw new RESyntaxException("missing ) after group reference");
+        }
+        out.append("\\k<").append(javaName(source.substring(pos, end))).append(">");
+        pos = end + 1;
+
+      } else if (lookingAt("(?P>") || lookingAt("(?&") || lookingAt("(?R") || lookingAt("(?|")) {
+        throw new RESyntaxException("recursion, subroutine calls and branch resets are not supported");
+
+      } else if ((lookingAt("(?<") && !lookingAt("(?<=") && !lookingAt("(?<!")) || lookingAt("(?'")) {
+        pos += 2;
+        namedGroup(readName());
+
+      } else if (lookingAt("(*")) {
+        // Option settings such as (*UTF8) or (*UCP): Java strings are always unicode
+        int end = source.indexOf(')', pos);
+        if (end == -1 || !source.substring(pos + 2, end).matches("[A-Z0-9_=]+")) {
+          throw new RESyntaxException("backtracking control verbs are not supported");
+        }
+        pos = end + 1;
+
+      } else if (lookingAt("(?")) {
+        out.append("(?");
+        pos += 2;
+
+      } else {
+        groupCount++;
+        out.append('(');
+        pos++;
+      }
+    }
+
+    private void namedGroup(String name) throws RESyntaxException {
+      groupCount++;
+      if (javaNames.containsKey(name)) {
+        throw new RESyntaxException("two named subpatterns have the same name: " + name);
+      }
+      String javaName = "g" + groupCount + name.replaceAll("[^A-Za-z0-9]", "");
+      javaNames.put(name, javaName);
+      groupNames.put(groupCount, name);
+      out.append("(?<").append(javaName).append(">");
+    }
+
+    private String javaName(String name) throws RESyntaxException {
+      String javaName = javaNames.get(name);
+      if (javaName == null) {
+        throw new RESyntaxException("reference to non-existent subpattern: " + name);
+      }
+      return javaName;
+    }
+
+    private void characterClass() throws RESyntaxException {
+      out.append('[');
+      pos++;
+      if (lookingAt("^")) {
+        out.append('^');
+        pos++;
+      }
+      // A leading ] is a literal
+      if (lookingAt("]")) {
+        out.append("\\]");
+        pos++;
+      }
+      while (pos < source.length()) {
+        char c = source.charAt(pos);
+        if (c == ']') {
+          out.append(']');
+          pos++;
+          return;
+        } else if (c == '\\') {
+          if (pos + 1 >= source.length()) {
+            break;
+          }
+          if (source.charAt(pos + 1) == 'N') {
+            throw new RESyntaxException("\\N is not supported in a character class");
+          }
+          out.append(source, pos, pos + 2);
+          pos += 2;
+        } else if (c == '[' && (lookingAt("[:") || lookingAt("[=") || lookingAt("[."))) {
+          posixClass();
+        } else if (c == '[' || c == '&') {
+          out.append('\\').append(c);
+          pos++;
+        } else {
+          out.append(c);
+          pos++;
+        }
+      }
+      throw new RESyntaxException("missing terminating ] for character class");
+    }
+
+    private void posixClass() throws RESyntaxException {
+      char delimiter = source.charAt(pos + 1);
+      int end = source.indexOf(delimiter + "]", pos + 2);
+      if (end == -1) {
+        throw new RESyntaxException("unterminated POSIX class");
+      }
+      String name = source.substring(pos + 2, end);
+      pos = end + 2;
+
+      if (delimiter != ':') {
+        // Collating elements and equivalence classes: only single characters are supported
+        if (name.length() != 1) {
+          throw new RESyntaxException("unsupported collating element [" + delimiter + name + delimiter + "]");
+        }
+        out.append(Pattern.quote(name));
+        return;
+      }
+
+      boolean negated = name.startsWith("^");
+      if (negated) {
+        name = name.substring(1);
+      }
+      String property = POSIX_CLASSES.get(name);
+      if (property == null) {
+        throw new RESyntaxException("unknown POSIX class name: " + name);
+      }
+      if(property.equals("w")) {
+        out.append(negated ? "\\W" : "\\w");
+      } else {
+        out.append(negated ? "\\P{" : "\\p{").append(property).append('}');
+      }
+    }
+  }
+
+  private static final Map<String, String> POSIX_CLASSES = new HashMap<>();
+
+  static {
+    POSIX_CLASSES.put("alpha", "Alpha");
+    POSIX_CLASSES.put("digit", "Digit");
+    POSIX_CLASSES.put("alnum", "Alnum");
+    POSIX_CLASSES.put("upper", "Upper");
+    POSIX_CLASSES.put("lower", "Lower");
+    POSIX_CLASSES.put("space", "Space");
+    POSIX_CLASSES.put("blank", "Blank");
+    POSIX_CLASSES.put("punct", "Punct");
+    POSIX_CLASSES.put("print", "Print");
+    POSIX_CLASSES.put("graph", "Graph");
+    POSIX_CLASSES.put("cntrl", "Cntrl");
+    POSIX_CLASSES.put("xdigit", "XDigit");
+    POSIX_CLASSES.put("ascii", "ASCII");
+    POSIX_CLASSES.put("word", "w");
+  }
+}
@@ -0,0 +1,262 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.primitives.text.regex;
+
+import org.renjin.eval.EvalException;
+import org.renjin.sexp.StringVector;
+import org.renjin.util.Partitions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.regex.Matcher;
+
+/**
+ * Matches Perl-compatible regular expressions ({@code perl = TRUE}) using {@link java.util.regex}.
+ *
+ * <p>Substitution and splitting follow GNU R's PCRE-based implementation, including the
+ * {@code \U}, {@code \L} and {@code \E} case conversions in replacement strings.</p>
+ */
+public class PerlRE implements RE {
+
+  /**
+   * The minimum number of elements matched by each thread in {@link #matchAll(StringVector, Executor, int)}
+   */
+  public static final int MIN_PARTITION_LENGTH = Integer.getInteger("renjin.regex.partition.length", 64 * 1024);
+
+  private final PerlProgram program;
+  private final Matcher matcher;
+  private boolean matched;
+
+  public PerlRE(PerlProgram program) {
+    this.program = program;
+    this.matcher = program.getPattern().matcher("");
+  }
+
+  public PerlRE(String pattern, boolean ignoreCase) throws RESyntaxException {
+    this(PerlProgram.compile(pattern, ignoreCase));
+  }
+
+  public PerlProgram getProgram() {
+    return program;
+  }
+
+  @Override
+  public boolean match(String search) {
+    matcher.reset(search);
+    matched = matcher.find();
+    return matched;
+  }
+
+  /**
+   * Matches this pattern against every element of {@code x}. If {@code x} is long enough and
+   * {@code parallelism} is greater than one, {@code x} is split into partitions which are matched concurrently
+   * on {@code executor}.
+   *
+   * @return an array with, for each element, {@code true} if it is not NA and contains a match.
+   */
+  public boolean[] matchAll(StringVector x, Executor executor, int parallelism) {
+    return matchAll(x, executor, parallelism, MIN_PARTITION_LENGTH);
+  }
+
+  /**
+   * Matches this pattern against every element of {@code x}, splitting {@code x} into partitions of
+   * at least {@code minPartitionLength} elements.
+   *
+   * @see #matchAll(StringVector, Executor, int)
+   */
+  public boolean[] matchAll(StringVector x, Executor executor, int parallelism, int minPartitionLength) {
+    int length = x.length();
+    boolean[] result = new boolean[length];
+
+    int partitionCount = Math.max(1, Math.min(parallelism, length / Math.max(1, minPartitionLength)));
+    if(partitionCount == 1) {
+      matchRange(x, result, 0, length);
+      return result;
+    }
+
+    int partitionLength = (length + partitionCount - 1) / partitionCount;
+    try {
+      Partitions.compute(executor, partitionCount, partition -> {
+        int start = partition * partitionLength;
+        matchRange(x, result, start, Math.min(length, start + partitionLength));
+        return null;
+      });
+    } catch (InterruptedException e) {
+      throw new EvalException("Interrupted while matching /" + program.getSource() + "/");
+    } catch (ExecutionException e) {
+      throw new EvalException("Exception matching /" + program.getSource() + "/", e.getCause());
+    }
+    return result;
+  }
+
+  private void matchRange(StringVector x, boolean[] result, int start, int end) {
+    // java.util.regex.Pattern is thread-safe, but each thread needs its own Matcher
+    Matcher matcher = program.getPattern().matcher("");
+    for (int i = start; i < end; i++) {
+      String string = x.getElementAsString(i);
+      result[i] = string != null && matcher.reset(string).find();
+    }
+  }
+
+  @Override
+  public String subst(String substituteIn, String substitution) {
+    return subst(substituteIn, substitution, REPLACE_ALL);
+  }
+
+  @Override
+  public String subst(String substituteIn, String substitution, int flags) {
+    StringBuilder result = new StringBuilder();
+    boolean global = (flags & REPLACE_FIRSTONLY) == 0;
+    int length = substituteIn.length();
+    int offset = 0;
+    int lastEnd = -1;
+
+    // GNU R does not match an empty pattern at the end of the string
+    int lastOffset = program.getSource().isEmpty() ? length - 1 : length;
+
+    matcher.reset(substituteIn);
+    while (offset <= lastOffset && matcher.find(offset)) {
+      result.append(substituteIn, offset, matcher.start());
+
+      // Do not replace an empty match immediately following another match
+      if (matcher.end() > lastEnd) {
+        if((flags & REPLACE_BACKREFERENCES) != 0) {
+          appendReplacement(result, substitution);
+        } else {
+          result.append(substitution);
+        }
+        lastEnd = matcher.end();
+      }
+      offset = matcher.end();
+      if (offset >= length || !global) {
+        break;
+      }
+      if (matcher.start() == matcher.end()) {
+        result.append(substituteIn.charAt(offset));
+        offset++;
+      }
+    }
+    if (offset < length) {
+      result.append(substituteIn, offset, length);
+    }
+    return result.toString();
+  }
+
+  /**
+   * Appends the {@code substitution} for the current match to {@code result}, replacing
+   * back-references {@code \1} to {@code \9} with the matched groups, and converting to upper or lower case
+   * after {@code \U} and {@code \L} until {@code \E}.
+   */
+  private void appendReplacement(StringBuilder result, String substitution) {
+    int caseConversion = 0;
+    int i = 0;
+    while (i < substitution.length()) {
+      char c = substitution.charAt(i++);
+      String text;
+      if (c == '\\' && i < substitution.length()) {
+        char d = substitution.charAt(i++);
+        if (d >= '1' && d <= '9') {
+          int group = d - '0';
+          text = group <= matcher.groupCount() ? matcher.group(group) : null;
+          if (text == null) {
+            continue;
+          }
+        } else if (d == 'U' || d == 'L') {
+          caseConversion = d;
+          continue;
+        } else if (d == 'E') {
+          caseConversion = 0;
+          continue;
+        } else {
+          text = String.valueOf(d);
+        }
+      } else if (c == '\\') {
+        continue;
+      } else {
+        text = String.valueOf(c);
+      }
+      if (caseConversion == 'U') {
+        text = text.toUpperCase();
+      } else if (caseConversion == 'L') {
+        text = text.toLowerCase();
+      }
+      result.append(text);
+    }
+  }
+
+  @Override
+  public String[] split(String s) {
+    List<String> tokens = new ArrayList<>();
+    int length = s.length();
+    int pos = 0;
+
+    // As in GNU R, the pattern is matched against the remainder of the string after each token,
+    // so that ^ matches again, and lookbehinds do not see, the start of each token
+    matcher.reset(s);
+    while (pos < length) {
+      matcher.region(pos, length);
+      if (!matcher.find()) {
+        break;
+      }
+      if (matcher.end() > pos) {
+        tokens.add(s.substring(pos, matcher.start()));
+        pos = matcher.end();
+      } else {
+        // Empty match at the start of the remainder: split off a single character
+        tokens.add(s.substring(pos, pos + 1));
+        pos++;
+      }
+    }
+    if (pos < length) {
+      tokens.add(s.substring(pos));
+    }
+    matcher.reset();
+    return tokens.toArray(new String[0]);
+  }
+
+  @Override
+  public int getGroupStart(int groupIndex) {
+    if (!matched || groupIndex > matcher.groupCount()) {
+      return -1;
+    }
+    return matcher.start(groupIndex);
+  }
+
+  @Override
+  public int getGroupEnd(int groupIndex) {
+    if (!matched || groupIndex > matcher.groupCount()) {
+      return -1;
+    }
+    return matcher.end(groupIndex);
+  }
+
+  @Override
+  public int getGroupCount() {
+    return matcher.groupCount();
+  }
+
+  /**
+   * @return the names of this pattern's capture groups, or an empty string for unnamed groups.
+   */
+  public String[] getGroupNames() {
+    return program.getGroupNames();
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.primitives.text.regex;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A least-recently-used cache of compiled regular expression programs.
+ *
+ * <p>Builtins like {@code gsub} and {@code grepl} are called over and over again with the same handful
+ * of patterns, and, as {@code @DataParallel} functions, once for every element of their input. Each
+ * {@code Session} holds one cache so that each pattern is compiled only once.</p>
+ *
+ * <p>Only the compiled programs are cached. These are never modified once compiled, and each call still gets its own
+ * {@link RE} matcher, which holds the state of the last match.</p>
+ */
+public class RECache {
+
+  public static final int DEFAULT_CAPACITY = Integer.getInteger("renjin.regex.cache.size", 256);
+
+  /**
+   * Flag for programs compiled by {@link RECompiler}
+   */
+  static final int EXTENDED = 0;
+
+  /**
+   * Flag for Perl-compatible programs compiled by {@link PerlProgram}
+   */
+  static final int PERL = 1;
+
+  /**
+   * Flag for Perl-compatible programs that ignore case
+   */
+  static final int PERL_IGNORE_CASE = 2;
+
+  private static final class Key {
+    private final String pattern;
+    private final int flags;
+
+    Key(String pattern, int flags) {
+      this.pattern = pattern;
+      this.flags = flags;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key key = (Key) o;
+      return flags == key.flags && pattern.equals(key.pattern);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(pattern, flags);
+    }
+  }
+
+  private final Map<Key, Object> compiled;
+
+  private long hitCount;
+  private long missCount;
+
+  public RECache() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public RECache(final int capacity) {
+    this.compiled = new LinkedHashMap<Key, Object>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  /**
+   * @return the compiled program for the given extended regular expression {@code pattern}
+   * @throws RESyntaxException if the pattern is invalid
+   */
+  public synchronized REProgram getProgram(String pattern) throws RESyntaxException {
+    Key key = new Key(pattern, EXTENDED);
+    REProgram program = (REProgram) compiled.get(key);
+    if(program == null) {
+      missCount++;
+      program = new RECompiler().compile(pattern);
+      compiled.put(key, program);
+    } else {
+      hitCount++;
+    }
+    return program;
+  }
+
+  /**
+   * @return the compiled program for the given Perl-compatible regular expression {@code pattern}
+   * @throws RESyntaxException if the pattern is invalid
+   */
+  public synchronized PerlProgram getPerlProgram(String pattern, boolean ignoreCase) throws RESyntaxException {
+    Key key = new Key(pattern, ignoreCase ? PERL_IGNORE_CASE : PERL);
+    PerlProgram program = (PerlProgram) compiled.get(key);
+    if(program == null) {
+      missCount++;
+      program = PerlProgram.compile(pattern, ignoreCase);
+      compiled.put(key, program);
+    } else {
+      hitCount++;
+    }
+    return program;
+  }
+
+  public synchronized int size() {
+    return compiled.size();
+  }
+
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  public synchronized void clear() {
+    compiled.clear();
+  }
+}
@@ -30,19 +30,33 @@ import java.util.function.Predicate;
  */
 public class REFactory {
 
+  static boolean NFA_ENABLED = !"backtracking".equals(System.getProperty("renjin.regex.engine"));
+
   /**
    * Compiles the pattern based on the supplied arguments.
    *
    * @param pattern    the matching pattern
    * @param ignoreCase whether case should be ignored
    * @param extended   true to use "extended" regular expression
-   * @param perl       true to use "perl-style" regular expressions (not yet implemented)
+   * @param perl       true to use "perl-style" regular expressions
    * @param fixed      true to treat the pattern as
    * @param useBytes   true to match on bytes (not implemented)
    * @return the compiled regular expression
    */
   public static RE compile(String pattern, boolean ignoreCase, boolean perl, boolean fixed,
                            boolean useBytes) {
+    return compile(null, pattern, ignoreCase, perl, fixed, useBytes);
+  }
+
+  /**
+   * Compiles the pattern based on the supplied arguments, reusing a previously compiled
+   * program from {@code cache} if possible.
+   *
+   * @param cache      the cache of compiled programs, or {@code null} to always compile the pattern.
+   * @return the compiled regular expression
+   */
+  public static RE compile(RECache cache, String pattern, boolean ignoreCase, boolean perl, boolean fixed,
+                           boolean useBytes) {
 
     try {
       if (fixed) {
@@ -58,7 +72,21 @@ public class REFactory {
           return new EmptyFixedRE();
         }
 
-        return new ExtendedRE(pattern, ignoreCase);
+        if (perl) {
+          if (cache == null) {
+            return new PerlRE(pattern, ignoreCase);
+          } else {
+            return new PerlRE(cache.getPerlProgram(pattern, ignoreCase));
+          }
+        }
+
+        REProgram program;
+        if (cache == null) {
+          program = new RECompiler().compile(pattern);
+        } else {
+          program = cache.getProgram(pattern);
+        }
+        return newMatcher(program, ignoreCase);
       }
     } catch (RESyntaxException e) {
       throw new EvalException("Invalid pattern '%s': %s (perl=%s, fixed=%s)",
@@ -69,6 +97,20 @@ public class REFactory {
     }
   }
 
+  /**
+   * Creates a new matcher for a compiled program. Programs without backreferences are run by
+   * {@link NfaRE} in linear time, unless the {@code renjin.regex.engine} system property
+   * is set to {@code backtracking}.
+   */
+  static RE newMatcher(REProgram program, boolean ignoreCase) {
+    int matchFlags = ignoreCase ? ExtendedRE.MATCH_CASEINDEPENDENT : ExtendedRE.MATCH_NORMAL;
+    if (NFA_ENABLED && (program.flags & REProgram.OPT_HASBACKREFS) == 0) {
+      return new NfaRE(program, matchFlags);
+    } else {
+      return new ExtendedRE(program, matchFlags);
+    }
+  }
+
   public static Predicate<String> asPredicate(final RE re) {
     return input -> re.match(input);
   }
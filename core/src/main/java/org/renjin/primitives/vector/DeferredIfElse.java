@@ -0,0 +1,81 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.primitives.vector;
+
+import org.renjin.sexp.*;
+
+/**
+ * Deferred element-wise selection from {@code yes} or {@code no} depending on {@code test},
+ * the equivalent of {@code ifelse(test, yes, no)} for double vectors.
+ */
+public class DeferredIfElse extends DoubleVector implements DeferredComputation {
+
+  private final Vector test;
+  private final Vector yes;
+  private final Vector no;
+
+  public DeferredIfElse(Vector test, Vector yes, Vector no, AttributeMap attributes) {
+    super(attributes);
+    this.test = test;
+    this.yes = yes;
+    this.no = no;
+  }
+
+  @Override
+  public double getElementAsDouble(int index) {
+    int value = test.getElementAsRawLogical(index);
+    if(value == IntVector.NA) {
+      return DoubleVector.NA;
+    } else if(value != 0) {
+      return yes.getElementAsDouble(index % yes.length());
+    } else {
+      return no.getElementAsDouble(index % no.length());
+    }
+  }
+
+  @Override
+  public int length() {
+    return test.length();
+  }
+
+  @Override
+  public boolean isConstantAccessTime() {
+    return test.isConstantAccessTime() && yes.isConstantAccessTime() && no.isConstantAccessTime();
+  }
+
+  @Override
+  public boolean isDeferred() {
+    return true;
+  }
+
+  @Override
+  public Vector[] getOperands() {
+    return new Vector[] { test, yes, no };
+  }
+
+  @Override
+  public String getComputationName() {
+    return "ifelse";
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return new DeferredIfElse(test, yes, no, attributes);
+  }
+}
@@ -20,55 +20,66 @@ package org.renjin.primitives.vector;
 
 import org.renjin.sexp.AttributeMap;
 import org.renjin.sexp.IntVector;
-import org.renjin.sexp.SEXP;
 import org.renjin.sexp.Vector;
 
-/**
- * Created by alex on 14-9-16.
- */
-public class MemoizedIntVector extends IntVector implements MemoizedComputation {
-  @Override
-  public Vector forceResult() {
-    throw new UnsupportedOperationException();
+public abstract class MemoizedIntVector extends IntVector implements MemoizedComputation {
+
+  private final Vector[] operands;
+  private final int length;
+  private Vector result;
+
+
+  public MemoizedIntVector(Vector[] operands, int length, AttributeMap attributes) {
+    super(attributes);
+    this.operands = operands;
+    this.length = length;
   }
 
   @Override
-  public void setResult(Vector result) {
-    throw new UnsupportedOperationException();
+  public final int getElementAsInt(int index) {
+    if(result == null) {
+      forceResult();
+    }
+    return result.getElementAsInt(index);
   }
 
   @Override
-  public boolean isCalculated() {
-    throw new UnsupportedOperationException();
+  public final Vector forceResult() {
+    if(result == null) {
+      result = computeResult();
+    }
+    return result;
   }
 
+  public abstract Vector computeResult();
+
   @Override
-  public Vector[] getOperands() {
-    throw new UnsupportedOperationException();
+  public final int length() {
+    return length;
   }
 
   @Override
-  public String getComputationName() {
-    throw new UnsupportedOperationException();
+  public final void setResult(Vector result) {
+    this.result = result;
   }
 
   @Override
-  public int length() {
-    throw new UnsupportedOperationException();
+  public final boolean isCalculated() {
+    return result != null;
   }
 
   @Override
-  public int getElementAsInt(int i) {
-    throw new UnsupportedOperationException();
+  public final boolean isDeferred() {
+    return !isCalculated();
   }
 
   @Override
-  public boolean isConstantAccessTime() {
-    throw new UnsupportedOperationException();
+  public final Vector[] getOperands() {
+    return operands;
   }
 
   @Override
-  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
-    throw new UnsupportedOperationException();
+  public boolean isConstantAccessTime() {
+    return false;
   }
 }
@@ -164,7 +164,14 @@ public final class S4 {
   }
 
   @Internal
-  public static void invalidateS4MethodCache(@Current Context context, String msg) {
-    context.getSession().getS4Cache().invalidateMethodCache();
+  public static void invalidateS4MethodCache(@Current Context context, String msg, StringVector generics) {
+    S4Cache s4Cache = context.getSession().getS4Cache();
+    if(generics.length() == 0) {
+      s4Cache.invalidateMethodCache();
+    } else {
+      for (String generic : generics) {
+        s4Cache.invalidateMethodCache(generic);
+      }
+    }
   }
 }
@@ -20,8 +20,8 @@ package org.renjin.s4;
 
 public class S4Cache {
 
-  private S4ClassCache classCache = new S4ClassCache();
-  private S4MethodCache methodCache = new S4MethodCache();
+  private volatile S4ClassCache classCache = new S4ClassCache();
+  private volatile S4MethodCache methodCache = new S4MethodCache();
 
   public S4ClassCache getS4ClassCache() {
     return classCache;
@@ -40,4 +40,11 @@ public class S4Cache {
     methodCache = new S4MethodCache();
   }
 
+  /**
+   * Invalidates only the method tables which include methods for the generic or group named {@code name}.
+   */
+  public void invalidateMethodCache(String name) {
+    methodCache.invalidate(name);
+  }
+
 }
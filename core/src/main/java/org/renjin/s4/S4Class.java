@@ -87,6 +87,28 @@ public class S4Class {
     return -1;
   }
 
+  /**
+   * Appends everything that {@link DistanceCalculator} uses to compute distances from this class:
+   * the distances to its superclasses and, for class unions, to its members.
+   */
+  void describeInheritance(StringBuilder description) {
+    describeDistances(description, classRepresentation.getAttribute(S4.CONTAINS));
+    if(isUnionClass()) {
+      description.append('|');
+      describeDistances(description, classRepresentation.getAttribute(S4.SUBCLASSES));
+    }
+  }
+
+  private void describeDistances(StringBuilder description, SEXP superclassSlot) {
+    if(superclassSlot instanceof ListVector) {
+      ListVector list = (ListVector) superclassSlot;
+      for (int i = 0; i < list.length(); i++) {
+        String className = list.getName(i);
+        description.append(className).append('=').append(extractDistanceFromS4Class(superclassSlot, className)).append(';');
+      }
+    }
+  }
+
   public int getDistanceToUnionClass(String className) {
     if(isUnionClass()) {
       SEXP subclasses = classRepresentation.getAttribute(S4.SUBCLASSES);
@@ -29,11 +29,14 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 
 public class S4ClassCache {
 
   private Map<String, S4Class> classTable = null;
 
+  private String inheritanceDigest = null;
+
   S4ClassCache() {
   }
 
@@ -71,6 +74,26 @@ public class S4ClassCache {
     return classTable.get(className);
   }
 
+  /**
+   * @return a digest of the inheritance distances between all classes, which, together with a generic's
+   * method signatures, determines which method is selected for a given calling signature.
+   */
+  public String getInheritanceDigest(Context context) {
+    if(inheritanceDigest == null) {
+      if(classTable == null) {
+        initializeCache(context);
+      }
+      StringBuilder description = new StringBuilder();
+      for (String className : new TreeSet<>(classTable.keySet())) {
+        description.append(className).append(':');
+        classTable.get(className).describeInheritance(description);
+        description.append('\n');
+      }
+      inheritanceDigest = S4DispatchTables.digest(description.toString());
+    }
+    return inheritanceDigest;
+  }
+
   public boolean isSimple(String from, String to) {
     S4Class classDef = classTable.get(from);
     return classDef.isSimpleCoercion(to);
@@ -0,0 +1,93 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.s4;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Method selections shared by all sessions in this JVM.
+ *
+ * <p>The method which {@link S4MethodTable#selectMethod(org.renjin.eval.Context, Generic, Signature, boolean[])}
+ * selects for a calling signature depends only on the signatures and specificity of the generic's methods, and on
+ * the inheritance distances between classes, never on the method definitions themselves. Sessions which have loaded
+ * the same packages therefore make the same selections, and share them here under a digest of these inputs.
+ * Each session resolves a shared selection to its own {@link Method}, so no closure is shared between sessions.</p>
+ */
+final class S4DispatchTables {
+
+  public static final int DEFAULT_CAPACITY = Integer.getInteger("renjin.s4.dispatch.tables", 4096);
+
+  /**
+   * Recorded when none of a generic's methods can be selected for a signature.
+   */
+  static final int NO_METHOD = -1;
+
+  private static final Map<String, ConcurrentMap<SignatureAndInheritance, Integer>> TABLES =
+      new LinkedHashMap<String, ConcurrentMap<SignatureAndInheritance, Integer>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ConcurrentMap<SignatureAndInheritance, Integer>> eldest) {
+          return size() > DEFAULT_CAPACITY;
+        }
+      };
+
+  private S4DispatchTables() {
+  }
+
+  /**
+   * @return the selections, as indexes into the method list, made by all tables with the given {@code digest}.
+   */
+  static ConcurrentMap<SignatureAndInheritance, Integer> get(String digest) {
+    synchronized (TABLES) {
+      ConcurrentMap<SignatureAndInheritance, Integer> table = TABLES.get(digest);
+      if(table == null) {
+        table = new ConcurrentHashMap<>();
+        TABLES.put(digest, table);
+      }
+      return table;
+    }
+  }
+
+  static int size() {
+    synchronized (TABLES) {
+      return TABLES.size();
+    }
+  }
+
+  static String digest(String description) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    byte[] hash = digest.digest(description.getBytes(StandardCharsets.UTF_8));
+    StringBuilder hex = new StringBuilder();
+    for (byte b : hash) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+      hex.append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+}
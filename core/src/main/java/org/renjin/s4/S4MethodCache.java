@@ -20,30 +20,40 @@ package org.renjin.s4;
 
 import org.renjin.eval.Context;
 
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * The method tables of the generics called in a {@code Session}, which can be invalidated
+ * generic by generic as methods are defined.
+ */
 public class S4MethodCache {
 
-  private Map<String, S4MethodTable> methodCache = null;   // <fname, <signature, RankedMethod>>
+  private final Map<String, S4MethodTable> methodCache = new ConcurrentHashMap<>();   // <fname, <signature, RankedMethod>>
 
   S4MethodCache() {
   }
 
-  private void initializeMethodCache() {
-    methodCache = new HashMap<>();
+  public S4MethodTable getMethod(Context context, Generic generic, String fname) {
+    S4MethodTable methodTable = methodCache.get(fname);
+    if(methodTable == null) {
+      methodTable = new S4MethodTable(context, generic);
+      this.methodCache.put(fname, methodTable);
+    }
+    return methodTable;
   }
 
-  public S4MethodTable getMethod(Context context, Generic generic, String fname) {
-    if(methodCache != null && methodCache.containsKey(fname)) {
-      return methodCache.get(fname);
-    } else {
-      if(methodCache == null) {
-        initializeMethodCache();
+  /**
+   * Removes the method tables which include methods for the generic or group named {@code name}.
+   */
+  public void invalidate(String name) {
+    Iterator<Map.Entry<String, S4MethodTable>> it = methodCache.entrySet().iterator();
+    while(it.hasNext()) {
+      Map.Entry<String, S4MethodTable> entry = it.next();
+      if(entry.getKey().equals(name) || entry.getValue().dependsOn(name)) {
+        it.remove();
       }
-      S4MethodTable methodTable = new S4MethodTable(context, generic);
-      this.methodCache.put(fname, methodTable);
-      return methodTable;
     }
   }
 
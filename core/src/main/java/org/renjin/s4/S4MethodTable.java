@@ -31,6 +31,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 public class S4MethodTable {
 
@@ -49,12 +50,19 @@ public class S4MethodTable {
 
   private Map<SignatureAndInheritance, RankedMethod> cachedMethods = new HashMap<>();
 
+  /**
+   * The selections made by all sessions for methods with the same signatures and class hierarchy,
+   * or {@code null} if not yet looked up.
+   */
+  private ConcurrentMap<SignatureAndInheritance, Integer> sharedSelections = null;
+
   S4MethodTable(Context context, Generic generic) {
     this.initializeS4Method(context, generic);
   }
 
   private void initializeS4Method(Context context, Generic generic) {
     this.generic = generic;
+    this.sharedSelections = null;
 
     List<Environment> namespaceFrames = new ArrayList<>();
     namespaceFrames.add(context.getGlobalEnvironment());
@@ -168,6 +176,31 @@ public class S4MethodTable {
     return maximumSignatureLength;
   }
 
+  /**
+   * @return {@code true} if this table must be rebuilt when the methods for the generic or group
+   * named {@code name} change.
+   */
+  public boolean dependsOn(String name) {
+    if(name.equals(generic.getName()) || generic.getGroup().contains(name)) {
+      return true;
+    }
+    return generic.isOps() && name.equals(generic.getSubGroup());
+  }
+
+  private ConcurrentMap<SignatureAndInheritance, Integer> getSharedSelections(Context context, S4ClassCache classCache) {
+    if(sharedSelections == null) {
+      StringBuilder description = new StringBuilder();
+      description.append(generic.getName()).append('\n');
+      for (Method method : methods) {
+        description.append(method.getSpecificity()).append(':');
+        description.append(String.join("#", method.getSignature().getArguments())).append('\n');
+      }
+      description.append(classCache.getInheritanceDigest(context));
+      sharedSelections = S4DispatchTables.get(S4DispatchTables.digest(description.toString()));
+    }
+    return sharedSelections;
+  }
+
   public RankedMethod selectMethod(Context context, Generic generic, Signature signature, boolean[] useInheritance) {
 
     SignatureAndInheritance methodKey = new SignatureAndInheritance(signature.getArguments(), useInheritance);
@@ -182,13 +215,26 @@ public class S4MethodTable {
     S4ClassCache classCache = context.getSession().getS4Cache().getS4ClassCache();
     DistanceCalculator calculator = new DistanceCalculator(classCache);
 
+    ConcurrentMap<SignatureAndInheritance, Integer> selections = getSharedSelections(context, classCache);
+    Integer selected = selections.get(methodKey);
+
     RankedMethod bestMatch = null;
 
-    for (Method method : methods) {
-      RankedMethod rankedMethod = new RankedMethod(context, method, signature, calculator, useInheritance);
-      if(rankedMethod.isCandidate() && (bestMatch == null || rankedMethod.isBetterThan(bestMatch))) {
-        bestMatch = rankedMethod;
+    if(selected != null) {
+      // Another session has already ranked all the methods, we only need to rank the best one
+      if(selected != S4DispatchTables.NO_METHOD) {
+        bestMatch = new RankedMethod(context, methods.get(selected), signature, calculator, useInheritance);
+      }
+    } else {
+      int bestIndex = S4DispatchTables.NO_METHOD;
+      for (int i = 0; i < methods.size(); i++) {
+        RankedMethod rankedMethod = new RankedMethod(context, methods.get(i), signature, calculator, useInheritance);
+        if(rankedMethod.isCandidate() && (bestMatch == null || rankedMethod.isBetterThan(bestMatch))) {
+          bestMatch = rankedMethod;
+          bestIndex = i;
+        }
       }
+      selections.putIfAbsent(methodKey, bestIndex);
     }
 
     cachedMethods.put(methodKey, bestMatch);
@@ -0,0 +1,61 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.serialization;
+
+import org.renjin.sexp.AttributeMap;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.SEXP;
+
+/**
+ * A {@code DoubleVector} backed by a range of a memory-mapped file, which is read, and if necessary
+ * byte-swapped, only when its elements are accessed.
+ */
+public class MappedDoubleVector extends DoubleVector {
+
+  private final MappedFile file;
+  private final long offset;
+  private final int length;
+
+  public MappedDoubleVector(MappedFile file, long offset, int length, AttributeMap attributes) {
+    super(attributes);
+    this.file = file;
+    this.offset = offset;
+    this.length = length;
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public double getElementAsDouble(int index) {
+    return file.getDouble(offset + index * 8L);
+  }
+
+  @Override
+  public boolean isConstantAccessTime() {
+    return true;
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return new MappedDoubleVector(file, offset, length, attributes);
+  }
+}
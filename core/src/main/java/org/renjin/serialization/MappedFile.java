@@ -0,0 +1,113 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.serialization;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only, memory-mapped file of any size.
+ *
+ * <p>A single {@link java.nio.MappedByteBuffer} can address at most 2 GB, so the file is mapped as a sequence of
+ * regions. Each region overlaps the next by eight bytes so that any {@code int} or {@code double}
+ * can be read from a single region, regardless of its alignment.</p>
+ *
+ * <p>Values are only read with absolute {@code get} methods, which do not modify the buffers, so
+ * a {@code MappedFile} can be shared between threads.</p>
+ */
+public final class MappedFile {
+
+  static final int DEFAULT_REGION_SHIFT = 30;
+
+  private static final int OVERLAP = 8;
+
+  private final ByteBuffer[] regions;
+  private final int regionShift;
+  private final long regionMask;
+  private final long size;
+
+  private MappedFile(ByteBuffer[] regions, int regionShift, long size) {
+    this.regions = regions;
+    this.regionShift = regionShift;
+    this.regionMask = (1L << regionShift) - 1;
+    this.size = size;
+  }
+
+  public static MappedFile map(Path path, ByteOrder byteOrder) throws IOException {
+    return map(path, byteOrder, DEFAULT_REGION_SHIFT);
+  }
+
+  static MappedFile map(Path path, ByteOrder byteOrder, int regionShift) throws IOException {
+    try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long regionSize = 1L << regionShift;
+      int regionCount = (int) Math.max(1, (size + regionSize - 1) / regionSize);
+      ByteBuffer[] regions = new ByteBuffer[regionCount];
+      for (int i = 0; i < regionCount; i++) {
+        long start = i * regionSize;
+        long length = Math.min(regionSize + OVERLAP, size - start);
+        regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length).order(byteOrder);
+      }
+      // The mapping remains valid after the channel is closed
+      return new MappedFile(regions, regionShift, size);
+    }
+  }
+
+  public long size() {
+    return size;
+  }
+
+  public byte getByte(long offset) {
+    return region(offset).get(index(offset));
+  }
+
+  public int getInt(long offset) {
+    return region(offset).getInt(index(offset));
+  }
+
+  public long getLong(long offset) {
+    return region(offset).getLong(index(offset));
+  }
+
+  public double getDouble(long offset) {
+    return region(offset).getDouble(index(offset));
+  }
+
+  public void getBytes(long offset, byte[] buffer, int bufferOffset, int length) throws EOFException {
+    if(offset + length > size) {
+      throw new EOFException();
+    }
+    for (int i = 0; i < length; i++) {
+      buffer[bufferOffset + i] = getByte(offset + i);
+    }
+  }
+
+  private ByteBuffer region(long offset) {
+    return regions[(int) (offset >>> regionShift)];
+  }
+
+  private int index(long offset) {
+    return (int) (offset & regionMask);
+  }
+}
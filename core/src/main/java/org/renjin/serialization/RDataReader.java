@@ -39,6 +39,8 @@ import java.nio.IntBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
 import static org.renjin.serialization.SerializationFormat.*;
@@ -51,6 +53,24 @@ import static org.renjin.sexp.SexpType.LISTSXP;
  */
 public class RDataReader implements AutoCloseable {
 
+  /**
+   * Whether {@code readRDS} memory-maps uncompressed files. Disabled by default, and enabled with
+   * {@code -Drenjin.rds.mmap=true}.
+   *
+   * <p>Vectors read from a mapped file remain views of that file for as long as they are reachable, so the
+   * file must not be changed while they are in use. Values would silently change if the file were rewritten,
+   * and {@code saveRDS()} to the same file truncates it while its pages are still mapped, which crashes the JVM
+   * on Linux and fails because the file is locked on Windows. Only enable mapping for files which are never
+   * written to once created.</p>
+   */
+  public static boolean MAPPING_ENABLED = Boolean.getBoolean("renjin.rds.mmap");
+
+  /**
+   * Numeric vectors with fewer elements than this are copied onto the heap even when
+   * reading from a memory-mapped file.
+   */
+  public static int MIN_MAPPED_LENGTH = Integer.getInteger("renjin.rds.mmap.length", 1024);
+
   private InputStream conn;
   private StreamReader in;
 
@@ -73,9 +93,44 @@ public class RDataReader implements AutoCloseable {
     this.conn = conn;
   }
 
+  private RDataReader(ReadContext readContext, StreamReader in) {
+    this.readContext = readContext;
+    this.in = in;
+  }
+
+  /**
+   * Creates a reader that memory-maps the given uncompressed, XDR-format file. Large double and integer
+   * vectors are not copied onto the heap, but read from the mapped file as they are accessed.
+   *
+   * @throws IOException if the file cannot be mapped, or is not an uncompressed XDR file.
+   * @see #isMappable(Path)
+   */
+  public static RDataReader map(Context context, Path path) throws IOException {
+    MappedFile file = MappedFile.map(path, ByteOrder.BIG_ENDIAN);
+    byte[] header = new byte[(int)Math.min(7, file.size())];
+    file.getBytes(0, header, 0, header.length);
+    if(readStreamType(new ByteArrayInputStream(header)) != XDR_FORMAT) {
+      throw new IOException(path + " is not an uncompressed XDR file");
+    }
+    long offset = header[1] == '\n' ? 2 : 7;
+    return new RDataReader(new SessionReadContext(context), new MappedReader(file, offset));
+  }
+
+  /**
+   * @return true if the file at {@code path} is an uncompressed, XDR-format file that can be read
+   * with {@link #map(Context, Path)}
+   */
+  public static boolean isMappable(Path path) throws IOException {
+    try(InputStream in = Files.newInputStream(path)) {
+      return readStreamType(in) == XDR_FORMAT;
+    }
+  }
+
   public SEXP readFile() throws IOException {
-    byte streamType = readStreamType(conn);
-    in = createStreamReader(streamType, conn);
+    if(in == null) {
+      byte streamType = readStreamType(conn);
+      in = createStreamReader(streamType, conn);
+    }
     readAndVerifyVersion();
     return readExp();
   }
@@ -683,6 +738,11 @@ public class RDataReader implements AutoCloseable {
 
   private SEXP readDoubleExp(int flags) throws IOException {
     int length = in.readInt();
+    if(in instanceof MappedReader && length >= MIN_MAPPED_LENGTH) {
+      MappedReader mapped = (MappedReader) in;
+      long offset = mapped.skip(length * 8L);
+      return new MappedDoubleVector(mapped.file, offset, length, readAttributes(flags));
+    }
     double[] values = new double[length];
     for(int i=0;i!=length;++i) {
       values[i] = in.readDouble();
@@ -692,6 +752,11 @@ public class RDataReader implements AutoCloseable {
 
   private SEXP readIntVector(int flags) throws IOException {
     int length = in.readInt();
+    if(in instanceof MappedReader && length >= MIN_MAPPED_LENGTH) {
+      MappedReader mapped = (MappedReader) in;
+      long offset = mapped.skip(length * 4L);
+      return new MappedIntVector(mapped.file, offset, length, readAttributes(flags));
+    }
     IntBuffer buffer = in.readIntBuffer(length);
     return new IntBufferVector(buffer, length, readAttributes(flags));
   }
@@ -778,7 +843,9 @@ public class RDataReader implements AutoCloseable {
 
   @Override
   public void close() throws IOException {
-    conn.close();
+    if(conn != null) {
+      conn.close();
+    }
   }
 
   interface StreamReader {
@@ -963,6 +1030,65 @@ public class RDataReader implements AutoCloseable {
     }
   }
 
+  /**
+   * Reads big-endian values from a memory-mapped file.
+   */
+  private static class MappedReader implements StreamReader {
+    private final MappedFile file;
+    private long position;
+
+    private MappedReader(MappedFile file, long position) {
+      this.file = file;
+      this.position = position;
+    }
+
+    /**
+     * Advances past {@code bytes} bytes.
+     *
+     * @return the offset of the first byte skipped.
+     */
+    private long skip(long bytes) throws EOFException {
+      long start = position;
+      if(start + bytes > file.size()) {
+        throw new EOFException();
+      }
+      position += bytes;
+      return start;
+    }
+
+    @Override
+    public int readInt() throws IOException {
+      return file.getInt(skip(4));
+    }
+
+    @Override
+    public IntBuffer readIntBuffer(int size) throws IOException {
+      int[] array = new int[size];
+      long offset = skip(size * 4L);
+      for (int i = 0; i < size; i++) {
+        array[i] = file.getInt(offset + i * 4L);
+      }
+      return IntBuffer.wrap(array);
+    }
+
+    @Override
+    public byte[] readString(int length) throws IOException {
+      byte[] buf = new byte[length];
+      readFully(buf, 0, length);
+      return buf;
+    }
+
+    @Override
+    public void readFully(byte[] buffer, int offset, int length) throws IOException {
+      file.getBytes(skip(length), buffer, offset, length);
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+      return file.getDouble(skip(8));
+    }
+  }
+
   /**
    * Interface that allows Renjin containers to restore objects
    * previously stored by {@link RDataWriter.PersistenceHook}
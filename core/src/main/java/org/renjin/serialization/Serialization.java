@@ -18,6 +18,7 @@
  */
 package org.renjin.serialization;
 
+import org.apache.commons.vfs2.FileObject;
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
 import org.renjin.invoke.annotations.Current;
@@ -25,6 +26,7 @@ import org.renjin.invoke.annotations.DotCall;
 import org.renjin.invoke.annotations.Internal;
 import org.renjin.primitives.io.connections.Connection;
 import org.renjin.primitives.io.connections.Connections;
+import org.renjin.primitives.io.connections.GzFileConnection;
 import org.renjin.primitives.io.connections.OpenSpec;
 import org.renjin.serialization.RDataWriter.PersistenceHook;
 import org.renjin.sexp.*;
@@ -33,6 +35,10 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * Implementation of serialization builtins and internal functions.
@@ -61,6 +67,43 @@ public class Serialization {
     return reader.readFile();
   }
 
+  /**
+   * Reads a single object from a file, as {@code readRDS(file)} does. If {@link RDataReader#MAPPING_ENABLED}, uncompressed
+   * files in XDR format on the local file system are memory-mapped rather than read onto the heap, and must not
+   * be changed afterwards.
+   */
+  @Internal
+  public static SEXP unserializeFromFile(@Current Context context, String fileName, SEXP refhook) throws IOException {
+    FileObject file = context.resolveFile(fileName);
+
+    Path localPath = localPath(file);
+    if(RDataReader.MAPPING_ENABLED && localPath != null && Files.isRegularFile(localPath) &&
+        RDataReader.isMappable(localPath)) {
+      try(RDataReader reader = RDataReader.map(context, localPath)) {
+        return reader.readFile();
+      }
+    }
+
+    GzFileConnection connection = new GzFileConnection(file);
+    try {
+      RDataReader reader = new RDataReader(context, connection.getInputStream());
+      return reader.readFile();
+    } finally {
+      connection.close();
+    }
+  }
+
+  private static Path localPath(FileObject file) {
+    if(!"file".equals(file.getName().getScheme())) {
+      return null;
+    }
+    try {
+      return Paths.get(file.getURL().toURI());
+    } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+      return null;
+    }
+  }
+
   /**
    * 
    * @param context
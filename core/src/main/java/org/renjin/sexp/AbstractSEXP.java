@@ -34,6 +34,17 @@ public abstract class AbstractSEXP implements SEXP {
 
   private boolean object;
 
+  /**
+   * True if the only reference to this value is the variable binding to which the interpreter's
+   * {@code x[i] <- value} last assigned it. See {@link #isOwned()}.
+   */
+  private boolean owned;
+
+  /**
+   * True while an owned value is lent to a reader which does not retain it. See {@link #lend()}.
+   */
+  private boolean lent;
+
   protected AbstractSEXP() {
     this.attributes = AttributeMap.EMPTY;
     this.object = false;
@@ -270,4 +281,72 @@ public abstract class AbstractSEXP implements SEXP {
     unsafeSetAttributes(attributes.validateAndBuildFor(this));
   }
 
+  /**
+   * Values are shared by default and must never be modified. The interpreter can however take ownership
+   * of a vector that it has just copied for {@code x[i] <- value}, and, as long as the vector is
+   * only reachable through the binding of {@code x}, replace its elements in place rather than copying the whole
+   * vector again for each assignment.
+   *
+   * <p>Ownership is given up as soon as a reference to the value could be retained elsewhere: when the binding
+   * is read, when the value is bound to a second variable, or when a promise evaluating to it is forced. Readers
+   * which are known not to retain the value, such as {@code x[i]}, can instead borrow it with {@link #lend()}.</p>
+   *
+   * @return true if this value may be modified in place by its owning binding.
+   */
+  public final boolean isOwned() {
+    return owned && !lent;
+  }
+
+  /**
+   * Marks this value as owned by the binding to which it has just been assigned. This should only
+   * be called for newly allocated values which cannot be referenced from anywhere else.
+   */
+  public final void markOwned() {
+    owned = true;
+    lent = false;
+  }
+
+  /**
+   * Gives up ownership of this value, after which it can no longer be modified in place.
+   */
+  public void markShared() {
+    owned = false;
+    lent = false;
+  }
+
+  /**
+   * Lends this owned value to a reader which does not retain it. Until it is {@link #reclaim() reclaimed},
+   * the value is treated as shared, so that it is not modified in place while it is being read, but if
+   * nothing else {@link #share(SEXP) shares} it in the meantime, its binding can take ownership of it again.
+   */
+  public final void lend() {
+    lent = owned;
+  }
+
+  /**
+   * Returns a value {@link #lend() lent} to a reader to its owning binding.
+   *
+   * @return true if the value is owned again, or false if it was shared while it was lent.
+   */
+  public final boolean reclaim() {
+    if(owned && lent) {
+      lent = false;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Gives up ownership of {@code value}, if it is owned, before it is handed out to
+   * a reader which could retain it.
+   *
+   * @return {@code value}
+   */
+  public static SEXP share(SEXP value) {
+    if(value instanceof AbstractSEXP && ((AbstractSEXP) value).owned) {
+      ((AbstractSEXP) value).markShared();
+    }
+    return value;
+  }
+
 }
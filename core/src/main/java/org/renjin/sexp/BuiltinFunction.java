@@ -20,6 +20,7 @@ package org.renjin.sexp;
 
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
+import org.renjin.primitives.subset.Subsetting;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -31,8 +32,15 @@ public abstract class BuiltinFunction extends PrimitiveFunction {
   
   private final String name;
 
+  /**
+   * True if this is the {@code [} or {@code [[} builtin, which can read an element of an owned vector
+   * without sharing it.
+   */
+  private final boolean elementGetter;
+
   public BuiltinFunction(String name) {
     this.name = name;
+    this.elementGetter = name.equals("[") || name.equals("[[");
   }
   
   @Override
@@ -61,6 +69,13 @@ public abstract class BuiltinFunction extends PrimitiveFunction {
 
   @Override
   public final SEXP apply(Context context, Environment rho, FunctionCall call) {
+    if(elementGetter) {
+      SEXP element = Subsetting.getElementOfOwnedVariable(context, rho, call, name.length() == 2);
+      if(element != null) {
+        return element;
+      }
+    }
+
     List<String> argumentNames = new ArrayList<>();
     List<SEXP> arguments = new ArrayList<>();
 
@@ -18,13 +18,13 @@
  */
 package org.renjin.sexp;
 
+import org.renjin.compiler.CompiledBody;
+import org.renjin.compiler.TieredClosureBody;
 import org.renjin.eval.*;
 import org.renjin.primitives.special.ReturnException;
 
 import java.lang.invoke.MethodHandle;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 import java.util.Objects;
 import java.util.function.Supplier;
 
@@ -50,6 +50,8 @@ public class Closure extends AbstractSEXP implements Function {
 
   public MethodHandle compiledBody;
 
+  private volatile TieredClosureBody tieredBody;
+
   public Closure(Environment enclosingEnvironment, PairList formals, SEXP body, AttributeMap attributes) {
     super(attributes);
     assert !(formals instanceof FunctionCall);
@@ -99,38 +101,62 @@ public class Closure extends AbstractSEXP implements Function {
   @Override
   public final SEXP apply(Context context, Environment rho, FunctionCall call) {
 
-    List<String> argumentNames = new ArrayList<>();
-    List<SEXP> arguments = new ArrayList<>();
+    // Count the arguments first, so that they can be promised directly into arrays
+
+    PairList callArguments = call.getArguments();
+    PromisePairList extra = null;
+    int count = 0;
+    for (PairList.Node node : callArguments.nodes()) {
+      if(node.getValue() == Symbols.ELLIPSES) {
+        if(extra == null) {
+          extra = ellipses(rho);
+        }
+        count += extra.length();
+      } else {
+        count++;
+      }
+    }
+
+    String[] argumentNames = new String[count];
+    SEXP[] arguments = new SEXP[count];
+    int i = 0;
 
-    for (PairList.Node node : call.getArguments().nodes()) {
+    for (PairList.Node node : callArguments.nodes()) {
       SEXP value = node.getValue();
       if(value == Symbols.ELLIPSES) {
-        SEXP expando = rho.getEllipsesVariable();
-        if(expando == Symbol.UNBOUND_VALUE) {
-          throw new EvalException("'...' used in an incorrect context");
-        }
-        if(expando instanceof PromisePairList) {
-          PromisePairList extra = (PromisePairList) expando;
-          for (PairList.Node extraNode : extra.nodes()) {
-            argumentNames.add(extraNode.hasTag() ? extraNode.getName() : null);
-            arguments.add(extraNode.getValue());
-          }
+        for (PairList.Node extraNode : extra.nodes()) {
+          argumentNames[i] = extraNode.hasTag() ? extraNode.getName() : null;
+          arguments[i] = extraNode.getValue();
+          i++;
         }
 
       } else {
         if(node.hasName()) {
-          argumentNames.add(node.getTag().getPrintName());
-        } else {
-          argumentNames.add(null);
+          argumentNames[i] = node.getTag().getPrintName();
         }
         if(value == Symbol.MISSING_ARG) {
-          arguments.add(value);
+          arguments[i] = value;
         } else {
-          arguments.add(value.promise(rho));
+          arguments[i] = value.promise(rho);
         }
+        i++;
       }
     }
-    return applyPromised(context, rho, call, argumentNames.toArray(new String[0]), arguments.toArray(new SEXP[0]), null);
+    return applyPromised(context, rho, call, argumentNames, arguments, null);
+  }
+
+  /**
+   * @return the arguments bound to '...' in {@code rho}, or an empty list if there are none.
+   */
+  private static PromisePairList ellipses(Environment rho) {
+    SEXP expando = rho.getEllipsesVariable();
+    if(expando == Symbol.UNBOUND_VALUE) {
+      throw new EvalException("'...' used in an incorrect context");
+    }
+    if(expando instanceof PromisePairList) {
+      return (PromisePairList) expando;
+    }
+    return Null.INSTANCE;
   }
 
   public SEXP applyPromised(Context callingContext, Environment callingEnvironment, FunctionCall call, String[] argNames, SEXP[] args, DispatchTable dispatch) {
@@ -142,7 +168,8 @@ public class Closure extends AbstractSEXP implements Function {
       this.frameSymbols = matcher.getFormalNameArray();
     }
 
-    MatchedArguments matching = matcher.match(argNames, args);
+    MatchedArgumentPositions positions = ArgumentMatchCache.match(call, formals, matcher, argNames);
+    MatchedArguments matching = new MatchedArguments(positions, argNames, args);
     SEXP[] matchedArguments = new SEXP[matcher.getFormalCount()];
 
     int numFormals = matching.getFormalCount();
@@ -196,10 +223,17 @@ public class Closure extends AbstractSEXP implements Function {
 
         if(compiledBody != null) {
           return (SEXP)compiledBody.invokeExact(functionContext, functionEnvironment);
-        } else {
-          return body.get().eval(functionContext, functionEnvironment);
         }
 
+        if(TieredClosureBody.COMPILE_CLOSURES) {
+          CompiledBody jitBody = selectCompiledBody(functionContext, functionEnvironment);
+          if(jitBody != null) {
+            return jitBody.evaluate(functionContext, functionEnvironment);
+          }
+        }
+
+        return body.get().eval(functionContext, functionEnvironment);
+
       } catch (EvalException e) {
         // Associate this EvalException with this function call context if it's not already.
         // N.B. initContext() also searches for condition handlers and may rethrow this
@@ -239,6 +273,29 @@ public class Closure extends AbstractSEXP implements Function {
   }
 
 
+  /**
+   * @return the tiered compilation state of this closure's body, or {@code null} if it has not yet been
+   * invoked with {@link TieredClosureBody#COMPILE_CLOSURES} enabled.
+   */
+  public TieredClosureBody getTieredBody() {
+    return tieredBody;
+  }
+
+  private CompiledBody selectCompiledBody(Context functionContext, FunctionEnvironment functionEnvironment) {
+    TieredClosureBody tiered = tieredBody;
+    if(tiered == null) {
+      // Closures may be shared by sessions evaluating on different threads
+      synchronized (this) {
+        tiered = tieredBody;
+        if(tiered == null) {
+          tiered = new TieredClosureBody(body.get());
+          tieredBody = tiered;
+        }
+      }
+    }
+    return tiered.select(functionContext, functionEnvironment);
+  }
+
   /**
    * A function's <strong> evaluation environment</strong> is the environment
    * that was active at the time that the
@@ -292,6 +349,7 @@ public class Closure extends AbstractSEXP implements Function {
 
   public void unsafeSetBody(SEXP body) {
     this.body = () -> body;
+    this.tieredBody = null;
   }
 
   public void unsafeSetEnclosingEnvironment(Environment v) {
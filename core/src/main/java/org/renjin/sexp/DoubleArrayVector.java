@@ -22,7 +22,7 @@ import java.util.Arrays;
 import java.util.Collection;
 
 
-public final class DoubleArrayVector extends DoubleVector {
+public class DoubleArrayVector extends DoubleVector {
 
   public static final DoubleArrayVector ZERO = new DoubleArrayVector(0);
 
@@ -186,6 +186,88 @@ public final class DoubleArrayVector extends DoubleVector {
     System.arraycopy(array, 0, array, offset, length);
   }
 
+  /**
+   * Replaces the element at {@code index} in place. This vector must either be {@link #isOwned() owned}
+   * or have just been allocated by the caller. If {@code index} lies beyond the end of this vector,
+   * which may then not have any attributes, the vector is extended with {@code NA}s, leaving room to grow further.
+   *
+   * @return the modified vector, which is a new vector if this one had no room to grow.
+   */
+  public DoubleArrayVector setElementInPlace(int index, double value) {
+    DoubleArrayVector vector = this;
+    if(index >= length()) {
+      vector = grow(index + 1);
+    }
+    vector.values[index] = value;
+    return vector;
+  }
+
+  protected DoubleArrayVector grow(int minLength) {
+    return new Growable(values, minLength);
+  }
+
+  /**
+   * A vector which has been extended in place by {@code x[i] <- value}, and whose array has room
+   * for more elements. Once the vector is shared, the array is trimmed to its length.
+   */
+  private static final class Growable extends DoubleArrayVector {
+    private int size;
+
+    private Growable(double[] values, int minLength) {
+      super(AttributeMap.EMPTY);
+      this.size = values.length;
+      super.values = values;
+      grow(minLength);
+    }
+
+    @Override
+    protected DoubleArrayVector grow(int minLength) {
+      double[] values = super.values;
+      if(minLength > values.length) {
+        int capacity = Math.max(minLength, (values.length * 3) / 2 + 1);
+        values = Arrays.copyOf(values, capacity);
+        Arrays.fill(values, size, capacity, NA);
+        super.values = values;
+      }
+      size = minLength;
+      return this;
+    }
+
+    private void trim() {
+      if(super.values.length != size) {
+        super.values = Arrays.copyOf(super.values, size);
+      }
+    }
+
+    @Override
+    public void markShared() {
+      super.markShared();
+      trim();
+    }
+
+    @Override
+    public int length() {
+      return size;
+    }
+
+    @Override
+    public double[] toDoubleArrayUnsafe() {
+      trim();
+      return super.values;
+    }
+
+    @Override
+    public double[] toDoubleArray() {
+      return Arrays.copyOf(super.values, size);
+    }
+
+    @Override
+    protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+      trim();
+      return super.cloneWithNewAttributes(attributes);
+    }
+  }
+
   public static class Builder extends AbstractAtomicBuilder {
     private static final int MIN_INITIAL_CAPACITY = 50;
     private double values[];
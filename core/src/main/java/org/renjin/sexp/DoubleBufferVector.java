@@ -0,0 +1,86 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.sexp;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * A {@code DoubleVector} backed by a {@link DoubleBuffer}, which may live outside of the heap.
+ *
+ * <p>Elements are read with absolute indices, starting at index zero of the buffer, so the buffer's
+ * position and limit are never changed.</p>
+ */
+public class DoubleBufferVector extends DoubleVector {
+
+  private final DoubleBuffer buffer;
+  private final int length;
+
+  public DoubleBufferVector(DoubleBuffer buffer, int length) {
+    this.buffer = buffer;
+    this.length = length;
+  }
+
+  public DoubleBufferVector(DoubleBuffer buffer, int length, AttributeMap attributes) {
+    super(attributes);
+    this.buffer = buffer;
+    this.length = length;
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public double getElementAsDouble(int i) {
+    return buffer.get(i);
+  }
+
+  @Override
+  public boolean isConstantAccessTime() {
+    return true;
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return new DoubleBufferVector(buffer, length, attributes);
+  }
+
+  /**
+   * Returns the underlying {@code DoubleBuffer} backing this vector. The
+   * returned buffer <strong>absolutely should not be modified!</strong>
+   */
+  public DoubleBuffer toDoubleBufferUnsafe() {
+    return buffer;
+  }
+
+  @Override
+  public double[] toDoubleArray() {
+    double[] array = new double[length];
+    copyTo(array, 0, length);
+    return array;
+  }
+
+  @Override
+  public void copyTo(double[] array, int offset, int length) {
+    DoubleBuffer source = buffer.duplicate();
+    source.position(0);
+    source.get(array, offset, length);
+  }
+}
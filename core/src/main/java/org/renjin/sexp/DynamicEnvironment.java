@@ -26,7 +26,7 @@ public class DynamicEnvironment extends Environment {
   private final Frame frame;
 
   public DynamicEnvironment(String name, Environment parent, AttributeMap attributes, Frame frame) {
-    super(parent, name, attributes);
+    super(parent, name, attributes, frame.isLookupCacheable());
     this.frame = frame;
   }
 
@@ -73,6 +73,12 @@ public class DynamicEnvironment extends Environment {
 
   @Override
   protected void updateBinding(Symbol symbol, SEXP value) {
-    frame.setVariable(symbol, value);
+    if(isLookupCacheable()) {
+      SEXP oldValue = frame.getVariable(symbol);
+      frame.setVariable(symbol, value);
+      invalidateLookups(symbol, oldValue, value);
+    } else {
+      frame.setVariable(symbol, value);
+    }
   }
 }
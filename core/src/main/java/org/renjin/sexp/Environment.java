@@ -25,6 +25,7 @@ import org.renjin.repackaged.guava.collect.Sets;
 import org.renjin.repackaged.guava.collect.UnmodifiableIterator;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 
 /**
@@ -62,6 +63,18 @@ public abstract class Environment extends AbstractSEXP implements Recursive {
   private Environment parent;
 
   private boolean locked;
+
+  /**
+   * Incremented whenever the parent of an environment changes, which invalidates all cached lookups.
+   */
+  private static final AtomicInteger LOOKUP_EPOCH = new AtomicInteger();
+
+  /**
+   * True if all changes to this environment's bindings are made through {@link #updateBinding(Symbol, SEXP)},
+   * so that lookups through it can be cached.
+   */
+  private final boolean lookupCacheable;
+
   private Set<Symbol> lockedBindings;
   private Map<Symbol, Closure> activeBindings = null;
 
@@ -88,9 +101,14 @@ public abstract class Environment extends AbstractSEXP implements Recursive {
   }
 
   protected Environment(Environment parent, String name, AttributeMap attributes) {
+    this(parent, name, attributes, false);
+  }
+
+  protected Environment(Environment parent, String name, AttributeMap attributes, boolean lookupCacheable) {
     super(attributes);
     this.parent = parent;
     this.name = name;
+    this.lookupCacheable = lookupCacheable;
   }
 
   public final void remove(Symbol symbol) {
@@ -131,6 +149,7 @@ public abstract class Environment extends AbstractSEXP implements Recursive {
    */
   public final void setParent(Environment parent) {
     this.parent = parent;
+    invalidateLookupCaches();
   }
 
   public final Environment insertAbove(Frame frame) {
@@ -184,6 +203,7 @@ public abstract class Environment extends AbstractSEXP implements Recursive {
    * @param value value to be assigned.
    */
   public final void setVariableUnsafe(Symbol symbol, SEXP value) {
+    shareIfRebound(symbol, value);
     updateBinding(symbol, value);
   }
 
@@ -269,11 +289,39 @@ public abstract class Environment extends AbstractSEXP implements Recursive {
       throw new EvalException("cannot add bindings to a locked environment");
     }
 
+    shareIfRebound(symbol, value);
     updateBinding(symbol, value);
 
     return Null.INSTANCE;
   }
 
+  /**
+   * An owned value that is bound to a second variable is no longer owned by either.
+   */
+  private void shareIfRebound(Symbol symbol, SEXP value) {
+    if(value instanceof AbstractSEXP && ((AbstractSEXP) value).isOwned() && getBinding(symbol) != value) {
+      ((AbstractSEXP) value).markShared();
+    }
+  }
+
+  /**
+   * Returns the value bound to {@code symbol} in this environment if it is {@link AbstractSEXP#isOwned() owned}
+   * by that binding, without giving up its ownership. The caller must not retain the value anywhere
+   * other than in this binding.
+   *
+   * @return the owned value, or {@code null} if {@code symbol} is not bound in this environment to an owned value.
+   */
+  public final AbstractSEXP getOwnedVariable(Symbol symbol) {
+    if(activeBindings != null && activeBindings.containsKey(symbol)) {
+      return null;
+    }
+    SEXP value = getBinding(symbol);
+    if(value instanceof AbstractSEXP && ((AbstractSEXP) value).isOwned()) {
+      return (AbstractSEXP) value;
+    }
+    return null;
+  }
+
   /**
    * Creates an active binding to given variable name
    *
@@ -294,6 +342,7 @@ public abstract class Environment extends AbstractSEXP implements Recursive {
       activeBindings = new HashMap<>();
     }
     activeBindings.put(symbol, closure);
+    symbol.incrementBindingVersion();
   }
 
   /**
@@ -356,16 +405,103 @@ public abstract class Environment extends AbstractSEXP implements Recursive {
     if(symbol.isVarArgReference()) {
       return findVarArg(symbol.getVarArgReferenceIndex());
     }
+    if(lookupCacheable) {
+      return findCachedVariable(context, symbol);
+    }
+    return findUncachedVariable(context, symbol);
+  }
+
+  private SEXP findUncachedVariable(Context context, Symbol symbol) {
     if(activeBindings != null && activeBindings.containsKey(symbol)) {
       return evaluateFunction(context, symbol);
     }
     SEXP value = getBinding(symbol);
     if(value != Symbol.UNBOUND_VALUE) {
-      return value;
+      return AbstractSEXP.share(value);
     }
     return parent.findVariable(context, symbol);
   }
 
+  /**
+   * Looks up {@code symbol} starting from this environment, first checking the environment
+   * in which it was last found.
+   *
+   * <p>Most lookups from package code pass through the namespace, imports and base environments
+   * before finding a function or a constant. Only environments whose bindings cannot change behind our back,
+   * which excludes function environments, are searched this way: the parent chain from this environment to the
+   * one in which the symbol is found can then only be changed by:</p>
+   * <ul>
+   *   <li>adding a binding for {@code symbol} to one of them, which increments the symbol's binding version;</li>
+   *   <li>making {@code symbol} an active binding, which also increments its binding version; or</li>
+   *   <li>changing the parent of an environment, which increments the global lookup epoch.</li>
+   * </ul>
+   * <p>The cache holds the environment, rather than the value, so that reassigning an existing variable does not
+   * require invalidation. If the symbol has since been removed from the cached environment, it is looked up
+   * again from scratch.</p>
+   */
+  private SEXP findCachedVariable(Context context, Symbol symbol) {
+    int version = symbol.getBindingVersion();
+    int epoch = LOOKUP_EPOCH.get();
+    Environment cached = LookupCache.get(symbol.variableLookups, this, version, epoch);
+    if(cached != null) {
+      SEXP value = cached.getBinding(symbol);
+      if(value != Symbol.UNBOUND_VALUE) {
+        return AbstractSEXP.share(value);
+      }
+    }
+    Environment env = this;
+    while(env.lookupCacheable && !env.isActiveBinding(symbol)) {
+      SEXP value = env.getBinding(symbol);
+      if(value != Symbol.UNBOUND_VALUE) {
+        symbol.variableLookups = LookupCache.add(symbol.variableLookups, this, env, version, epoch);
+        return AbstractSEXP.share(value);
+      }
+      env = env.parent;
+    }
+    if(env == EMPTY) {
+      return Symbol.UNBOUND_VALUE;
+    }
+    return env.findUncachedVariable(context, symbol);
+  }
+
+  /**
+   * Called after a binding in an environment with cached lookups has changed from {@code oldValue} to
+   * {@code newValue}, to invalidate lookups which could now find a different environment.
+   *
+   * <p>The version must be incremented after, and not before, the binding has changed: otherwise a lookup on
+   * another thread could read the new version but still miss the new binding, and cache a stale result under
+   * the new version.</p>
+   */
+  protected static void invalidateLookups(Symbol symbol, SEXP oldValue, SEXP newValue) {
+    if(oldValue == Symbol.UNBOUND_VALUE ||
+        ((newValue instanceof Function || newValue instanceof Promise) && !(oldValue instanceof Function))) {
+      symbol.incrementBindingVersion();
+    }
+  }
+
+  /**
+   * Invalidates all cached lookups, for example after bindings have been added directly to
+   * a {@link Frame}.
+   */
+  public static void invalidateLookupCaches() {
+    LOOKUP_EPOCH.incrementAndGet();
+  }
+
+  /**
+   * @return the current lookup epoch, which changes whenever all cached lookups are invalidated.
+   */
+  public static int getLookupEpoch() {
+    return LOOKUP_EPOCH.get();
+  }
+
+  /**
+   * @return true if lookups through this environment can be cached, which is the case if all changes to its
+   * bindings increment the {@link Symbol#getBindingVersion() binding version} of their symbol.
+   */
+  public final boolean isLookupCacheable() {
+    return lookupCacheable;
+  }
+
   private SEXP evaluateFunction(Context context, Symbol symbol) {
     Closure fun = activeBindings.get(symbol);
     PairList.Builder args = new PairList.Builder();
@@ -399,7 +535,7 @@ public abstract class Environment extends AbstractSEXP implements Recursive {
     assert ( !isActiveBinding(symbol) );
     SEXP value = getBinding(symbol);
     if(value != Symbol.UNBOUND_VALUE) {
-      return value;
+      return AbstractSEXP.share(value);
     }
     if(parent instanceof EmptyEnv) {
       return Symbol.UNBOUND_VALUE;
@@ -444,6 +580,9 @@ public abstract class Environment extends AbstractSEXP implements Recursive {
 
 
   public Function findFunction(Context context, Symbol symbol) {
+    if(lookupCacheable) {
+      return findCachedFunction(context, symbol);
+    }
     Function value = getFunctionBinding(context, symbol);
     if(value != null) {
       return value;
@@ -451,6 +590,40 @@ public abstract class Environment extends AbstractSEXP implements Recursive {
     return parent.findFunction(context, symbol);
   }
 
+  /**
+   * @return the function bound to {@code symbol} in this environment, without searching its parents, or
+   * {@code null} if there is none.
+   */
+  public final Function getFunction(Context context, Symbol symbol) {
+    return getFunctionBinding(context, symbol);
+  }
+
+  /**
+   * Looks up the function named {@code symbol}, first checking the environment in which it was last found.
+   * See {@link #findCachedVariable(Context, Symbol)}
+   */
+  private Function findCachedFunction(Context context, Symbol symbol) {
+    int version = symbol.getBindingVersion();
+    int epoch = LOOKUP_EPOCH.get();
+    Environment cached = LookupCache.get(symbol.functionLookups, this, version, epoch);
+    if(cached != null) {
+      Function value = cached.getFunctionBinding(context, symbol);
+      if(value != null) {
+        return value;
+      }
+    }
+    Environment env = this;
+    while(env.lookupCacheable) {
+      Function value = env.getFunctionBinding(context, symbol);
+      if(value != null) {
+        symbol.functionLookups = LookupCache.add(symbol.functionLookups, this, env, version, epoch);
+        return value;
+      }
+      env = env.parent;
+    }
+    return env.findFunction(context, symbol);
+  }
+
 
   /**
    *
@@ -573,7 +746,7 @@ public abstract class Environment extends AbstractSEXP implements Recursive {
     if(activeBindings != null && activeBindings.containsKey(symbol)) {
       return evaluateFunction(context, symbol);
     }
-    return getBinding(symbol);
+    return AbstractSEXP.share(getBinding(symbol));
   }
 
   /**
@@ -600,14 +773,14 @@ public abstract class Environment extends AbstractSEXP implements Recursive {
    * @return SEXP value
    */
   public final SEXP getVariableUnsafe(Symbol symbol) {
-    return getBinding(symbol);
+    return AbstractSEXP.share(getBinding(symbol));
   }
 
   public final SEXP getVariableOrThrowIfActivelyBound(Symbol symbol) {
     if (isActiveBinding(symbol)) {
       throw new IllegalStateException("Encountered active binding " + symbol + " in environment " + getName());
     }
-    return getBinding(symbol);
+    return AbstractSEXP.share(getBinding(symbol));
   }
 
   /**
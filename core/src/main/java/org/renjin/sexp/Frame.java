@@ -74,5 +74,13 @@ public interface Frame {
   void clear();
 
   void remove(Symbol name);
+
+  /**
+   * @return true if all the bindings of this frame are added through {@link #setVariable(Symbol, SEXP)}, so that
+   * lookups through its environment may be cached.
+   */
+  default boolean isLookupCacheable() {
+    return false;
+  }
   
 }
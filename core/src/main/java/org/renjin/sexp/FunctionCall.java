@@ -18,6 +18,7 @@
  */
 package org.renjin.sexp;
 
+import org.renjin.eval.ArgumentMatchCache;
 import org.renjin.eval.ConditionException;
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
@@ -36,6 +37,11 @@ public class FunctionCall extends PairList.Node {
 
   public Object cache;
 
+  /**
+   * Argument matchings of the closures called from this call site.
+   */
+  public ArgumentMatchCache argumentMatchCache;
+
   public FunctionCall(SEXP function, PairList arguments) {
     super(function, arguments);
   }
@@ -199,7 +199,7 @@ public final class FunctionEnvironment extends Environment {
   }
 
   public SEXP getPromised(int index) {
-    return locals[index];
+    return share(locals[index]);
   }
 
 
@@ -215,14 +215,14 @@ public final class FunctionEnvironment extends Environment {
   public SEXP get(Context context, int index) {
     SEXP value = locals[index];
     if(value != null) {
-      return value.force(context);
+      return share(value.force(context));
     }
     Symbol symbol = (Symbol) localNames[index];
 
     if(overflow != null) {
       value = overflow.get(symbol);
       if(value != null) {
-        return value.force(context);
+        return share(value.force(context));
       }
     }
 
@@ -383,7 +383,7 @@ public final class FunctionEnvironment extends Environment {
    * was provided for the first formal.
    */
   public SEXP getFormalValue(int index) {
-    return matchedArguments[index];
+    return share(matchedArguments[index]);
   }
 
   public Symbol getLocalName(int index) {
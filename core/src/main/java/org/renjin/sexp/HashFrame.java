@@ -45,6 +45,16 @@ public class HashFrame implements Frame{
     }
   }
 
+  /**
+   * Creates a new frame with a snapshot of the bindings of {@code frame}. The values themselves are
+   * not copied, but later assignments to either frame are not seen by the other.
+   */
+  public HashFrame(Frame frame) {
+    for (Symbol symbol : frame.getSymbols()) {
+      setVariable(symbol, frame.getVariable(symbol));
+    }
+  }
+
   @Override
   public Set<Symbol> getSymbols() {
     return values.keySet();
@@ -98,6 +108,11 @@ public class HashFrame implements Frame{
     values.remove(name);
   }
 
+  @Override
+  public boolean isLookupCacheable() {
+    return true;
+  }
+
   @Override
   public void clear() {
     values.clear();
@@ -104,6 +104,83 @@ public class IntArrayVector extends IntVector {
     return true;
   }
 
+  /**
+   * Replaces the element at {@code index} in place. This vector must either be {@link #isOwned() owned}
+   * or have just been allocated by the caller. If {@code index} lies beyond the end of this vector,
+   * which may then not have any attributes, the vector is extended with {@code NA}s, leaving room to grow further.
+   *
+   * @return the modified vector, which is a new vector if this one had no room to grow.
+   */
+  public IntArrayVector setElementInPlace(int index, int value) {
+    IntArrayVector vector = this;
+    if(index >= length()) {
+      vector = grow(index + 1);
+    }
+    vector.values[index] = value;
+    return vector;
+  }
+
+  protected IntArrayVector grow(int minLength) {
+    return new Growable(values, minLength);
+  }
+
+  /**
+   * A vector which has been extended in place by {@code x[i] <- value}, and whose array has room
+   * for more elements. Once the vector is shared, the array is trimmed to its length.
+   */
+  private static final class Growable extends IntArrayVector {
+    private int size;
+
+    private Growable(int[] values, int minLength) {
+      super(AttributeMap.EMPTY);
+      this.size = values.length;
+      super.values = values;
+      grow(minLength);
+    }
+
+    @Override
+    protected IntArrayVector grow(int minLength) {
+      int[] values = super.values;
+      if(minLength > values.length) {
+        int capacity = Math.max(minLength, (values.length * 3) / 2 + 1);
+        values = Arrays.copyOf(values, capacity);
+        Arrays.fill(values, size, capacity, NA);
+        super.values = values;
+      }
+      size = minLength;
+      return this;
+    }
+
+    private void trim() {
+      if(super.values.length != size) {
+        super.values = Arrays.copyOf(super.values, size);
+      }
+    }
+
+    @Override
+    public void markShared() {
+      super.markShared();
+      trim();
+    }
+
+    @Override
+    public int length() {
+      return size;
+    }
+
+    @Override
+    public int[] toIntArrayUnsafe() {
+      trim();
+      return super.values;
+    }
+
+    @Override
+    protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+      trim();
+      return super.cloneWithNewAttributes(attributes);
+    }
+  }
+
   public static class Builder extends AbstractAtomicBuilder {
     private static final int MIN_INITIAL_CAPACITY = 50;
     private int values[];
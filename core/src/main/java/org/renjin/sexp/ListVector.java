@@ -279,6 +279,14 @@ public class ListVector extends AbstractVector implements Iterable<SEXP>, HasNam
   public SEXP[] toArrayUnsafe() {
     return values;
   }
+
+  /**
+   * Replaces the element at {@code index}, which must lie within this list, in place. This list must either
+   * be {@link #isOwned() owned} or have just been allocated by the caller.
+   */
+  public void setElementInPlace(int index, SEXP value) {
+    values[index] = value;
+  }
   
   @Override
   public boolean contains(Vector vector, int vectorIndex) {
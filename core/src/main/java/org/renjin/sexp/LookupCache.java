@@ -0,0 +1,94 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.sexp;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * The environments in which a {@link Symbol} was found when looked up from up to {@link #LIMIT} starting
+ * environments.
+ *
+ * <p>An entry only remains valid as long as the symbol's binding version and the global lookup epoch are
+ * unchanged: see {@link Environment#findVariable(org.renjin.eval.Context, Symbol)}. Instances are immutable, so
+ * that they can be safely replaced while other threads are reading them.</p>
+ *
+ * <p>Symbols are interned for the lifetime of the JVM, so the environments are only weakly referenced: a cache
+ * must not keep the global or namespace environments of a closed session, and with them the whole session,
+ * reachable.</p>
+ */
+final class LookupCache {
+
+  static final int LIMIT = 4;
+
+  private final int version;
+  private final int epoch;
+  private final WeakReference<Environment>[] starts;
+  private final WeakReference<Environment>[] resolved;
+
+  private LookupCache(int version, int epoch, WeakReference<Environment>[] starts,
+                      WeakReference<Environment>[] resolved) {
+    this.version = version;
+    this.epoch = epoch;
+    this.starts = starts;
+    this.resolved = resolved;
+  }
+
+  /**
+   * @return the environment in which the symbol was found when looked up from {@code start}, or {@code null}
+   * if there is no valid entry.
+   */
+  static Environment get(LookupCache cache, Environment start, int version, int epoch) {
+    if(cache == null || cache.version != version || cache.epoch != epoch) {
+      return null;
+    }
+    for (int i = 0; i < cache.starts.length; i++) {
+      if(cache.starts[i].get() == start) {
+        return cache.resolved[i].get();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return a cache with a new entry for {@code start}, replacing the oldest entry if the cache is full,
+   * and discarding all of {@code cache}'s entries if they are no longer valid.
+   */
+  static LookupCache add(LookupCache cache, Environment start, Environment resolved, int version, int epoch) {
+    int size;
+    if(cache == null || cache.version != version || cache.epoch != epoch) {
+      size = 1;
+    } else {
+      size = Math.min(cache.starts.length + 1, LIMIT);
+    }
+    WeakReference<Environment>[] starts = newArray(size);
+    WeakReference<Environment>[] resolvedEnvironments = newArray(size);
+    starts[0] = new WeakReference<>(start);
+    resolvedEnvironments[0] = new WeakReference<>(resolved);
+    if(size > 1) {
+      System.arraycopy(cache.starts, 0, starts, 1, size - 1);
+      System.arraycopy(cache.resolved, 0, resolvedEnvironments, 1, size - 1);
+    }
+    return new LookupCache(version, epoch, starts, resolvedEnvironments);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static WeakReference<Environment>[] newArray(int size) {
+    return (WeakReference<Environment>[]) new WeakReference[size];
+  }
+}
@@ -80,7 +80,7 @@ public class Promise extends AbstractSEXP implements Recursive {
     if (result == null) {
       this.result = doEval(context);
     }
-    return result;
+    return share(result);
   }
 
   protected SEXP doEval(Context context) {
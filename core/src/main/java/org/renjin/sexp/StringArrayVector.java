@@ -36,6 +36,27 @@ public class StringArrayVector extends StringVector implements Iterable<String>
     assert checkDims() : "dim do not match length of object";
   }
 
+  private StringArrayVector(AttributeMap attributes, String[] values) {
+    super(attributes);
+    this.values = values;
+  }
+
+  /**
+   * Creates a new StringArrayVector from the given array, without copying.
+   * {@code array} MUST NOT be subsequently modified.
+   */
+  public static StringArrayVector unsafe(String[] array) {
+    return unsafe(array, AttributeMap.EMPTY);
+  }
+
+  /**
+   * Creates a new StringArrayVector from the given array, without copying.
+   * {@code array} MUST NOT be subsequently modified.
+   */
+  public static StringArrayVector unsafe(String[] array, AttributeMap attributes) {
+    return new StringArrayVector(attributes, array);
+  }
+
   public StringArrayVector(String... values) {
     this(Arrays.copyOf(values, values.length, String[].class), AttributeMap.EMPTY);
   }
@@ -23,6 +23,7 @@ import org.renjin.eval.EvalException;
 import org.renjin.eval.MissingArgumentException;
 
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 public final class Symbol extends AbstractSEXP {
 
@@ -49,6 +50,28 @@ public final class Symbol extends AbstractSEXP {
    * A hash of this symbol's name.
    */
   private final int hashBit;
+
+  /**
+   * Incremented whenever a variable named by this symbol is added to an environment whose lookups are cached,
+   * or is changed there to a value which might be a function.
+   *
+   * <p>Symbols are shared by all sessions in the JVM, so the version is incremented atomically, after the
+   * binding has changed, and read before a lookup starts.</p>
+   */
+  private volatile int bindingVersion;
+
+  private static final AtomicIntegerFieldUpdater<Symbol> BINDING_VERSION =
+      AtomicIntegerFieldUpdater.newUpdater(Symbol.class, "bindingVersion");
+
+  /**
+   * The environments in which this symbol was last found as a variable.
+   */
+  volatile LookupCache variableLookups;
+
+  /**
+   * The environments in which this symbol was last found as a function.
+   */
+  volatile LookupCache functionLookups;
   
   /**
    * Hash bit for very frequently used and very rarely redefined 
@@ -263,6 +286,21 @@ public final class Symbol extends AbstractSEXP {
   public String getPrintName() {
     return printName;
   }
+
+  /**
+   * @return a version number which is incremented whenever a variable with this name is added to an environment
+   * whose lookups can be cached, so that code which caches the result of a lookup can tell whether it still holds.
+   */
+  public int getBindingVersion() {
+    return bindingVersion;
+  }
+
+  /**
+   * Invalidates all lookups of this symbol which were cached before a binding was added or changed.
+   */
+  void incrementBindingVersion() {
+    BINDING_VERSION.incrementAndGet(this);
+  }
   
   @Override
   public void accept(SexpVisitor visitor) {
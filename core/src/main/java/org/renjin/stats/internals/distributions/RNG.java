@@ -29,6 +29,8 @@ import org.renjin.sexp.*;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
+import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 public class RNG {
@@ -40,6 +42,61 @@ public class RNG {
   public Session context;
   private MethodHandle methodHandle;
 
+  private static final Symbol RANDOM_SEED = Symbol.get(".Random.seed");
+
+  /**
+   * Distinguishes the seeds of sessions which are randomized within the same clock tick, such as
+   * the sessions of parallel workers.
+   */
+  private static final AtomicLong SEED_UNIQUIFIER = new AtomicLong(8682522807148012L);
+
+  /*
+   * Constants of L'Ecuyer's MRG32k3a generator
+   */
+  private static final long M1 = 4294967087L;
+  private static final long M2 = 4294944443L;
+  private static final double NORMC = 2.328306549295727688e-10;
+  private static final double I2_32M1 = 2.328306437080797e-10;
+
+  /**
+   * The transition matrices of the two components of MRG32k3a, raised to the power 2^127, to
+   * advance to the next stream
+   */
+  private static final long[][] A1P127 = {
+      { 2427906178L, 3580155704L,  949770784L },
+      {  226153695L, 1230515664L, 3580155704L },
+      { 1988835001L,  986791581L, 1230515664L }};
+
+  private static final long[][] A2P127 = {
+      { 1464411153L,  277697599L, 1610723613L },
+      {   32183930L, 1464411153L, 1022607788L },
+      { 2824425944L,   32183930L, 2093834863L }};
+
+  /**
+   * The transition matrices raised to the power 2^76, to advance to the next substream
+   */
+  private static final long[][] A1P76 = {
+      {   82758667L, 1871391091L, 4127413238L },
+      { 3672831523L,   69195019L, 1871391091L },
+      { 3672091415L, 3528743235L,   69195019L }};
+
+  private static final long[][] A2P76 = {
+      { 1511326704L, 3759209742L, 1610795712L },
+      { 4292754251L, 1511326704L, 3889917532L },
+      { 3859662829L, 4292754251L, 3708466080L }};
+
+  /**
+   * The state of the L'Ecuyer-CMRG generator, as unsigned 32-bit integers
+   */
+  private final int[] lecuyerSeed = new int[6];
+
+  /**
+   * The value of {@code .Random.seed} last written by this generator. The L'Ecuyer-CMRG generator
+   * reloads its state from the global environment when {@code .Random.seed} has been changed by
+   * R code, for example by {@code parallel::mc.set.stream()}.
+   */
+  private SEXP lastSeedVector = null;
+
 
   public RNG(Session globals){
     this.context = globals;
@@ -52,11 +109,19 @@ public class RNG {
     
     if(kindExp != Null.INSTANCE) {
       int kind = ((AtomicVector)kindExp).getElementAsInt(0);
+      RNGtype newKind;
       try {
-        rng.RNG_kind = RNGtype.values()[kind];
+        newKind = kind == -1 ? RNGtype.MERSENNE_TWISTER : RNGtype.values()[kind];
       } catch (Exception e) {
         throw new EvalException("RNGkind: unimplemented RNG kind " + kind);
       }
+      if(newKind == RNGtype.LECUYER_CMRG && rng.RNG_kind != RNGtype.LECUYER_CMRG) {
+        // As in GNU R, seed the new generator from the current one
+        int seed = (int) (long) (rng.unif_rand() * 4294967295d);
+        rng.RNG_kind = newKind;
+        rng.initLecuyer(seed);
+      }
+      rng.RNG_kind = newKind;
     }
     if(normalkindExp != Null.INSTANCE) {
       int normalkind = ((AtomicVector)normalkindExp).getElementAsInt(0);
@@ -115,6 +180,9 @@ public class RNG {
       throw new EvalException(rng.RNG_kind + " not implemented yet");
     case USER_UNIF:
       throw new EvalException(rng.RNG_kind + " not implemented yet");
+    case LECUYER_CMRG:
+      rng.initLecuyer(seed);
+      return;
     default:
       throw new EvalException(rng.RNG_kind + " not implemented yet");
     }
@@ -158,6 +226,8 @@ public class RNG {
         throw new EvalException(RNG_kind + " not implemented yet");
       case USER_UNIF:
         throw new EvalException(RNG_kind + " not implemented yet");
+      case LECUYER_CMRG:
+        return fixup(nextLecuyer());
       default:
         throw new EvalException(RNG_kind + " not implemented yet");
     }
@@ -167,8 +237,8 @@ public class RNG {
    * This part of R is platform dependent. this formula is random itself :)
    */
   public void Randomize(RNGtype kind) {
-    int sseed;
-    sseed = (int) (new java.util.Date()).getTime();
+    long uniquifier = SEED_UNIQUIFIER.getAndAdd(181783497276652981L);
+    int sseed = (int) ((uniquifier ^ System.nanoTime() ^ System.currentTimeMillis()) >>> 7);
     this.randomseed = sseed;
     switch (RNG_kind) {
 
@@ -194,11 +264,153 @@ public class RNG {
         throw new EvalException(RNG_kind + " not implemented yet");
       case USER_UNIF:
         throw new EvalException(RNG_kind + " not implemented yet");
+      case LECUYER_CMRG:
+        initLecuyer(sseed);
+        return;
       default:
         throw new EvalException(RNG_kind + " not implemented yet");
     }
   }
 
+  /**
+   * Initializes the L'Ecuyer-CMRG generator from a single integer seed, scrambled as in GNU R's
+   * {@code RNG_Init}, and stores the new state in {@code .Random.seed}
+   */
+  private void initLecuyer(int seed) {
+    for (int j = 0; j < 50; j++) {
+      seed = (69069 * seed + 1);
+    }
+    for (int j = 0; j < lecuyerSeed.length; j++) {
+      seed = (69069 * seed + 1);
+      while (Integer.toUnsignedLong(seed) >= M2) {
+        seed = (69069 * seed + 1);
+      }
+      lecuyerSeed[j] = seed;
+    }
+    storeLecuyerSeed();
+  }
+
+  private double nextLecuyer() {
+    loadLecuyerSeed();
+
+    int[] s = lecuyerSeed;
+    long p1 = 1403580L * Integer.toUnsignedLong(s[1]) - 810728L * Integer.toUnsignedLong(s[0]);
+    p1 %= M1;
+    if (p1 < 0) {
+      p1 += M1;
+    }
+    s[0] = s[1];
+    s[1] = s[2];
+    s[2] = (int) p1;
+
+    long p2 = 527612L * Integer.toUnsignedLong(s[5]) - 1370589L * Integer.toUnsignedLong(s[3]);
+    p2 %= M2;
+    if (p2 < 0) {
+      p2 += M2;
+    }
+    s[3] = s[4];
+    s[4] = s[5];
+    s[5] = (int) p2;
+
+    storeLecuyerSeed();
+
+    return ((p1 > p2) ? (p1 - p2) : (p1 - p2 + M1)) * NORMC;
+  }
+
+  /**
+   * Ensures that a uniform variate lies strictly within (0, 1)
+   */
+  private static double fixup(double x) {
+    if (x <= 0.0) {
+      return 0.5 * I2_32M1;
+    }
+    if ((1.0 - x) <= 0.0) {
+      return 1.0 - 0.5 * I2_32M1;
+    }
+    return x;
+  }
+
+  /**
+   * Reloads the state of the generator from {@code .Random.seed} if it has been assigned
+   * since we last stored it.
+   */
+  private void loadLecuyerSeed() {
+    SEXP seedVector = context.getGlobalEnvironment().getVariableUnsafe(RANDOM_SEED);
+    if (seedVector == lastSeedVector) {
+      return;
+    }
+    if (seedVector instanceof IntVector && seedVector.length() == 7 &&
+        ((IntVector) seedVector).getElementAsInt(0) % 100 == RNGtype.LECUYER_CMRG.ordinal()) {
+      for (int i = 0; i < lecuyerSeed.length; i++) {
+        lecuyerSeed[i] = ((IntVector) seedVector).getElementAsInt(i + 1);
+      }
+      lastSeedVector = seedVector;
+    } else if (seedVector == Symbol.UNBOUND_VALUE) {
+      Randomize(RNG_kind);
+    } else {
+      throw new EvalException("'.Random.seed' is not a valid integer vector for L'Ecuyer-CMRG");
+    }
+  }
+
+  private void storeLecuyerSeed() {
+    int[] seedVector = new int[7];
+    seedVector[0] = RNG_kind.ordinal() + 100 * N01_kind.ordinal();
+    System.arraycopy(lecuyerSeed, 0, seedVector, 1, lecuyerSeed.length);
+    lastSeedVector = new IntArrayVector(seedVector);
+    context.getGlobalEnvironment().setVariableUnsafe(RANDOM_SEED, lastSeedVector);
+  }
+
+  /**
+   * Copies the kind of generator used by another session, so that {@code RNGkind()} is the same
+   * in a forked session.
+   */
+  public void copyKind(RNG parent) {
+    this.RNG_kind = parent.RNG_kind;
+    this.N01_kind = parent.N01_kind;
+  }
+
+  /**
+   * Advances an L'Ecuyer-CMRG seed to the start of the next stream.
+   */
+  @Internal
+  public static IntVector nextRNGStream(IntVector seed) {
+    return advanceLecuyerSeed(seed, A1P127, A2P127);
+  }
+
+  /**
+   * Advances an L'Ecuyer-CMRG seed to the start of the next substream.
+   */
+  @Internal
+  public static IntVector nextRNGSubStream(IntVector seed) {
+    return advanceLecuyerSeed(seed, A1P76, A2P76);
+  }
+
+  private static IntVector advanceLecuyerSeed(IntVector seed, long[][] a1, long[][] a2) {
+    if (seed.length() != 7 || seed.getElementAsInt(0) % 100 != RNGtype.LECUYER_CMRG.ordinal()) {
+      throw new EvalException("invalid value of 'seed'");
+    }
+    int[] next = new int[7];
+    next[0] = seed.getElementAsInt(0);
+    for (int i = 0; i < 3; i++) {
+      next[i + 1] = matVecModM(a1, seed, 1, i, M1);
+      next[i + 4] = matVecModM(a2, seed, 4, i, M2);
+    }
+    return new IntArrayVector(next);
+  }
+
+  /**
+   * @return row {@code row} of the product of the matrix {@code a} and the three unsigned seeds starting at
+   * {@code seed[offset]}, modulo {@code m}
+   */
+  private static int matVecModM(long[][] a, IntVector seed, int offset, int row, long m) {
+    BigInteger sum = BigInteger.ZERO;
+    for (int j = 0; j < 3; j++) {
+      long s = Integer.toUnsignedLong(seed.getElementAsInt(offset + j));
+      sum = sum.add(BigInteger.valueOf(a[row][j]).multiply(BigInteger.valueOf(s)));
+    }
+    return (int) sum.mod(BigInteger.valueOf(m)).longValue();
+  }
+
 
   private static MethodHandle createMethodHandle(RNG rng) {
     try {
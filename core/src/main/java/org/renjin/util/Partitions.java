@@ -0,0 +1,72 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Computes a task that has been split into independent partitions on an {@link Executor}.
+ */
+public class Partitions {
+
+  private Partitions() {
+  }
+
+  /**
+   * Computes a single partition of a larger task.
+   */
+  public interface Task<T> {
+    T compute(int partition) throws Exception;
+  }
+
+  /**
+   * Computes {@code task} for each of {@code partitionCount} partitions, submitting all but the first to
+   * {@code executor}, and then computing the first, as well as any others that are still waiting in the
+   * executor's queue, on this thread. This way, work can be safely partitioned from within a task that is itself
+   * running on a thread of the same, possibly saturated, pool.
+   *
+   * @return the results of the partitions, in order.
+   * @throws ExecutionException if a partition failed, with the exception it threw as its cause.
+   */
+  public static <T> List<T> compute(Executor executor, int partitionCount, Task<T> task)
+      throws InterruptedException, ExecutionException {
+
+    List<FutureTask<T>> tasks = new ArrayList<>(partitionCount);
+    for (int i = 0; i < partitionCount; i++) {
+      int partition = i;
+      FutureTask<T> futureTask = new FutureTask<>(() -> task.compute(partition));
+      tasks.add(futureTask);
+      if(i > 0) {
+        try {
+          executor.execute(futureTask);
+        } catch (RejectedExecutionException e) {
+          // Will be run below on this thread
+        }
+      }
+    }
+    List<T> results = new ArrayList<>(partitionCount);
+    for (FutureTask<T> futureTask : tasks) {
+      futureTask.run();
+      results.add(futureTask.get());
+    }
+    return results;
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.util;
+
+import org.renjin.primitives.sequence.IntSequence;
+import org.renjin.sexp.*;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.Map;
+
+/**
+ * Exchanges bulk data between a Java host and R without copying.
+ *
+ * <p>The {@code wrap} methods return vectors that share their storage with the given arrays or buffers, so large
+ * inputs can be bound in an R session, for example with {@code ScriptEngine.put()}, without doubling their
+ * footprint on the heap. R code never modifies a vector in place that it did not create itself, but the host
+ * must not modify the arrays or buffers either for as long as the vectors are in use.</p>
+ *
+ * <p>The {@code to*Buffer} methods read results back as read-only buffers, again without copying when the
+ * vector is backed by an array or a buffer.</p>
+ *
+ * <p>Missing values are represented as in R: {@link DoubleVector#NA} and {@link IntVector#NA} for numbers,
+ * and {@code null} for strings.</p>
+ */
+public class VectorViews {
+
+  private VectorViews() {
+  }
+
+  public static DoubleVector wrap(double[] values) {
+    return DoubleArrayVector.unsafe(values);
+  }
+
+  public static IntVector wrap(int[] values) {
+    return IntArrayVector.unsafe(values);
+  }
+
+  public static StringVector wrap(String[] values) {
+    return StringArrayVector.unsafe(values);
+  }
+
+  /**
+   * Wraps the remaining elements of {@code buffer}, from its current position up to its limit.
+   */
+  public static DoubleVector wrap(DoubleBuffer buffer) {
+    return wrap(buffer, AttributeMap.EMPTY);
+  }
+
+  /**
+   * Wraps the remaining elements of {@code buffer}, from its current position up to its limit.
+   */
+  public static IntVector wrap(IntBuffer buffer) {
+    if(buffer.hasArray() && buffer.arrayOffset() + buffer.position() == 0 &&
+        buffer.remaining() == buffer.array().length) {
+      return IntArrayVector.unsafe(buffer.array());
+    }
+    return new IntBufferVector(buffer.slice(), buffer.remaining());
+  }
+
+  /**
+   * Wraps {@code values} as a numeric matrix with {@code nrow} rows and {@code ncol} columns. As in R,
+   * the values must be stored in column-major order.
+   */
+  public static DoubleVector matrix(double[] values, int nrow, int ncol) {
+    checkDim(values.length, nrow, ncol);
+    return DoubleArrayVector.unsafe(values, AttributeMap.dim(nrow, ncol));
+  }
+
+  /**
+   * Wraps the remaining elements of {@code buffer} as a numeric matrix with {@code nrow} rows and
+   * {@code ncol} columns. As in R, the values must be stored in column-major order.
+   */
+  public static DoubleVector matrix(DoubleBuffer buffer, int nrow, int ncol) {
+    checkDim(buffer.remaining(), nrow, ncol);
+    return wrap(buffer, AttributeMap.dim(nrow, ncol));
+  }
+
+  /**
+   * Wraps a batch of columns as an R {@code data.frame}.
+   *
+   * @param columns the columns of the batch, in order, by name. Each column must be a {@code double[]},
+   *                {@code int[]}, {@code String[]}, {@code DoubleBuffer}, {@code IntBuffer} or an R vector,
+   *                and all columns must have the same length.
+   */
+  public static ListVector dataFrame(Map<String, ?> columns) {
+    int numRows = -1;
+    ListVector.NamedBuilder list = new ListVector.NamedBuilder(0, columns.size());
+    for (Map.Entry<String, ?> column : columns.entrySet()) {
+      Vector vector = wrapColumn(column.getKey(), column.getValue());
+      if(numRows == -1) {
+        numRows = vector.length();
+      } else if(vector.length() != numRows) {
+        throw new IllegalArgumentException(String.format("Column '%s' has %d rows, expected %d",
+            column.getKey(), vector.length(), numRows));
+      }
+      list.add(column.getKey(), vector);
+    }
+    list.setAttribute(Symbols.ROW_NAMES, new IntSequence(1, 1, Math.max(numRows, 0)));
+    list.setAttribute(Symbols.CLASS, StringArrayVector.valueOf("data.frame"));
+
+    return list.build();
+  }
+
+  /**
+   * Returns the elements of {@code vector} as a read-only {@code DoubleBuffer}. The buffer shares its storage
+   * with the vector if the vector is backed by a {@code double[]} array or a {@code DoubleBuffer}.
+   */
+  public static DoubleBuffer toDoubleBuffer(SEXP vector) {
+    if(vector instanceof DoubleArrayVector) {
+      double[] array = ((DoubleArrayVector) vector).toDoubleArrayUnsafe();
+      return DoubleBuffer.wrap(array, 0, vector.length()).slice().asReadOnlyBuffer();
+    }
+    if(vector instanceof DoubleBufferVector) {
+      return ((DoubleBufferVector) vector).toDoubleBufferUnsafe().asReadOnlyBuffer();
+    }
+    return DoubleBuffer.wrap(atomic(vector).toDoubleArray()).asReadOnlyBuffer();
+  }
+
+  /**
+   * Returns the elements of {@code vector} as a read-only {@code IntBuffer}. The buffer shares its storage
+   * with the vector if the vector is backed by an {@code int[]} array or an {@code IntBuffer}.
+   */
+  public static IntBuffer toIntBuffer(SEXP vector) {
+    if(vector instanceof IntArrayVector) {
+      int[] array = ((IntArrayVector) vector).toIntArrayUnsafe();
+      return IntBuffer.wrap(array, 0, vector.length()).slice().asReadOnlyBuffer();
+    }
+    if(vector instanceof IntBufferVector) {
+      return ((IntBufferVector) vector).toIntBufferUnsafe().asReadOnlyBuffer();
+    }
+    return IntBuffer.wrap(atomic(vector).toIntArray()).asReadOnlyBuffer();
+  }
+
+  private static DoubleVector wrap(DoubleBuffer buffer, AttributeMap attributes) {
+    if(buffer.hasArray() && buffer.arrayOffset() + buffer.position() == 0 &&
+        buffer.remaining() == buffer.array().length) {
+      return DoubleArrayVector.unsafe(buffer.array(), attributes);
+    }
+    return new DoubleBufferVector(buffer.slice(), buffer.remaining(), attributes);
+  }
+
+  private static Vector wrapColumn(String name, Object column) {
+    if(column instanceof double[]) {
+      return wrap((double[]) column);
+    } else if(column instanceof int[]) {
+      return wrap((int[]) column);
+    } else if(column instanceof String[]) {
+      return wrap((String[]) column);
+    } else if(column instanceof DoubleBuffer) {
+      return wrap((DoubleBuffer) column);
+    } else if(column instanceof IntBuffer) {
+      return wrap((IntBuffer) column);
+    } else if(column instanceof Vector) {
+      return (Vector) column;
+    }
+    throw new IllegalArgumentException(String.format("Column '%s' has unsupported type %s", name,
+        column == null ? "null" : column.getClass().getName()));
+  }
+
+  private static AtomicVector atomic(SEXP vector) {
+    if(!(vector instanceof AtomicVector)) {
+      throw new IllegalArgumentException("Expected an atomic vector, found " + vector.getTypeName());
+    }
+    return (AtomicVector) vector;
+  }
+
+  private static void checkDim(int length, int nrow, int ncol) {
+    if((long) nrow * ncol != length) {
+      throw new IllegalArgumentException(String.format("Expected %d x %d = %d values, found %d",
+          nrow, ncol, (long) nrow * ncol, length));
+    }
+  }
+}
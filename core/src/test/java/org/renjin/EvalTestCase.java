@@ -28,7 +28,6 @@ import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
 import org.renjin.invoke.reflection.converters.Converters;
 import org.renjin.parser.RParser;
-import org.renjin.primitives.Warning;
 import org.renjin.primitives.io.connections.ResourceConnection;
 import org.renjin.repackaged.guava.collect.Lists;
 import org.renjin.repackaged.guava.primitives.UnsignedBytes;
@@ -71,8 +70,8 @@ public abstract class EvalTestCase {
 
   
   private void printWarnings() {
-    SEXP warnings = topLevelContext.getBaseEnvironment().getVariable(topLevelContext, Warning.LAST_WARNING);
-    if(warnings != Symbol.UNBOUND_VALUE) {
+    SEXP warnings = topLevelContext.getSession().getLastWarning();
+    if(warnings != Null.INSTANCE) {
       topLevelContext.evaluate( FunctionCall.newCall(Symbol.get("print.warnings"), warnings),
           topLevelContext.getBaseEnvironment());
 
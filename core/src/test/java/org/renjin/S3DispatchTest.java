@@ -20,10 +20,12 @@ package org.renjin;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.renjin.primitives.S3DispatchCache;
 import org.renjin.sexp.Logical;
 
 import java.io.IOException;
 
+import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertThat;
 
 public class S3DispatchTest extends EvalTestCase {
@@ -112,6 +114,74 @@ public class S3DispatchTest extends EvalTestCase {
     assertThat( eval("x[9]"), elementsIdenticalTo(c_i(9)));
   }
 
+  @Test
+  public void cachedDispatchSeesNewMethods() {
+    eval("describe <- function(x) UseMethod('describe')");
+    eval("describe.default <- function(x) 'default'");
+    eval("describe.bar <- function(x) 'bar'");
+    eval("x <- structure(1, class = c('foo', 'bar'))");
+
+    assertThat(eval("describe(x)"), elementsIdenticalTo(c("bar")));
+    assertThat(eval("describe(x)"), elementsIdenticalTo(c("bar")));
+
+    eval("describe.foo <- function(x) 'foo'");
+    assertThat(eval("describe(x)"), elementsIdenticalTo(c("foo")));
+
+    eval("describe.foo <- function(x) 'foo2'");
+    assertThat(eval("describe(x)"), elementsIdenticalTo(c("foo2")));
+
+    eval("rm(describe.foo)");
+    assertThat(eval("describe(x)"), elementsIdenticalTo(c("bar")));
+
+    eval("rm(describe.bar)");
+    assertThat(eval("describe(x)"), elementsIdenticalTo(c("default")));
+  }
+
+  @Test
+  public void cachedDispatchFromPrimitive() {
+    eval("x <- structure(1:3, class = 'qux')");
+    assertThat(eval("length(x)"), elementsIdenticalTo(c_i(3)));
+
+    eval("length.qux <- function(x) 42L");
+    assertThat(eval("length(x)"), elementsIdenticalTo(c_i(42)));
+    assertThat(eval("length(x)"), elementsIdenticalTo(c_i(42)));
+
+    S3DispatchCache cache = topLevelContext.getSession().getSingleton(S3DispatchCache.class);
+    long hits = cache.getHitCount();
+    eval("length(x)");
+    assertThat(cache.getHitCount(), equalTo(hits + 1));
+  }
+
+  @Test
+  public void cachedDispatchSeesLocalMethods() {
+    eval("describe <- function(x) UseMethod('describe')");
+    eval("describe.default <- function(x) 'default'");
+    eval("f <- function(x, local) { if(local) { describe.foo <- function(x) 'local' }; describe(x) }");
+    eval("x <- structure(1, class = 'foo')");
+
+    assertThat(eval("f(x, FALSE)"), elementsIdenticalTo(c("default")));
+    assertThat(eval("f(x, TRUE)"), elementsIdenticalTo(c("default")));
+    assertThat(eval("f(x, FALSE)"), elementsIdenticalTo(c("default")));
+
+    eval("h <- function(x, local) { if(local) { length.foo <- function(x) 99L }; length(x) }");
+    assertThat(eval("h(x, FALSE)"), elementsIdenticalTo(c_i(1)));
+    assertThat(eval("h(x, TRUE)"), elementsIdenticalTo(c_i(99)));
+    assertThat(eval("h(x, FALSE)"), elementsIdenticalTo(c_i(1)));
+  }
+
+  @Test
+  public void cachedDispatchSeesRegisteredMethods() {
+    eval("describe <- function(x) UseMethod('describe')");
+    eval("describe.default <- function(x) 'default'");
+    eval("x <- structure(1, class = 'foo')");
+    assertThat(eval("describe(x)"), elementsIdenticalTo(c("default")));
+
+    eval("table <- new.env()");
+    eval("assign('.__S3MethodsTable__.', table, envir = globalenv())");
+    eval("assign('describe.foo', function(x) 'registered', envir = table)");
+    assertThat(eval("describe(x)"), elementsIdenticalTo(c("registered")));
+  }
+
   @Test
   public void test() {
     eval("`[.svyrep.design`<-function(x, i, j, drop=FALSE) missing(i) ");
@@ -38,7 +38,6 @@ import java.io.IOException;
 
 import static org.junit.Assert.assertThat;
 
-@Ignore
 public class ForLoopCompilerTest extends EvalTestCase {
   
   @Before
@@ -77,6 +76,13 @@ public class ForLoopCompilerTest extends EvalTestCase {
     assertThat(evalAndAssertCompiled("{ s <- 0; for(i in 1:10000) { s <- s + sqrt(i) }; s }"), closeTo(c(666716.5), 1d));
   }
 
+  @Test
+  public void dynamicElementAssignment() {
+    eval("x <- as.double(1:1000)");
+    assertThat(evalAndAssertCompiled("{ y <- numeric(length(x)); for(i in seq_along(x)) y[i] <- x[i] %% 7; sum(y) }"),
+        elementsIdenticalTo(c(3003)));
+  }
+
   @Ignore
   @Test
   public void loopWithS3Call() {
@@ -92,6 +98,7 @@ public class ForLoopCompilerTest extends EvalTestCase {
   }
   
   @Test
+  @Ignore("the + in an inlined closure is not compiled yet")
   public void loopWithClosureCall() {
     eval(" add <- function(x, y) x + y ");
     eval(" s <- 0 ");
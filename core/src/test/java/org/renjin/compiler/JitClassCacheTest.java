@@ -0,0 +1,102 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.compiler;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.renjin.pipeliner.fusion.LoopKernelCache;
+import org.renjin.pipeliner.fusion.kernel.CompiledKernel;
+import org.renjin.pipeliner.fusion.kernel.SumMeanKernel;
+import org.renjin.pipeliner.fusion.node.DoubleArrayNode;
+import org.renjin.pipeliner.fusion.node.LoopNode;
+import org.renjin.repackaged.asm.Type;
+import org.renjin.repackaged.guava.util.concurrent.MoreExecutors;
+import org.renjin.sexp.DoubleArrayVector;
+import org.renjin.sexp.Vector;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+public class JitClassCacheTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void roundTrip() throws IOException {
+    JitClassCache cache = new JitClassCache(folder.getRoot(), "1.0");
+    cache.put("sum:DA0", "Jit1", new byte[] { 1, 2, 3 });
+
+    JitClassCache.Entry entry = new JitClassCache(folder.getRoot(), "1.0").get("sum:DA0");
+    assertThat(entry, not(nullValue()));
+    assertThat(entry.getClassName(), equalTo("Jit1"));
+    assertArrayEquals(new byte[] { 1, 2, 3 }, entry.getClassBytes());
+
+    assertThat(cache.get("mean:DA0"), nullValue());
+  }
+
+  @Test
+  public void otherVersionsAreIgnored() {
+    new JitClassCache(folder.getRoot(), "1.0").put("sum:DA0", "Jit1", new byte[] { 1, 2, 3 });
+
+    assertThat(new JitClassCache(folder.getRoot(), "1.1").get("sum:DA0"), nullValue());
+  }
+
+  @Test
+  public void corruptEntriesAreIgnored() throws IOException {
+    JitClassCache cache = new JitClassCache(folder.getRoot(), "1.0");
+    cache.put("sum:DA0", "Jit1", new byte[] { 1, 2, 3 });
+
+    File[] entries = new File(folder.getRoot(), "1.0").listFiles();
+    assertThat(entries.length, equalTo(1));
+    try(FileOutputStream out = new FileOutputStream(entries[0])) {
+      out.write(new byte[] { 0x52, 0x4A, 0x49, 0x54, 0x7F });
+    }
+
+    assertThat(cache.get("sum:DA0"), nullValue());
+  }
+
+  @Test
+  public void kernelsAreReloadedFromDisk() throws Exception {
+    JitClassCache classCache = new JitClassCache(folder.getRoot(), "1.0");
+
+    CompiledKernel first = compileSum(classCache);
+    CompiledKernel second = compileSum(classCache);
+
+    // The second kernel cache must load the class written by the first,
+    // rather than generating a new one.
+    assertThat(second.getClass().getName(), equalTo(first.getClass().getName()));
+    assertArrayEquals(new double[] { 6 },
+        second.compute(new Vector[] { new DoubleArrayVector(1, 2, 3) }), 0);
+  }
+
+  private CompiledKernel compileSum(JitClassCache classCache) throws Exception {
+    LoopKernelCache kernelCache = new LoopKernelCache(MoreExecutors.newDirectExecutorService(), classCache);
+    LoopNode[] operands = { new DoubleArrayNode(0, Type.getType(DoubleArrayVector.class)) };
+    return kernelCache.get(SumMeanKernel.sum(), operands).get();
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.compiler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+import org.renjin.eval.Session;
+import org.renjin.eval.SessionBuilder;
+import org.renjin.parser.RParser;
+import org.renjin.sexp.Closure;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.ExpressionVector;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.Symbol;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TieredClosureBodyTest extends EvalTestCase {
+
+  private int previousThreshold;
+
+  @Before
+  public void enableClosureCompiler() {
+    previousThreshold = TieredClosureBody.COMPILE_THRESHOLD;
+    TieredClosureBody.COMPILE_CLOSURES = true;
+    TieredClosureBody.COMPILE_THRESHOLD = 10;
+  }
+
+  @After
+  public void disableClosureCompiler() {
+    TieredClosureBody.COMPILE_CLOSURES = false;
+    TieredClosureBody.COMPILE_THRESHOLD = previousThreshold;
+  }
+
+  @Test
+  public void hotClosure() {
+    eval("f <- function(x) x * 2 + 1");
+    eval("s <- 0");
+    eval("for(i in 1:100) s <- s + f(i)");
+
+    assertThat(eval("s"), elementsIdenticalTo(c(10200)));
+    assertTrue(tieredBody("f").isCompiled());
+  }
+
+  @Test
+  public void deoptimizeOnNewArgumentType() {
+    // The compiled body is specialized to the integer values of x seen so far
+    eval("f <- function(x, y) if(missing(y)) x else x + y");
+    eval("for(i in 1:50) f(i)");
+    assertTrue(tieredBody("f").isCompiled());
+    assertThat(tieredBody("f").getDeoptimizationCount(), equalTo(0));
+
+    assertThat(eval("f(1.5)"), elementsIdenticalTo(c(1.5)));
+    assertFalse(tieredBody("f").isCompiled());
+    assertThat(tieredBody("f").getDeoptimizationCount(), equalTo(1));
+
+    assertThat(eval("f(c(1L, 2L))"), elementsIdenticalTo(c_i(1, 2)));
+  }
+
+  @Test
+  public void earlyReturn() {
+    eval("f <- function(x) { if(x > 5) return(1); 0 }");
+    eval("s <- 0");
+    eval("for(i in 1:100) s <- s + f(i)");
+
+    assertThat(eval("s"), elementsIdenticalTo(c(95)));
+  }
+
+  @Test
+  public void missingArguments() {
+    eval("f <- function(x, y) if(missing(y)) x else x + y");
+    eval("for(i in 1:50) f(i)");
+    assertTrue(tieredBody("f").isCompiled());
+
+    assertThat(eval("f(1)"), elementsIdenticalTo(c(1)));
+    assertThat(eval("f(1, 2)"), elementsIdenticalTo(c(3)));
+  }
+
+  @Test
+  public void closureSharedBetweenThreads() throws Exception {
+    eval("f <- function(x) x * 2 + 1");
+    SEXP f = eval("f");
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<SEXP>> results = new ArrayList<>();
+      for (int i = 0; i < 16; i++) {
+        // Alternate the type of the argument so that the threads discard each other's compiled bodies
+        ExpressionVector loop = RParser.parseSource(i % 2 == 0 ?
+            "{ s <- 0; for(i in 1:200) s <- s + f(i); s }" :
+            "{ s <- 0; for(i in 1:200) s <- s + f(i + 0.5); s }");
+        results.add(executor.submit(() -> {
+          Session session = new SessionBuilder().build();
+          session.getGlobalEnvironment().setVariable(session.getTopLevelContext(), Symbol.get("f"), f);
+          return session.getTopLevelContext().evaluate(loop);
+        }));
+      }
+      for (int i = 0; i < results.size(); i++) {
+        double expected = (i % 2 == 0) ? 40400 : 40600;
+        assertThat(((DoubleVector) results.get(i).get(1, TimeUnit.MINUTES)).getElementAsDouble(0), equalTo(expected));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private TieredClosureBody tieredBody(String name) {
+    return ((Closure) topLevelContext.getGlobalEnvironment().getVariableUnsafe(Symbol.get(name))).getTieredBody();
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.compiler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+import org.renjin.compiler.ir.tac.RuntimeAssumption;
+import org.renjin.eval.Session;
+import org.renjin.eval.SessionBuilder;
+import org.renjin.parser.RParser;
+import org.renjin.primitives.special.ForFunction;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.ExpressionVector;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.Symbol;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertThat;
+
+public class TieredLoopBodyTest extends EvalTestCase {
+
+  private int previousThreshold;
+  private int previousInterval;
+  private CompilationStatistics statistics;
+
+  @Before
+  public void enableLoopCompiler() {
+    previousThreshold = TieredLoopBody.COMPILE_THRESHOLD;
+    previousInterval = TieredLoopBody.SAFEPOINT_INTERVAL;
+    ForFunction.COMPILE_LOOPS = true;
+    TieredLoopBody.COMPILE_THRESHOLD = 10;
+    TieredLoopBody.SAFEPOINT_INTERVAL = 25;
+    statistics = new CompilationStatistics();
+    SexpCompiler.setCompilationListener(statistics);
+  }
+
+  @After
+  public void disableLoopCompiler() {
+    ForFunction.COMPILE_LOOPS = false;
+    TieredLoopBody.COMPILE_THRESHOLD = previousThreshold;
+    TieredLoopBody.SAFEPOINT_INTERVAL = previousInterval;
+    SexpCompiler.setCompilationListener(null);
+  }
+
+  @Test
+  public void enterCompiledBodyMidLoop() {
+    eval("s <- 0");
+    eval("for(i in 1:100) s <- s + i");
+
+    assertThat(eval("s"), elementsIdenticalTo(c(5050)));
+    assertThat(eval("i"), elementsIdenticalTo(c_i(100)));
+    assertThat(statistics.getCompiledCount(), equalTo(1L));
+    assertThat(statistics.getCompiledLoopEntryCount(), equalTo(1L));
+  }
+
+  @Test
+  public void breakFromCompiledBody() {
+    eval("s <- 0");
+    eval("for(i in 1:100) { if(i > 60) break; s <- s + i }");
+
+    assertThat(eval("s"), elementsIdenticalTo(c(1830)));
+    assertThat(eval("i"), elementsIdenticalTo(c_i(61)));
+  }
+
+  @Test
+  public void nextInCompiledBody() {
+    eval("s <- 0");
+    eval("for(i in 1:100) { if(i %% 2 == 0) next; s <- s + i }");
+
+    assertThat(eval("s"), elementsIdenticalTo(c(2500)));
+  }
+
+  @Test
+  public void deoptimizeWhenVariableChangesType() {
+    eval("f <- function(s) for(i in 1:100) s <- s + i");
+    eval("g <- function(s) { for(i in 1:100) s <- s + i; s }");
+
+    assertThat(eval("g(0)"), elementsIdenticalTo(c(5050)));
+    assertThat(eval("g(0L)"), elementsIdenticalTo(c_i(5050)));
+
+    assertThat(statistics.getDeoptimizationCount(), greaterThan(0L));
+  }
+
+  @Test
+  public void deoptimizeMidLoop() {
+    eval("k <- 1L");
+    eval("s <- 0");
+    eval("for(i in 1:100) { z <- .Internal(assign('k', if(i >= 50) 0.5 else k, globalenv(), FALSE)); s <- s + k }");
+
+    assertThat(eval("s"), elementsIdenticalTo(c(74.5)));
+    assertThat(statistics.getDeoptimizationCount(), greaterThan(0L));
+  }
+
+  @Test
+  public void superAssignmentIsInterpreted() {
+    eval("total <- 0");
+    eval("f <- function() for(i in 1:100) total <<- total + i");
+    eval("f()");
+
+    assertThat(eval("total"), elementsIdenticalTo(c(5050)));
+    assertThat(statistics.getFailedCount(), equalTo(1L));
+  }
+
+  @Test
+  public void recompileWithWidenedBounds() {
+    eval("g <- function(x) { s <- 0; for(i in x) s <- s + i; s }");
+
+    assertThat(eval("g(1:100)"), elementsIdenticalTo(c(5050)));
+    assertThat(eval("g(as.double(1:100))"), elementsIdenticalTo(c(5050)));
+    assertThat(eval("g(1:100)"), elementsIdenticalTo(c(5050)));
+  }
+
+  @Test
+  public void sequenceChangeIsReportedWithAssumption() {
+    List<RuntimeAssumption> violations = new CopyOnWriteArrayList<>();
+    SexpCompiler.setCompilationListener(new CompilationStatistics() {
+      @Override
+      public void assumptionViolated(SEXP expression, RuntimeAssumption assumption) {
+        violations.add(assumption);
+      }
+    });
+
+    eval("g <- function(x) { s <- 0; for(i in x) s <- s + i; s }");
+    assertThat(eval("g(1:100)"), elementsIdenticalTo(c(5050)));
+    assertThat(eval("g(as.double(1:100))"), elementsIdenticalTo(c(5050)));
+
+    assertThat(violations.size(), equalTo(1));
+    assertThat(violations.get(0), instanceOf(CachedLoopBody.AssumeSequenceBounds.class));
+    assertThat(violations.get(0).toString().startsWith("Sequence{"), equalTo(true));
+  }
+
+  @Test
+  public void loopSharedBetweenThreads() throws Exception {
+    ExpressionVector loop = RParser.parseSource("{ s <- 0; for(i in x) s <- s + i; s }");
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<SEXP>> results = new ArrayList<>();
+      for (int i = 0; i < 16; i++) {
+        // Alternate the type of the sequence so that the threads discard each other's compiled bodies
+        boolean integer = (i % 2 == 0);
+        results.add(executor.submit(() -> {
+          Session session = new SessionBuilder().build();
+          SEXP x = session.getTopLevelContext().evaluate(RParser.parseSource(integer ? "1:1000" : "as.double(1:1000)"));
+          session.getGlobalEnvironment().setVariable(session.getTopLevelContext(), Symbol.get("x"), x);
+          return session.getTopLevelContext().evaluate(loop);
+        }));
+      }
+      for (Future<SEXP> result : results) {
+        assertThat(((DoubleVector) result.get(1, TimeUnit.MINUTES)).getElementAsDouble(0), equalTo(500500d));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void fallBackToInterpreter() {
+    eval("x <- numeric(100)");
+    eval("for(i in seq_along(x)) x[i] <- i %% 7");
+
+    assertThat(eval("sum(x)"), elementsIdenticalTo(c(297)));
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.eval;
+
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+import org.renjin.parser.RParser;
+import org.renjin.sexp.SEXP;
+
+import static org.junit.Assert.assertThat;
+
+public class SessionForkTest extends EvalTestCase {
+
+  @Test
+  public void forkSeesGlobalVariables() {
+    eval("x <- 41");
+
+    Session fork = topLevelContext.getSession().fork();
+
+    assertThat(evalIn(fork, "x + 1"), elementsIdenticalTo(c(42)));
+  }
+
+  @Test
+  public void assignmentsAreIsolated() {
+    eval("x <- 1");
+
+    Session fork = topLevelContext.getSession().fork();
+    evalIn(fork, "x <- 2; y <- 3; rm(x)");
+    eval("x <- 4");
+
+    assertThat(eval("x"), elementsIdenticalTo(c(4)));
+    assertThat(eval("exists('y')"), elementsIdenticalTo(c(false)));
+    assertThat(evalIn(fork, "exists('x', inherits = FALSE)"),
+        elementsIdenticalTo(c(false)));
+    assertThat(evalIn(fork, "y"), elementsIdenticalTo(c(3)));
+  }
+
+  @Test
+  public void laterAssignmentsByParentAreNotSeen() {
+    eval("x <- 1");
+
+    Session fork = topLevelContext.getSession().fork();
+    eval("x <- 2; y <- 3");
+
+    assertThat(evalIn(fork, "x"), elementsIdenticalTo(c(1)));
+    assertThat(evalIn(fork, "exists('y')"), elementsIdenticalTo(c(false)));
+  }
+
+  @Test
+  public void elementAssignmentsToInheritedVectorsAreIsolated() {
+    eval("x <- numeric(3); x[1] <- 1");
+
+    Session fork = topLevelContext.getSession().fork();
+    evalIn(fork, "x[2] <- 5");
+    eval("x[3] <- 7");
+
+    assertThat(eval("x"), elementsIdenticalTo(c(1, 0, 7)));
+    assertThat(evalIn(fork, "x"), elementsIdenticalTo(c(1, 5, 0)));
+  }
+
+  @Test
+  public void forkCopiesOptions() {
+    eval("options(digits = 3)");
+
+    Session fork = topLevelContext.getSession().fork();
+    evalIn(fork, "options(digits = 10)");
+
+    assertThat(eval("getOption('digits')"), elementsIdenticalTo(c(3)));
+  }
+
+  @Test
+  public void warningsAreIsolated() {
+    eval("warning('in parent')");
+
+    Session fork = topLevelContext.getSession().fork();
+    evalIn(fork, "warning('in fork')");
+
+    assertThat(eval("names(warnings())"), elementsIdenticalTo(c("in parent")));
+    assertThat(evalIn(fork, "names(warnings())"), elementsIdenticalTo(c("in fork")));
+    assertThat(eval("exists('last.warning', envir = baseenv())"), elementsIdenticalTo(c(false)));
+  }
+
+  @Test
+  public void workers() {
+    eval("workers <- lapply(1:3, function(i) .Internal(forkWorker()))");
+    eval("for(i in 1:3) .Internal(sendToWorker(workers[[i]], local({ j <- i; function() { Sys.sleep(0.2 * (3 - j)); j * 10 } })))");
+
+    assertThat(eval(".Internal(selectWorker(workers))"), elementsIdenticalTo(c_i(3)));
+    assertThat(eval("sapply(workers, function(w) .Internal(receiveFromWorker(w)))"),
+        elementsIdenticalTo(c(10, 20, 30)));
+
+    eval("for(w in workers) .Internal(stopWorker(w))");
+  }
+
+  @Test
+  public void workersHaveOwnGlobalEnvironment() {
+    eval("x <- 1");
+    eval("w <- .Internal(forkWorker())");
+    eval(".Internal(sendToWorker(w, function() assign('x', 2, envir = globalenv())))");
+    eval(".Internal(receiveFromWorker(w))");
+    eval(".Internal(sendToWorker(w, function() get('x', envir = globalenv())))");
+
+    assertThat(eval(".Internal(receiveFromWorker(w))"), elementsIdenticalTo(c(2)));
+    assertThat(eval("x"), elementsIdenticalTo(c(1)));
+  }
+
+  @Test(expected = EvalException.class)
+  public void workerErrors() {
+    eval("w <- .Internal(forkWorker())");
+    eval(".Internal(sendToWorker(w, function() stop('boom')))");
+    eval(".Internal(receiveFromWorker(w))");
+  }
+
+  private static SEXP evalIn(Session session, String source) {
+    return session.getTopLevelContext().evaluate(RParser.parseSource(source + "\n"));
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.eval;
+
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+import org.renjin.parser.RParser;
+import org.renjin.sexp.SEXP;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class SessionPoolTest extends EvalTestCase {
+
+  @Test
+  public void sessionsStartFromTemplate() {
+    eval("x <- 41");
+    eval("f <- function(y) x + y");
+    eval("options(digits = 3)");
+
+    SessionPool pool = new SessionPool(topLevelContext.getSession(), 2);
+    Session session = pool.acquire();
+
+    assertThat(evalIn(session, "f(1)"), elementsIdenticalTo(c(42)));
+    assertThat(evalIn(session, "getOption('digits')"), elementsIdenticalTo(c(3)));
+  }
+
+  @Test
+  public void sessionsAreIsolated() {
+    eval("x <- 1");
+
+    SessionPool pool = new SessionPool(topLevelContext.getSession(), 2);
+    Session a = pool.acquire();
+    Session b = pool.acquire();
+
+    evalIn(a, "x <- 2; y <- 3; options(digits = 10)");
+
+    assertThat(evalIn(b, "x"), elementsIdenticalTo(c(1)));
+    assertThat(evalIn(b, "exists('y')"), elementsIdenticalTo(c(false)));
+    assertThat(evalIn(b, "getOption('digits')"), elementsIdenticalTo(c_i(7)));
+    assertThat(eval("x"), elementsIdenticalTo(c(1)));
+  }
+
+  @Test
+  public void elementAssignmentsDoNotChangeTemplate() {
+    eval("x <- numeric(3); x[1] <- 1");
+
+    SessionPool pool = new SessionPool(topLevelContext.getSession(), 2);
+    Session a = pool.acquire();
+    Session b = pool.acquire();
+
+    evalIn(a, "x[2] <- 5");
+
+    assertThat(evalIn(a, "x"), elementsIdenticalTo(c(1, 5, 0)));
+    assertThat(evalIn(b, "x"), elementsIdenticalTo(c(1, 0, 0)));
+    assertThat(eval("x"), elementsIdenticalTo(c(1, 0, 0)));
+  }
+
+  @Test
+  public void warningsAreIsolated() {
+    SessionPool pool = new SessionPool(topLevelContext.getSession(), 2);
+    Session a = pool.acquire();
+    Session b = pool.acquire();
+
+    evalIn(a, "warning('in a')");
+    evalIn(b, "warning('in b')");
+    b.clearWarnings();
+
+    assertThat(evalIn(a, "names(warnings())"), elementsIdenticalTo(c("in a")));
+    assertThat(evalIn(b, "warnings()"), elementsIdenticalTo(NULL));
+  }
+
+  @Test
+  public void releasedSessionsAreReplaced() {
+    eval("x <- 1");
+
+    SessionPool pool = new SessionPool(topLevelContext.getSession(), 1);
+    Session session = pool.acquire();
+    evalIn(session, "x <- 2");
+    assertThat(pool.size(), equalTo(0));
+
+    pool.release(session);
+    assertThat(pool.size(), equalTo(1));
+
+    Session next = pool.acquire();
+    assertThat(evalIn(next, "x"), elementsIdenticalTo(c(1)));
+  }
+
+  @Test
+  public void sessionsHaveOwnOutput() {
+    SessionPool pool = new SessionPool(topLevelContext.getSession(), 2);
+    Session a = pool.acquire();
+    Session b = pool.acquire();
+
+    StringWriter outA = new StringWriter();
+    StringWriter outB = new StringWriter();
+    a.setStdOut(new PrintWriter(outA));
+    b.setStdOut(new PrintWriter(outB));
+
+    evalIn(a, "cat('a')");
+    evalIn(b, "cat('b')");
+    a.getStdOut().flush();
+    b.getStdOut().flush();
+
+    assertThat(outA.toString(), equalTo("a"));
+    assertThat(outB.toString(), equalTo("b"));
+  }
+
+  private static SEXP evalIn(Session session, String source) {
+    return session.getTopLevelContext().evaluate(RParser.parseSource(source + "\n"));
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.pipeliner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.Vector;
+
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class FusedKernelsTest extends PipelinedSessionTestCase {
+
+  @Before
+  public void defineX() {
+    eval("x <- as.double(1:200000)");
+  }
+
+  @Test
+  public void minMaxRange() {
+    assertTrue(((Vector) eval("min(x * 2)")).isDeferred());
+
+    assertThat(materialize("min(x * 2 - 7)"), elementsIdenticalTo(c(-5)));
+    assertThat(materialize("max(x * 2 - 7)"), elementsIdenticalTo(c(399993)));
+    assertThat(materialize("range(sqrt(x))"), elementsIdenticalTo(c(1, Math.sqrt(200000))));
+  }
+
+  @Test
+  public void minMaxWithNA() {
+    eval("y <- x");
+    eval("y[5] <- NaN");
+    eval("y[150000] <- NA");
+
+    assertThat(materialize("min(y + 1)"), elementsIdenticalTo(c(DoubleVector.NA)));
+    assertThat(materialize("max(y[-150000] + 1)"), elementsIdenticalTo(c(Double.NaN)));
+  }
+
+  @Test
+  public void variance() {
+    assertThat(materialize(".Internal(var(x * 2))"), closeTo(c(13333400000d), 1e-3));
+    assertThat(eval(".Internal(var(c(1,2,3,4)))"), closeTo(c(1.666667), 1e-6));
+  }
+
+  @Test
+  public void varianceWithMissingValues() {
+    assertThat(eval(".Internal(var(c(1, NaN, NA)))"), elementsIdenticalTo(c(DoubleVector.NA)));
+    assertThat(eval(".Internal(var(c(1, NaN, 3)))"), elementsIdenticalTo(c(DoubleVector.NA)));
+    assertThat(eval(".Internal(var(c(1, Inf)))"), elementsIdenticalTo(c(Double.NaN)));
+
+    eval("y <- x; y[150000] <- NaN");
+    assertThat(materialize(".Internal(var(y * 2))"), elementsIdenticalTo(c(DoubleVector.NA)));
+    assertThat(materialize(".Internal(var((x - x) / 0))"), elementsIdenticalTo(c(DoubleVector.NA)));
+    assertThat(materialize(".Internal(var(x / 0))"), elementsIdenticalTo(c(Double.NaN)));
+  }
+
+  @Test
+  public void cumulative() {
+    assertThat(eval("cumsum(c(a=1,b=2,c=3))"), elementsIdenticalTo(c(1, 3, 6)));
+    assertThat(materialize("cumsum(x / x)[200000]"), elementsIdenticalTo(c(200000)));
+    assertThat(materialize("cumprod(x / x + 1)[10]"), elementsIdenticalTo(c(1024)));
+    assertThat(materialize("cumsum(c(x, NA, 1))[200001:200002]"), elementsIdenticalTo(c(DoubleVector.NA, DoubleVector.NA)));
+  }
+
+  @Test
+  public void anyAll() {
+    assertThat(eval("any(x > 199999)"), elementsIdenticalTo(c(true)));
+    assertThat(eval("all(x > 0)"), elementsIdenticalTo(c(true)));
+    assertThat(eval("all(x > 1)"), elementsIdenticalTo(c(false)));
+    assertThat(eval("any(x < 0)"), elementsIdenticalTo(c(false)));
+  }
+
+  @Test
+  public void which() {
+    assertThat(eval("which(x * 2 > 399995)"), elementsIdenticalTo(c_i(199998, 199999, 200000)));
+  }
+
+  @Test
+  public void tabulate() {
+    assertThat(materialize("tabulate(as.integer(x) %% 3L + 1L, 3L)"), elementsIdenticalTo(c_i(66666, 66667, 66667)));
+  }
+
+  @Test
+  public void ifElse() {
+    assertThat(materialize("sum(ifelse(x > 100000, x, -x))"), elementsIdenticalTo(c(10000000000d)));
+    assertThat(eval("ifelse(c(TRUE, NA, FALSE), c(1, 2, 3), 0)"), elementsIdenticalTo(c(1, DoubleVector.NA, 0)));
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.pipeliner;
+
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+import org.renjin.pipeliner.node.DeferredNode;
+import org.renjin.pipeliner.optimize.Optimizers;
+import org.renjin.primitives.matrix.DeferredMatrixProduct;
+import org.renjin.primitives.matrix.JavaBlasProvider;
+import org.renjin.primitives.matrix.MatrixChain;
+import org.renjin.sexp.DoubleArrayVector;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.Vector;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class MatrixChainTest extends EvalTestCase {
+
+  @Test
+  public void chainOrder() {
+    MatrixChain chain = new MatrixChain(JavaBlasProvider.getDefault());
+    chain.add(matrix(100, 100), 100, 100, false);
+    chain.add(matrix(100, 100), 100, 100, false);
+    chain.add(matrix(100, 1), 100, 1, false);
+
+    assertThat(chain.toString(), equalTo("(A1 %*% (A2 %*% A3))"));
+    assertThat(chain.getCost(), equalTo(20000L));
+    assertThat(chain.getLeftToRightCost(), equalTo(1010000L));
+  }
+
+  @Test
+  public void weightedCrossProductOrder() {
+    DoubleVector x = matrix(1000, 10);
+
+    // t(X) %*% W %*% X %*% beta
+    MatrixChain chain = new MatrixChain(JavaBlasProvider.getDefault());
+    chain.add(x, 10, 1000, true);
+    chain.add(matrix(1000, 1000), 1000, 1000, false);
+    chain.add(x, 1000, 10, false);
+    chain.add(matrix(10, 1), 10, 1, false);
+
+    assertThat(chain.toString(), equalTo("(t(A1) %*% (A2 %*% (A3 %*% A4)))"));
+  }
+
+  @Test
+  public void transposedProductIsCrossProduct() {
+    eval("X <- matrix(as.double(1:6000), nrow = 300, dimnames = list(NULL, paste0('c', 1:20)))");
+    eval("y <- as.double(1:300)");
+
+    Vector product = (Vector) eval("p <- t(X) %*% X");
+    assertThat(product, instanceOf(DeferredMatrixProduct.class));
+    assertThat(((DeferredMatrixProduct) product).getComputationName(), equalTo("crossprod"));
+
+    assertThat(eval("identical(p, crossprod(X))"), elementsIdenticalTo(c(true)));
+    assertThat(eval("identical(X %*% t(X), tcrossprod(X))"), elementsIdenticalTo(c(true)));
+    assertThat(eval("dim(t(X) %*% matrix(y))"), elementsIdenticalTo(c_i(20, 1)));
+  }
+
+  @Test
+  public void transposeWithoutDimIsNotCrossProduct() {
+    eval("X <- matrix(as.double(1:6), nrow = 2)");
+    eval("y <- matrix(as.double(1:6), ncol = 1)");
+
+    assertThat(eval("as.vector(t(X)) %*% y"), elementsIdenticalTo(c(86)));
+  }
+
+  @Test
+  public void transposeWithNewDimIsNotCrossProduct() {
+    eval("X <- matrix(as.double(1:6), nrow = 2)");
+    eval("Y <- matrix(as.double(1:6), nrow = 3)");
+    eval("A <- matrix(as.double(1:9), nrow = 3)");
+    eval("v <- as.double(1:3)");
+    eval("tx <- t(X)");
+    eval("dim(tx) <- c(2, 3)");
+    eval("txm <- matrix(c(1, 3, 5, 2, 4, 6), nrow = 2)");
+
+    assertThat(eval("identical(tx %*% Y, txm %*% Y)"), elementsIdenticalTo(c(true)));
+    assertThat(eval("identical(Y %*% tx, Y %*% txm)"), elementsIdenticalTo(c(true)));
+
+    eval("z <- tx %*% A %*% v");
+    assertThat(eval("identical(z[1:2], as.vector(txm %*% A %*% v))"), elementsIdenticalTo(c(true)));
+  }
+
+  @Test
+  public void transposeWithNewDimNamesKeepsThem() {
+    eval("X <- matrix(as.double(1:6), nrow = 2, dimnames = list(c('r1', 'r2'), NULL))");
+    eval("Y <- matrix(as.double(1:4), nrow = 2)");
+    eval("tx <- t(X)");
+    eval("dimnames(tx) <- list(c('a', 'b', 'c'), NULL)");
+
+    assertThat(eval("rownames(tx %*% Y)"), elementsIdenticalTo(c("a", "b", "c")));
+  }
+
+  @Test
+  public void chainIsMerged() {
+    eval("A <- matrix(as.double(1:10000) %% 7, nrow = 100)");
+    eval("B <- matrix(as.double(1:10000) %% 5, nrow = 100)");
+    eval("v <- as.double(1:100)");
+    eval("y <- A %*% B %*% v");
+
+    DeferredGraph graph = new DeferredGraph((Vector) eval("y"));
+    new Optimizers().optimize(graph);
+
+    DeferredNode root = graph.getRoot();
+    assertThat(root.getOperands().size(), equalTo(3));
+    assertThat(countProducts(graph), equalTo(1));
+
+    // All values are small integers, so the order of evaluation does not change the result
+    eval("AB <- A %*% B");
+    eval("AB[1]");
+    assertThat(eval("identical(y, AB %*% v)"), elementsIdenticalTo(c(true)));
+    assertThat(eval("dim(y)"), elementsIdenticalTo(c_i(100, 1)));
+  }
+
+  @Test
+  public void sharedProductIsNotMerged() {
+    eval("A <- matrix(as.double(1:10000) %% 7, nrow = 100)");
+    eval("v <- as.double(1:100)");
+    eval("AA <- A %*% t(A)");
+    eval("y <- AA %*% v");
+
+    DeferredGraph graph = new DeferredGraph();
+    graph.addRoot((Vector) eval("AA"));
+    graph.addRoot((Vector) eval("y"));
+    new Optimizers().optimize(graph);
+
+    assertThat(graph.getRoots().get(1).getOperand(0), equalTo(graph.getRoots().get(0)));
+    assertThat(eval("identical(y[1], sum(AA[1, ] * v))"), elementsIdenticalTo(c(true)));
+  }
+
+  @Test
+  public void weightedCrossProduct() {
+    eval("X <- matrix(as.double(1:3000) %% 11, nrow = 300)");
+    eval("W <- diag(as.double(1:300) %% 3)");
+    eval("beta <- as.double(1:10)");
+    eval("z <- t(X) %*% W %*% X %*% beta");
+
+    eval("XtW <- t(X) %*% W");
+    eval("XtW[1]");
+    eval("XtWX <- XtW %*% X");
+    eval("XtWX[1]");
+
+    assertThat(eval("identical(z[1:10], (XtWX %*% beta)[1:10])"), elementsIdenticalTo(c(true)));
+  }
+
+  @Test
+  public void missingValuesPropagate() {
+    eval("A <- matrix(as.double(1:10000), nrow = 100)");
+    eval("A[5, 1] <- NaN");
+    eval("y <- t(A) %*% A %*% as.double(1:100)");
+
+    assertTrue(DoubleVector.isNaN(((Vector) eval("y[1]")).getElementAsDouble(0)));
+  }
+
+  private static int countProducts(DeferredGraph graph) {
+    int count = 0;
+    for (DeferredNode node : graph.getNodes()) {
+      if(node.getVector() instanceof DeferredMatrixProduct) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static DoubleVector matrix(int rows, int cols) {
+    return new DoubleArrayVector(new double[rows * cols]);
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.pipeliner;
+
+import org.junit.Test;
+import org.renjin.eval.SessionBuilder;
+import org.renjin.gcc.runtime.DoublePtr;
+import org.renjin.gcc.runtime.IntPtr;
+import org.renjin.primitives.ni.DeferredFortranCall;
+import org.renjin.primitives.summary.DeferredSum;
+import org.renjin.sexp.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelMaterializationTest extends PipelinedSessionTestCase {
+
+  @Test
+  public void sessionOption() {
+    VectorPipeliner pipeliner = topLevelContext.getSession().getVectorEngine();
+    assertTrue(pipeliner.isEnabled());
+    assertThat(pipeliner.getParallelism(), equalTo(THREAD_COUNT));
+    assertThat(pipeliner.getMinPartitionLength(), equalTo(PARTITION_LENGTH));
+
+    assertFalse(new SessionBuilder().setVectorPipelinerEnabled(false).build().getVectorEngine().isEnabled());
+  }
+
+  @Test
+  public void partitionedSum() {
+    eval("x <- as.double(1:100000)");
+    eval("y <- x * 2 + 1");
+
+    assertTrue(((Vector) eval("y")).isDeferred());
+    assertThat(materialize("sum(y)"), elementsIdenticalTo(c(10000200000d)));
+  }
+
+  @Test
+  public void partitionedMean() {
+    eval("x <- as.double(1:100001)");
+
+    assertThat(materialize("mean(x * 4)"), elementsIdenticalTo(c(200004)));
+    assertThat(materialize("mean(sqrt(x) * sqrt(x))"), closeTo(c(50001), 1e-6));
+  }
+
+  @Test
+  public void partitionedLoopsPropagateNA() {
+    eval("x <- as.double(1:50000)");
+    eval("x[40000] <- NA");
+
+    assertTrue(DoubleVector.isNA(((Vector) materialize("sum(x + 1)")).getElementAsDouble(0)));
+  }
+
+  @Test
+  public void deferredNativeCall() throws Exception {
+
+    MethodHandle handle = MethodHandles.lookup().findStatic(ParallelMaterializationTest.class, "twice",
+        MethodType.methodType(void.class, DoublePtr.class, IntPtr.class));
+
+    ListVector inputs = ListVector.newNamedBuilder()
+        .add("x", new DoubleArrayVector(1, 2, 3))
+        .add("n", new IntArrayVector(3))
+        .build();
+
+    DeferredFortranCall call = new DeferredFortranCall(topLevelContext, "twice", handle, inputs);
+    Vector x = (Vector) call.getOutputList().get("x");
+
+    assertTrue(x.isDeferred());
+
+    topLevelContext.getSession().getVectorEngine().materialize(call);
+
+    assertFalse(x.isDeferred());
+    assertThat(x, elementsIdenticalTo(c(2, 4, 6)));
+  }
+
+  @Test
+  public void fusedNativeCallOutput() throws Exception {
+
+    MethodHandle handle = MethodHandles.lookup().findStatic(ParallelMaterializationTest.class, "twice",
+        MethodType.methodType(void.class, DoublePtr.class, IntPtr.class));
+
+    ListVector inputs = ListVector.newNamedBuilder()
+        .add("x", new DoubleArrayVector(1, 2, 3))
+        .add("n", new IntArrayVector(3))
+        .build();
+
+    DeferredFortranCall call = new DeferredFortranCall(topLevelContext, "twice", handle, inputs);
+    Vector x = (Vector) call.getOutputList().get("x");
+
+    Vector sum = topLevelContext.materialize(new DeferredSum(x, AttributeMap.EMPTY));
+
+    assertThat(sum, elementsIdenticalTo(c(12)));
+  }
+
+  public static void twice(DoublePtr x, IntPtr n) {
+    for (int i = 0; i < n.getInt(); i++) {
+      x.array[x.offset + i] *= 2;
+    }
+  }
+}
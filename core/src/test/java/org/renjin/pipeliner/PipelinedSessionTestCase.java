@@ -0,0 +1,69 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.pipeliner;
+
+import org.junit.After;
+import org.junit.Before;
+import org.renjin.EvalTestCase;
+import org.renjin.eval.Session;
+import org.renjin.eval.SessionBuilder;
+import org.renjin.sexp.SEXP;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Evaluates tests in a session with the vector pipeliner enabled, running on a pool of
+ * {@link #THREAD_COUNT} threads, and with partitions of {@link #PARTITION_LENGTH} elements so that
+ * loops over moderately sized vectors are split across them.
+ */
+public abstract class PipelinedSessionTestCase extends EvalTestCase {
+
+  protected static final int THREAD_COUNT = 4;
+
+  protected static final int PARTITION_LENGTH = 1000;
+
+  private ExecutorService executorService;
+
+  @Before
+  public void setUpPipelinedSession() {
+    executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+    Session session = new SessionBuilder()
+        .setExecutorService(executorService)
+        .setVectorPipelinerEnabled(true)
+        .setVectorPipelinerPartitionLength(PARTITION_LENGTH)
+        .build();
+
+    topLevelContext = session.getTopLevelContext();
+    global = topLevelContext.getEnvironment();
+    base = topLevelContext.getBaseEnvironment();
+  }
+
+  @After
+  public void tearDownPipelinedSession() {
+    executorService.shutdown();
+  }
+
+  /**
+   * Evaluates {@code source} and materializes the result, computing any deferred vectors.
+   */
+  protected SEXP materialize(String source) {
+    return topLevelContext.materialize(eval(source));
+  }
+}
@@ -130,6 +130,20 @@ public class JvmiTest extends EvalTestCase {
     
   }
 
+  @Test
+  public void overloadedMethodCallSite() {
+    eval("import(org.renjin.primitives.MyBean)");
+    eval("x <- MyBean$new()");
+    eval("hello <- function(arg) x$sayHello(arg)");
+
+    // The same call site must dispatch to a different overload when the argument types change
+    assertThat( eval("hello('fred')"), elementsIdenticalTo(c("Hello fred")));
+    assertThat( eval("hello(2L)"), elementsIdenticalTo(c("HelloHello")));
+    assertThat( eval("hello('bob')"), elementsIdenticalTo(c("Hello bob")));
+    assertThat( eval("sapply(list('a', 1L, 'b', 3L), hello)"),
+        elementsIdenticalTo(c("Hello a", "Hello", "Hello b", "HelloHelloHello")));
+  }
+
   @Test
   public void callToArray() {
     eval("import(org.renjin.primitives.MyBean)");
@@ -159,6 +173,37 @@ public class JvmiTest extends EvalTestCase {
     assertThat( eval("MyBean$sumArray32(numeric(0))"), elementsIdenticalTo(c(0)));
   }
 
+  @Test
+  public void intArrayArguments() {
+    eval("import(org.renjin.primitives.MyBean)");
+    assertThat( eval("MyBean$sumArrayInt(c(2L, 3L, 9L))"), elementsIdenticalTo(c_i(14)));
+    assertThat( eval("MyBean$sumArrayInt(1:4)"), elementsIdenticalTo(c_i(10)));
+    assertThat( eval("MyBean$sumArrayInt(integer(0))"), elementsIdenticalTo(c_i(0)));
+  }
+
+  @Test
+  public void arrayArgumentsAreCopied() {
+    eval("import(java.util.Arrays)");
+    eval("x <- c(3, 1, 2)");
+    eval("y <- c(3L, 1L, 2L)");
+    eval("import(org.renjin.primitives.MyBean)");
+    eval("Arrays$sort(x)");
+    eval("MyBean$sortArrayInt(y)");
+    assertThat( eval("x"), elementsIdenticalTo(c(3, 1, 2)));
+    assertThat( eval("y"), elementsIdenticalTo(c_i(3, 1, 2)));
+
+    assertThat( eval("MyBean$sameArray(x, x)"), elementsIdenticalTo(c(false)));
+  }
+
+  @Test
+  public void readOnlyArrayArgumentsAreNotCopied() {
+    eval("import(org.renjin.primitives.MyBean)");
+    eval("x <- c(3, 1, 2)");
+    eval("y <- c(3L, 1L, 2L)");
+    assertThat( eval("MyBean$sameArrayReadOnly(x, x)"), elementsIdenticalTo(c(true)));
+    assertThat( eval("MyBean$sameArrayReadOnly(y, y)"), elementsIdenticalTo(c(true)));
+  }
+
   private static class MyPrivateImpl implements MyPublicInterface {
 
     @Override
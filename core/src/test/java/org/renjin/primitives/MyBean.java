@@ -20,6 +20,7 @@ package org.renjin.primitives;
 
 import org.renjin.eval.Context;
 import org.renjin.invoke.annotations.Current;
+import org.renjin.invoke.annotations.ReadOnly;
 import org.renjin.repackaged.guava.base.Joiner;
 import org.renjin.repackaged.guava.collect.Lists;
 import org.renjin.sexp.DoubleArrayVector;
@@ -161,6 +162,30 @@ public class MyBean {
     return sum;
   }
 
+  public static void sortArrayInt(int[] values) {
+    Arrays.sort(values);
+  }
+
+  public static boolean sameArray(double[] x, double[] y) {
+    return x == y;
+  }
+
+  public static boolean sameArrayReadOnly(@ReadOnly double[] x, @ReadOnly double[] y) {
+    return x == y;
+  }
+
+  public static boolean sameArrayReadOnly(@ReadOnly int[] x, @ReadOnly int[] y) {
+    return x == y;
+  }
+
+  public static int sumArrayInt(int[] values) {
+    int sum = 0;
+    for (int i = 0; i < values.length; i++) {
+      sum += values[i];
+    }
+    return sum;
+  }
+
   public static long sumArrayLong(long[] values) {
     long sum = 0;
     for (int i = 0; i < values.length; i++) {
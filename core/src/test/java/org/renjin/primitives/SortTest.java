@@ -20,8 +20,15 @@ package org.renjin.primitives;
 
 import org.junit.Test;
 import org.renjin.EvalTestCase;
+import org.renjin.sexp.DoubleArrayVector;
+import org.renjin.sexp.ListVector;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 public class SortTest extends EvalTestCase {
 
@@ -101,6 +108,85 @@ public class SortTest extends EvalTestCase {
     assertThat( eval(".Internal(order(TRUE,TRUE,c(1,1,1), c(1,2,1), c(3,9,1)))"), elementsIdenticalTo(c_i(2,1,3)));
   }
 
+  @Test
+  public void orderNA() {
+    assertThat( eval(".Internal(order(TRUE, FALSE, c(3, NA, -0, NaN, 0, -Inf)))"), elementsIdenticalTo(c_i(6, 3, 5, 1, 2, 4)));
+    assertThat( eval(".Internal(order(FALSE, FALSE, c(3, NA, -0, NaN, 0, -Inf)))"), elementsIdenticalTo(c_i(2, 4, 6, 3, 5, 1)));
+    assertThat( eval(".Internal(order(TRUE, TRUE, c(3L, NA, 1L, 3L, NA, 2L)))"), elementsIdenticalTo(c_i(1, 4, 6, 3, 2, 5)));
+    assertThat( eval(".Internal(order(FALSE, FALSE, c('b', NA, 'a', 'b')))"), elementsIdenticalTo(c_i(2, 3, 1, 4)));
+    assertThat( eval(".Internal(order(TRUE, FALSE, c(TRUE, NA, FALSE, TRUE)))"), elementsIdenticalTo(c_i(3, 1, 4, 2)));
+  }
+
+  @Test
+  public void orderMixedKeys() {
+    assertThat( eval(".Internal(order(TRUE, FALSE, c('b','a','b','a','b'), c(2L, 1L, 1L, 1L, 2L), c(1, 9, 4, 3, 0)))"),
+        elementsIdenticalTo(c_i(4, 2, 3, 5, 1)));
+  }
+
+  @Test
+  public void orderLong() {
+    eval("x <- as.integer((1:5000 * 7919) %% 1009) - 500L");
+    eval("y <- x * 1e9 + 0.5");
+    eval("s <- as.character(x)");
+
+    for (String key : new String[] { "x", "y", "s" }) {
+      eval("o <- .Internal(order(TRUE, FALSE, " + key + "))");
+      assertThat(eval("identical(sort(o), 1:5000)"), elementsIdenticalTo(c(true)));
+      assertThat(eval("any(" + key + "[o][-1] < " + key + "[o][-5000])"), elementsIdenticalTo(c(false)));
+      assertThat(eval("all(diff(o)[" + key + "[o][-1] == " + key + "[o][-5000]] > 0)"), elementsIdenticalTo(c(true)));
+    }
+  }
+
+  @Test
+  public void orderLongParallel() {
+    int length = RadixOrder.MIN_PARTITION_LENGTH * 3;
+    double[] values = new double[length];
+    for (int i = 0; i < length; i++) {
+      values[i] = (i * 2654435761L % 100003) - 50000.5;
+    }
+    ListVector columns = new ListVector(DoubleArrayVector.unsafe(values));
+
+    RadixOrder sequential = new RadixOrder(length, true);
+    sequential.sortBy(columns, new boolean[] { true }, true);
+
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      RadixOrder parallel = new RadixOrder(length, true, executor, 3);
+      parallel.sortBy(columns, new boolean[] { true }, true);
+      assertTrue(Arrays.equals(sequential.getRows(), parallel.getRows()));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void radixsort() {
+    assertThat( eval(".Internal(radixsort(NA, c(TRUE, FALSE), FALSE, TRUE, c(1, 2, NA, 2), c(4L, 3L, 2L, 1L)))"),
+        elementsIdenticalTo(c_i(4, 2, 1)));
+    assertThat( eval("order(c(1, 2, NA, 2), c(4L, 3L, 2L, 1L), decreasing = c(TRUE, FALSE), method = 'radix')"),
+        elementsIdenticalTo(c_i(4, 2, 1, 3)));
+
+    eval("g <- .Internal(radixsort(TRUE, FALSE, TRUE, FALSE, c('b', 'a', 'b', 'c', 'a')))");
+    assertThat( eval("as.vector(g)"), elementsIdenticalTo(c_i(1, 3, 2, 5, 4)));
+    assertThat( eval("attr(g, 'ends')"), elementsIdenticalTo(c_i(2, 4, 5)));
+    assertThat( eval("attr(g, 'maxgrpn')"), elementsIdenticalTo(c_i(2)));
+  }
+
+  @Test
+  public void sortIntegersWithRadix() {
+    assertThat( eval("sort(c(b = 3L, a = 1L, c = NA, d = 2L))"), elementsIdenticalTo(c_i(1, 2, 3)));
+    assertThat( eval("names(sort(c(b = 3L, a = 1L, c = NA, d = 2L), na.last = TRUE))"),
+        elementsIdenticalTo(c("a", "d", "b", "c")));
+    assertThat( eval("sort(c(TRUE, FALSE, TRUE), decreasing = TRUE)"), elementsIdenticalTo(c(true, true, false)));
+    assertThat( eval("as.integer(sort(factor(c('z', 'x', 'y', 'x'))))"), elementsIdenticalTo(c_i(1, 1, 2, 3)));
+  }
+
+  @Test
+  public void rankTies() {
+    assertThat(eval(".Internal(rank(c(0, -0, NaN, 1, NaN), 5L, \"average\"))"), elementsIdenticalTo(c(1.5, 1.5, 4.5, 3, 4.5)));
+    assertThat(eval(".Internal(rank(c('b', 'a', 'b'), 3L, \"max\"))"), elementsIdenticalTo(c_i(3, 1, 3)));
+  }
+
   @Test
   public void qsort() {
     assertThat( eval(".Internal(qsort(c(3,1,5,0), FALSE))"), elementsIdenticalTo(c(0, 1, 3, 5)));
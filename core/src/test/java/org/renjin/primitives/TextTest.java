@@ -353,4 +353,30 @@ public class TextTest extends EvalTestCase {
     assertThat( eval("o[[3]]"), elementsIdenticalTo(c_i(-1)));
     assertThat( eval("attr(o[[3]], \"match.length\")"), elementsIdenticalTo(c_i(-1)));
   }
+
+  @Test
+  public void perlSubstitution() {
+    assertThat(eval("gsub('(\\\\w)(\\\\w*)', '\\\\U\\\\1\\\\L\\\\2', 'hello WORLD', perl = TRUE)"), elementsIdenticalTo(c("Hello World")));
+    assertThat(eval("gsub('b*', '-', 'abc', perl = TRUE)"), elementsIdenticalTo(c("-a-c-")));
+    assertThat(eval("gsub('$', '!', c('a', 'b'), perl = TRUE)"), elementsIdenticalTo(c("a!", "b!")));
+    assertThat(eval("sub('(?<=a)b+?', 'X', 'abbb ab', perl = TRUE)"), elementsIdenticalTo(c("aXbb ab")));
+    assertThat(eval("gsub('[[:space:]]+', ' ', ' a \\t b ', perl = TRUE)"), elementsIdenticalTo(c(" a b ")));
+  }
+
+  @Test
+  public void perlMatching() {
+    assertThat(eval("grepl('^\\\\d+(?!px)', c('12em', '12px', NA, 'x1'), perl = TRUE)"), elementsIdenticalTo(c(true, true, false, false)));
+    assertThat(eval("grep('foo(?=bar)', c('foobar', 'foobaz', 'barfoobar'), perl = TRUE)"), elementsIdenticalTo(c_i(1, 3)));
+    assertThat(eval("grep('FOO', c('foo', 'bar'), ignore.case = TRUE, value = TRUE, perl = TRUE)"), elementsIdenticalTo(c("foo")));
+    assertThat(eval("strsplit('a1b22c', '\\\\d+', perl = TRUE)"), elementsIdenticalTo(list(c("a", "b", "c"))));
+  }
+
+  @Test
+  public void perlNamedGroups() {
+    eval("m <- regexpr('(?<key>\\\\w+)=(?P<the_value>\\\\d+)', c('x', 'ab=12'), perl = TRUE)");
+    assertThat(eval("as.vector(m)"), elementsIdenticalTo(c_i(-1, 1)));
+    assertThat(eval("attr(m, 'capture.names')"), elementsIdenticalTo(c("key", "the_value")));
+    assertThat(eval("attr(m, 'capture.start')[2, ]"), elementsIdenticalTo(c_i(1, 4)));
+    assertThat(eval("attr(m, 'capture.length')[2, ]"), elementsIdenticalTo(c_i(2, 2)));
+  }
 }
@@ -24,6 +24,7 @@ import org.renjin.sexp.IntVector;
 import org.renjin.sexp.SEXP;
 import org.renjin.sexp.StringArrayVector;
 
+import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
 
 public class MatchTest extends EvalTestCase {
@@ -62,6 +63,48 @@ public class MatchTest extends EvalTestCase {
     
   }
   
+  @Test
+  public void matchNaNAndNA() {
+    assertThat( eval(" match(c(NA, NaN, 1, -0), c(0, NaN, NA, 1))"), elementsIdenticalTo(c_i(3, 2, 4, 1)));
+    assertThat( eval(" match(NaN, NA_real_)"), elementsIdenticalTo(c_i(IntVector.NA)));
+    assertThat( eval(" match(c(NA, 3L), c(1L, 3L, NA))"), elementsIdenticalTo(c_i(3, 2)));
+    assertThat( eval(" match(c(NA, 'b'), c('a', NA, 'b'))"), elementsIdenticalTo(c_i(2, 3)));
+  }
+
+  @Test
+  public void matchFirstOccurrence() {
+    assertThat( eval(" match(c(3, 1), c(1, 3, 1, 3))"), elementsIdenticalTo(c_i(2, 1)));
+    assertThat( eval(" match(c('b', 'z'), c('a', 'b', 'b'), nomatch = 0L)"), elementsIdenticalTo(c_i(2, 0)));
+  }
+
+  @Test
+  public void matchFactors() {
+    assertThat( eval(" match(c('y', 'x'), factor(c('x', 'y')))"), elementsIdenticalTo(c_i(2, 1)));
+    assertThat( eval(" match(factor(c('b', 'q')), c('a', 'b'))"), elementsIdenticalTo(c_i(2, IntVector.NA)));
+  }
+
+  @Test
+  public void matchLargeTable() {
+    eval("table <- as.character(seq(10, 1e5, by = 10))");
+    eval("keys <- c('20', '99990', '15', '100000')");
+
+    assertThat( eval(" match(keys, table)"), elementsIdenticalTo(c_i(2, 9999, IntVector.NA, 10000)));
+    assertThat( eval(" keys %in% table"), elementsIdenticalTo(c(true, true, false, true)));
+  }
+
+  @Test
+  public void reuseIndexOfSameTable() {
+    eval("table <- as.numeric(1:10000) * 2");
+
+    HashIndexCache cache = topLevelContext.getSession().getSingleton(HashIndexCache.class);
+    long misses = cache.getMissCount();
+
+    eval("for(i in 1:100) stopifnot(match(i * 2, table) == i)");
+
+    assertThat(cache.getMissCount() - misses, equalTo(1L));
+    assertThat(cache.getHitCount(), equalTo(99L));
+  }
+
   @Test
   public void matchAgainstRowNamesSequence() {
     assertThat( eval(" match(1.5, as.character(1:1000))"), elementsIdenticalTo(c_i(IntVector.NA)));
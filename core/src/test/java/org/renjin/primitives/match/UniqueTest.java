@@ -20,6 +20,8 @@ package org.renjin.primitives.match;
 
 import org.junit.Test;
 import org.renjin.EvalTestCase;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.StringVector;
 
 import static org.junit.Assert.assertThat;
 
@@ -36,6 +38,66 @@ public class UniqueTest extends EvalTestCase {
     assertThat( eval(".Internal(unique(c(1,3,1,4,4), FALSE, TRUE, NA))"), elementsIdenticalTo( c(3,1,4)) );
   }
 
+  @Test
+  public void uniqueSpecialDoubles() {
+    assertThat( eval(".Internal(unique(c(NA, 0, NaN, -0, NA, NaN, Inf), FALSE, FALSE, NA))"),
+        elementsIdenticalTo( c(DoubleVector.NA, 0, Double.NaN, Double.POSITIVE_INFINITY)) );
+  }
+
+  @Test
+  public void uniqueStrings() {
+    assertThat( eval(".Internal(unique(c('b', NA, 'a', 'b', NA, 'NA'), FALSE, FALSE, NA))"),
+        elementsIdenticalTo( c("b", StringVector.NA, "a", "NA")) );
+  }
+
+  @Test
+  public void duplicatedLogical() {
+    assertThat( eval(".Internal(duplicated(c(TRUE, NA, FALSE, NA, TRUE), FALSE, FALSE, NA))"),
+        elementsIdenticalTo( c(false, false, false, true, true)) );
+  }
+
+  @Test
+  public void incomparables() {
+    assertThat( eval(".Internal(duplicated(c(1L, 2L, 1L, 2L), 2, FALSE, NA))"),
+        elementsIdenticalTo( c(false, false, true, false)) );
+    assertThat( eval(".Internal(unique(c('a', 'b', 'a', 'b'), 'b', FALSE, NA))"),
+        elementsIdenticalTo( c("a", "b", "b")) );
+  }
+
+  @Test
+  public void incomparablesOfAnotherType() {
+    assertThat( eval("unique(c('a', 'a', NA, NA), incomparables = NA)"),
+        elementsIdenticalTo( c("a", StringVector.NA, StringVector.NA)) );
+    assertThat( eval("duplicated(c(1.5, 1.5), incomparables = 1L)"),
+        elementsIdenticalTo( c(false, true)) );
+    assertThat( eval("duplicated(c(1L, 1L, 2L, 2L), incomparables = 1.5)"),
+        elementsIdenticalTo( c(false, false, false, true)) );
+    assertThat( eval("duplicated(c('1', '1', '2', '2'), incomparables = 1L)"),
+        elementsIdenticalTo( c(false, false, false, true)) );
+    assertThat( eval("unique(c(TRUE, TRUE, FALSE, FALSE), incomparables = 1)"),
+        elementsIdenticalTo( c(true, true, false)) );
+  }
+
+  @Test
+  public void dataFrameRows() {
+    eval("df <- data.frame(x = c(1, 2, 1, 1), y = c('a', 'b', 'a', 'c'), z = c(TRUE, NA, TRUE, TRUE))");
+
+    assertThat( eval("duplicated(df)"), elementsIdenticalTo( c(false, false, true, false)) );
+    assertThat( eval("duplicated(df, fromLast = TRUE)"), elementsIdenticalTo( c(true, false, false, false)) );
+    assertThat( eval("anyDuplicated(df)"), elementsIdenticalTo( c_i(3)) );
+    assertThat( eval("anyDuplicated(df[-3, ])"), elementsIdenticalTo( c_i(0)) );
+    assertThat( eval("nrow(unique(df))"), elementsIdenticalTo( c_i(3)) );
+  }
+
+  @Test
+  public void dataFrameWithListColumn() {
+    eval("df <- data.frame(x = 1:3)");
+    eval("df$y <- list(1:2, 'a', 1:2)");
+    eval("df$x <- c(1L, 2L, 1L)");
+
+    assertThat( eval("duplicated(df)"), elementsIdenticalTo( c(false, false, true)) );
+  }
+
   @Test
   public void uniqueInt() {
     assertThat( eval(".Internal(unique(1L, FALSE, FALSE, NA))"), elementsIdenticalTo(c_i(1)));
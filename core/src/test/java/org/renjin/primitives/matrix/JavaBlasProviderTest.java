@@ -0,0 +1,171 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.primitives.matrix;
+
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+import org.renjin.eval.Session;
+import org.renjin.eval.SessionBuilder;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+
+public class JavaBlasProviderTest extends EvalTestCase {
+
+  private final Random random = new Random(42);
+
+  private final JavaBlasProvider serial = new JavaBlasProvider(new ForkJoinPool(1));
+  private final JavaBlasProvider parallel = new JavaBlasProvider(new ForkJoinPool(4));
+
+  @Test
+  public void dgemm() {
+    for (String transa : new String[] { "N", "T" }) {
+      for (String transb : new String[] { "N", "T" }) {
+        checkDgemm(serial, transa, transb, 7, 5, 3);
+        checkDgemm(serial, transa, transb, 70, 301, 290);
+        checkDgemm(parallel, transa, transb, 203, 267, 301);
+      }
+    }
+  }
+
+  @Test
+  public void dgemmScalesC() {
+    double[] a = { 1, 2 };
+    double[] b = { 3, 4 };
+    double[] c = { 10 };
+    serial.dgemm("N", "N", 1, 1, 2, 2, a, 1, b, 2, 0.5, c, 1);
+
+    assertEquals(2 * (3 + 8) + 5, c[0], 0);
+
+    c[0] = Double.NaN;
+    serial.dgemm("N", "N", 1, 1, 2, 1, a, 1, b, 2, 0, c, 1);
+
+    assertEquals(11, c[0], 0);
+  }
+
+  @Test
+  public void dsyrk() {
+    for (String uplo : new String[] { "U", "L" }) {
+      for (String trans : new String[] { "N", "T" }) {
+        checkDsyrk(serial, uplo, trans, 6, 9);
+        checkDsyrk(serial, uplo, trans, 150, 270);
+        checkDsyrk(parallel, uplo, trans, 310, 280);
+      }
+    }
+  }
+
+  @Test
+  public void sessionProvider() {
+    Session session = new SessionBuilder().setBlasProvider(parallel).build();
+    topLevelContext = session.getTopLevelContext();
+    global = topLevelContext.getEnvironment();
+
+    assertTrue(session.getBlasProvider() == parallel);
+
+    eval("x <- matrix(as.double(1:60000), nrow = 300)");
+    assertThat(eval("crossprod(x)[3, 5]"), elementsIdenticalTo(c(sum(300, 600, 1200))));
+    assertThat(eval("(t(x) %*% x)[5, 3]"), elementsIdenticalTo(c(sum(300, 600, 1200))));
+    assertThat(eval("dim(tcrossprod(x))"), elementsIdenticalTo(c_i(300, 300)));
+  }
+
+  /**
+   * @return the sum over i of (a + i) * (b + i), for i in 1..n
+   */
+  private static double sum(int n, int a, int b) {
+    double sum = 0;
+    for (int i = 1; i <= n; i++) {
+      sum += (double) (a + i) * (b + i);
+    }
+    return sum;
+  }
+
+  private void checkDgemm(BlasProvider blas, String transa, String transb, int m, int n, int k) {
+    boolean ta = transa.equals("T");
+    boolean tb = transb.equals("T");
+    int lda = ta ? k : m;
+    int ldb = tb ? n : k;
+
+    double[] a = randomArray(m * k);
+    double[] b = randomArray(k * n);
+    double[] c = randomArray(m * n);
+    double[] expected = c.clone();
+
+    for (int i = 0; i < m; i++) {
+      for (int j = 0; j < n; j++) {
+        double sum = 0;
+        for (int p = 0; p < k; p++) {
+          double aip = ta ? a[p + i * lda] : a[i + p * lda];
+          double bpj = tb ? b[j + p * ldb] : b[p + j * ldb];
+          sum += aip * bpj;
+        }
+        expected[i + j * m] = 1.5 * sum + 0.25 * expected[i + j * m];
+      }
+    }
+
+    blas.dgemm(transa, transb, m, n, k, 1.5, a, lda, b, ldb, 0.25, c, m);
+
+    assertArrayClose(expected, c);
+  }
+
+  private void checkDsyrk(BlasProvider blas, String uplo, String trans, int n, int k) {
+    boolean transposed = trans.equals("T");
+    int lda = transposed ? k : n;
+    double[] a = randomArray(n * k);
+    double[] c = randomArray(n * n);
+    double[] expected = c.clone();
+
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        boolean inTriangle = uplo.equals("U") ? i <= j : i >= j;
+        if(inTriangle) {
+          double sum = 0;
+          for (int p = 0; p < k; p++) {
+            double aip = transposed ? a[p + i * lda] : a[i + p * lda];
+            double ajp = transposed ? a[p + j * lda] : a[j + p * lda];
+            sum += aip * ajp;
+          }
+          expected[i + j * n] = 2 * sum + 3 * expected[i + j * n];
+        }
+      }
+    }
+
+    blas.dsyrk(uplo, trans, n, k, 2, a, lda, 3, c, n);
+
+    assertArrayClose(expected, c);
+  }
+
+  private double[] randomArray(int length) {
+    double[] array = new double[length];
+    for (int i = 0; i < length; i++) {
+      array[i] = random.nextGaussian();
+    }
+    return array;
+  }
+
+  private static void assertArrayClose(double[] expected, double[] actual) {
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals("element " + i, expected[i], actual[i], 1e-9 * Math.max(1, Math.abs(expected[i])));
+    }
+  }
+}
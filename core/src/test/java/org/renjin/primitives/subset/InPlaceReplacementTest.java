@@ -0,0 +1,155 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.primitives.subset;
+
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+import org.renjin.sexp.AbstractSEXP;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.Symbol;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+
+public class InPlaceReplacementTest extends EvalTestCase {
+
+  @Test
+  public void fillPreallocatedVector() {
+    eval("f <- function(n) { x <- numeric(n); for(i in 1:n) x[i] <- i * 2; x }");
+    assertThat(eval("f(5)"), elementsIdenticalTo(c(2, 4, 6, 8, 10)));
+  }
+
+  @Test
+  public void growVector() {
+    eval("f <- function(n) { x <- integer(0); for(i in 1:n) x[[i]] <- i; x }");
+    assertThat(eval("f(100)"), elementsIdenticalTo(eval("1:100")));
+
+    eval("x <- c(1, 2)");
+    eval("x[5] <- 3");
+    assertThat(eval("x"), elementsIdenticalTo(c(1, 2, DoubleVector.NA, DoubleVector.NA, 3)));
+    eval("x[7] <- 4");
+    assertThat(eval("length(x)"), elementsIdenticalTo(c_i(7)));
+  }
+
+  @Test
+  public void copiesAreNotModified() {
+    eval("x <- c(1, 2, 3)");
+    eval("x[1] <- 10");
+    eval("y <- x");
+    eval("x[2] <- 20");
+    assertThat(eval("x"), elementsIdenticalTo(c(10, 20, 3)));
+    assertThat(eval("y"), elementsIdenticalTo(c(10, 2, 3)));
+  }
+
+  @Test
+  public void elementsOfListsAreNotModified() {
+    eval("x <- 1:3");
+    eval("x[1] <- 10L");
+    eval("l <- list(x)");
+    eval("x[2] <- 20L");
+    assertThat(eval("l[[1]]"), elementsIdenticalTo(c_i(10, 2, 3)));
+  }
+
+  @Test
+  public void argumentsAreNotModified() {
+    eval("f <- function(v) { v[1] <- 100; v }");
+    eval("x <- c(1, 2)");
+    eval("x[2] <- 5");
+    eval("z <- f(x)");
+    eval("x[1] <- -1");
+    assertThat(eval("x"), elementsIdenticalTo(c(-1, 5)));
+    assertThat(eval("z"), elementsIdenticalTo(c(100, 5)));
+  }
+
+  @Test
+  public void closuresSeeLatestValue() {
+    eval("x <- numeric(3)");
+    eval("x[2] <- 1");
+    eval("f <- function() x");
+    eval("x[3] <- 4");
+    assertThat(eval("f()"), elementsIdenticalTo(c(0, 1, 4)));
+  }
+
+  @Test
+  public void ownershipIsGivenUpWhenRead() {
+    eval("x <- c(1, 2, 3)");
+    eval("x[1] <- 2");
+    assertNotNull(topLevelContext.getGlobalEnvironment().getOwnedVariable(Symbol.get("x")));
+
+    eval("y <- x");
+    assertFalse(((AbstractSEXP) eval("y")).isOwned());
+  }
+
+  @Test
+  public void readingElementsKeepsOwnership() {
+    eval("x <- numeric(100)");
+    eval("x[1] <- 1");
+    AbstractSEXP owned = topLevelContext.getGlobalEnvironment().getOwnedVariable(Symbol.get("x"));
+    assertNotNull(owned);
+
+    eval("for(i in 2:100) x[i] <- x[i-1] + x[[1]]");
+
+    assertSame(owned, topLevelContext.getGlobalEnvironment().getOwnedVariable(Symbol.get("x")));
+    assertThat(eval("x[100]"), elementsIdenticalTo(c(100)));
+  }
+
+  @Test
+  public void subscriptReadingVectorGivesUpOwnership() {
+    eval("x <- c(1, 2, 3)");
+    eval("x[1] <- 10");
+    eval("v <- x[{ y <- x; 2 }]");
+    eval("x[2] <- 20");
+    assertThat(eval("v"), elementsIdenticalTo(c(2)));
+    assertThat(eval("y"), elementsIdenticalTo(c(10, 2, 3)));
+    assertThat(eval("x"), elementsIdenticalTo(c(10, 20, 3)));
+  }
+
+  @Test
+  public void subscriptAssigningElementDoesNotChangeSource() {
+    eval("x <- c(1, 2)");
+    eval("x[1] <- 5");
+    eval("v <- x[{ x[1] <- 99; 1 }]");
+    assertThat(eval("v"), elementsIdenticalTo(c(5)));
+    assertThat(eval("x"), elementsIdenticalTo(c(99, 2)));
+  }
+
+  @Test
+  public void typeChangesAreCopied() {
+    eval("x <- 1:3");
+    eval("x[2] <- 2.5");
+    assertThat(eval("x"), elementsIdenticalTo(c(1, 2.5, 3)));
+
+    eval("l <- list(1, 2)");
+    eval("l[[2]] <- 'a'");
+    eval("m <- l");
+    eval("l[[1]] <- NULL");
+    assertThat(eval("length(l)"), elementsIdenticalTo(c_i(1)));
+    assertThat(eval("m[[1]]"), elementsIdenticalTo(c(1)));
+  }
+
+  @Test
+  public void namesAreExtended() {
+    eval("x <- c(a = 1, b = 2)");
+    eval("x[2] <- 5");
+    eval("x[3] <- 3");
+    assertThat(eval("names(x)"), elementsIdenticalTo(c("a", "b", "")));
+  }
+}
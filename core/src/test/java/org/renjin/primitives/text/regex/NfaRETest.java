@@ -0,0 +1,120 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.primitives.text.regex;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class NfaRETest {
+
+  private static final String[] PATTERNS = {
+      "a+", "a*", "ab|cd", "(a|ab)(c|bcd)(d*)", "^abc$", "x?y+z*",
+      "([a-z]+)@([a-z]+)\\.com", "(\\d+)-(\\d+)", "\\bfoo\\b", "[[:digit:]]+",
+      "[^ ]+", "(a|b)*c", "a+?b", "a*?", "(ab)+?", "^$", "[-a]+", "\\s+",
+      "(foo|foobar)(bar)?", "((a)|b)+", ".*x", "o\\w", "[[:alpha:]]+([[:digit:]]*)",
+      "(x)(y)(z)(w)?", "^(GET|POST) (/[^ ]*) HTTP/1\\.[01]$"
+  };
+
+  private static final String[] INPUTS = {
+      "", "a", "aaa", "abcd", "abc", "xyyzz", "john@example.com, jane@test.com",
+      "call 555-1234 or 555-9876", "foo food foo", "abc123def45", "aabab c",
+      "foobar", "foobarbar", "abab", "bbac", "line one\nline two x", "xyz", "GET /index.html HTTP/1.1"
+  };
+
+  @Test
+  public void sameMatchesAsBacktracking() throws RESyntaxException {
+    for (String pattern : PATTERNS) {
+      for (boolean ignoreCase : new boolean[]{false, true}) {
+        int flags = ignoreCase ? ExtendedRE.MATCH_CASEINDEPENDENT : ExtendedRE.MATCH_NORMAL;
+        REProgram program = new RECompiler().compile(pattern);
+
+        for (String input : INPUTS) {
+          ExtendedRE expected = new ExtendedRE(program, flags);
+          NfaRE actual = new NfaRE(program, flags);
+
+          for (int start = 0; start <= input.length(); start++) {
+            String label = "/" + pattern + "/ on \"" + input + "\" from " + start;
+            boolean matched = expected.match(input, start);
+            assertThat(label, actual.match(input, start), equalTo(matched));
+            if (matched) {
+              for (int group = 0; group <= expected.getGroupCount(); group++) {
+                assertThat(label + " group " + group, actual.getGroupStart(group), equalTo(expected.getGroupStart(group)));
+                assertThat(label + " group " + group, actual.getGroupEnd(group), equalTo(expected.getGroupEnd(group)));
+              }
+            }
+          }
+
+          assertThat(pattern, actual.subst(input, "<\\1>", RE.REPLACE_ALL | RE.REPLACE_BACKREFERENCES),
+              equalTo(expected.subst(input, "<\\1>", RE.REPLACE_ALL | RE.REPLACE_BACKREFERENCES)));
+          assertThat(pattern, Arrays.asList(actual.split(input)), equalTo(Arrays.asList(expected.split(input))));
+        }
+      }
+    }
+  }
+
+  @Test(timeout = 5000)
+  public void catastrophicBacktracking() throws RESyntaxException {
+    StringBuilder input = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      input.append('a');
+    }
+
+    NfaRE re = new NfaRE(new RECompiler().compile("(a|aa)*b"));
+    assertFalse(re.match(input.toString()));
+
+    re = new NfaRE(new RECompiler().compile("^(a+)+$"));
+    assertTrue(re.match(input.toString()));
+    assertThat(re.getGroupEnd(1), equalTo(5000));
+
+    // Empty loop bodies overflow the stack of the backtracking matcher
+    re = new NfaRE(new RECompiler().compile("(a*)*b"));
+    assertFalse(re.match(input.toString()));
+    assertTrue(re.match(input + "b"));
+  }
+
+  @Test
+  public void backreferencesUseBacktracking() {
+    assertTrue(REFactory.compile("(a)\\1", false, false, false, false) instanceof ExtendedRE);
+    assertFalse(REFactory.compile("(a)\\1", false, false, false, false) instanceof NfaRE);
+    assertTrue(REFactory.compile("(a)b", false, false, false, false) instanceof NfaRE);
+  }
+
+  @Test
+  public void cache() throws RESyntaxException {
+    RECache cache = new RECache(2);
+    REProgram a = cache.getProgram("a+");
+    assertTrue(cache.getProgram("a+") == a);
+    cache.getProgram("b+");
+    cache.getProgram("a+");
+    cache.getProgram("c+");
+
+    // b+ was the least recently used
+    assertThat(cache.size(), equalTo(2));
+    assertTrue(cache.getProgram("a+") == a);
+    assertThat(cache.getMissCount(), equalTo(3L));
+    cache.getProgram("b+");
+    assertThat(cache.getMissCount(), equalTo(4L));
+  }
+}
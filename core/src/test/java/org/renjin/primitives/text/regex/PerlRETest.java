@@ -0,0 +1,97 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.primitives.text.regex;
+
+import org.junit.Test;
+import org.renjin.sexp.StringArrayVector;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class PerlRETest {
+
+  @Test
+  public void translate() throws RESyntaxException {
+    assertThat(PerlProgram.translate("[[:alpha:]_][[:^digit:]]"), equalTo("[\\p{Alpha}_][\\P{Digit}]"));
+    assertThat(PerlProgram.translate("[]a[]"), equalTo("[\\]a\\[]"));
+    assertThat(PerlProgram.translate("[a&&b]"), equalTo("[a\\&\\&b]"));
+    assertThat(PerlProgram.translate("a(?#comment)b"), equalTo("ab"));
+    assertThat(PerlProgram.translate("(*UCP)\\N+"), equalTo("[^\\n]+"));
+    assertThat(PerlProgram.translate("(?P<first_name>\\w+) (?P=first_name)"), equalTo("(?<g1firstname>\\w+) \\k<g1firstname>"));
+    assertThat(PerlProgram.translate("(a)(b)\\g{-1}\\g1"), equalTo("(a)(b)(?:\\2)(?:\\1)"));
+  }
+
+  @Test
+  public void match() throws RESyntaxException {
+    PerlRE re = new PerlRE("(?<year>\\d{4})-(?<month>\\d\\d)", false);
+    assertTrue(re.match("on 2019-03-01"));
+    assertThat(re.getGroupStart(0), equalTo(3));
+    assertThat(re.getGroupEnd(2), equalTo(10));
+    assertThat(Arrays.asList(re.getGroupNames()), equalTo(Arrays.asList("year", "month")));
+    assertFalse(re.match("03-2019"));
+    assertThat(re.getGroupStart(0), equalTo(-1));
+  }
+
+  @Test
+  public void subst() throws RESyntaxException {
+    PerlRE re = new PerlRE("(\\w+)@(\\w+)", true);
+    assertThat(re.subst("Joe@Example, ann@test", "\\2:\\U\\1\\E!", RE.REPLACE_ALL | RE.REPLACE_BACKREFERENCES),
+        equalTo("Example:JOE!, test:ANN!"));
+    assertThat(re.subst("Joe@Example, ann@test", "\\1", RE.REPLACE_FIRSTONLY),
+        equalTo("\\1, ann@test"));
+
+    assertThat(new PerlRE("", false).subst("abc", "-"), equalTo("-a-b-c"));
+  }
+
+  @Test
+  public void split() throws RESyntaxException {
+    assertThat(Arrays.asList(new PerlRE(",\\s*", false).split(",a, b,,c")), equalTo(Arrays.asList("", "a", "b", "", "c")));
+    assertThat(Arrays.asList(new PerlRE("", false).split("abc")), equalTo(Arrays.asList("a", "b", "c")));
+    assertThat(Arrays.asList(new PerlRE("(?<=a)", false).split("xaya")), equalTo(Arrays.asList("xa", "ya")));
+  }
+
+  @Test(expected = RESyntaxException.class)
+  public void invalidPattern() throws RESyntaxException {
+    new PerlRE("(a", false);
+  }
+
+  @Test
+  public void matchAllInParallel() throws RESyntaxException {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      String[] strings = new String[10000];
+      for (int i = 0; i < strings.length; i++) {
+        strings[i] = i % 7 == 0 ? null : ("item" + i);
+      }
+      boolean[] matches = new PerlRE("5$", false).matchAll(new StringArrayVector(strings), executor, 4, 100);
+
+      for (int i = 0; i < strings.length; i++) {
+        assertThat("element " + i, matches[i], equalTo(strings[i] != null && strings[i].endsWith("5")));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -25,12 +25,17 @@ import org.renjin.primitives.Types;
 import org.renjin.repackaged.guava.io.ByteSource;
 import org.renjin.sexp.*;
 
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteOrder;
 import java.util.zip.GZIPInputStream;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.not;
 import static org.junit.Assert.*;
 
 
@@ -257,6 +262,76 @@ public class RDataReaderTest extends EvalTestCase {
     assertThat( env.getVariable(topLevelContext, "f"), elementsIdenticalTo(c(42)));
   }
 
+  @Test
+  public void readMappedRds() throws IOException {
+    File tempFile = File.createTempFile("renjin", "rds");
+    tempFile.deleteOnExit();
+    File compressedFile = File.createTempFile("renjin", "rds");
+    compressedFile.deleteOnExit();
+    global.setVariable(topLevelContext, "tempFile", new StringArrayVector(tempFile.getAbsolutePath()));
+    global.setVariable(topLevelContext, "compressedFile", new StringArrayVector(compressedFile.getAbsolutePath()));
+
+    eval("x <- list(a = as.double(1:5000) / 2, b = c(1:3000, NA), c = c(1.5, NA))");
+    eval("saveRDS(x, file = tempFile, compress = FALSE)");
+
+    boolean mappingEnabled = RDataReader.MAPPING_ENABLED;
+    RDataReader.MAPPING_ENABLED = true;
+    try {
+      eval("y <- readRDS(tempFile)");
+
+      assertTrue(RDataReader.isMappable(tempFile.toPath()));
+      assertThat(eval("y$a"), instanceOf(MappedDoubleVector.class));
+      assertThat(eval("y$b"), instanceOf(MappedIntVector.class));
+      assertThat(eval("y$c"), instanceOf(DoubleArrayVector.class));
+      assertThat(eval("identical(x, y)"), elementsIdenticalTo(c(true)));
+      assertThat(eval("y$a[c(1, 5000)]"), elementsIdenticalTo(c(0.5, 2500)));
+      assertThat(eval("y$b[3001]"), elementsIdenticalTo(c_i(IntVector.NA)));
+
+      // Compressed files are still read onto the heap
+      eval("saveRDS(x, file = compressedFile)");
+      assertFalse(RDataReader.isMappable(compressedFile.toPath()));
+      assertThat(eval("identical(x, readRDS(compressedFile))"), elementsIdenticalTo(c(true)));
+    } finally {
+      RDataReader.MAPPING_ENABLED = mappingEnabled;
+    }
+  }
+
+  @Test
+  public void rdsIsNotMappedByDefault() throws IOException {
+    File tempFile = File.createTempFile("renjin", "rds");
+    tempFile.deleteOnExit();
+    global.setVariable(topLevelContext, "tempFile", new StringArrayVector(tempFile.getAbsolutePath()));
+
+    eval("saveRDS(as.double(1:5000), file = tempFile, compress = FALSE)");
+    eval("y <- readRDS(tempFile)");
+    eval("saveRDS(y * 2, file = tempFile, compress = FALSE)");
+
+    assertThat(eval("y"), not(instanceOf(MappedDoubleVector.class)));
+    assertThat(eval("y[5000]"), elementsIdenticalTo(c(5000)));
+  }
+
+  @Test
+  public void mappedFileRegions() throws IOException {
+    File tempFile = File.createTempFile("renjin", "bin");
+    tempFile.deleteOnExit();
+    try(DataOutputStream out = new DataOutputStream(new FileOutputStream(tempFile))) {
+      out.writeByte(42);
+      for (int i = 0; i < 100; i++) {
+        out.writeDouble(i + 0.25);
+        out.writeInt(-i);
+      }
+    }
+
+    // Map in regions of 16 bytes, so that most values span two regions
+    MappedFile file = MappedFile.map(tempFile.toPath(), ByteOrder.BIG_ENDIAN, 4);
+    assertThat(file.size(), equalTo(1L + 100 * 12));
+    assertThat(file.getByte(0), equalTo((byte)42));
+    for (int i = 0; i < 100; i++) {
+      assertThat(file.getDouble(1 + i * 12L), equalTo(i + 0.25));
+      assertThat(file.getInt(1 + i * 12L + 8), equalTo(-i));
+    }
+  }
+
   protected Symbol symbol(String name){
     return Symbol.get(name);
   }
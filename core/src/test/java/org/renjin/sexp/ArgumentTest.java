@@ -192,6 +192,49 @@ public class ArgumentTest extends EvalTestCase {
     eval("\".__S3MethodsTable__.\" <- new.env(hash = TRUE, parent = baseenv())");
   }
 
+  @Test
+  public void matchingIsCachedAtCallSite() {
+    eval("f <- function(alpha, beta = 2) alpha - beta");
+    eval("g <- function(beta, alpha) alpha * beta");
+
+    FunctionCall call = (FunctionCall) eval("call <- quote(h(be = 1, 10))");
+
+    eval("h <- f");
+    assertThat(eval("eval(call)"), elementsIdenticalTo(c(9)));
+    assertThat(eval("eval(call)"), elementsIdenticalTo(c(9)));
+    assertThat(call.argumentMatchCache.size(), equalTo(1));
+
+    // A different closure with the same formals reuses the matching
+    eval("h <- function(alpha, beta = 2) alpha + beta");
+    assertThat(eval("eval(call)"), elementsIdenticalTo(c(11)));
+    assertThat(call.argumentMatchCache.size(), equalTo(2));
+
+    // Formals in a different order are matched separately
+    eval("h <- g");
+    assertThat(eval("eval(call)"), elementsIdenticalTo(c(10)));
+    assertThat(call.argumentMatchCache.size(), equalTo(3));
+  }
+
+  @Test
+  public void cachedMatchingWithForwardedEllipses() {
+    eval("g <- function(value, scale = 1, ...) value * scale + length(list(...))");
+    eval("f <- function(...) g(...)");
+
+    assertThat(eval("f(2, 3)"), elementsIdenticalTo(c(6)));
+    assertThat(eval("f(sc = 3, 2)"), elementsIdenticalTo(c(6)));
+    assertThat(eval("f(2, 3, 4, 5)"), elementsIdenticalTo(c(8)));
+    assertThat(eval("f(2)"), elementsIdenticalTo(c(2)));
+  }
+
+  @Test
+  public void cachedMatchingStillReportsErrors() {
+    eval("f <- function(x) x");
+    eval("g <- function(...) f(...)");
+    assertThat(eval("g(1)"), elementsIdenticalTo(c(1)));
+    assertThat(eval("tryCatch(g(1, 2), error = function(e) 'error')"), elementsIdenticalTo(c("error")));
+    assertThat(eval("g(x = 3)"), elementsIdenticalTo(c(3)));
+  }
+
   @Test
   public void dotDotDot() {
     eval(" f <- function(...) { c(...) } ");
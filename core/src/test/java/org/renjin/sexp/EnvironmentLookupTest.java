@@ -0,0 +1,145 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.sexp;
+
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class EnvironmentLookupTest extends EvalTestCase {
+
+  @Test
+  public void cachedLookupSeesNewValue() {
+    eval("a <- new.env()");
+    eval("b <- new.env(parent = a)");
+    eval("assign('v', 1, envir = a)");
+
+    assertThat(eval("evalq(v, b)"), elementsIdenticalTo(c(1)));
+    assertThat(Symbol.get("v").variableLookups, notNullValue());
+
+    eval("assign('v', 2, envir = a)");
+    assertThat(eval("evalq(v, b)"), elementsIdenticalTo(c(2)));
+  }
+
+  @Test
+  public void cachedLookupDoesNotRetainEnvironments() throws Exception {
+    Environment parent = Environment.createChildEnvironment(Environment.EMPTY);
+    Environment child = Environment.createChildEnvironment(parent);
+    parent.setVariableUnsafe(Symbol.get("cachedLookupVar"), c(1));
+
+    assertThat(child.findVariable(topLevelContext, Symbol.get("cachedLookupVar")), elementsIdenticalTo(c(1)));
+    LookupCache cache = Symbol.get("cachedLookupVar").variableLookups;
+    assertThat(cache, notNullValue());
+
+    // Symbols are never collected, so the cache may only refer to environments through weak references
+    for (Field field : LookupCache.class.getDeclaredFields()) {
+      if(!Modifier.isStatic(field.getModifiers())) {
+        assertTrue(field.getName(), field.getType().isPrimitive() || field.getType() == WeakReference[].class);
+      }
+    }
+    assertThat(weakEntry(cache, "starts").get(), sameInstance(child));
+    assertThat(weakEntry(cache, "resolved").get(), sameInstance(parent));
+  }
+
+  private static WeakReference<?> weakEntry(LookupCache cache, String fieldName) throws Exception {
+    Field field = LookupCache.class.getDeclaredField(fieldName);
+    field.setAccessible(true);
+    return ((WeakReference<?>[]) field.get(cache))[0];
+  }
+
+  @Test
+  public void newBindingShadowsCachedLookup() {
+    eval("a <- new.env()");
+    eval("b <- new.env(parent = a)");
+    eval("c <- new.env(parent = b)");
+    eval("assign('v', 'a', envir = a)");
+
+    assertThat(eval("evalq(v, c)"), elementsIdenticalTo(c("a")));
+    assertThat(eval("evalq(v, c)"), elementsIdenticalTo(c("a")));
+
+    eval("assign('v', 'b', envir = b)");
+    assertThat(eval("evalq(v, c)"), elementsIdenticalTo(c("b")));
+
+    eval("rm('v', envir = b)");
+    assertThat(eval("evalq(v, c)"), elementsIdenticalTo(c("a")));
+  }
+
+  @Test
+  public void functionShadowingNonFunction() {
+    eval("a <- new.env()");
+    eval("b <- new.env(parent = a)");
+    eval("assign('g', function() 'a', envir = a)");
+    eval("assign('g', 42, envir = b)");
+
+    assertThat(eval("evalq(g(), b)"), elementsIdenticalTo(c("a")));
+    assertThat(eval("evalq(g(), b)"), elementsIdenticalTo(c("a")));
+
+    // Replaces an existing binding, but the new value is a function
+    eval("assign('g', function() 'b', envir = b)");
+    assertThat(eval("evalq(g(), b)"), elementsIdenticalTo(c("b")));
+
+    eval("assign('g', 43, envir = b)");
+    assertThat(eval("evalq(g(), b)"), elementsIdenticalTo(c("a")));
+  }
+
+  @Test
+  public void parentChangeInvalidatesLookups() {
+    eval("a1 <- new.env()");
+    eval("a2 <- new.env()");
+    eval("b <- new.env(parent = a1)");
+    eval("assign('v', 1, envir = a1)");
+    eval("assign('v', 2, envir = a2)");
+
+    assertThat(eval("evalq(v, b)"), elementsIdenticalTo(c(1)));
+
+    eval("parent.env(b) <- a2");
+    assertThat(eval("evalq(v, b)"), elementsIdenticalTo(c(2)));
+  }
+
+  @Test
+  public void activeBindingShadowsCachedLookup() {
+    eval("a <- new.env()");
+    eval("b <- new.env(parent = a)");
+    eval("assign('v', 1, envir = a)");
+
+    assertThat(eval("evalq(v, b)"), elementsIdenticalTo(c(1)));
+
+    eval("makeActiveBinding('v', function() 99, b)");
+    assertThat(eval("evalq(v, b)"), elementsIdenticalTo(c(99)));
+    assertThat(eval("evalq(v, b)"), elementsIdenticalTo(c(99)));
+  }
+
+  @Test
+  public void lookupsThroughFunctionEnvironments() {
+    eval("v <- 'global'");
+    eval("f <- function(shadow) { if(shadow) v <- 'local'; local(v) }");
+
+    assertThat(eval("f(FALSE)"), elementsIdenticalTo(c("global")));
+    assertThat(eval("f(TRUE)"), elementsIdenticalTo(c("local")));
+    assertThat(eval("f(FALSE)"), elementsIdenticalTo(c("global")));
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.stats.internals.distributions;
+
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class RNGTest extends EvalTestCase {
+
+  @Test
+  public void lecuyerSeed() {
+    eval("RNGkind(\"L'Ecuyer-CMRG\")");
+    eval("set.seed(123)");
+
+    assertThat(eval("RNGkind()[1]"), elementsIdenticalTo(c("L'Ecuyer-CMRG")));
+    assertThat(eval(".Random.seed"), elementsIdenticalTo(
+        c_i(407, 1806547166, -983674937, 643431772, 1162448557, -959247990, -133913213)));
+  }
+
+  @Test
+  public void lecuyerUniform() {
+    eval("RNGkind(\"L'Ecuyer-CMRG\")");
+    eval("set.seed(123)");
+
+    RNG rng = topLevelContext.getSession().getRNG();
+
+    assertThat(rng.unif_rand(), closeTo(0.1663742155315906, 1e-15));
+    assertThat(rng.unif_rand(), closeTo(0.38984565788132536, 1e-15));
+    assertThat(rng.unif_rand(), closeTo(0.7599398486939, 1e-15));
+  }
+
+  @Test
+  public void lecuyerStateIsRestoredFromRandomSeed() {
+    eval("RNGkind(\"L'Ecuyer-CMRG\")");
+    eval("set.seed(42)");
+    eval("s <- .Random.seed");
+
+    RNG rng = topLevelContext.getSession().getRNG();
+    double x = rng.unif_rand();
+    rng.unif_rand();
+
+    eval(".Random.seed <- s");
+
+    assertThat(rng.unif_rand(), equalTo(x));
+  }
+
+  @Test
+  public void nextStream() {
+    eval("RNGkind(\"L'Ecuyer-CMRG\")");
+    eval("set.seed(123)");
+
+    assertThat(eval(".Internal(nextRNGStream(.Random.seed))"), elementsIdenticalTo(
+        c_i(407, 1801422725, -2057975723, 1156894209, 1595475487, 210384600, -1655729657)));
+  }
+
+  @Test
+  public void switchBackToMersenneTwister() {
+    eval("RNGkind(\"L'Ecuyer-CMRG\")");
+    eval("RNGkind(\"Mersenne-Twister\")");
+    eval("set.seed(1)");
+
+    assertThat(eval("RNGkind()[1]"), elementsIdenticalTo(c("Mersenne-Twister")));
+    assertThat(topLevelContext.getSession().getRNG().unif_rand(), closeTo(0.2655086631, 1e-10));
+  }
+}
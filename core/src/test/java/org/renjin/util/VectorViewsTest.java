@@ -0,0 +1,128 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.util;
+
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+import org.renjin.sexp.*;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class VectorViewsTest extends EvalTestCase {
+
+  @Test
+  public void arraysAreNotCopied() {
+    double[] values = { 1, 2, 3 };
+    DoubleVector vector = VectorViews.wrap(values);
+    global.setVariable(topLevelContext, "x", vector);
+
+    assertThat(eval("sum(x)"), elementsIdenticalTo(c(6)));
+
+    // Replacing elements in R must leave the host's array untouched
+    eval("x[2] <- 99");
+    assertThat(eval("x"), elementsIdenticalTo(c(1, 99, 3)));
+    assertThat(values[1], equalTo(2d));
+
+    DoubleBuffer buffer = VectorViews.toDoubleBuffer(vector);
+    assertThat(buffer.isReadOnly(), equalTo(true));
+    assertThat(buffer.get(2), equalTo(3d));
+  }
+
+  @Test
+  public void directBuffers() {
+    DoubleBuffer doubles = ByteBuffer.allocateDirect(4 * 8).asDoubleBuffer();
+    doubles.put(new double[] { 0, 1.5, 2.5, DoubleVector.NA });
+    doubles.position(1);
+
+    IntBuffer ints = ByteBuffer.allocateDirect(3 * 4).asIntBuffer();
+    ints.put(new int[] { 4, IntVector.NA, 6 });
+    ints.flip();
+
+    global.setVariable(topLevelContext, "x", VectorViews.wrap(doubles));
+    global.setVariable(topLevelContext, "y", VectorViews.wrap(ints));
+
+    assertThat(eval("length(x)"), elementsIdenticalTo(c_i(3)));
+    assertThat(eval("sum(x, na.rm = TRUE)"), elementsIdenticalTo(c(4)));
+    assertThat(eval("is.na(y)"), elementsIdenticalTo(c(false, true, false)));
+    assertThat(eval("y * 2L"), elementsIdenticalTo(c_i(8, IntVector.NA, 12)));
+  }
+
+  @Test
+  public void matrix() {
+    double[] values = { 1, 2, 3, 4, 5, 6 };
+    global.setVariable(topLevelContext, "m", VectorViews.matrix(values, 2, 3));
+
+    assertThat(eval("dim(m)"), elementsIdenticalTo(c_i(2, 3)));
+    assertThat(eval("colSums(m)"), elementsIdenticalTo(c(3, 7, 11)));
+
+    DoubleBuffer result = VectorViews.toDoubleBuffer(eval("m %*% c(1, 1, 1)"));
+    assertThat(result.remaining(), equalTo(2));
+    assertThat(result.get(0), equalTo(9d));
+    assertThat(result.get(1), equalTo(12d));
+  }
+
+  @Test
+  public void dataFrame() {
+    Map<String, Object> columns = new LinkedHashMap<>();
+    columns.put("id", new int[] { 1, 2, 3 });
+    columns.put("name", new String[] { "a", null, "c" });
+    columns.put("score", DoubleBuffer.wrap(new double[] { 0.5, 1.5, 2.5 }));
+
+    global.setVariable(topLevelContext, "df", VectorViews.dataFrame(columns));
+
+    assertThat(eval("dim(df)"), elementsIdenticalTo(c_i(3, 3)));
+    assertThat(eval("names(df)"), elementsIdenticalTo(c("id", "name", "score")));
+    assertThat(eval("is.na(df$name)"), elementsIdenticalTo(c(false, true, false)));
+    assertThat(eval("df$score[df$id > 1L]"), elementsIdenticalTo(c(1.5, 2.5)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void dataFrameColumnsMustHaveSameLength() {
+    Map<String, Object> columns = new LinkedHashMap<>();
+    columns.put("a", new int[] { 1, 2, 3 });
+    columns.put("b", new double[] { 1, 2 });
+    VectorViews.dataFrame(columns);
+  }
+
+  @Test
+  public void resultsAreReadWithoutCopying() {
+    int[] values = { 3, 1, 2 };
+    IntVector vector = VectorViews.wrap(values);
+
+    IntBuffer buffer = VectorViews.toIntBuffer(vector);
+    assertThat(buffer.get(0), equalTo(3));
+    assertThat(buffer.isReadOnly(), equalTo(true));
+
+    IntBuffer sorted = VectorViews.toIntBuffer(topLevelContext.evaluate(
+        FunctionCall.newCall(Symbol.get("sort"), vector)));
+    assertThat(sorted.get(0), equalTo(1));
+    assertThat(sorted.get(2), equalTo(3));
+
+    assertThat(((IntArrayVector) VectorViews.wrap(IntBuffer.wrap(values))).toIntArrayUnsafe(),
+        sameInstance(values));
+  }
+}
@@ -3,7 +3,6 @@ package org.renjin.stats;
 import org.junit.Before;
 import org.renjin.eval.Context;
 import org.renjin.parser.RParser;
-import org.renjin.primitives.Warning;
 import org.renjin.sexp.*;
 
 import java.io.IOException;
@@ -50,8 +49,8 @@ public class EvalTestCase {
 
 
   protected final void printWarnings() {
-    SEXP warnings = context.getBaseEnvironment().getVariable(context, Warning.LAST_WARNING);
-    if(warnings != Symbol.UNBOUND_VALUE) {
+    SEXP warnings = context.getSession().getLastWarning();
+    if(warnings != Null.INSTANCE) {
       context.evaluate( FunctionCall.newCall(Symbol.get("print.warnings"), warnings),
               context.getBaseEnvironment());
     }
@@ -0,0 +1,565 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.utils;
+
+import org.renjin.parser.NumericLiterals;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.IntVector;
+import org.renjin.utils.DelimitedFileReader.ColumnType;
+import org.renjin.utils.DelimitedFileReader.Format;
+import org.renjin.utils.DelimitedFileReader.UnsupportedFormatException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Parses the records in one newline-aligned chunk of a delimited file into primitive arrays, one per column.
+ *
+ * <p>Columns whose type has not been fixed by {@code colClasses} are parsed as the type guessed from
+ * a sample of the file. If a value does not fit, the parser stops storing values, and only works out,
+ * for each column, the narrowest type that can hold all the values in the rest of the chunk. The caller
+ * can then parse the chunk again with the {@link #getRequiredTypes() required types}.</p>
+ */
+class DelimitedChunkParser {
+
+  private static final int BLANK = -2;
+  private static final int LINE_END = -3;
+
+  private final Format format;
+  private final ByteBuffer buffer;
+  private final int end;
+  private final StringInterner interner;
+  private final StringInterner.Table strings;
+  private final CharSequence chars;
+  private final Column[] columns;
+
+  private int pos;
+  private int rows;
+  private boolean widened;
+
+  private int fieldStart;
+  private int fieldEnd;
+  private int fieldQuote;
+  private boolean escaped;
+
+  /**
+   * @param buffer the chunk, which must start at the beginning of a line, and end with a newline or
+   *               at the end of the file.
+   */
+  DelimitedChunkParser(Format format, ColumnType[] types, boolean[] forced, ByteBuffer buffer,
+                       StringInterner interner) {
+    this.format = format;
+    this.buffer = buffer;
+    this.end = buffer.limit();
+    this.interner = interner;
+    this.strings = interner.newTable();
+    this.chars = new ByteChars(buffer);
+    this.columns = new Column[types.length];
+    for (int i = 0; i < types.length; i++) {
+      columns[i] = new Column(types[i], forced[i]);
+    }
+  }
+
+  /**
+   * Parses records until the end of the chunk, or until {@code maxRows} have been read.
+   */
+  void parse(int maxRows) throws UnsupportedFormatException {
+    while (pos < end && rows < maxRows) {
+      parseRecord();
+    }
+  }
+
+  int getRowCount() {
+    return rows;
+  }
+
+  /**
+   * @return true if a value in this chunk did not fit the type of its column, in which case
+   * the chunk needs to be parsed again with the {@link #getRequiredTypes() required types}.
+   */
+  boolean isWidened() {
+    return widened;
+  }
+
+  ColumnType[] getRequiredTypes() {
+    ColumnType[] types = new ColumnType[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      types[i] = columns[i].required;
+    }
+    return types;
+  }
+
+  Column getColumn(int index) {
+    return columns[index];
+  }
+
+  private void parseRecord() throws UnsupportedFormatException {
+
+    // Blank lines and lines containing only a comment do not count as records
+    int first = skipBlanks(pos);
+    int firstByte = peek(first);
+    if (firstByte == LINE_END || firstByte == format.comment) {
+      if (firstByte == LINE_END && !format.blankLinesSkip) {
+        throw new UnsupportedFormatException();
+      }
+      skipLine();
+      return;
+    }
+    if (format.whitespace) {
+      pos = first;
+    }
+
+    int column = 0;
+    while (true) {
+      if (column == columns.length) {
+        throw new UnsupportedFormatException();
+      }
+      parseField();
+      columns[column++].add();
+
+      if (format.whitespace) {
+        pos = skipBlanks(pos);
+        int next = peek(pos);
+        if (next == LINE_END || next == format.comment) {
+          break;
+        }
+      } else if (pos < end && buffer.get(pos) == format.sep) {
+        pos++;
+      } else {
+        break;
+      }
+    }
+    skipLine();
+
+    if (column < columns.length) {
+      if (!format.fill) {
+        throw new UnsupportedFormatException();
+      }
+      while (column < columns.length) {
+        columns[column++].addNA();
+      }
+    }
+    rows++;
+  }
+
+  /**
+   * Finds the extent of the field at the current position, leaving {@link #pos} at
+   * the separator or line ending that follows it.
+   */
+  private void parseField() throws UnsupportedFormatException {
+    if (format.stripWhite && !format.whitespace) {
+      pos = skipBlanks(pos);
+    }
+    escaped = false;
+    int quote = pos < end ? buffer.get(pos) : BLANK;
+    if (format.isQuote(quote)) {
+      fieldQuote = quote;
+      fieldStart = ++pos;
+      while (true) {
+        if (pos >= end) {
+          // Either the quote is never closed, or a quoted field spans the chunk boundary
+          throw new UnsupportedFormatException();
+        }
+        if (buffer.get(pos) == quote) {
+          if (pos + 1 < end && buffer.get(pos + 1) == quote) {
+            escaped = true;
+            pos += 2;
+            continue;
+          }
+          fieldEnd = pos++;
+          break;
+        }
+        pos++;
+      }
+      // Anything between the closing quote and the next separator is ignored
+      while (pos < end && !isDelimiter(buffer.get(pos))) {
+        pos++;
+      }
+    } else {
+      fieldStart = pos;
+      while (pos < end && !isDelimiter(buffer.get(pos))) {
+        pos++;
+      }
+      fieldEnd = pos;
+      if (format.stripWhite) {
+        while (fieldEnd > fieldStart && isBlank(buffer.get(fieldEnd - 1))) {
+          fieldEnd--;
+        }
+      }
+    }
+  }
+
+  private boolean isDelimiter(byte b) {
+    if (format.whitespace) {
+      if (isBlank(b)) {
+        return true;
+      }
+    } else if (b == format.sep) {
+      return true;
+    }
+    return b == '\n' || b == '\r' || b == format.comment;
+  }
+
+  private static boolean isBlank(int b) {
+    return b == ' ' || b == '\t';
+  }
+
+  private int skipBlanks(int i) {
+    while (i < end && isBlank(buffer.get(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  /**
+   * @return the byte at {@code i}, or {@link #LINE_END} if {@code i} is at the end of a line
+   */
+  private int peek(int i) {
+    if (i >= end) {
+      return LINE_END;
+    }
+    byte b = buffer.get(i);
+    if (b == '\n' || b == '\r') {
+      return LINE_END;
+    }
+    return b;
+  }
+
+  private void skipLine() {
+    while (pos < end && buffer.get(pos) != '\n') {
+      pos++;
+    }
+    pos++;
+  }
+
+  private boolean isNaString(boolean allowEmpty) {
+    int length = fieldEnd - fieldStart;
+    if (length == 0 && !allowEmpty) {
+      return true;
+    }
+    for (byte[] na : format.naStrings) {
+      if (na.length == length && matches(na)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean matches(byte[] bytes) {
+    for (int i = 0; i < bytes.length; i++) {
+      if (bytes[i] != buffer.get(fieldStart + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return 1 for {@code TRUE}, 0 for {@code FALSE}, or -1 if the current field is not a logical value,
+   * using the same rules as {@link Tables#typeconvert}.
+   */
+  private int parseLogical() {
+    int length = fieldEnd - fieldStart;
+    if (length == 0 || length > 5) {
+      return -1;
+    }
+    byte b = buffer.get(fieldStart);
+    if (b == 'T') {
+      return length == 1 || (length == 4 && matches(TRUE)) ? 1 : -1;
+    }
+    if (b == 'F') {
+      return length == 1 || (length == 5 && matches(FALSE)) ? 0 : -1;
+    }
+    return -1;
+  }
+
+  private static final byte[] TRUE = "TRUE".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] FALSE = "FALSE".getBytes(StandardCharsets.US_ASCII);
+
+  /**
+   * @return the current field as an integer, or {@code IntVector.NA} if it is not an integer.
+   */
+  private int parseInt() {
+    int i = skipBlanks(fieldStart);
+    int last = fieldEnd;
+    while (last > i && isBlank(buffer.get(last - 1))) {
+      last--;
+    }
+    boolean negative = false;
+    if (i < last && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+      negative = buffer.get(i) == '-';
+      i++;
+    }
+    // Up to nine digits always fit in an int
+    if (i < last && last - i <= 9) {
+      int value = 0;
+      int j = i;
+      while (j < last) {
+        int digit = buffer.get(j) - '0';
+        if (digit < 0 || digit > 9) {
+          break;
+        }
+        value = value * 10 + digit;
+        j++;
+      }
+      if (j == last) {
+        return negative ? -value : value;
+      }
+    }
+    // Otherwise follow Tables.IntConverter, which accepts any integral number, such as 1.0 or 0x10
+    double value = NumericLiterals.parseDouble(chars, fieldStart, fieldEnd, '.', false);
+    int intValue = (int) value;
+    if (intValue != IntVector.NA && intValue == value) {
+      return intValue;
+    }
+    return IntVector.NA;
+  }
+
+  private double parseDouble() {
+    return NumericLiterals.parseDouble(chars, fieldStart, fieldEnd, format.dec, false);
+  }
+
+  private String parseString() {
+    if (!escaped) {
+      return StringInterner.decode(buffer, fieldStart, fieldEnd);
+    }
+    // Replace doubled quotes by a single quote
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(fieldEnd - fieldStart);
+    int i = fieldStart;
+    while (i < fieldEnd) {
+      byte b = buffer.get(i++);
+      bytes.write(b);
+      if (b == fieldQuote) {
+        i++;
+      }
+    }
+    return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @return the narrowest type that can hold the current field, which must not be {@code NA}
+   */
+  private ColumnType typeOfField() {
+    if (escaped) {
+      return ColumnType.STRING;
+    }
+    if (parseLogical() >= 0) {
+      return ColumnType.LOGICAL;
+    }
+    if (!IntVector.isNA(parseInt())) {
+      return ColumnType.INTEGER;
+    }
+    if (!DoubleVector.isNA(parseDouble())) {
+      return ColumnType.DOUBLE;
+    }
+    return ColumnType.STRING;
+  }
+
+  /**
+   * Switches every column from storing values to checking their types, after the first value
+   * that does not fit.
+   */
+  private void widen() {
+    widened = true;
+    for (Column column : columns) {
+      column.values = null;
+    }
+  }
+
+  /**
+   * The values of a single column within the chunk.
+   */
+  final class Column {
+    private final ColumnType type;
+    private final boolean forced;
+    private ColumnType required;
+
+    private int size;
+    private Object values;
+
+    private boolean interning = true;
+    private int stringCount;
+    private int internMisses;
+
+    private Column(ColumnType type, boolean forced) {
+      this.type = type;
+      this.forced = forced;
+      this.required = type;
+      switch (type) {
+        case LOGICAL:
+        case INTEGER:
+        case UNKNOWN:
+          values = new int[1024];
+          break;
+        case DOUBLE:
+          values = new double[1024];
+          break;
+        case STRING:
+          values = new String[1024];
+          break;
+      }
+    }
+
+    int size() {
+      return size;
+    }
+
+    Object getValues() {
+      return values;
+    }
+
+    private void add() {
+      if (type == ColumnType.SKIP) {
+        return;
+      }
+      if (widened) {
+        if (!forced && !isNaString(type == ColumnType.STRING)) {
+          required = required.join(typeOfField());
+        }
+        return;
+      }
+      if (type == ColumnType.STRING) {
+        addString(isNaString(true) ? null : nextString());
+        return;
+      }
+      if (isNaString(false)) {
+        addNA();
+        return;
+      }
+      switch (type) {
+        case LOGICAL: {
+          int value = escaped ? -1 : parseLogical();
+          if (value >= 0 || forced) {
+            addInt(value >= 0 ? value : IntVector.NA);
+            return;
+          }
+          break;
+        }
+        case INTEGER: {
+          int value = escaped ? IntVector.NA : parseInt();
+          if (!IntVector.isNA(value) || forced) {
+            addInt(value);
+            return;
+          }
+          break;
+        }
+        case DOUBLE: {
+          double value = escaped ? DoubleVector.NA : parseDouble();
+          if (!DoubleVector.isNA(value) || forced) {
+            addDouble(value);
+            return;
+          }
+          break;
+        }
+      }
+      required = type.join(typeOfField());
+      widen();
+    }
+
+    private String nextString() {
+      if (escaped) {
+        return interner.intern(parseString());
+      }
+      if (!interning) {
+        return parseString();
+      }
+      int distinct = strings.size();
+      String value = strings.get(buffer, fieldStart, fieldEnd);
+      if (strings.size() > distinct) {
+        internMisses++;
+      }
+      if (++stringCount == StringInterner.SAMPLE_SIZE &&
+          internMisses > StringInterner.SAMPLE_SIZE * StringInterner.GIVE_UP_RATIO) {
+        interning = false;
+      }
+      return value;
+    }
+
+    private void addNA() {
+      if (values == null) {
+        return;
+      }
+      switch (type) {
+        case LOGICAL:
+        case INTEGER:
+        case UNKNOWN:
+          addInt(IntVector.NA);
+          break;
+        case DOUBLE:
+          addDouble(DoubleVector.NA);
+          break;
+        case STRING:
+          addString(null);
+          break;
+      }
+    }
+
+    private void addInt(int value) {
+      int[] array = (int[]) values;
+      if (size == array.length) {
+        values = array = Arrays.copyOf(array, array.length * 2);
+      }
+      array[size++] = value;
+    }
+
+    private void addDouble(double value) {
+      double[] array = (double[]) values;
+      if (size == array.length) {
+        values = array = Arrays.copyOf(array, array.length * 2);
+      }
+      array[size++] = value;
+    }
+
+    private void addString(String value) {
+      String[] array = (String[]) values;
+      if (size == array.length) {
+        values = array = Arrays.copyOf(array, array.length * 2);
+      }
+      array[size++] = value;
+    }
+  }
+
+  /**
+   * Presents the bytes of the buffer as ISO-8859-1 characters to the number parser.
+   */
+  private static final class ByteChars implements CharSequence {
+    private final ByteBuffer buffer;
+
+    ByteChars(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int length() {
+      return buffer.limit();
+    }
+
+    @Override
+    public char charAt(int index) {
+      return (char) (buffer.get(index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -0,0 +1,499 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.utils;
+
+import org.apache.commons.vfs2.FileObject;
+import org.renjin.eval.Context;
+import org.renjin.eval.EvalException;
+import org.renjin.invoke.annotations.Current;
+import org.renjin.pipeliner.VectorPipeliner;
+import org.renjin.sexp.*;
+import org.renjin.util.Partitions;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Reads the data section of a delimited text file for {@code read.table}, without going through
+ * a connection.
+ *
+ * <p>The file is memory-mapped and split into chunks that end on line boundaries. The chunks are parsed
+ * concurrently on the session's executor, straight into primitive arrays, and then concatenated.
+ * Columns without a {@code colClasses} entry are converted as they are read, following the same rules as
+ * {@code type.convert}: their types are first guessed from a sample at the start of the file, and widened,
+ * if need be, by parsing the file a second time.</p>
+ *
+ * <p>Only regular, local, uncompressed files in UTF-8 or ASCII, with a line for each record, are read
+ * here. For anything else, {@link #read} returns {@code NULL} and {@code read.table} falls back
+ * to {@code scan()}.</p>
+ */
+public class DelimitedFileReader {
+
+  /**
+   * The approximate number of bytes in each chunk.
+   */
+  public static final int CHUNK_SIZE = Integer.getInteger("renjin.readtable.chunk.size", 16 * 1024 * 1024);
+
+  /**
+   * The number of records from which the types of the columns are guessed.
+   */
+  static final int SAMPLE_ROWS = 1000;
+
+  enum ColumnType {
+
+    /**
+     * No values have been read yet.
+     */
+    UNKNOWN,
+    LOGICAL,
+    INTEGER,
+    DOUBLE,
+    STRING,
+
+    /**
+     * The column is dropped.
+     */
+    SKIP;
+
+    /**
+     * @return the narrowest type that can hold values of both this type and {@code other}
+     */
+    ColumnType join(ColumnType other) {
+      if (this == other || other == UNKNOWN) {
+        return this;
+      }
+      if (this == UNKNOWN) {
+        return other;
+      }
+      if (this == STRING || other == STRING || this == LOGICAL || other == LOGICAL) {
+        return STRING;
+      }
+      return DOUBLE;
+    }
+  }
+
+  static final class Format {
+    final boolean whitespace;
+    final byte sep;
+    final byte[] quotes;
+    final char dec;
+    final int comment;
+    final byte[][] naStrings;
+    final boolean fill;
+    final boolean stripWhite;
+    final boolean blankLinesSkip;
+
+    Format(byte sep, byte[] quotes, char dec, int comment, byte[][] naStrings,
+           boolean fill, boolean stripWhite, boolean blankLinesSkip) {
+      this.whitespace = (sep == 0);
+      this.sep = sep;
+      this.quotes = quotes;
+      this.dec = dec;
+      this.comment = comment;
+      this.naStrings = naStrings;
+      this.fill = fill;
+      this.stripWhite = stripWhite;
+      this.blankLinesSkip = blankLinesSkip;
+    }
+
+    boolean isQuote(int b) {
+      for (byte quote : quotes) {
+        if (quote == b) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Thrown when the file uses a feature of {@code scan()} which is not supported here.
+   */
+  static final class UnsupportedFormatException extends Exception {
+    UnsupportedFormatException() {
+      super(null, null, false, false);
+    }
+  }
+
+  /**
+   * Reads the records of a delimited file, as {@code scan(file, what, ...)} would.
+   *
+   * @param fileName the name of the file
+   * @param what a list with, for each column, {@code NULL} to skip the column, or a vector of the column's type
+   * @param convert for each column of type character, whether the column should be converted following
+   *                the rules of {@code type.convert}
+   * @param skip the number of lines to skip before the header
+   * @param header true if the first line that is not a comment holds the column names
+   * @param nrows the maximum number of records to read, or a negative number to read all records
+   *
+   * @return a list with a vector for each column, or {@code NULL} for skipped columns, or {@code NULL}
+   * if the file cannot be read here.
+   */
+  public static SEXP read(@Current Context context, String fileName, ListVector what, LogicalVector convert,
+                          String sep, String quote, String dec, StringVector naStrings, double skip,
+                          boolean header, double nrows, boolean fill, boolean stripWhite, boolean blankLinesSkip,
+                          String commentChar) throws IOException {
+
+    Path path = localPath(context.resolveFile(fileName));
+    if (path == null || !Files.isRegularFile(path)) {
+      return Null.INSTANCE;
+    }
+
+    ColumnType[] types = new ColumnType[what.length()];
+    boolean[] forced = new boolean[what.length()];
+    for (int i = 0; i < types.length; i++) {
+      SEXP element = what.getElementAsSEXP(i);
+      if (element == Null.INSTANCE) {
+        types[i] = ColumnType.SKIP;
+      } else if (element instanceof StringVector) {
+        types[i] = convert.isElementTrue(i) ? ColumnType.UNKNOWN : ColumnType.STRING;
+      } else if (element instanceof LogicalVector) {
+        types[i] = ColumnType.LOGICAL;
+      } else if (element instanceof IntVector) {
+        types[i] = ColumnType.INTEGER;
+      } else if (element instanceof DoubleVector) {
+        types[i] = ColumnType.DOUBLE;
+      } else {
+        return Null.INSTANCE;
+      }
+      forced[i] = types[i] != ColumnType.UNKNOWN;
+    }
+
+    Format format = parseFormat(sep, quote, dec, naStrings, fill, stripWhite, blankLinesSkip, commentChar);
+    if (format == null) {
+      return Null.INSTANCE;
+    }
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (isCompressed(channel)) {
+        return Null.INSTANCE;
+      }
+      long start = skipLines(channel, 0, (long) skip, Integer.MIN_VALUE);
+      if (header) {
+        start = skipLines(channel, start, 1, format.comment);
+      }
+      List<long[]> chunks = splitIntoChunks(channel, start);
+
+      Reader reader = new Reader(context, channel, chunks, format, forced);
+      if (nrows >= 0) {
+        return reader.readSequentially(types, (int) Math.min(nrows, Integer.MAX_VALUE));
+      } else {
+        return reader.readConcurrently(types);
+      }
+    } catch (UnsupportedFormatException e) {
+      return Null.INSTANCE;
+    }
+  }
+
+  private static Format parseFormat(String sep, String quote, String dec, StringVector naStrings,
+                                    boolean fill, boolean stripWhite, boolean blankLinesSkip, String commentChar) {
+    if (sep.length() > 1 || !isAscii(sep) || !isAscii(quote) || dec.length() != 1 ||
+        commentChar.length() > 1 || !isAscii(commentChar)) {
+      return null;
+    }
+    byte sepByte = sep.isEmpty() ? 0 : (byte) sep.charAt(0);
+    if (sepByte == '\n' || sepByte == '\r' || quote.indexOf(sep) >= 0 && !sep.isEmpty()) {
+      return null;
+    }
+    byte[][] na = new byte[naStrings.length()][];
+    for (int i = 0; i < na.length; i++) {
+      String string = naStrings.getElementAsString(i);
+      na[i] = string == null ? new byte[0] : string.getBytes(StandardCharsets.UTF_8);
+    }
+    return new Format(sepByte, quote.getBytes(StandardCharsets.US_ASCII), dec.charAt(0),
+        commentChar.isEmpty() ? Integer.MIN_VALUE : commentChar.charAt(0), na,
+        fill, stripWhite, blankLinesSkip);
+  }
+
+  private static boolean isAscii(String string) {
+    for (int i = 0; i < string.length(); i++) {
+      if (string.charAt(i) >= 0x80) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static Path localPath(FileObject file) {
+    if (!"file".equals(file.getName().getScheme())) {
+      return null;
+    }
+    try {
+      return Paths.get(file.getURL().toURI());
+    } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * @return true if the file starts with the magic number of gzip, bzip2 or xz, which {@code file()}
+   * decompresses transparently.
+   */
+  private static boolean isCompressed(FileChannel channel) throws IOException {
+    ByteBuffer magic = ByteBuffer.allocate(3);
+    channel.read(magic, 0);
+    if (magic.position() < 2) {
+      return false;
+    }
+    int b0 = magic.get(0) & 0xFF;
+    int b1 = magic.get(1) & 0xFF;
+    int b2 = magic.get(2) & 0xFF;
+    return (b0 == 0x1f && b1 == 0x8b) ||
+           (b0 == 'B' && b1 == 'Z' && b2 == 'h') ||
+           (b0 == 0xFD && b1 == '7' && b2 == 'z');
+  }
+
+  /**
+   * Skips {@code count} lines, not counting those that start with {@code comment}, in the same way as
+   * {@link Tables#readtablehead}.
+   *
+   * @return the position of the first byte after the skipped lines
+   */
+  private static long skipLines(FileChannel channel, long position, long count, int comment) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+    boolean lineStart = true;
+    boolean commentLine = false;
+    while (count > 0) {
+      buffer.clear();
+      int read = channel.read(buffer, position);
+      if (read <= 0) {
+        break;
+      }
+      for (int i = 0; i < read && count > 0; i++) {
+        byte b = buffer.get(i);
+        if (lineStart) {
+          commentLine = (b == comment);
+          lineStart = false;
+        }
+        if (b == '\n') {
+          if (!commentLine) {
+            count--;
+          }
+          lineStart = true;
+        }
+        position++;
+      }
+    }
+    return position;
+  }
+
+  /**
+   * Splits the file from {@code start} into chunks of about {@link #CHUNK_SIZE} bytes, each of which ends
+   * with a newline or at the end of the file.
+   *
+   * @return a list of {@code [start, end)} positions
+   */
+  private static List<long[]> splitIntoChunks(FileChannel channel, long start) throws IOException {
+    long size = channel.size();
+    List<long[]> chunks = new ArrayList<>();
+    ByteBuffer buffer = ByteBuffer.allocate(4096);
+    while (start < size) {
+      long end = Math.min(size, start + CHUNK_SIZE);
+      // Extend the chunk to the end of the line
+      scan:
+      while (end < size) {
+        buffer.clear();
+        int read = channel.read(buffer, end);
+        for (int i = 0; i < read; i++) {
+          if (buffer.get(i) == '\n') {
+            end += i + 1;
+            break scan;
+          }
+        }
+        end += read;
+      }
+      if (end - start > Integer.MAX_VALUE) {
+        throw new IOException("Line too long");
+      }
+      chunks.add(new long[] { start, end });
+      start = end;
+    }
+    return chunks;
+  }
+
+  private static class Reader {
+    private final Context context;
+    private final FileChannel channel;
+    private final List<long[]> chunks;
+    private final Format format;
+    private final boolean[] forced;
+    private final StringInterner interner = new StringInterner();
+
+    Reader(Context context, FileChannel channel, List<long[]> chunks, Format format, boolean[] forced) {
+      this.context = context;
+      this.channel = channel;
+      this.chunks = chunks;
+      this.format = format;
+      this.forced = forced;
+    }
+
+    /**
+     * Reads chunks one after another until {@code maxRows} records have been read.
+     */
+    ListVector readSequentially(ColumnType[] types, int maxRows)
+        throws IOException, UnsupportedFormatException {
+
+      while (true) {
+        List<DelimitedChunkParser> parsed = new ArrayList<>();
+        ColumnType[] required = types;
+        int rows = 0;
+        boolean widened = false;
+        for (int i = 0; i < chunks.size() && rows < maxRows; i++) {
+          DelimitedChunkParser parser = parse(i, types, maxRows - rows);
+          parsed.add(parser);
+          rows += parser.getRowCount();
+          if (parser.isWidened()) {
+            widened = true;
+            required = join(required, parser.getRequiredTypes());
+          }
+        }
+        if (!widened) {
+          return combine(types, parsed);
+        }
+        types = required;
+      }
+    }
+
+    /**
+     * Guesses the types of the columns from the first records, and then parses all chunks
+     * on the session's executor.
+     */
+    ListVector readConcurrently(ColumnType[] types) throws IOException, UnsupportedFormatException {
+      if (!chunks.isEmpty()) {
+        DelimitedChunkParser sample = parse(0, types, SAMPLE_ROWS);
+        if (sample.isWidened()) {
+          types = join(types, sample.getRequiredTypes());
+        }
+      }
+
+      VectorPipeliner engine = context.getSession().getVectorEngine();
+      while (true) {
+        List<DelimitedChunkParser> parsed = parseAll(engine.getExecutorService(), types);
+        ColumnType[] required = types;
+        boolean widened = false;
+        for (DelimitedChunkParser parser : parsed) {
+          if (parser.isWidened()) {
+            widened = true;
+            required = join(required, parser.getRequiredTypes());
+          }
+        }
+        if (!widened) {
+          return combine(types, parsed);
+        }
+        // The required types can hold every value in the file, so the second pass cannot fail
+        types = required;
+      }
+    }
+
+    private List<DelimitedChunkParser> parseAll(Executor executor, ColumnType[] types)
+        throws UnsupportedFormatException {
+
+      try {
+        return Partitions.compute(executor, chunks.size(),
+            chunk -> parse(chunk, types, Integer.MAX_VALUE));
+      } catch (InterruptedException e) {
+        throw new EvalException("Interrupted while reading table");
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof UnsupportedFormatException) {
+          throw (UnsupportedFormatException) e.getCause();
+        }
+        throw new EvalException("Exception reading table", e.getCause());
+      }
+    }
+
+    private DelimitedChunkParser parse(int chunk, ColumnType[] types, int maxRows)
+        throws IOException, UnsupportedFormatException {
+      long[] range = chunks.get(chunk);
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, range[0], range[1] - range[0]);
+      DelimitedChunkParser parser = new DelimitedChunkParser(format, types, forced, buffer, interner);
+      parser.parse(maxRows);
+      return parser;
+    }
+
+    private static ColumnType[] join(ColumnType[] x, ColumnType[] y) {
+      ColumnType[] types = new ColumnType[x.length];
+      for (int i = 0; i < x.length; i++) {
+        types[i] = x[i].join(y[i]);
+      }
+      return types;
+    }
+
+    private static ListVector combine(ColumnType[] types, List<DelimitedChunkParser> parsed)
+        throws UnsupportedFormatException {
+      long rows = 0;
+      for (DelimitedChunkParser parser : parsed) {
+        rows += parser.getRowCount();
+      }
+      if (rows > Integer.MAX_VALUE) {
+        throw new UnsupportedFormatException();
+      }
+
+      ListVector.Builder list = new ListVector.Builder();
+      for (int i = 0; i < types.length; i++) {
+        list.add(combine(types[i], i, (int) rows, parsed));
+      }
+      return list.build();
+    }
+
+    private static SEXP combine(ColumnType type, int column, int rows, List<DelimitedChunkParser> parsed) {
+      Object array;
+      switch (type) {
+        case SKIP:
+          return Null.INSTANCE;
+        case DOUBLE:
+          array = new double[rows];
+          break;
+        case STRING:
+          array = new String[rows];
+          break;
+        default:
+          array = new int[rows];
+          break;
+      }
+      int offset = 0;
+      for (DelimitedChunkParser parser : parsed) {
+        DelimitedChunkParser.Column values = parser.getColumn(column);
+        System.arraycopy(values.getValues(), 0, array, offset, values.size());
+        offset += values.size();
+      }
+      switch (type) {
+        case DOUBLE:
+          return DoubleArrayVector.unsafe((double[]) array);
+        case INTEGER:
+          return IntArrayVector.unsafe((int[]) array);
+        case STRING:
+          return new StringArrayVector((String[]) array, AttributeMap.EMPTY);
+        default:
+          // Columns without any values are logical, as in type.convert()
+          return LogicalArrayVector.unsafe((int[]) array);
+      }
+    }
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decodes and interns the string fields of a delimited file.
+ *
+ * <p>Text files tend to repeat a small number of distinct strings many times over, so each chunk
+ * keeps its own table from bytes to decoded strings, which it can probe without decoding or locking,
+ * and falls back to a table shared by all chunks (and columns) of the file, so that equal strings
+ * are stored only once in the result.</p>
+ *
+ * <p>Interning does not pay for columns in which nearly every value is distinct, such as identifiers, so
+ * a column stops interning once it has seen more than {@link #GIVE_UP_RATIO} distinct values
+ * after the first {@link #SAMPLE_SIZE} values.</p>
+ */
+class StringInterner {
+
+  static final int SAMPLE_SIZE = 4096;
+  static final double GIVE_UP_RATIO = 0.5;
+
+  private final ConcurrentHashMap<String, String> shared = new ConcurrentHashMap<>();
+
+  /**
+   * @return a new table for a single chunk. Tables are not thread-safe.
+   */
+  Table newTable() {
+    return new Table();
+  }
+
+  String intern(String string) {
+    String existing = shared.putIfAbsent(string, string);
+    return existing == null ? string : existing;
+  }
+
+  static String decode(ByteBuffer buffer, int start, int end) {
+    byte[] bytes = new byte[end - start];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = buffer.get(start + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  class Table {
+
+    private int[] hashes = new int[256];
+    private byte[][] keys = new byte[256][];
+    private String[] values = new String[256];
+    private int size;
+
+    /**
+     * @return the string encoded by bytes {@code [start, end)} of the {@code buffer}
+     */
+    String get(ByteBuffer buffer, int start, int end) {
+      int hash = 1;
+      for (int i = start; i < end; i++) {
+        hash = 31 * hash + buffer.get(i);
+      }
+      int mask = keys.length - 1;
+      int slot = mix(hash) & mask;
+      while (keys[slot] != null) {
+        if (hashes[slot] == hash && matches(keys[slot], buffer, start, end)) {
+          return values[slot];
+        }
+        slot = (slot + 1) & mask;
+      }
+      byte[] key = new byte[end - start];
+      for (int i = 0; i < key.length; i++) {
+        key[i] = buffer.get(start + i);
+      }
+      String value = intern(new String(key, StandardCharsets.UTF_8));
+      hashes[slot] = hash;
+      keys[slot] = key;
+      values[slot] = value;
+      if (++size * 2 > keys.length) {
+        rehash();
+      }
+      return value;
+    }
+
+    int size() {
+      return size;
+    }
+
+    private boolean matches(byte[] key, ByteBuffer buffer, int start, int end) {
+      if (key.length != end - start) {
+        return false;
+      }
+      for (int i = 0; i < key.length; i++) {
+        if (key[i] != buffer.get(start + i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void rehash() {
+      int[] oldHashes = hashes;
+      byte[][] oldKeys = keys;
+      String[] oldValues = values;
+      hashes = new int[oldKeys.length * 2];
+      keys = new byte[oldKeys.length * 2][];
+      values = new String[oldKeys.length * 2];
+      int mask = keys.length - 1;
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] != null) {
+          int slot = mix(oldHashes[i]) & mask;
+          while (keys[slot] != null) {
+            slot = (slot + 1) & mask;
+          }
+          hashes[slot] = oldHashes[i];
+          keys[slot] = oldKeys[i];
+          values[slot] = oldValues[i];
+        }
+      }
+    }
+
+    private int mix(int hash) {
+      return hash ^ (hash >>> 16);
+    }
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Renjin : JVM-based interpreter for the R language for the statistical analysis
+ * Copyright © 2010-2019 BeDataDriven Groep B.V. and contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.gnu.org/licenses/gpl-2.0.txt
+ */
+package org.renjin.script;
+
+import org.renjin.eval.Context;
+import org.renjin.sexp.Environment;
+import org.renjin.sexp.ExpressionVector;
+import org.renjin.sexp.SEXP;
+
+import javax.script.Bindings;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An R script that has been parsed once, and can be evaluated many times.
+ *
+ * <p>The same script can be evaluated concurrently in the contexts of different {@link RenjinScriptEngine}s,
+ * each with its own {@code Session}. Evaluation does not change the meaning of the parsed expressions, but it
+ * does attach caches to their call nodes, which are shared by all evaluations of the script and are safe to
+ * update from several threads. In particular, when loop compilation is enabled with {@code renjin.compile.loops},
+ * hot loops are compiled to bytecode and their compiled bodies are cached with the expressions, so later
+ * evaluations of the script re-use them as long as the assumptions they were compiled under, such as the types
+ * of variables and the definitions of the functions they call, still hold in the session evaluating them.
+ * Sessions which violate these assumptions discard the compiled body, and the loop is recompiled for both, or
+ * interpreted after repeated failures.</p>
+ */
+public class RenjinCompiledScript extends CompiledScript {
+
+  private final RenjinScriptEngine engine;
+  private final ExpressionVector source;
+
+  RenjinCompiledScript(RenjinScriptEngine engine, ExpressionVector source) {
+    this.engine = engine;
+    this.source = source;
+  }
+
+  /**
+   * @return the parsed expressions
+   */
+  public ExpressionVector getSource() {
+    return source;
+  }
+
+  /**
+   * Evaluates this script in the global environment of the session of the given {@code context}, which must be
+   * the context of a {@link RenjinScriptEngine}.
+   */
+  @Override
+  public Object eval(ScriptContext context) throws ScriptException {
+    if(!(context instanceof RenjinScriptContext)) {
+      throw new IllegalArgumentException("Expected the context of a RenjinScriptEngine");
+    }
+    return engine.eval(((RenjinScriptContext) context).getContext(), source);
+  }
+
+  /**
+   * Evaluates this script with the given {@code bindings}, in a new environment enclosed by the global environment
+   * of this script's engine. Variables which the script assigns or changes are written back to {@code bindings}
+   * as R values.
+   */
+  @Override
+  public Object eval(Bindings bindings) throws ScriptException {
+    Context topLevelContext = engine.getTopLevelContext();
+    Environment environment = Environment.createChildEnvironment(topLevelContext.getGlobalEnvironment());
+    RenjinBindings scope = new RenjinBindings(environment);
+
+    Map<String, Object> initialValues = new HashMap<>();
+    for (String name : bindings.keySet()) {
+      scope.put(name, bindings.get(name));
+      initialValues.put(name, scope.get(name));
+    }
+
+    Object result = eval(new RenjinScriptContext(topLevelContext.beginEvalContext(environment)));
+
+    for (String name : scope.keySet()) {
+      SEXP value = (SEXP) scope.get(name);
+      if(value != null && value != initialValues.get(name)) {
+        bindings.put(name, value);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public ScriptEngine getEngine() {
+    return engine;
+  }
+}
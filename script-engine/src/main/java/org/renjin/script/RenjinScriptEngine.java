@@ -25,7 +25,6 @@ import org.renjin.eval.SessionBuilder;
 import org.renjin.invoke.reflection.converters.Converters;
 import org.renjin.invoke.reflection.converters.RuntimeConverter;
 import org.renjin.parser.RParser;
-import org.renjin.primitives.Warning;
 import org.renjin.primitives.special.BreakException;
 import org.renjin.primitives.special.NextException;
 import org.renjin.repackaged.guava.io.CharSource;
@@ -37,7 +36,7 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 
-public class RenjinScriptEngine implements ScriptEngine, Invocable {
+public class RenjinScriptEngine implements ScriptEngine, Invocable, Compilable {
 
   private final RenjinScriptEngineFactory factory;
 
@@ -156,20 +155,38 @@ public class RenjinScriptEngine implements ScriptEngine, Invocable {
   }
 
   private Object eval(Reader reader, Context context, String filename) throws ScriptException {
-    SEXP source;
+    return eval(context, parse(reader, filename));
+  }
+
+  private ExpressionVector parse(Reader reader, String filename) throws ScriptException {
     try {
       // terminate with '\n'
       CharSource terminated = CharSource.concat(
           newReaderSupplier(reader),
           CharSource.wrap("\n"));
-      source = RParser.parseSource(terminated, new CHARSEXP(filename) );
+      return RParser.parseSource(terminated, new CHARSEXP(filename) );
     } catch (IOException e) {
       throw new ScriptException(e);
     }
-    return eval(context, source);
   }
-  
-  private Object eval(Context context, SEXP source) {
+
+  /**
+   * Parses the {@code script} without evaluating it. The resulting {@link CompiledScript} can be evaluated
+   * any number of times, by this engine or, concurrently, by other engines.
+   */
+  @Override
+  public CompiledScript compile(String script) throws ScriptException {
+    String filename = getFilenameFromContext(scriptContext,INLINE_STRING);
+    return new RenjinCompiledScript(this, RParser.parseSource(script + "\n", filename));
+  }
+
+  @Override
+  public CompiledScript compile(Reader script) throws ScriptException {
+    String filename = getFilenameFromContext(scriptContext,UNKNOWN);
+    return new RenjinCompiledScript(this, parse(script, filename));
+  }
+
+  Object eval(Context context, SEXP source) {
     try {
       return context.evaluate( source, context.getEnvironment());
     } catch(BreakException e) {
@@ -301,13 +318,8 @@ public class RenjinScriptEngine implements ScriptEngine, Invocable {
   }
 
   public void printWarnings() {
-    SEXP warnings = topLevelContext.getBaseEnvironment().getVariable(topLevelContext, Warning.LAST_WARNING);
-    if(warnings != Symbol.UNBOUND_VALUE) {
-      topLevelContext.evaluate( FunctionCall.newCall(Symbol.get("print.warnings"), warnings),
-          topLevelContext.getBaseEnvironment());
-    }
-
-    topLevelContext.getBaseEnvironment().remove(Warning.LAST_WARNING);
+    topLevelContext.getSession().printWarnings();
+    topLevelContext.getSession().clearWarnings();
   }
   
   public class FunctionCallBuilder {
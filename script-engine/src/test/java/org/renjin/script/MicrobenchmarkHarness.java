@@ -45,7 +45,6 @@ public class MicrobenchmarkHarness {
 //    File script = new File("/home/alex/dev/renjin-benchmarks/microbenchmarks/r_vs_cpp/jensen-shannon/jensen-shannon.R");
 
     ForFunction.COMPILE_LOOPS = true;
-    ForFunction.COMPILE_LOOPS_VERBOSE = true;
 
     Session session = new SessionBuilder()
         .withDefaultPackages()
@@ -22,10 +22,14 @@ import org.hamcrest.CoreMatchers;
 import org.junit.Before;
 import org.junit.Test;
 import org.renjin.eval.EvalException;
+import org.renjin.primitives.special.ForFunction;
 import org.renjin.sexp.*;
 
 import javax.script.*;
 import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.instanceOf;
@@ -184,4 +188,82 @@ public class RenjinScriptEngineTest {
     }
   }
 
+  @Test
+  public void compiledScript() throws ScriptException {
+    CompiledScript script = ((Compilable) engine).compile("x <- x + 1");
+    engine.eval("x <- 0");
+    script.eval();
+    script.eval();
+
+    assertThat(engine.eval("x"), CoreMatchers.<Object>equalTo(new DoubleArrayVector(2)));
+  }
+
+  @Test
+  public void compiledScriptWithBindings() throws ScriptException {
+    CompiledScript script = ((Compilable) engine).compile("y <- x * 2; sqrt(y)");
+    engine.eval("x <- 1");
+
+    Bindings bindings = new SimpleBindings();
+    bindings.put("x", 8);
+
+    assertThat(script.eval(bindings), CoreMatchers.<Object>equalTo(new DoubleArrayVector(4)));
+    assertThat(bindings.get("x"), CoreMatchers.<Object>equalTo(8));
+    assertThat(bindings.get("y"), CoreMatchers.<Object>equalTo(new DoubleArrayVector(16)));
+
+    // The engine's own global environment is unchanged
+    assertThat(engine.eval("x"), CoreMatchers.<Object>equalTo(new DoubleArrayVector(1)));
+    assertThat(engine.eval("exists('y')"), CoreMatchers.<Object>equalTo(LogicalVector.FALSE));
+  }
+
+  @Test
+  public void compiledScriptInOtherEngines() throws Exception {
+    CompiledScript script = ((Compilable) engine).compile("s <- 0; for(i in 1:n) s <- s + i; s");
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<?>[] results = new Future[4];
+      for (int i = 0; i < results.length; i++) {
+        int n = 1000 * (i + 1);
+        results[i] = executor.submit(() -> {
+          RenjinScriptEngine other = new RenjinScriptEngineFactory().getScriptEngine();
+          other.put("n", n);
+          return script.eval(other.getContext());
+        });
+      }
+      for (int i = 0; i < results.length; i++) {
+        double n = 1000 * (i + 1);
+        assertThat(results[i].get(), CoreMatchers.<Object>equalTo(new DoubleArrayVector(n * (n + 1) / 2)));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void compiledScriptWithLoopCompilation() throws Exception {
+    CompiledScript script = ((Compilable) engine).compile("s <- 0; for(i in x) s <- s + i; s");
+
+    boolean compileLoops = ForFunction.COMPILE_LOOPS;
+    ForFunction.COMPILE_LOOPS = true;
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      Future<?>[] results = new Future[16];
+      for (int i = 0; i < results.length; i++) {
+        // Alternate between integer and double sequences, so that the engines
+        // discard the loop bodies compiled by each other
+        String x = (i % 2 == 0) ? "1:5000" : "as.double(1:5000)";
+        results[i] = executor.submit(() -> {
+          RenjinScriptEngine other = new RenjinScriptEngineFactory().getScriptEngine();
+          other.eval("x <- " + x);
+          return script.eval(other.getContext());
+        });
+      }
+      for (int i = 0; i < results.length; i++) {
+        assertThat(results[i].get(), CoreMatchers.<Object>equalTo(new DoubleArrayVector(12502500)));
+      }
+    } finally {
+      executor.shutdown();
+      ForFunction.COMPILE_LOOPS = compileLoops;
+    }
+  }
 }